@@ -63,6 +63,14 @@ class QigsawAppBasePlugin extends QigsawPlugin {
             if (!AGPCompat.isAapt2EnabledCompat(project)) {
                 throw new GradleException('generateQigsawApk: AAPT2 required')
             }
+            //binary split info table is mapped from base apk directly, so it must be stored uncompressed.
+            //its extension is only used by qigsaw, other assets of app are not affected.
+            Collection<String> noCompress = android.aaptOptions.noCompress
+            if (noCompress == null || !noCompress.contains(SplitDetailsBinaryWriter.BIN_SUFFIX)) {
+                List<String> extensions = noCompress == null ? new ArrayList<String>() : new ArrayList<String>(noCompress)
+                extensions.add(SplitDetailsBinaryWriter.BIN_SUFFIX)
+                android.aaptOptions.noCompress(extensions as String[])
+            }
             def dynamicFeatures = android.dynamicFeatures
             File assetsDir = null
             File baseManifestSrcFile = null
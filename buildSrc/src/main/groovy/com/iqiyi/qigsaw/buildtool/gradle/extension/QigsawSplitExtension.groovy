@@ -38,6 +38,12 @@ class QigsawSplitExtension {
      */
     String oldApk
 
+    /**
+     * Directory of split apks released with the old apk, named as splitName.apk or splitName.zip,
+     * binary patches of updated splits are created against them. Built-in splits of old apk are used if absent.
+     */
+    String oldSplitApkDir
+
     /**
      * Specifies the version of json file of split-info, default value is 1.0.0
      */
@@ -48,6 +54,12 @@ class QigsawSplitExtension {
      */
     boolean releaseSplitApk = false
 
+    /**
+     * Store native libraries of split apks uncompressed and page-aligned,
+     * so they are loaded from split apk directly instead of being extracted on Android M and above.
+     */
+    boolean storeNativeLibsUncompressed = false
+
     /**
      * Restrict splits working process, if you do not assign split name, this split will work on
      * all processes, otherwise only work processes declared in its manifest.
@@ -59,7 +71,9 @@ class QigsawSplitExtension {
         """| applyMapping = ${applyMapping}
            | splitInfoVersion = ${splitInfoVersion}
            | oldApk = ${oldApk}
+           | oldSplitApkDir = ${oldSplitApkDir}
            | releaseSplitApk = ${releaseSplitApk}
+           | storeNativeLibsUncompressed = ${storeNativeLibsUncompressed}
            | restrictWorkProcessesForSplits = ${restrictWorkProcessesForSplits}
         """.stripMargin()
     }
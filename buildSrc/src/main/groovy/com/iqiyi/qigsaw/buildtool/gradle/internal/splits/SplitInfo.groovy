@@ -96,6 +96,21 @@ class SplitInfo {
 
     List<String> dependencies
 
+    /**
+     * Download link of binary patch against the old split apk
+     */
+    String patchUrl
+
+    /**
+     * size of binary patch file
+     */
+    long patchSize
+
+    /**
+     * md5 of the old split apk which binary patch is created against
+     */
+    String patchBaseMd5
+
     static class LibInfo {
 
         String abi
@@ -120,6 +135,8 @@ class SplitInfo {
            | minSdkVersion = ${minSdkVersion}
            | dexNumber = ${dexNumber}
            | version = ${version}
+           | patchUrl = ${patchUrl}
+           | patchSize = ${patchSize}
            | workProcesses = ${workProcesses}
         """.stripMargin()
     }
@@ -26,6 +26,8 @@ package com.iqiyi.qigsaw.buildtool.gradle.internal.splits;
 
 interface SplitProcessor {
 
+    File alignNativeLibsIfNeed(File splitApk)
+
     File signSplitAPKIfNeed(File splitApk)
 
     SplitInfo createSplitInfo(String splitName, File splitSignedApk, File splitManifest)
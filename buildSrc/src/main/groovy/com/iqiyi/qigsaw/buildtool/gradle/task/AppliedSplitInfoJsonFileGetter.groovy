@@ -36,6 +36,11 @@ class AppliedSplitInfoJsonFileGetter {
 
     String splitDetailsFilePrefix
 
+    /**
+     * Old apk which applied split info json file is extracted from
+     */
+    File oldApk
+
     AppliedSplitInfoJsonFileGetter(Project project, String splitDetailsFilePrefix) {
         this.project = project
         this.splitDetailsFilePrefix = splitDetailsFilePrefix
@@ -91,6 +96,9 @@ class AppliedSplitInfoJsonFileGetter {
             FileUtils.copyFile(inputStream, new FileOutputStream(file))
         }
         FileUtils.closeQuietly(sourceZip)
+        if (file != null) {
+            this.oldApk = oldApk
+        }
         return file
     }
 
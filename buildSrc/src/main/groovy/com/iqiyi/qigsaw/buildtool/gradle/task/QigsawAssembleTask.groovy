@@ -101,8 +101,10 @@ class QigsawAssembleTask extends DefaultTask {
                 throw new RuntimeException("Can not find output files of " + dynamicFeature + " " + splitApk + " " + splitManifest)
             }
             SplitProcessorImpl splitProcessor = new SplitProcessorImpl(project, android, variantName, dynamicFeatureDependenciesMap)
+            //store native libs uncompressed if needed, aligned apk is unsigned.
+            File splitAlignedApk = splitProcessor.alignNativeLibsIfNeed(splitApk)
             //sign split apk if needed
-            File splitSignedApk = splitProcessor.signSplitAPKIfNeed(splitApk)
+            File splitSignedApk = splitProcessor.signSplitAPKIfNeed(splitAlignedApk)
             SplitInfo splitInfo = splitProcessor.createSplitInfo(splitName, splitSignedApk, splitManifest)
             splitInfoMap.put(splitInfo.splitName, splitInfo)
         }
@@ -148,6 +150,15 @@ class QigsawAssembleTask extends DefaultTask {
         }
         intermediates.add(assetsSplitDetailsFile)
         FileUtils.copyFile(splitDetailsFile, assetsSplitDetailsFile)
+        File splitDetailsBinaryFile = new SplitDetailsBinaryWriter().write(splitDetailsFile)
+        if (splitDetailsBinaryFile != null) {
+            File assetsSplitDetailsBinaryFile = new File(assetsDir, splitDetailsBinaryFile.name)
+            if (assetsSplitDetailsBinaryFile.exists()) {
+                assetsSplitDetailsBinaryFile.delete()
+            }
+            intermediates.add(assetsSplitDetailsBinaryFile)
+            FileUtils.copyFile(splitDetailsBinaryFile, assetsSplitDetailsBinaryFile)
+        }
         for (SplitInfo info : splits) {
             File assetsSplitApk = new File(assetsDir, info.splitName + SdkConstants.DOT_ZIP)
             intermediates.add(assetsSplitApk)
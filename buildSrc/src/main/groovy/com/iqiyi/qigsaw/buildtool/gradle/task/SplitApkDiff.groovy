@@ -0,0 +1,156 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.iqiyi.qigsaw.buildtool.gradle.task
+
+import groovy.transform.CompileStatic
+
+import java.util.zip.Deflater
+import java.util.zip.DeflaterOutputStream
+
+/**
+ * Create binary patch of split apk, format of the patch must be consistent with SplitApkPatcher of runtime.
+ * <p>
+ * Layout: magic, format version, size of new apk (big-endian),
+ * followed by deflated operations: COPY (offset in old apk, length), INSERT (length, bytes) and END.
+ * Blocks of old apk are indexed by rolling checksum, so unchanged zip entries are copied from old apk.
+ */
+@CompileStatic
+class SplitApkDiff {
+
+    final static int MAGIC = 0x51535044
+
+    final static int FORMAT_VERSION = 1
+
+    final static int OP_END = 0
+
+    final static int OP_COPY = 1
+
+    final static int OP_INSERT = 2
+
+    final static int BLOCK_SIZE = 64
+
+    static void diff(File oldApk, File newApk, File patchFile) {
+        byte[] oldBytes = oldApk.bytes
+        byte[] newBytes = newApk.bytes
+        Map<Integer, Integer> blockIndex = indexBlocks(oldBytes)
+        DataOutputStream header = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(patchFile)))
+        try {
+            header.writeInt(MAGIC)
+            header.writeInt(FORMAT_VERSION)
+            header.writeLong(newBytes.length)
+            header.flush()
+            DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(header, new Deflater(Deflater.BEST_COMPRESSION)))
+            int literalStart = 0
+            int pos = 0
+            int a = 0
+            int b = 0
+            if (newBytes.length >= BLOCK_SIZE) {
+                int[] sums = checksum(newBytes, 0)
+                a = sums[0]
+                b = sums[1]
+            }
+            while (pos + BLOCK_SIZE <= newBytes.length) {
+                Integer oldOffset = blockIndex.get(a | (b << 16))
+                if (oldOffset != null && rangeEquals(oldBytes, oldOffset, newBytes, pos, BLOCK_SIZE)) {
+                    int start = oldOffset
+                    int back = 0
+                    while (pos - back > literalStart && start - back > 0
+                            && oldBytes[start - back - 1] == newBytes[pos - back - 1]) {
+                        back++
+                    }
+                    int length = BLOCK_SIZE
+                    while (pos + length < newBytes.length && start + length < oldBytes.length
+                            && oldBytes[start + length] == newBytes[pos + length]) {
+                        length++
+                    }
+                    writeInsert(out, newBytes, literalStart, pos - back)
+                    out.writeByte(OP_COPY)
+                    out.writeLong(start - back)
+                    out.writeInt(length + back)
+                    pos += length
+                    literalStart = pos
+                    if (pos + BLOCK_SIZE <= newBytes.length) {
+                        int[] sums = checksum(newBytes, pos)
+                        a = sums[0]
+                        b = sums[1]
+                    }
+                    continue
+                }
+                if (pos + BLOCK_SIZE < newBytes.length) {
+                    int out0 = newBytes[pos] & 0xff
+                    int in0 = newBytes[pos + BLOCK_SIZE] & 0xff
+                    a = (a - out0 + in0) & 0xffff
+                    b = (b - BLOCK_SIZE * out0 + a) & 0xffff
+                }
+                pos++
+            }
+            writeInsert(out, newBytes, literalStart, newBytes.length)
+            out.writeByte(OP_END)
+            out.close()
+        } finally {
+            header.close()
+        }
+    }
+
+    private static Map<Integer, Integer> indexBlocks(byte[] oldBytes) {
+        Map<Integer, Integer> blockIndex = new HashMap<>()
+        for (int offset = 0; offset + BLOCK_SIZE <= oldBytes.length; offset += BLOCK_SIZE) {
+            int[] sums = checksum(oldBytes, offset)
+            Integer key = sums[0] | (sums[1] << 16)
+            if (!blockIndex.containsKey(key)) {
+                blockIndex.put(key, offset)
+            }
+        }
+        return blockIndex
+    }
+
+    private static int[] checksum(byte[] bytes, int offset) {
+        int a = 0
+        int b = 0
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            int value = bytes[offset + i] & 0xff
+            a += value
+            b += (BLOCK_SIZE - i) * value
+        }
+        return [a & 0xffff, b & 0xffff] as int[]
+    }
+
+    private static boolean rangeEquals(byte[] oldBytes, int oldOffset, byte[] newBytes, int newOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            if (oldBytes[oldOffset + i] != newBytes[newOffset + i]) {
+                return false
+            }
+        }
+        return true
+    }
+
+    private static void writeInsert(DataOutputStream out, byte[] newBytes, int start, int end) {
+        if (end > start) {
+            out.writeByte(OP_INSERT)
+            out.writeInt(end - start)
+            out.write(newBytes, start, end - start)
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.iqiyi.qigsaw.buildtool.gradle.task
+
+import com.google.gson.Gson
+import com.iqiyi.qigsaw.buildtool.gradle.internal.splits.SplitDetails
+import com.iqiyi.qigsaw.buildtool.gradle.internal.splits.SplitInfo
+
+/**
+ * Create binary split info table from split details json file,
+ * layout of the table must be consistent with SplitInfoBinaryIndex of runtime.
+ */
+class SplitDetailsBinaryWriter {
+
+    final static int MAGIC = 0x51534946
+
+    final static int FORMAT_VERSION = 2
+
+    final static int HEADER_SIZE = 44
+
+    final static String BIN_SUFFIX = ".qgbin"
+
+    final static String JSON_SUFFIX = ".json"
+
+    private final Map<String, Integer> stringIndexes = new LinkedHashMap<>()
+
+    private final List<byte[]> stringBytes = new ArrayList<>()
+
+    /**
+     * @return binary file next to json file, or {@code null} if split details are not valid.
+     */
+    File write(File splitDetailsFile) {
+        SplitDetails splitDetails = new Gson().fromJson(splitDetailsFile.getText("UTF-8"), SplitDetails)
+        if (splitDetails == null || splitDetails.splits == null) {
+            return null
+        }
+        for (SplitInfo info : splitDetails.splits) {
+            if (!isValid(info)) {
+                return null
+            }
+        }
+        String fileName = splitDetailsFile.name
+        if (fileName.endsWith(JSON_SUFFIX)) {
+            fileName = fileName.substring(0, fileName.length() - JSON_SUFFIX.length())
+        }
+        File binaryFile = new File(splitDetailsFile.parentFile, fileName + BIN_SUFFIX)
+        if (binaryFile.exists()) {
+            binaryFile.delete()
+        }
+        binaryFile.withOutputStream { os ->
+            os.write(toByteArray(splitDetails))
+        }
+        return binaryFile
+    }
+
+    private byte[] toByteArray(SplitDetails splitDetails) {
+        List<SplitInfo> splits = splitDetails.splits
+        int qigsawIdIndex = intern(splitDetails.qigsawId)
+        int appVersionNameIndex = intern(splitDetails.appVersionName)
+        //split records
+        ByteArrayOutputStream recordsBytes = new ByteArrayOutputStream()
+        DataOutputStream records = new DataOutputStream(recordsBytes)
+        List<Integer> recordOffsets = new ArrayList<>(splits.size())
+        for (SplitInfo info : splits) {
+            recordOffsets.add(records.size())
+            writeSplitInfo(records, info)
+        }
+        //update splits
+        ByteArrayOutputStream updateBytes = new ByteArrayOutputStream()
+        DataOutputStream update = new DataOutputStream(updateBytes)
+        List<String> updateSplits = splitDetails.updateSplits == null ? Collections.emptyList() : splitDetails.updateSplits
+        update.writeInt(updateSplits.size())
+        for (String splitName : updateSplits) {
+            update.writeInt(intern(splitName))
+        }
+        //hash index of split name
+        int bucketCount = Math.max(1, splits.size() * 2)
+        int[] buckets = new int[bucketCount]
+        Arrays.fill(buckets, -1)
+        for (int i = 0; i < splits.size(); i++) {
+            int bucket = (splits.get(i).splitName.hashCode() & 0x7fffffff) % bucketCount
+            while (buckets[bucket] >= 0) {
+                bucket = (bucket + 1) % bucketCount
+            }
+            buckets[bucket] = i
+        }
+        int updateSplitsOffset = HEADER_SIZE
+        int splitTableOffset = updateSplitsOffset + update.size()
+        int hashTableOffset = splitTableOffset + 4 * splits.size()
+        int stringTableOffset = hashTableOffset + 4 + 4 * bucketCount
+        int stringDataOffset = stringTableOffset + 4 * stringBytes.size()
+        int stringDataSize = 0
+        for (byte[] bytes : stringBytes) {
+            stringDataSize += 4 + bytes.length
+        }
+        int recordsOffset = stringDataOffset + stringDataSize
+
+        ByteArrayOutputStream outputBytes = new ByteArrayOutputStream()
+        DataOutputStream out = new DataOutputStream(outputBytes)
+        out.writeInt(MAGIC)
+        out.writeInt(FORMAT_VERSION)
+        out.writeInt(qigsawIdIndex)
+        out.writeInt(appVersionNameIndex)
+        out.writeInt(splits.size())
+        out.writeInt(stringBytes.size())
+        out.writeInt(updateSplitsOffset)
+        out.writeInt(splitTableOffset)
+        out.writeInt(hashTableOffset)
+        out.writeInt(stringTableOffset)
+        out.writeInt(stringDataOffset)
+        out.write(updateBytes.toByteArray())
+        for (int offset : recordOffsets) {
+            out.writeInt(recordsOffset + offset)
+        }
+        out.writeInt(bucketCount)
+        for (int ordinal : buckets) {
+            out.writeInt(ordinal)
+        }
+        int stringOffset = 0
+        for (byte[] bytes : stringBytes) {
+            out.writeInt(stringOffset)
+            stringOffset += 4 + bytes.length
+        }
+        for (byte[] bytes : stringBytes) {
+            out.writeInt(bytes.length)
+            out.write(bytes)
+        }
+        out.write(recordsBytes.toByteArray())
+        out.flush()
+        return outputBytes.toByteArray()
+    }
+
+    private void writeSplitInfo(DataOutputStream out, SplitInfo info) {
+        out.writeInt(intern(info.splitName))
+        out.writeInt(intern(info.version))
+        out.writeInt(intern(info.url))
+        out.writeInt(intern(info.md5))
+        out.writeLong(info.size)
+        out.writeByte(info.builtIn ? 1 : 0)
+        out.writeInt(info.minSdkVersion)
+        out.writeInt(info.dexNumber)
+        writeStrings(out, info.workProcesses)
+        writeStrings(out, info.dependencies)
+        if (info.libInfo != null && info.libInfo.libs != null && !info.libInfo.libs.isEmpty()) {
+            out.writeInt(intern(info.libInfo.abi))
+            out.writeInt(info.libInfo.libs.size())
+            for (SplitInfo.LibInfo.Lib lib : info.libInfo.libs) {
+                out.writeInt(intern(lib.name))
+                out.writeInt(intern(lib.md5))
+                out.writeLong(lib.size)
+            }
+        } else {
+            out.writeInt(-1)
+        }
+        out.writeInt(intern(info.patchUrl))
+        out.writeInt(intern(info.patchBaseMd5))
+        out.writeLong(info.patchSize)
+    }
+
+    private void writeStrings(DataOutputStream out, List<String> strings) {
+        if (strings == null) {
+            out.writeInt(0)
+            return
+        }
+        out.writeInt(strings.size())
+        for (String str : strings) {
+            out.writeInt(intern(str))
+        }
+    }
+
+    private int intern(String str) {
+        if (str == null) {
+            return -1
+        }
+        Integer index = stringIndexes.get(str)
+        if (index == null) {
+            index = stringBytes.size()
+            stringIndexes.put(str, index)
+            stringBytes.add(str.getBytes("UTF-8"))
+        }
+        return index
+    }
+
+    /**
+     * Same as SplitInfo#isValid() of runtime, runtime does not verify split infos of binary table again.
+     */
+    private static boolean isValid(SplitInfo info) {
+        if (isEmpty(info.url) || isEmpty(info.splitName) || isEmpty(info.md5) || info.size <= 0) {
+            return false
+        }
+        if (info.libInfo != null && info.libInfo.libs != null && !info.libInfo.libs.isEmpty()) {
+            if (isEmpty(info.libInfo.abi)) {
+                return false
+            }
+            for (SplitInfo.LibInfo.Lib lib : info.libInfo.libs) {
+                if (isEmpty(lib.name) || isEmpty(lib.md5)) {
+                    return false
+                }
+                if (!lib.name.startsWith("lib") && !lib.name.endsWith(".so")) {
+                    return false
+                }
+            }
+        }
+        return true
+    }
+
+    private static boolean isEmpty(String str) {
+        return str == null || str.length() == 0
+    }
+}
@@ -67,11 +67,11 @@ class SplitDetailsCreatorImpl implements SplitDetailsCreator {
         AppliedSplitInfoJsonFileGetter fileGetter = new AppliedSplitInfoJsonFileGetter(appProject, splitDetailsFilePrefix)
         File splitInfoJsonFromTinker = fileGetter.getSplitInfoJsonFileFromTinkerOldApk()
         if (splitInfoJsonFromTinker != null) {
-            return createAppliedSplitInfoJsonFile(splitInfoJsonFromTinker, splits)
+            return createAppliedSplitInfoJsonFile(splitInfoJsonFromTinker, splits, fileGetter.oldApk)
         }
         File splitInfoJsonFromQigsaw = fileGetter.getSplitInfoJsonFileFromQigsawOldApk()
         if (splitInfoJsonFromQigsaw != null) {
-            return createAppliedSplitInfoJsonFile(splitInfoJsonFromQigsaw, splits)
+            return createAppliedSplitInfoJsonFile(splitInfoJsonFromQigsaw, splits, fileGetter.oldApk)
         }
 
         for (SplitInfo info : splits) {
@@ -81,12 +81,14 @@ class SplitDetailsCreatorImpl implements SplitDetailsCreator {
         return createNewSplitInfoJsonFile(newSplitDetails)
     }
 
-    File createAppliedSplitInfoJsonFile(File oldSplitInfoJsonFile, List<SplitInfo> splits) {
+    File createAppliedSplitInfoJsonFile(File oldSplitInfoJsonFile, List<SplitInfo> splits, File oldApk) {
         SplitDetails splitDetails = createSplitDetails(oldSplitInfoJsonFile)
         if (!hasSplitVersionChanged(splitDetails, splits)) {
             return oldSplitInfoJsonFile
         } else {
-            SplitDetails newSplitDetailsForTinker = createSplitDetailsWithApplied(splitDetails, splits)
+            SplitPatchCreator patchCreator = new SplitPatchCreator(appProject, oldApk,
+                    appProject.extensions.qigsawSplit.oldSplitApkDir, variantName)
+            SplitDetails newSplitDetailsForTinker = createSplitDetailsWithApplied(splitDetails, splits, patchCreator)
             return createNewSplitInfoJsonFile(newSplitDetailsForTinker)
         }
     }
@@ -180,7 +182,9 @@ class SplitDetailsCreatorImpl implements SplitDetailsCreator {
         return versionChanged
     }
 
-    private SplitDetails createSplitDetailsWithApplied(SplitDetails appliedSplitDetails, List<SplitInfo> splits) {
+    private SplitDetails createSplitDetailsWithApplied(SplitDetails appliedSplitDetails,
+                                                      List<SplitInfo> splits,
+                                                      SplitPatchCreator patchCreator) {
         if (appliedSplitDetails != null && appliedSplitDetails.splits != null) {
             List<String> updateSplits = new ArrayList<>()
             for (SplitInfo info : splits) {
@@ -197,6 +201,7 @@ class SplitDetailsCreatorImpl implements SplitDetailsCreator {
                             info.builtIn = false
                             updateSplits.add(info.splitName)
                             uploadSplitAPKIfNeed(info)
+                            patchCreator.createPatchIfNeed(info, appliedInfo.md5)
                         }
                     }
                 }
@@ -0,0 +1,144 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.iqiyi.qigsaw.buildtool.gradle.task
+
+import groovy.transform.CompileStatic
+
+import java.util.zip.CRC32
+import java.util.zip.ZipEntry
+import java.util.zip.ZipFile
+import java.util.zip.ZipOutputStream
+
+/**
+ * Rewrite split apk so that native libraries are stored uncompressed and page-aligned,
+ * SplitNativeLibraryLayout of runtime loads them from apk directly instead of extracting them.
+ * <p>
+ * Alignment is recorded in the zipalign extra field (0xd935), so apksig keeps it when the apk is signed again.
+ * Signature files are dropped, the rewritten apk must be signed.
+ */
+@CompileStatic
+class SplitNativeLibsAligner {
+
+    final static int LIB_ALIGNMENT = 4096
+
+    final static int STORED_ALIGNMENT = 4
+
+    final static int ALIGNMENT_EXTRA_ID = 0xd935
+
+    final static int LOCAL_HEADER_SIZE = 30
+
+    static boolean hasNativeLibs(File apk) {
+        ZipFile zip = new ZipFile(apk)
+        try {
+            return zip.entries().find { ZipEntry entry -> isNativeLib(entry.name) } != null
+        } finally {
+            zip.close()
+        }
+    }
+
+    static void align(File apk, File alignedApk) {
+        ZipFile zip = new ZipFile(apk)
+        CountingOutputStream counter = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(alignedApk)))
+        ZipOutputStream zos = new ZipOutputStream(counter)
+        try {
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                if (entry.directory || isSignatureFile(entry.name)) {
+                    continue
+                }
+                byte[] data = zip.getInputStream(entry).bytes
+                ZipEntry newEntry = new ZipEntry(entry.name)
+                newEntry.time = entry.time
+                boolean nativeLib = isNativeLib(entry.name)
+                if (nativeLib || entry.method == ZipEntry.STORED) {
+                    CRC32 crc = new CRC32()
+                    crc.update(data)
+                    newEntry.method = ZipEntry.STORED
+                    newEntry.size = data.length
+                    newEntry.compressedSize = data.length
+                    newEntry.crc = crc.value
+                    int nameLength = entry.name.getBytes("UTF-8").length
+                    newEntry.extra = createAlignmentExtra(counter.count + LOCAL_HEADER_SIZE + nameLength,
+                            nativeLib ? LIB_ALIGNMENT : STORED_ALIGNMENT)
+                } else {
+                    newEntry.method = ZipEntry.DEFLATED
+                }
+                zos.putNextEntry(newEntry)
+                zos.write(data)
+                zos.closeEntry()
+            }
+        } finally {
+            zos.close()
+            zip.close()
+        }
+    }
+
+    /**
+     * @param extraOffset offset of extra field in output apk.
+     */
+    private static byte[] createAlignmentExtra(long extraOffset, int alignment) {
+        int padding = (int) ((alignment - (extraOffset + 6) % alignment) % alignment)
+        byte[] extra = new byte[6 + padding]
+        extra[0] = (byte) (ALIGNMENT_EXTRA_ID & 0xff)
+        extra[1] = (byte) ((ALIGNMENT_EXTRA_ID >>> 8) & 0xff)
+        extra[2] = (byte) ((2 + padding) & 0xff)
+        extra[3] = (byte) (((2 + padding) >>> 8) & 0xff)
+        extra[4] = (byte) (alignment & 0xff)
+        extra[5] = (byte) ((alignment >>> 8) & 0xff)
+        return extra
+    }
+
+    private static boolean isNativeLib(String name) {
+        return name.startsWith("lib/") && name.endsWith(".so")
+    }
+
+    private static boolean isSignatureFile(String name) {
+        if (!name.startsWith("META-INF/")) {
+            return false
+        }
+        String upperName = name.toUpperCase(Locale.US)
+        return upperName == "META-INF/MANIFEST.MF" || upperName.endsWith(".SF") || upperName.endsWith(".RSA") || upperName.endsWith(".DSA") || upperName.endsWith(".EC")
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        long count
+
+        CountingOutputStream(OutputStream out) {
+            super(out)
+        }
+
+        @Override
+        void write(int b) {
+            out.write(b)
+            count++
+        }
+
+        @Override
+        void write(byte[] b, int off, int len) {
+            out.write(b, off, len)
+            count += len
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.iqiyi.qigsaw.buildtool.gradle.task
+
+import com.iqiyi.qigsaw.buildtool.gradle.internal.splits.SplitInfo
+import com.iqiyi.qigsaw.buildtool.gradle.internal.tool.FileUtils
+import com.iqiyi.qigsaw.buildtool.gradle.upload.SplitApkUploader
+import com.iqiyi.qigsaw.buildtool.gradle.upload.SplitApkUploaderInstance
+import org.gradle.api.Project
+
+import java.util.zip.ZipEntry
+import java.util.zip.ZipFile
+
+/**
+ * Create binary patches of updated splits against split apks released with old apk.
+ */
+class SplitPatchCreator {
+
+    final static String PATCH_SUFFIX = ".patch"
+
+    Project appProject
+
+    File oldApk
+
+    String oldSplitApkDir
+
+    File patchDir
+
+    SplitPatchCreator(Project appProject, File oldApk, String oldSplitApkDir, String variantName) {
+        this.appProject = appProject
+        this.oldApk = oldApk
+        this.oldSplitApkDir = oldSplitApkDir
+        this.patchDir = new File(appProject.buildDir.absolutePath + File.separator + "intermediates/qigsaw/patches" + File.separator + variantName)
+    }
+
+    /**
+     * Upload binary patch of split and record it in split info, full split apk is used if patch is unavailable.
+     *
+     * @param info    split info of new version.
+     * @param baseMd5 md5 of split apk released with old apk.
+     */
+    void createPatchIfNeed(SplitInfo info, String baseMd5) {
+        SplitApkUploader uploader = SplitApkUploaderInstance.get()
+        if (info.builtIn || uploader == null) {
+            return
+        }
+        File patchFile = createPatch(info, baseMd5)
+        if (patchFile == null) {
+            return
+        }
+        String uploadedUrl = uploader.uploadSync(appProject, patchFile, info.splitName)
+        if (uploadedUrl != null && uploadedUrl.startsWith("http")) {
+            info.patchUrl = uploadedUrl
+            info.patchSize = patchFile.length()
+            info.patchBaseMd5 = baseMd5
+        }
+    }
+
+    /**
+     * Create binary patch of split against split apk released with old apk.
+     *
+     * @return patch file, or {@code null} if old split apk is not found or patch is not smaller than split apk.
+     */
+    File createPatch(SplitInfo info, String baseMd5) {
+        File baseApk = findOldSplitApk(info.splitName, baseMd5)
+        if (baseApk == null) {
+            appProject.logger.warn("Old apk of split " + info.splitName + " is not found, skip creating patch")
+            return null
+        }
+        if (!patchDir.exists()) {
+            patchDir.mkdirs()
+        }
+        File patchFile = new File(patchDir, info.splitName + "_" + info.version + PATCH_SUFFIX)
+        if (patchFile.exists()) {
+            patchFile.delete()
+        }
+        SplitApkDiff.diff(baseApk, info.splitApk, patchFile)
+        if (patchFile.length() >= info.size) {
+            appProject.logger.warn("Patch of split " + info.splitName + " is not smaller than split apk, skip it")
+            return null
+        }
+        return patchFile
+    }
+
+    private File findOldSplitApk(String splitName, String baseMd5) {
+        if (oldSplitApkDir != null) {
+            for (String suffix : [".apk", ".zip"]) {
+                File file = new File(oldSplitApkDir, splitName + suffix)
+                if (file.exists() && baseMd5.equals(FileUtils.getMD5(file))) {
+                    return file
+                }
+            }
+        }
+        if (oldApk == null || !oldApk.exists()) {
+            return null
+        }
+        //built-in split of old apk
+        ZipFile sourceZip = new ZipFile(oldApk)
+        try {
+            ZipEntry entry = sourceZip.getEntry("assets/" + splitName + ".zip")
+            if (entry == null) {
+                return null
+            }
+            if (!patchDir.exists()) {
+                patchDir.mkdirs()
+            }
+            File file = new File(patchDir, splitName + "_base.apk")
+            FileUtils.copyFile(sourceZip.getInputStream(entry), new FileOutputStream(file))
+            if (baseMd5.equals(FileUtils.getMD5(file))) {
+                return file
+            }
+            file.delete()
+            return null
+        } finally {
+            FileUtils.closeQuietly(sourceZip)
+        }
+    }
+}
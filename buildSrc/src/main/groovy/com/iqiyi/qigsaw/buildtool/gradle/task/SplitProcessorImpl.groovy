@@ -60,6 +60,17 @@ class SplitProcessorImpl implements SplitProcessor {
         this.variantName = variantName
     }
 
+    @Override
+    final File alignNativeLibsIfNeed(File splitApk) {
+        boolean storeNativeLibsUncompressed = appProject.extensions.qigsawSplit.storeNativeLibsUncompressed
+        if (!storeNativeLibsUncompressed || !SplitNativeLibsAligner.hasNativeLibs(splitApk)) {
+            return splitApk
+        }
+        File alignedApk = new File(splitApk.path.toString() + ".aligned")
+        SplitNativeLibsAligner.align(splitApk, alignedApk)
+        return alignedApk
+    }
+
     @Override
     final File signSplitAPKIfNeed(File splitApk) {
         ApkVerifier apkVerifier = new ApkVerifier.Builder(splitApk).build()
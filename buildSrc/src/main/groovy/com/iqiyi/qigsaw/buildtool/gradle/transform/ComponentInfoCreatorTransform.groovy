@@ -126,11 +126,24 @@ class ComponentInfoCreatorTransform extends Transform {
                     providers.add(it.name)
                 }
 
+                Set<String> packages = new TreeSet<>()
+                String packageName = manifestReader.readPackageName()
+                if (packageName != null && packageName.length() > 0) {
+                    packages.add(packageName)
+                }
+                (applications + activities + services + receivers + providers).each {
+                    String packagePrefix = getPackagePrefix(it)
+                    if (packagePrefix != null) {
+                        packages.add(packagePrefix)
+                    }
+                }
+
                 addFieldMap.put(splitName + "_APPLICATION", applications)
                 addFieldMap.put(splitName + "_ACTIVITIES", activities)
                 addFieldMap.put(splitName + "_SERVICES", services)
                 addFieldMap.put(splitName + "_RECEIVERS", receivers)
                 addFieldMap.put(splitName + "_PROVIDERS", providers)
+                addFieldMap.put(splitName + "_PACKAGES", new ArrayList<String>(packages))
             }
         }
 
@@ -156,6 +169,17 @@ class ComponentInfoCreatorTransform extends Transform {
         weave(addFieldMap, dest)
     }
 
+    /**
+     * Package of a split class, used by runtime to find the class loader of split directly.
+     */
+    static String getPackagePrefix(String className) {
+        int index = className.lastIndexOf(".")
+        if (index <= 0) {
+            return null
+        }
+        return className.substring(0, index)
+    }
+
     static String getStringMD5(String str) {
         return MessageDigest.getInstance("MD5").digest(str.bytes).encodeHex().toString()
     }
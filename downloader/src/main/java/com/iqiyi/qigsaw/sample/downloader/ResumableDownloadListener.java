@@ -0,0 +1,23 @@
+package com.iqiyi.qigsaw.sample.downloader;
+
+import java.io.File;
+
+public interface ResumableDownloadListener {
+
+    /**
+     * @param downloadedBytes bytes of file downloaded, including resumed ones.
+     * @param totalBytes      expected size of file, {@code 0} if unknown.
+     */
+    void onProgress(long downloadedBytes, long totalBytes);
+
+    /**
+     * @param file        downloaded file.
+     * @param md5Verified whether md5 computed while writing file matches expected md5.
+     */
+    void onCompleted(File file, boolean md5Verified);
+
+    void onCanceled();
+
+    void onError(Exception e);
+
+}
@@ -0,0 +1,340 @@
+package com.iqiyi.qigsaw.sample.downloader;
+
+import android.text.TextUtils;
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+
+/**
+ * Download a file with HTTP Range requests, so that an interrupted download is resumed from
+ * the last persisted checkpoint instead of restarting from zero.
+ * Md5 is computed while bytes are written, downloaded file is not read again to verify it.
+ * <p>
+ * Bytes are written to "fileName.part" and the checkpoint is stored in "fileName.checkpoint",
+ * the part file is renamed to fileName once it is completed and verified.
+ */
+public class ResumableDownloadTask implements Runnable {
+
+    private static final String TAG = "Split:ResumableTask";
+
+    private static final String PART_SUFFIX = ".part";
+
+    private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+
+    private static final String KEY_URL = "url";
+
+    private static final String KEY_SIZE = "size";
+
+    private static final String KEY_ETAG = "etag";
+
+    private static final String KEY_LAST_MODIFIED = "lastModified";
+
+    private static final String KEY_OFFSET = "offset";
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private static final long CHECKPOINT_INTERVAL = 256 * 1024;
+
+    private static final int MAX_RETRY_ATTEMPTS = 3;
+
+    private static final int CONNECT_TIMEOUT = 15 * 1000;
+
+    private static final int READ_TIMEOUT = 30 * 1000;
+
+    private final String url;
+
+    private final File targetFile;
+
+    private final File partFile;
+
+    private final File checkpointFile;
+
+    private final long expectedSize;
+
+    private final String expectedMd5;
+
+    private final ResumableDownloadListener listener;
+
+    private volatile boolean canceled;
+
+    public ResumableDownloadTask(String url,
+                                 File dir,
+                                 String fileName,
+                                 long expectedSize,
+                                 String expectedMd5,
+                                 ResumableDownloadListener listener) {
+        this.url = url;
+        this.targetFile = new File(dir, fileName);
+        this.partFile = new File(dir, fileName + PART_SUFFIX);
+        this.checkpointFile = new File(dir, fileName + CHECKPOINT_SUFFIX);
+        this.expectedSize = expectedSize;
+        this.expectedMd5 = expectedMd5;
+        this.listener = listener;
+    }
+
+    /**
+     * Stop downloading, the checkpoint is kept so that task could be resumed later.
+     */
+    public void cancel() {
+        canceled = true;
+    }
+
+    @Override
+    public void run() {
+        if (targetFile.exists() && (expectedSize <= 0 || targetFile.length() == expectedSize)) {
+            //file is completed by an earlier task, it is only reported as verified after its md5 is checked again.
+            if (TextUtils.isEmpty(expectedMd5)) {
+                listener.onCompleted(targetFile, false);
+                return;
+            }
+            try {
+                MessageDigest digest = newMd5Digest();
+                updateDigest(digest, targetFile, targetFile.length());
+                if (expectedMd5.equalsIgnoreCase(toHexString(digest.digest()))) {
+                    listener.onCompleted(targetFile, true);
+                    return;
+                }
+                Log.w(TAG, "Md5 of existing " + targetFile.getAbsolutePath() + " mismatches, download it again");
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to check md5 of existing " + targetFile.getAbsolutePath(), e);
+            }
+            if (!targetFile.delete()) {
+                listener.onError(new IOException("Failed to delete " + targetFile.getAbsolutePath()));
+                return;
+            }
+        }
+        IOException lastError = null;
+        int numAttempts = 0;
+        while (numAttempts < MAX_RETRY_ATTEMPTS) {
+            numAttempts++;
+            try {
+                download();
+                return;
+            } catch (IOException e) {
+                if (canceled) {
+                    listener.onCanceled();
+                    return;
+                }
+                lastError = e;
+                Log.w(TAG, "Failed to download " + url + ", attempts times : " + numAttempts, e);
+            }
+        }
+        listener.onError(lastError);
+    }
+
+    private void download() throws IOException {
+        Properties checkpoint = readCheckpoint();
+        long offset = 0;
+        if (checkpoint != null
+                && url.equals(checkpoint.getProperty(KEY_URL))
+                && String.valueOf(expectedSize).equals(checkpoint.getProperty(KEY_SIZE))) {
+            offset = Long.parseLong(checkpoint.getProperty(KEY_OFFSET, "0"));
+            if (offset < 0 || offset > partFile.length()) {
+                offset = 0;
+            }
+        }
+        MessageDigest digest = newMd5Digest();
+        if (offset > 0) {
+            //digest state can not be persisted, so only the downloaded prefix is read again.
+            updateDigest(digest, partFile, offset);
+        }
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+        if (offset > 0) {
+            connection.setRequestProperty("Range", "bytes=" + offset + "-");
+            String validator = checkpoint.getProperty(KEY_ETAG);
+            if (TextUtils.isEmpty(validator)) {
+                validator = checkpoint.getProperty(KEY_LAST_MODIFIED);
+            }
+            if (!TextUtils.isEmpty(validator)) {
+                connection.setRequestProperty("If-Range", validator);
+            }
+        }
+        RandomAccessFile output = null;
+        InputStream input = null;
+        long checkpointOffset = offset;
+        String etag = null;
+        String lastModified = null;
+        try {
+            int responseCode = connection.getResponseCode();
+            if (responseCode == HttpURLConnection.HTTP_PARTIAL) {
+                String contentRange = connection.getHeaderField("Content-Range");
+                if (contentRange == null || !contentRange.startsWith("bytes " + offset + "-")) {
+                    throw new IOException("Unexpected content range " + contentRange + " for offset " + offset);
+                }
+            } else if (responseCode == HttpURLConnection.HTTP_OK) {
+                //server ignores range or file is changed, download it from zero.
+                offset = 0;
+                checkpointOffset = 0;
+                digest.reset();
+            } else {
+                if (responseCode == 416) {
+                    deletePartialFiles();
+                }
+                throw new IOException("Unexpected response code " + responseCode + " of " + url);
+            }
+            etag = connection.getHeaderField("ETag");
+            lastModified = connection.getHeaderField("Last-Modified");
+            output = new RandomAccessFile(partFile, "rw");
+            output.setLength(offset);
+            output.seek(offset);
+            input = connection.getInputStream();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int length;
+            while ((length = input.read(buffer)) != -1) {
+                if (canceled) {
+                    throw new InterruptedIOException("Download of " + url + " is canceled");
+                }
+                output.write(buffer, 0, length);
+                digest.update(buffer, 0, length);
+                offset += length;
+                if (expectedSize > 0 && offset > expectedSize) {
+                    throw new IOException("Downloaded bytes exceed expected size " + expectedSize);
+                }
+                if (offset - checkpointOffset >= CHECKPOINT_INTERVAL) {
+                    output.getFD().sync();
+                    writeCheckpoint(offset, etag, lastModified);
+                    checkpointOffset = offset;
+                }
+                listener.onProgress(offset, expectedSize);
+            }
+            output.getFD().sync();
+        } catch (IOException e) {
+            if (output != null && offset > checkpointOffset) {
+                try {
+                    output.getFD().sync();
+                    writeCheckpoint(offset, etag, lastModified);
+                } catch (IOException ignored) {
+                    //checkpoint of last interval is kept.
+                }
+            }
+            throw e;
+        } finally {
+            closeQuietly(input);
+            closeQuietly(output);
+            connection.disconnect();
+        }
+        if (expectedSize > 0 && offset != expectedSize) {
+            writeCheckpoint(offset, etag, lastModified);
+            throw new IOException("Connection closed at " + offset + " of " + expectedSize + " bytes");
+        }
+        boolean md5Verified = false;
+        if (!TextUtils.isEmpty(expectedMd5)) {
+            String md5 = toHexString(digest.digest());
+            if (!expectedMd5.equalsIgnoreCase(md5)) {
+                deletePartialFiles();
+                throw new IOException("Md5 of " + url + " is " + md5 + ", but expected " + expectedMd5);
+            }
+            md5Verified = true;
+        }
+        if (!partFile.renameTo(targetFile)) {
+            throw new IOException("Failed to rename " + partFile.getAbsolutePath() + " to " + targetFile.getAbsolutePath());
+        }
+        checkpointFile.delete();
+        listener.onCompleted(targetFile, md5Verified);
+    }
+
+    private Properties readCheckpoint() {
+        if (!checkpointFile.exists()) {
+            return null;
+        }
+        FileInputStream is = null;
+        try {
+            is = new FileInputStream(checkpointFile);
+            Properties checkpoint = new Properties();
+            checkpoint.load(is);
+            return checkpoint;
+        } catch (IOException | IllegalArgumentException e) {
+            Log.w(TAG, "Failed to read checkpoint " + checkpointFile.getAbsolutePath(), e);
+            return null;
+        } finally {
+            closeQuietly(is);
+        }
+    }
+
+    private void writeCheckpoint(long offset, String etag, String lastModified) throws IOException {
+        Properties checkpoint = new Properties();
+        checkpoint.setProperty(KEY_URL, url);
+        checkpoint.setProperty(KEY_SIZE, String.valueOf(expectedSize));
+        checkpoint.setProperty(KEY_OFFSET, String.valueOf(offset));
+        if (etag != null) {
+            checkpoint.setProperty(KEY_ETAG, etag);
+        }
+        if (lastModified != null) {
+            checkpoint.setProperty(KEY_LAST_MODIFIED, lastModified);
+        }
+        File tmp = new File(checkpointFile.getAbsolutePath() + ".tmp");
+        FileOutputStream os = new FileOutputStream(tmp);
+        try {
+            checkpoint.store(os, null);
+            os.getFD().sync();
+        } finally {
+            closeQuietly(os);
+        }
+        if (!tmp.renameTo(checkpointFile)) {
+            throw new IOException("Failed to rename checkpoint " + tmp.getAbsolutePath());
+        }
+    }
+
+    private void deletePartialFiles() {
+        partFile.delete();
+        checkpointFile.delete();
+    }
+
+    private static MessageDigest newMd5Digest() throws IOException {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static void updateDigest(MessageDigest digest, File file, long length) throws IOException {
+        FileInputStream is = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long remaining = length;
+            while (remaining > 0) {
+                int count = is.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (count == -1) {
+                    throw new IOException("Partial file " + file.getAbsolutePath() + " is truncated");
+                }
+                digest.update(buffer, 0, count);
+                remaining -= count;
+            }
+        } finally {
+            closeQuietly(is);
+        }
+    }
+
+    private static String toHexString(byte[] bytes) {
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            builder.append(Integer.toString((b & 0xff) + 0x100, 16).substring(1));
+        }
+        return builder.toString();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+                //ignored
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.iqiyi.qigsaw.sample.downloader;
+
+import android.util.Log;
+
+import com.iqiyi.android.qigsaw.core.splitdownload.DownloadCallback;
+import com.iqiyi.android.qigsaw.core.splitdownload.DownloadRequest;
+import com.iqiyi.android.qigsaw.core.splitdownload.Downloader;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Download splits with {@link ResumableDownloadTask}, so that interrupted downloads are resumed and md5 of
+ * split apks is computed while writing them. Verified requests are reported by
+ * {@link DownloadCallback#onVerified(DownloadRequest)}, then split apks are not read again to check md5.
+ * <p>
+ * Started sessions download requests in parallel, deferred sessions are downloaded one request at a time.
+ */
+public abstract class ResumableDownloader implements Downloader {
+
+    private static final String TAG = "Split:ResumableDownloader";
+
+    /**
+     * Error code passed to {@link DownloadCallback#onError(int)} if any request of a session fails.
+     */
+    public static final int ERROR_DOWNLOAD_FAILED = -1;
+
+    private static final int MAX_PARALLEL_TASKS = 3;
+
+    private static final long CANCEL_TIMEOUT_SECONDS = 60;
+
+    private final ExecutorService startedExecutor = Executors.newFixedThreadPool(MAX_PARALLEL_TASKS);
+
+    private final ExecutorService deferredExecutor = Executors.newSingleThreadExecutor();
+
+    private final Map<Integer, Session> sessions = new HashMap<>();
+
+    @Override
+    public void startDownload(int sessionId, List<DownloadRequest> requests, DownloadCallback callback) {
+        download(startedExecutor, sessionId, requests, callback);
+    }
+
+    @Override
+    public void deferredDownload(int sessionId, List<DownloadRequest> requests, DownloadCallback callback, boolean usingMobileDataPermitted) {
+        download(deferredExecutor, sessionId, requests, callback);
+    }
+
+    /**
+     * Cancel all requests of the session and wait until they are stopped, checkpoints are kept so that
+     * the session could be resumed later.
+     */
+    @Override
+    public boolean cancelDownloadSync(int sessionId) {
+        Session session;
+        synchronized (sessions) {
+            session = sessions.get(sessionId);
+        }
+        if (session == null) {
+            return true;
+        }
+        session.callback.onCanceling();
+        session.cancel();
+        try {
+            return session.finished.await(CANCEL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void download(ExecutorService executor, int sessionId, List<DownloadRequest> requests, DownloadCallback callback) {
+        List<DownloadRequest> remoteRequests = new ArrayList<>(requests.size());
+        for (DownloadRequest request : requests) {
+            //built-in splits are copied from assets by installer.
+            if (!request.getUrl().startsWith("assets")) {
+                remoteRequests.add(request);
+            }
+        }
+        callback.onStart();
+        if (remoteRequests.isEmpty()) {
+            callback.onCompleted();
+            return;
+        }
+        Session session = new Session(sessionId, remoteRequests, callback);
+        synchronized (sessions) {
+            sessions.put(sessionId, session);
+        }
+        for (ResumableDownloadTask task : session.tasks) {
+            executor.execute(task);
+        }
+        Log.d(TAG, "Start to download session " + sessionId + ", requests: " + remoteRequests.size());
+    }
+
+    private void onSessionFinished(Session session) {
+        synchronized (sessions) {
+            if (sessions.get(session.sessionId) == session) {
+                sessions.remove(session.sessionId);
+            }
+        }
+    }
+
+    private final class Session {
+
+        final int sessionId;
+
+        final DownloadCallback callback;
+
+        final List<ResumableDownloadTask> tasks;
+
+        final CountDownLatch finished = new CountDownLatch(1);
+
+        private final long[] downloadedBytes;
+
+        private int remainingTasks;
+
+        private boolean failed;
+
+        private boolean canceled;
+
+        Session(int sessionId, List<DownloadRequest> requests, DownloadCallback callback) {
+            this.sessionId = sessionId;
+            this.callback = callback;
+            this.downloadedBytes = new long[requests.size()];
+            this.remainingTasks = requests.size();
+            this.tasks = new ArrayList<>(requests.size());
+            for (int i = 0; i < requests.size(); i++) {
+                DownloadRequest request = requests.get(i);
+                tasks.add(new ResumableDownloadTask(request.getUrl(), new File(request.getFileDir()), request.getFileName(),
+                        request.getSize(), request.getMd5(), new TaskListener(this, request, i)));
+            }
+        }
+
+        void cancel() {
+            for (ResumableDownloadTask task : tasks) {
+                task.cancel();
+            }
+        }
+
+        void onTaskProgress(int index, long bytes) {
+            long currentBytes = 0;
+            synchronized (this) {
+                downloadedBytes[index] = bytes;
+                for (long downloaded : downloadedBytes) {
+                    currentBytes += downloaded;
+                }
+            }
+            callback.onProgress(currentBytes);
+        }
+
+        void onTaskFinished(boolean taskCanceled, boolean taskFailed) {
+            boolean sessionFailed;
+            boolean sessionCanceled;
+            synchronized (this) {
+                if (taskFailed && !failed) {
+                    //other requests are useless if one of them fails.
+                    cancel();
+                }
+                failed |= taskFailed;
+                canceled |= taskCanceled;
+                if (--remainingTasks > 0) {
+                    return;
+                }
+                sessionFailed = failed;
+                sessionCanceled = canceled;
+            }
+            onSessionFinished(this);
+            if (sessionFailed) {
+                callback.onError(ERROR_DOWNLOAD_FAILED);
+            } else if (sessionCanceled) {
+                callback.onCanceled();
+            } else {
+                callback.onCompleted();
+            }
+            finished.countDown();
+        }
+    }
+
+    private static final class TaskListener implements ResumableDownloadListener {
+
+        private final Session session;
+
+        private final DownloadRequest request;
+
+        private final int index;
+
+        TaskListener(Session session, DownloadRequest request, int index) {
+            this.session = session;
+            this.request = request;
+            this.index = index;
+        }
+
+        @Override
+        public void onProgress(long downloadedBytes, long totalBytes) {
+            session.onTaskProgress(index, downloadedBytes);
+        }
+
+        @Override
+        public void onCompleted(File file, boolean md5Verified) {
+            session.onTaskProgress(index, file.length());
+            if (md5Verified) {
+                session.callback.onVerified(request);
+            }
+            session.onTaskFinished(false, false);
+        }
+
+        @Override
+        public void onCanceled() {
+            session.onTaskFinished(true, false);
+        }
+
+        @Override
+        public void onError(Exception e) {
+            Log.w(TAG, "Failed to download " + request.getUrl(), e);
+            session.onTaskFinished(false, true);
+        }
+    }
+}
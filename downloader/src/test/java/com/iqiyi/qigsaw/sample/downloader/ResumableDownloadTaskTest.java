@@ -0,0 +1,287 @@
+package com.iqiyi.qigsaw.sample.downloader;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Download from a local HTTP server which supports Range and If-Range, and cuts connections on purpose.
+ */
+public class ResumableDownloadTaskTest {
+
+    private static final String FILE_NAME = "java.apk";
+
+    private final byte[] content = new byte[1024 * 1024 + 123];
+
+    private String contentMd5;
+
+    private SplitServer server;
+
+    private File dir;
+
+    @Before
+    public void setUp() throws Exception {
+        new Random(8).nextBytes(content);
+        contentMd5 = md5(content);
+        server = new SplitServer(content, "\"v1\"");
+        dir = File.createTempFile("ResumableDownloadTaskTest", "");
+        assertTrue(dir.delete() && dir.mkdirs());
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void downloadInOneRequest() throws IOException {
+        RecordingListener listener = download(contentMd5);
+        assertTrue(listener.md5Verified);
+        assertArrayEquals(content, readBytes(listener.file));
+        assertEquals(Collections.singletonList(0L), server.rangeStarts);
+        assertFalse(new File(dir, FILE_NAME + ".part").exists());
+        assertFalse(new File(dir, FILE_NAME + ".checkpoint").exists());
+    }
+
+    @Test
+    public void resumeAfterDisconnects() throws IOException {
+        server.cutAfter(300 * 1024, 700 * 1024);
+        RecordingListener listener = download(contentMd5);
+        assertNull(listener.error);
+        assertTrue(listener.md5Verified);
+        assertArrayEquals(content, readBytes(listener.file));
+        assertEquals(3, server.rangeStarts.size());
+        //downloaded bytes are not fetched again.
+        assertEquals(Arrays.asList(0L, 300L * 1024, 700L * 1024), server.rangeStarts);
+        assertEquals(content.length, server.servedBytes);
+    }
+
+    @Test
+    public void resumeInNextTask() throws IOException {
+        server.cutAfter(300 * 1024, 400 * 1024, 500 * 1024);
+        RecordingListener listener = download(contentMd5);
+        assertNotNull(listener.error);
+        assertNull(listener.file);
+        assertTrue(new File(dir, FILE_NAME + ".checkpoint").exists());
+
+        listener = download(contentMd5);
+        assertTrue(listener.md5Verified);
+        assertArrayEquals(content, readBytes(listener.file));
+        assertEquals(Arrays.asList(0L, 300L * 1024, 400L * 1024, 500L * 1024), server.rangeStarts);
+    }
+
+    @Test
+    public void restartWhenFileChanged() throws Exception {
+        server.cutAfter(300 * 1024, 300 * 1024, 300 * 1024);
+        download(contentMd5);
+        byte[] newContent = content.clone();
+        newContent[10] ^= 1;
+        server.stop();
+        server = new SplitServer(newContent, "\"v2\"");
+
+        RecordingListener listener = download(md5(newContent));
+        assertTrue(listener.md5Verified);
+        assertArrayEquals(newContent, readBytes(listener.file));
+        //If-Range mismatches, so whole file is sent again.
+        assertEquals(Collections.singletonList(0L), server.rangeStarts);
+    }
+
+    @Test
+    public void rejectMismatchedMd5() throws Exception {
+        byte[] corrupted = content.clone();
+        corrupted[content.length / 2] ^= 1;
+        server.stop();
+        server = new SplitServer(corrupted, "\"v1\"");
+        RecordingListener listener = download(contentMd5);
+        assertNotNull(listener.error);
+        assertNull(listener.file);
+        assertFalse(new File(dir, FILE_NAME).exists());
+        assertFalse(new File(dir, FILE_NAME + ".part").exists());
+    }
+
+    @Test
+    public void verifyExistingFile() throws IOException {
+        writeBytes(new File(dir, FILE_NAME), content);
+        RecordingListener listener = download(contentMd5);
+        assertTrue(listener.md5Verified);
+        assertTrue(server.rangeStarts.isEmpty());
+    }
+
+    @Test
+    public void downloadAgainIfExistingFileMismatches() throws IOException {
+        byte[] stale = content.clone();
+        stale[0] ^= 1;
+        writeBytes(new File(dir, FILE_NAME), stale);
+        RecordingListener listener = download(contentMd5);
+        assertTrue(listener.md5Verified);
+        assertArrayEquals(content, readBytes(listener.file));
+        assertEquals(Collections.singletonList(0L), server.rangeStarts);
+    }
+
+    private RecordingListener download(String md5) {
+        RecordingListener listener = new RecordingListener();
+        new ResumableDownloadTask(server.url(), dir, FILE_NAME, content.length, md5, listener).run();
+        return listener;
+    }
+
+    private static String md5(byte[] bytes) throws Exception {
+        byte[] digest = MessageDigest.getInstance("MD5").digest(bytes);
+        StringBuilder builder = new StringBuilder();
+        for (byte b : digest) {
+            builder.append(Integer.toString((b & 0xff) + 0x100, 16).substring(1));
+        }
+        return builder.toString();
+    }
+
+    private static byte[] readBytes(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            byte[] bytes = new byte[(int) raf.length()];
+            raf.readFully(bytes);
+            return bytes;
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static void writeBytes(File file, byte[] bytes) throws IOException {
+        FileOutputStream os = new FileOutputStream(file);
+        try {
+            os.write(bytes);
+        } finally {
+            os.close();
+        }
+    }
+
+    private static class RecordingListener implements ResumableDownloadListener {
+
+        File file;
+
+        boolean md5Verified;
+
+        Exception error;
+
+        @Override
+        public void onProgress(long downloadedBytes, long totalBytes) {
+
+        }
+
+        @Override
+        public void onCompleted(File file, boolean md5Verified) {
+            this.file = file;
+            this.md5Verified = md5Verified;
+        }
+
+        @Override
+        public void onCanceled() {
+
+        }
+
+        @Override
+        public void onError(Exception e) {
+            this.error = e;
+        }
+    }
+
+    /**
+     * Serves one file, the n-th response is cut once the given absolute offset of file is sent.
+     */
+    private static class SplitServer implements HttpHandler {
+
+        private final byte[] content;
+
+        private final String etag;
+
+        private final HttpServer server;
+
+        private final List<Long> cutOffsets = new ArrayList<>();
+
+        final List<Long> rangeStarts = Collections.synchronizedList(new ArrayList<Long>());
+
+        volatile long servedBytes;
+
+        SplitServer(byte[] content, String etag) throws IOException {
+            this.content = content;
+            this.etag = etag;
+            this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+            this.server.createContext("/", this);
+            this.server.start();
+        }
+
+        String url() {
+            return "http://127.0.0.1:" + server.getAddress().getPort() + "/" + FILE_NAME;
+        }
+
+        void cutAfter(long... offsets) {
+            for (long offset : offsets) {
+                cutOffsets.add(offset);
+            }
+        }
+
+        void stop() {
+            server.stop(0);
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            long start = 0;
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+            if (range != null && range.startsWith("bytes=") && (ifRange == null || ifRange.equals(etag))) {
+                start = Long.parseLong(range.substring("bytes=".length(), range.indexOf('-')));
+            }
+            int requestIndex = rangeStarts.size();
+            rangeStarts.add(start);
+            long end = requestIndex < cutOffsets.size() ? cutOffsets.get(requestIndex) : content.length;
+            exchange.getResponseHeaders().set("ETag", etag);
+            if (start > 0) {
+                exchange.getResponseHeaders().set("Content-Range",
+                        "bytes " + start + "-" + (content.length - 1) + "/" + content.length);
+                exchange.sendResponseHeaders(206, content.length - start);
+            } else {
+                exchange.sendResponseHeaders(200, content.length);
+            }
+            OutputStream os = exchange.getResponseBody();
+            try {
+                os.write(content, (int) start, (int) (end - start));
+                os.flush();
+                servedBytes += end - start;
+            } finally {
+                //a cut response closes connection before all declared bytes are sent.
+                exchange.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.iqiyi.qigsaw.sample.downloader;
+
+import com.iqiyi.android.qigsaw.core.splitdownload.DownloadCallback;
+import com.iqiyi.android.qigsaw.core.splitdownload.DownloadRequest;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Download sessions of splits from a local HTTP server, md5 verified while writing is reported to installer.
+ */
+public class ResumableDownloaderTest {
+
+    private final byte[] content = new byte[256 * 1024 + 7];
+
+    private String contentMd5;
+
+    private HttpServer server;
+
+    private final AtomicInteger servedRequests = new AtomicInteger();
+
+    private File dir;
+
+    private final ResumableDownloader downloader = new ResumableDownloader() {
+
+        @Override
+        public long getDownloadSizeThresholdWhenUsingMobileData() {
+            return 0;
+        }
+
+        @Override
+        public boolean isDeferredDownloadOnlyWhenUsingWifiData() {
+            return false;
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        new Random(8).nextBytes(content);
+        contentMd5 = md5(content);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                servedRequests.incrementAndGet();
+                try {
+                    if (!exchange.getRequestURI().getPath().startsWith("/java")) {
+                        exchange.sendResponseHeaders(404, -1);
+                        return;
+                    }
+                    exchange.sendResponseHeaders(200, content.length);
+                    OutputStream os = exchange.getResponseBody();
+                    os.write(content);
+                    os.flush();
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+        dir = File.createTempFile("ResumableDownloaderTest", "");
+        assertTrue(dir.delete() && dir.mkdirs());
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void reportVerifiedRequestsBeforeCompleted() throws InterruptedException {
+        DownloadRequest java = request("java", "java.apk", contentMd5);
+        DownloadRequest java2 = request("java2", "java2.apk", contentMd5);
+        RecordingCallback callback = download(Arrays.asList(java, java2));
+        //installer checks verified requests once download is completed.
+        assertEquals("completed", callback.lastEvent());
+        assertEquals(2, callback.verifiedRequests.size());
+        assertTrue(callback.verifiedRequests.containsAll(Arrays.asList(java, java2)));
+        assertEquals(2L * content.length, callback.currentBytes);
+        assertEquals(content.length, new File(dir, "java.apk").length());
+    }
+
+    @Test
+    public void reportVerifiedRequestOfExistingFile() throws InterruptedException {
+        DownloadRequest java = request("java", "java.apk", contentMd5);
+        download(Collections.singletonList(java));
+        RecordingCallback callback = download(Collections.singletonList(java));
+        assertEquals("completed", callback.lastEvent());
+        assertEquals(Collections.singletonList(java), callback.verifiedRequests);
+        assertEquals(1, servedRequests.get());
+    }
+
+    @Test
+    public void failSessionIfAnyRequestFails() throws InterruptedException {
+        RecordingCallback callback = download(Arrays.asList(request("java", "java.apk", contentMd5),
+                request("native", "native.apk", contentMd5)));
+        assertEquals("error:" + ResumableDownloader.ERROR_DOWNLOAD_FAILED, callback.lastEvent());
+    }
+
+    @Test
+    public void skipBuiltInRequests() throws InterruptedException {
+        DownloadRequest builtIn = DownloadRequest.newBuilder()
+                .url("assets://qigsaw/java.zip")
+                .fileDir(dir.getAbsolutePath())
+                .fileName("java.apk")
+                .moduleName("java")
+                .size(content.length)
+                .md5(contentMd5)
+                .build();
+        RecordingCallback callback = download(Collections.singletonList(builtIn));
+        assertEquals(Arrays.asList("start", "completed"), callback.events);
+        assertEquals(0, servedRequests.get());
+    }
+
+    private DownloadRequest request(String moduleName, String fileName, String md5) {
+        return DownloadRequest.newBuilder()
+                .url("http://127.0.0.1:" + server.getAddress().getPort() + "/" + fileName)
+                .fileDir(dir.getAbsolutePath())
+                .fileName(fileName)
+                .moduleName(moduleName)
+                .size(content.length)
+                .md5(md5)
+                .build();
+    }
+
+    private RecordingCallback download(List<DownloadRequest> requests) throws InterruptedException {
+        RecordingCallback callback = new RecordingCallback();
+        downloader.startDownload(1, requests, callback);
+        assertTrue(callback.finished.await(30, TimeUnit.SECONDS));
+        return callback;
+    }
+
+    private static String md5(byte[] bytes) throws Exception {
+        byte[] digest = MessageDigest.getInstance("MD5").digest(bytes);
+        StringBuilder builder = new StringBuilder();
+        for (byte b : digest) {
+            builder.append(Integer.toString((b & 0xff) + 0x100, 16).substring(1));
+        }
+        return builder.toString();
+    }
+
+    private static class RecordingCallback implements DownloadCallback {
+
+        final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+
+        final List<DownloadRequest> verifiedRequests = Collections.synchronizedList(new ArrayList<DownloadRequest>());
+
+        final CountDownLatch finished = new CountDownLatch(1);
+
+        volatile long currentBytes;
+
+        String lastEvent() {
+            return events.get(events.size() - 1);
+        }
+
+        @Override
+        public void onStart() {
+            events.add("start");
+        }
+
+        @Override
+        public void onCanceled() {
+            events.add("canceled");
+            finished.countDown();
+        }
+
+        @Override
+        public void onCanceling() {
+            events.add("canceling");
+        }
+
+        @Override
+        public void onProgress(long currentBytes) {
+            this.currentBytes = currentBytes;
+        }
+
+        @Override
+        public void onCompleted() {
+            events.add("completed");
+            finished.countDown();
+        }
+
+        @Override
+        public void onVerified(DownloadRequest request) {
+            events.add("verified:" + request.getModuleName());
+            verifiedRequests.add(request);
+        }
+
+        @Override
+        public void onError(int errorCode) {
+            events.add("error:" + errorCode);
+            finished.countDown();
+        }
+    }
+}
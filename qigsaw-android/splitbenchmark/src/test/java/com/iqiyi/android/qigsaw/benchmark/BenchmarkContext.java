@@ -0,0 +1,75 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.iqiyi.android.qigsaw.benchmark;
+
+import android.content.ContextWrapper;
+
+import java.io.File;
+
+/**
+ * Context of JVM benchmarks, files of app are kept in a temp dir.
+ */
+public final class BenchmarkContext extends ContextWrapper {
+
+    private final File dataDir;
+
+    public BenchmarkContext(File dataDir) {
+        super(null);
+        this.dataDir = dataDir;
+    }
+
+    @Override
+    public File getDir(String name, int mode) {
+        return ensureDir(new File(dataDir, "app_" + name));
+    }
+
+    @Override
+    public File getFilesDir() {
+        return ensureDir(new File(dataDir, "files"));
+    }
+
+    @Override
+    public File getCacheDir() {
+        return ensureDir(new File(dataDir, "cache"));
+    }
+
+    @Override
+    public String getPackageName() {
+        return "com.iqiyi.android.qigsaw.benchmark";
+    }
+
+    @Override
+    public BenchmarkContext getApplicationContext() {
+        return this;
+    }
+
+    private static File ensureDir(File dir) {
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        return dir;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.iqiyi.android.qigsaw.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Configuration of benchmarks passed by gradle as system properties.
+ */
+public final class BenchmarkEnvironment {
+
+    private static final String PROPERTY_PREFIX = "qigsaw.benchmark.";
+
+    private static final String PARAM_PREFIX = PROPERTY_PREFIX + "param.";
+
+    private BenchmarkEnvironment() {
+
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean("qigsaw.benchmark");
+    }
+
+    /**
+     * @return dir of json results, it is created if not existing.
+     */
+    public static File getResultDir() {
+        File resultDir = new File(System.getProperty(PROPERTY_PREFIX + "resultDir", "build/reports/benchmarks"));
+        if (!resultDir.exists() && !resultDir.mkdirs()) {
+            throw new IllegalStateException("Failed to create " + resultDir.getAbsolutePath());
+        }
+        return resultDir;
+    }
+
+    /**
+     * @return split details json of synthetic splits, created by gradle task 'generateBenchmarkSplitDetails'.
+     */
+    public static File getSplitDetailsFile(int splitCount) {
+        return new File(System.getProperty(PROPERTY_PREFIX + "splitDetailsDir"), "qigsaw_" + splitCount + ".json");
+    }
+
+    /**
+     * @return binary split info table next to split details json.
+     */
+    public static File getSplitDetailsBinaryFile(int splitCount) {
+        return new File(System.getProperty(PROPERTY_PREFIX + "splitDetailsDir"), "qigsaw_" + splitCount + ".qgbin");
+    }
+
+    public static File getKeystore() {
+        return new File(System.getProperty(PROPERTY_PREFIX + "keystore"));
+    }
+
+    /**
+     * @return overridden params of benchmarks, keyed by param name.
+     */
+    public static Map<String, String[]> getParams() {
+        Map<String, String[]> params = new LinkedHashMap<>();
+        for (String key : System.getProperties().stringPropertyNames()) {
+            if (key.startsWith(PARAM_PREFIX)) {
+                params.put(key.substring(PARAM_PREFIX.length()), System.getProperty(key).split(","));
+            }
+        }
+        return params;
+    }
+
+    /**
+     * @return overridden values of param, or default values if it is not overridden.
+     */
+    public static int[] getIntParam(String name, int... defaultValues) {
+        String value = System.getProperty(PARAM_PREFIX + name);
+        if (value == null) {
+            return defaultValues;
+        }
+        String[] values = value.split(",");
+        int[] result = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = Integer.parseInt(values[i].trim());
+        }
+        return result;
+    }
+
+    public static int getWarmupIterations() {
+        return Integer.getInteger(PROPERTY_PREFIX + "warmupIterations", 3);
+    }
+
+    public static int getMeasurementIterations() {
+        return Integer.getInteger(PROPERTY_PREFIX + "iterations", 5);
+    }
+
+    /**
+     * Forked JVMs of JMH don't inherit system properties, pass them as arguments.
+     */
+    public static String[] getSystemPropertyArgs() {
+        List<String> args = new ArrayList<>();
+        for (String key : System.getProperties().stringPropertyNames()) {
+            if (key.startsWith(PROPERTY_PREFIX)) {
+                args.add("-D" + key + "=" + System.getProperty(key));
+            }
+        }
+        return args.toArray(new String[0]);
+    }
+
+    public static File createTempDir(String prefix) throws IOException {
+        File tempDir = File.createTempFile(prefix, "");
+        if (!tempDir.delete() || !tempDir.mkdirs()) {
+            throw new IOException("Failed to create temp dir " + tempDir.getAbsolutePath());
+        }
+        return tempDir;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.iqiyi.android.qigsaw.benchmark;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.File;
+import java.util.Map;
+
+/**
+ * Run all JMH benchmarks of this module on JVM, which is skipped unless benchmarks are enabled by gradle.
+ * Allocation rate of each benchmark is profiled as well.
+ */
+public class QigsawBenchmarks {
+
+    private static final String PROPERTY_PREFIX = "qigsaw.benchmark.";
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue("Benchmarks are disabled", BenchmarkEnvironment.isEnabled());
+    }
+
+    @Test
+    public void runBenchmarks() throws RunnerException {
+        File resultFile = new File(BenchmarkEnvironment.getResultDir(), "jmh-results.json");
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(System.getProperty(PROPERTY_PREFIX + "include", "com\\.iqiyi\\.android\\.qigsaw\\..*Benchmark"))
+                .forks(Integer.getInteger(PROPERTY_PREFIX + "forks", 1))
+                .warmupIterations(BenchmarkEnvironment.getWarmupIterations())
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(BenchmarkEnvironment.getMeasurementIterations())
+                .measurementTime(TimeValue.seconds(1))
+                .jvmArgsAppend(BenchmarkEnvironment.getSystemPropertyArgs())
+                .shouldFailOnError(true)
+                .addProfiler("gc")
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile.getAbsolutePath());
+        for (Map.Entry<String, String[]> param : BenchmarkEnvironment.getParams().entrySet()) {
+            options.param(param.getKey(), param.getValue());
+        }
+        new Runner(options.build()).run();
+    }
+}
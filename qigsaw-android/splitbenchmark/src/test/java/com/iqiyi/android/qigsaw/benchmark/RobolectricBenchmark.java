@@ -0,0 +1,140 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.iqiyi.android.qigsaw.benchmark;
+
+import com.iqiyi.android.qigsaw.core.common.FileUtil;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure operations which need Android APIs under Robolectric, where JMH could not run.
+ * Results are appended to a json file in the same layout as JMH results, so that they are tracked together.
+ */
+public final class RobolectricBenchmark {
+
+    private static final String RESULT_FILE = "robolectric-results.json";
+
+    private static final long ITERATION_TIME_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private RobolectricBenchmark() {
+
+    }
+
+    /**
+     * Run operation repeatedly in each iteration of one second, average time of an operation is recorded.
+     *
+     * @param benchmark name of benchmark.
+     * @param params    params of benchmark.
+     * @param operation operation to measure, its result is ignored.
+     */
+    public static void run(String benchmark, Map<String, ?> params, Callable<?> operation) throws Exception {
+        for (int i = 0; i < BenchmarkEnvironment.getWarmupIterations(); i++) {
+            measure(operation);
+        }
+        int iterations = BenchmarkEnvironment.getMeasurementIterations();
+        double[] scores = new double[iterations];
+        for (int i = 0; i < iterations; i++) {
+            scores[i] = measure(operation);
+        }
+        record(benchmark, params, scores);
+    }
+
+    /**
+     * @return average milliseconds per operation.
+     */
+    private static double measure(Callable<?> operation) throws Exception {
+        long start = System.nanoTime();
+        long elapsed;
+        int operations = 0;
+        do {
+            operation.call();
+            operations++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ITERATION_TIME_NANOS);
+        return elapsed / 1e6 / operations;
+    }
+
+    private static synchronized void record(String benchmark, Map<String, ?> params, double[] scores)
+            throws IOException, JSONException {
+        double mean = 0;
+        JSONArray rawData = new JSONArray();
+        for (double score : scores) {
+            mean += score / scores.length;
+            rawData.put(score);
+        }
+        double variance = 0;
+        for (double score : scores) {
+            variance += (score - mean) * (score - mean) / Math.max(1, scores.length - 1);
+        }
+        JSONObject primaryMetric = new JSONObject();
+        primaryMetric.put("score", mean);
+        primaryMetric.put("scoreError", Math.sqrt(variance));
+        primaryMetric.put("scoreUnit", "ms/op");
+        primaryMetric.put("rawData", new JSONArray().put(rawData));
+        JSONObject result = new JSONObject();
+        result.put("benchmark", benchmark);
+        result.put("mode", "avgt");
+        result.put("params", new JSONObject(params));
+        result.put("primaryMetric", primaryMetric);
+
+        File resultFile = new File(BenchmarkEnvironment.getResultDir(), RESULT_FILE);
+        JSONArray results = resultFile.exists() ? new JSONArray(read(resultFile)) : new JSONArray();
+        results.put(result);
+        OutputStream os = new FileOutputStream(resultFile);
+        try {
+            os.write(results.toString(2).getBytes("UTF-8"));
+        } finally {
+            FileUtil.closeQuietly(os);
+        }
+    }
+
+    private static String read(File file) throws IOException {
+        InputStream is = new FileInputStream(file);
+        try {
+            byte[] bytes = new byte[(int) file.length()];
+            int offset = 0;
+            int count;
+            while (offset < bytes.length && (count = is.read(bytes, offset, bytes.length - offset)) != -1) {
+                offset += count;
+            }
+            return new String(bytes, 0, offset, "UTF-8");
+        } finally {
+            FileUtil.closeQuietly(is);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.iqiyi.android.qigsaw.benchmark;
+
+import com.iqiyi.android.qigsaw.core.common.FileUtil;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Split apk with random contents, entries are written in the same order as aapt does.
+ */
+public final class SyntheticSplitApk {
+
+    public static final String ABI = "arm64-v8a";
+
+    public final File file;
+
+    /**
+     * md5 of native libraries, keyed by library name.
+     */
+    public final Map<String, String> libMd5s;
+
+    public final long libSize;
+
+    private SyntheticSplitApk(File file, Map<String, String> libMd5s, long libSize) {
+        this.file = file;
+        this.libMd5s = libMd5s;
+        this.libSize = libSize;
+    }
+
+    /**
+     * @param dexCount number of dex files, include classes.dex.
+     * @param dexSize  size of each dex file.
+     * @param libCount number of native libraries.
+     * @param libSize  size of each native library.
+     */
+    public static SyntheticSplitApk create(File file, int dexCount, int dexSize, int libCount, int libSize) throws IOException {
+        Random random = new Random(file.getName().hashCode());
+        Map<String, String> libMd5s = new LinkedHashMap<>(libCount);
+        ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(file));
+        try {
+            writeEntry(zos, "AndroidManifest.xml", randomBytes(random, 1024));
+            for (int i = 1; i <= dexCount; i++) {
+                writeEntry(zos, i == 1 ? "classes.dex" : "classes" + i + ".dex", randomBytes(random, dexSize));
+            }
+            for (int i = 0; i < libCount; i++) {
+                String libName = "libsplit" + i + ".so";
+                byte[] lib = randomBytes(random, libSize);
+                writeEntry(zos, "lib/" + ABI + "/" + libName, lib);
+                libMd5s.put(libName, md5(lib));
+            }
+            writeEntry(zos, "resources.arsc", randomBytes(random, 4096));
+        } finally {
+            FileUtil.closeQuietly(zos);
+        }
+        return new SyntheticSplitApk(file, libMd5s, libSize);
+    }
+
+    private static void writeEntry(ZipOutputStream zos, String name, byte[] content) throws IOException {
+        zos.putNextEntry(new ZipEntry(name));
+        zos.write(content);
+        zos.closeEntry();
+    }
+
+    private static byte[] randomBytes(Random random, int size) {
+        byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static String md5(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(bytes);
+            StringBuilder md5 = new StringBuilder(32);
+            for (byte b : digest) {
+                md5.append(Integer.toString((b & 0xff) + 0x100, 16).substring(1));
+            }
+            return md5.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.iqiyi.android.qigsaw.core.common;
+
+import com.iqiyi.android.qigsaw.benchmark.BenchmarkEnvironment;
+import com.iqiyi.android.qigsaw.benchmark.SyntheticSplitApk;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Digest and copy split apks, which is done for every downloaded or built-in split.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FileUtilBenchmark {
+
+    @Param({"1", "4"})
+    public int dexCount;
+
+    @Param({"1048576"})
+    public int dexSize;
+
+    @Param({"0", "4"})
+    public int libCount;
+
+    @Param({"1048576"})
+    public int libSize;
+
+    private File tempDir;
+
+    private File splitApk;
+
+    private File copiedApk;
+
+    @Setup
+    public void setUp() throws IOException {
+        tempDir = BenchmarkEnvironment.createTempDir("FileUtilBenchmark");
+        splitApk = SyntheticSplitApk.create(new File(tempDir, "split.apk"), dexCount, dexSize, libCount, libSize).file;
+        copiedApk = new File(tempDir, "copied.apk");
+    }
+
+    @TearDown
+    public void tearDown() {
+        FileUtil.deleteDir(tempDir);
+    }
+
+    @Benchmark
+    public String getMD5() {
+        return FileUtil.getMD5(splitApk);
+    }
+
+    @Benchmark
+    public long copyFile() throws IOException {
+        FileUtil.copyFile(splitApk, copiedApk);
+        return copiedApk.length();
+    }
+}
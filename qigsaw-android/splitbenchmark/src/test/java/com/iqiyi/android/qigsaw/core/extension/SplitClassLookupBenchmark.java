@@ -0,0 +1,120 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.iqiyi.android.qigsaw.core.extension;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Find the split class loader of a class which belongs to the last loaded split,
+ * by package index or by probing loaded splits one by one as SplitDelegateClassloader did.
+ * Dex files can't be loaded on JVM, so a split class loader is emulated by a class set
+ * which throws {@link ClassNotFoundException} on a miss, like BaseDexClassLoader does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SplitClassLookupBenchmark {
+
+    private static final String PACKAGE_PREFIX = "com.iqiyi.qigsaw.benchmark.split";
+
+    @Param({"1", "10", "50"})
+    public int loadedSplits;
+
+    private final List<SplitClasses> splitClassLoaders = new ArrayList<>();
+
+    private final Map<String, SplitClasses> splitClassLoaderMap = new HashMap<>();
+
+    private AABExtensionManagerImpl extensionManager;
+
+    private String className;
+
+    @Setup
+    public void setUp() throws Exception {
+        Map<String, String> splitPackages = new HashMap<>();
+        for (int i = 0; i < loadedSplits; i++) {
+            String splitName = "split" + i;
+            String packageName = PACKAGE_PREFIX + i;
+            SplitClasses splitClasses = new SplitClasses(packageName + ".SplitActivity");
+            splitClassLoaders.add(splitClasses);
+            splitClassLoaderMap.put(splitName, splitClasses);
+            splitPackages.put(packageName, splitName);
+        }
+        extensionManager = new AABExtensionManagerImpl(new SplitComponentInfoProvider(Collections.<String>emptySet()));
+        Field field = AABExtensionManagerImpl.class.getDeclaredField("splitPackages");
+        field.setAccessible(true);
+        field.set(extensionManager, splitPackages);
+        className = PACKAGE_PREFIX + (loadedSplits - 1) + ".SplitActivity";
+    }
+
+    @Benchmark
+    public String probe() {
+        for (SplitClasses splitClasses : splitClassLoaders) {
+            try {
+                return splitClasses.loadClassItself(className);
+            } catch (ClassNotFoundException e) {
+                //ignored
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public String lookup() throws ClassNotFoundException {
+        String splitName = extensionManager.getSplitNameForClass(className);
+        return splitClassLoaderMap.get(splitName).loadClassItself(className);
+    }
+
+    private static final class SplitClasses {
+
+        private final String className;
+
+        SplitClasses(String className) {
+            this.className = className;
+        }
+
+        String loadClassItself(String name) throws ClassNotFoundException {
+            if (className.equals(name)) {
+                return className;
+            }
+            throw new ClassNotFoundException("Didn't find class \"" + name + "\"");
+        }
+    }
+}
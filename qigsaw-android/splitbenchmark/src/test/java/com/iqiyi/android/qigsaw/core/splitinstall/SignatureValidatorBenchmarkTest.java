@@ -0,0 +1,156 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.iqiyi.android.qigsaw.core.splitinstall;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.Signature;
+import android.os.Build;
+
+import com.android.apksig.ApkSigner;
+import com.iqiyi.android.qigsaw.benchmark.BenchmarkEnvironment;
+import com.iqiyi.android.qigsaw.benchmark.RobolectricBenchmark;
+import com.iqiyi.android.qigsaw.benchmark.SyntheticSplitApk;
+import com.iqiyi.android.qigsaw.core.common.FileUtil;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertNotNull;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Verify APK Signature Scheme v2 signature of split apks signed by the debug keystore,
+ * app signatures are queried from package manager, so it runs under Robolectric.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.P)
+public class SignatureValidatorBenchmarkTest {
+
+    private static final String BENCHMARK = SignatureValidatorBenchmarkTest.class.getName() + ".validateSplit";
+
+    private static final String KEY_ALIAS = "qigsawtest";
+
+    private static final char[] KEY_PASSWORD = "qigsawtest".toCharArray();
+
+    private Context context;
+
+    private File tempDir;
+
+    private PrivateKey privateKey;
+
+    private X509Certificate certificate;
+
+    @Before
+    public void setUp() throws Exception {
+        Assume.assumeTrue("Benchmarks are disabled", BenchmarkEnvironment.isEnabled());
+        context = RuntimeEnvironment.application;
+        tempDir = BenchmarkEnvironment.createTempDir("SignatureValidatorBenchmark");
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        InputStream is = new FileInputStream(BenchmarkEnvironment.getKeystore());
+        try {
+            keyStore.load(is, KEY_PASSWORD);
+        } finally {
+            FileUtil.closeQuietly(is);
+        }
+        privateKey = (PrivateKey) keyStore.getKey(KEY_ALIAS, KEY_PASSWORD);
+        certificate = (X509Certificate) keyStore.getCertificate(KEY_ALIAS);
+        PackageManager packageManager = context.getPackageManager();
+        PackageInfo packageInfo = packageManager.getPackageInfo(context.getPackageName(), 0);
+        packageInfo.signatures = new Signature[]{new Signature(certificate.getEncoded())};
+        shadowOf(packageManager).installPackage(packageInfo);
+    }
+
+    @After
+    public void tearDown() {
+        if (tempDir != null) {
+            FileUtil.deleteDir(tempDir);
+        }
+    }
+
+    @Test
+    public void validateSplit() throws Exception {
+        for (int dexCount : BenchmarkEnvironment.getIntParam("dexCount", 1, 4)) {
+            for (int libCount : BenchmarkEnvironment.getIntParam("libCount", 0, 4)) {
+                int dexSize = BenchmarkEnvironment.getIntParam("dexSize", 1048576)[0];
+                int libSize = BenchmarkEnvironment.getIntParam("libSize", 1048576)[0];
+                validateSplit(dexCount, dexSize, libCount, libSize);
+            }
+        }
+    }
+
+    private void validateSplit(int dexCount, int dexSize, int libCount, int libSize) throws Exception {
+        String name = "split_" + dexCount + "_" + libCount;
+        File unsignedApk = SyntheticSplitApk.create(new File(tempDir, name + "-unsigned.apk"), dexCount, dexSize, libCount, libSize).file;
+        final File splitApk = new File(tempDir, name + ".apk");
+        sign(unsignedApk, splitApk);
+        Callable<SignatureValidator.SplitSignature> operation = new Callable<SignatureValidator.SplitSignature>() {
+            @Override
+            public SignatureValidator.SplitSignature call() {
+                return SignatureValidator.validateSplit(context, splitApk);
+            }
+        };
+        assertNotNull(operation.call());
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("dexCount", dexCount);
+        params.put("dexSize", dexSize);
+        params.put("libCount", libCount);
+        params.put("libSize", libSize);
+        params.put("apkSize", splitApk.length());
+        RobolectricBenchmark.run(BENCHMARK, params, operation);
+    }
+
+    private void sign(File unsignedApk, File signedApk) throws Exception {
+        ApkSigner.SignerConfig signerConfig = new ApkSigner.SignerConfig.Builder(
+                KEY_ALIAS, privateKey, Collections.singletonList(certificate)).build();
+        new ApkSigner.Builder(Collections.singletonList(signerConfig))
+                .setInputApk(unsignedApk)
+                .setOutputApk(signedApk)
+                .setMinSdkVersion(24)
+                .setV1SigningEnabled(false)
+                .setV2SigningEnabled(true)
+                .build()
+                .sign();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.iqiyi.android.qigsaw.core.splitinstall;
+
+import com.iqiyi.android.qigsaw.benchmark.BenchmarkContext;
+import com.iqiyi.android.qigsaw.benchmark.BenchmarkEnvironment;
+import com.iqiyi.android.qigsaw.benchmark.SyntheticSplitApk;
+import com.iqiyi.android.qigsaw.core.common.FileUtil;
+import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfo;
+import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitPathManager;
+import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SyntheticSplitInfo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extract native libraries of a split when it is installed, and validate extracted ones when it is installed again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SplitLibExtractorBenchmark {
+
+    @Param({"1", "8"})
+    public int libCount;
+
+    @Param({"262144", "2097152"})
+    public int libSize;
+
+    private File tempDir;
+
+    private File splitApk;
+
+    private File libDir;
+
+    private SplitInfo info;
+
+    @Setup
+    public void setUp() throws IOException {
+        tempDir = BenchmarkEnvironment.createTempDir("SplitLibExtractorBenchmark");
+        SplitPathManager.install(new BenchmarkContext(tempDir));
+        SyntheticSplitApk apk = SyntheticSplitApk.create(new File(tempDir, "split.apk"), 1, 4096, libCount, libSize);
+        splitApk = apk.file;
+        info = SyntheticSplitInfo.create("split", apk, 1);
+        libDir = SplitPathManager.require().getSplitLibDir(info);
+        load(true);
+    }
+
+    @TearDown
+    public void tearDown() {
+        FileUtil.deleteDir(tempDir);
+    }
+
+    @Benchmark
+    public List<File> extract() throws IOException {
+        return load(true);
+    }
+
+    @Benchmark
+    public List<File> reloadExtracted() throws IOException {
+        return load(false);
+    }
+
+    private List<File> load(boolean forceReload) throws IOException {
+        SplitLibExtractor extractor = new SplitLibExtractor(splitApk, libDir);
+        try {
+            return extractor.load(info, forceReload);
+        } finally {
+            FileUtil.closeQuietly(extractor);
+        }
+    }
+}
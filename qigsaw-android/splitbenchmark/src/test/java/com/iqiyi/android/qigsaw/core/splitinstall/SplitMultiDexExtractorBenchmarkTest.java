@@ -0,0 +1,115 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.iqiyi.android.qigsaw.core.splitinstall;
+
+import android.content.Context;
+import android.os.Build;
+
+import com.iqiyi.android.qigsaw.benchmark.BenchmarkEnvironment;
+import com.iqiyi.android.qigsaw.benchmark.RobolectricBenchmark;
+import com.iqiyi.android.qigsaw.benchmark.SyntheticSplitApk;
+import com.iqiyi.android.qigsaw.core.common.FileUtil;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Extract secondary dex files of a split, and validate extracted ones when it is installed again.
+ * Extracted dex files are recorded in shared preferences, so it runs under Robolectric.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.P)
+public class SplitMultiDexExtractorBenchmarkTest {
+
+    private static final String BENCHMARK = SplitMultiDexExtractorBenchmarkTest.class.getName();
+
+    private Context context;
+
+    private File tempDir;
+
+    @Before
+    public void setUp() throws Exception {
+        Assume.assumeTrue("Benchmarks are disabled", BenchmarkEnvironment.isEnabled());
+        context = RuntimeEnvironment.application;
+        tempDir = BenchmarkEnvironment.createTempDir("SplitMultiDexExtractorBenchmark");
+    }
+
+    @After
+    public void tearDown() {
+        if (tempDir != null) {
+            FileUtil.deleteDir(tempDir);
+        }
+    }
+
+    @Test
+    public void load() throws Exception {
+        for (int dexCount : BenchmarkEnvironment.getIntParam("dexCount", 2, 8)) {
+            for (int dexSize : BenchmarkEnvironment.getIntParam("dexSize", 1048576)) {
+                load(dexCount, dexSize, true);
+                load(dexCount, dexSize, false);
+            }
+        }
+    }
+
+    private void load(final int dexCount, int dexSize, final boolean forceReload) throws Exception {
+        final File splitApk = SyntheticSplitApk.create(new File(tempDir, "split" + dexCount + ".apk"), dexCount, dexSize, 0, 0).file;
+        final File dexDir = new File(tempDir, "dex" + dexCount);
+        if (!dexDir.exists() && !dexDir.mkdirs()) {
+            throw new IllegalStateException("Failed to create " + dexDir.getAbsolutePath());
+        }
+        final String prefsKeyPrefix = splitApk.getName();
+        Callable<List<? extends File>> operation = new Callable<List<? extends File>>() {
+            @Override
+            public List<? extends File> call() throws Exception {
+                SplitMultiDexExtractor extractor = new SplitMultiDexExtractor(splitApk, dexDir);
+                try {
+                    return extractor.load(context, prefsKeyPrefix, forceReload);
+                } finally {
+                    FileUtil.closeQuietly(extractor);
+                }
+            }
+        };
+        assertEquals(dexCount - 1, operation.call().size());
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("dexCount", dexCount);
+        params.put("dexSize", dexSize);
+        RobolectricBenchmark.run(BENCHMARK + (forceReload ? ".extract" : ".reloadExtracted"), params, operation);
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.iqiyi.android.qigsaw.core.splitload;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Find hidden members which are reflected when splits are loaded, with cached handles of {@link HiddenApiReflection}
+ * or by walking class hierarchy and calling {@code setAccessible} every time as it did before.
+ * Framework classes are not available on JVM, so they are emulated by classes with the same members.
+ * Members are those of Android P: native library and dex elements of a split class loader,
+ * asset paths of resources, and a {@code makePathElements} signature which is removed since Android O.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HiddenApiReflectionBenchmark {
+
+    @Param({"1", "10", "20"})
+    public int loadedSplits;
+
+    private final ClassLoader classLoader = new PathClassLoader();
+
+    private final Object dexPathList = new DexPathList();
+
+    private final Object assetManager = new AssetManager();
+
+    private final Object apkAssets = new ApkAssets();
+
+    @Benchmark
+    public void cached(Blackhole blackhole) {
+        for (int i = 0; i < loadedSplits; i++) {
+            try {
+                blackhole.consume(HiddenApiReflection.findField(classLoader, "pathList"));
+                blackhole.consume(HiddenApiReflection.findField(dexPathList, "dexElements"));
+                blackhole.consume(HiddenApiReflection.findField(dexPathList, "nativeLibraryDirectories"));
+                blackhole.consume(HiddenApiReflection.findField(dexPathList, "systemNativeLibraryDirectories"));
+                blackhole.consume(HiddenApiReflection.findField(dexPathList, "nativeLibraryPathElements"));
+                blackhole.consume(HiddenApiReflection.findMethod(dexPathList, "makePathElements", List.class));
+                blackhole.consume(HiddenApiReflection.findMethod(assetManager, "getApkAssets"));
+                blackhole.consume(HiddenApiReflection.findMethod(assetManager, "setApkAssets", ApkAssets[].class, boolean.class));
+                blackhole.consume(HiddenApiReflection.findMethod(apkAssets, "getAssetPath"));
+                blackhole.consume(HiddenApiReflection.findMethod(ApkAssets.class, "loadFromPath", String.class));
+            } catch (NoSuchFieldException | NoSuchMethodException e) {
+                throw new IllegalStateException(e);
+            }
+            try {
+                HiddenApiReflection.findMethod(dexPathList, "makePathElements", List.class, File.class, List.class);
+            } catch (NoSuchMethodException e) {
+                blackhole.consume(e);
+            }
+        }
+    }
+
+    @Benchmark
+    public void uncached(Blackhole blackhole) {
+        for (int i = 0; i < loadedSplits; i++) {
+            try {
+                blackhole.consume(walkField(classLoader.getClass(), "pathList"));
+                blackhole.consume(walkField(dexPathList.getClass(), "dexElements"));
+                blackhole.consume(walkField(dexPathList.getClass(), "nativeLibraryDirectories"));
+                blackhole.consume(walkField(dexPathList.getClass(), "systemNativeLibraryDirectories"));
+                blackhole.consume(walkField(dexPathList.getClass(), "nativeLibraryPathElements"));
+                blackhole.consume(walkMethod(dexPathList.getClass(), "makePathElements", List.class));
+                blackhole.consume(walkMethod(assetManager.getClass(), "getApkAssets"));
+                blackhole.consume(walkMethod(assetManager.getClass(), "setApkAssets", ApkAssets[].class, boolean.class));
+                blackhole.consume(walkMethod(apkAssets.getClass(), "getAssetPath"));
+                blackhole.consume(walkMethod(ApkAssets.class, "loadFromPath", String.class));
+            } catch (NoSuchFieldException | NoSuchMethodException e) {
+                throw new IllegalStateException(e);
+            }
+            try {
+                walkMethod(dexPathList.getClass(), "makePathElements", List.class, File.class, List.class);
+            } catch (NoSuchMethodException e) {
+                blackhole.consume(e);
+            }
+        }
+    }
+
+    private static Field walkField(Class<?> originClazz, String name) throws NoSuchFieldException {
+        for (Class<?> clazz = originClazz; clazz != null; clazz = clazz.getSuperclass()) {
+            try {
+                Field field = clazz.getDeclaredField(name);
+                if (!field.isAccessible()) {
+                    field.setAccessible(true);
+                }
+                return field;
+            } catch (NoSuchFieldException e) {
+                // ignore and search next
+            }
+        }
+        throw new NoSuchFieldException("Field " + name + " not found in " + originClazz);
+    }
+
+    private static Method walkMethod(Class<?> originClazz, String name, Class<?>... parameterTypes) throws NoSuchMethodException {
+        for (Class<?> clazz = originClazz; clazz != null; clazz = clazz.getSuperclass()) {
+            try {
+                Method method = clazz.getDeclaredMethod(name, parameterTypes);
+                if (!method.isAccessible()) {
+                    method.setAccessible(true);
+                }
+                return method;
+            } catch (NoSuchMethodException e) {
+                // ignore and search next
+            }
+        }
+        throw new NoSuchMethodException("Method " + name + " not found in " + originClazz);
+    }
+
+    private static class BaseDexClassLoader extends ClassLoader {
+
+        private Object pathList;
+    }
+
+    private static final class PathClassLoader extends BaseDexClassLoader {
+
+    }
+
+    @SuppressWarnings("unused")
+    private static final class DexPathList {
+
+        private Object[] dexElements;
+
+        private List<File> nativeLibraryDirectories;
+
+        private List<File> systemNativeLibraryDirectories;
+
+        private Object[] nativeLibraryPathElements;
+
+        private static Object[] makePathElements(List<File> files) {
+            return new Object[files.size()];
+        }
+
+        private static Object[] makeDexElements(List<File> files, File optimizedDirectory,
+                                                List<IOException> suppressedExceptions, ClassLoader loader) {
+            return new Object[files.size()];
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static final class AssetManager {
+
+        private ApkAssets[] mApkAssets = new ApkAssets[0];
+
+        private ApkAssets[] getApkAssets() {
+            return mApkAssets;
+        }
+
+        private void setApkAssets(ApkAssets[] apkAssets, boolean invalidateCaches) {
+            mApkAssets = apkAssets;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static final class ApkAssets {
+
+        private String mPath;
+
+        private static ApkAssets loadFromPath(String path) {
+            ApkAssets apkAssets = new ApkAssets();
+            apkAssets.mPath = path;
+            return apkAssets;
+        }
+
+        private String getAssetPath() {
+            return mPath;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.iqiyi.android.qigsaw.core.splitload;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.Intent;
+import android.content.res.Resources;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.iqiyi.android.qigsaw.benchmark.BenchmarkEnvironment;
+import com.iqiyi.android.qigsaw.benchmark.RobolectricBenchmark;
+import com.iqiyi.android.qigsaw.core.common.FileUtil;
+import com.iqiyi.android.qigsaw.core.splitload.listener.OnSplitLoadListener;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Create a split activity while splits are loaded, resources of split activity are checked
+ * in every {@link Activity#getResources()} as Qigsaw-Gradle-Plugin weaves it.
+ * Checked generation of asset manager is cleared before every check to measure it as it was before.
+ * Split apks are copies of app resources apk, since synthetic splits have no resources table.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.P)
+public class SplitResourcesCheckBenchmarkTest {
+
+    private static final String BENCHMARK = SplitResourcesCheckBenchmarkTest.class.getName();
+
+    private static volatile boolean sGenerationCheckDisabled;
+
+    private static Map<?, ?> sCheckedGenerations;
+
+    private Context context;
+
+    private File tempDir;
+
+    private AtomicReference<SplitLoadManager> loadManagerReference;
+
+    @Before
+    public void setUp() throws Throwable {
+        Assume.assumeTrue("Benchmarks are disabled", BenchmarkEnvironment.isEnabled());
+        context = RuntimeEnvironment.application;
+        File resourcesApk = new File(context.getPackageResourcePath());
+        Assume.assumeTrue("Resources apk is not found", resourcesApk.isFile());
+        tempDir = BenchmarkEnvironment.createTempDir("SplitResourcesCheckBenchmark");
+        loadManagerReference = getStaticField(SplitLoadManagerService.class, "sReference");
+        sCheckedGenerations = getStaticField(SplitCompatResourcesLoader.class, "sCheckedGenerations");
+        int splitCount = BenchmarkEnvironment.getIntParam("splitCount", 20)[0];
+        List<Split> splits = new ArrayList<>(splitCount);
+        List<String> splitApkPaths = new ArrayList<>(splitCount);
+        for (int i = 0; i < splitCount; i++) {
+            File splitApk = new File(tempDir, "split" + i + ".apk");
+            FileUtil.copyFile(resourcesApk, splitApk);
+            splits.add(new Split("split" + i, splitApk.getAbsolutePath()));
+            splitApkPaths.add(splitApk.getAbsolutePath());
+        }
+        SplitLoadManager loadManager = new BenchmarkSplitLoadManager(context);
+        loadManagerReference.set(loadManager);
+        SplitCompatResourcesLoader.loadResources(context, context.getResources(), splitApkPaths);
+        loadManager.putSplits(splits);
+    }
+
+    @After
+    public void tearDown() {
+        sGenerationCheckDisabled = false;
+        if (loadManagerReference != null) {
+            loadManagerReference.set(null);
+        }
+        if (tempDir != null) {
+            FileUtil.deleteDir(tempDir);
+        }
+    }
+
+    @Test
+    public void createActivity() throws Exception {
+        Callable<Activity> operation = new Callable<Activity>() {
+            @Override
+            public Activity call() {
+                return Robolectric.buildActivity(SplitActivity.class).create().destroy().get();
+            }
+        };
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("splitCount", SplitLoadManagerService.getInstance().getLoadedSplitApkPaths().size());
+        sGenerationCheckDisabled = false;
+        operation.call();
+        RobolectricBenchmark.run(BENCHMARK + ".onCreate", params, operation);
+        sGenerationCheckDisabled = true;
+        operation.call();
+        RobolectricBenchmark.run(BENCHMARK + ".onCreateWithoutGenerationCheck", params, operation);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T getStaticField(Class<?> clazz, String name) throws Exception {
+        Field field = clazz.getDeclaredField(name);
+        field.setAccessible(true);
+        return (T) field.get(null);
+    }
+
+    public static class SplitActivity extends Activity {
+
+        @Override
+        public Resources getResources() {
+            Resources resources = super.getResources();
+            if (sGenerationCheckDisabled) {
+                sCheckedGenerations.clear();
+            }
+            try {
+                SplitCompatResourcesLoader.loadResources(this, resources);
+            } catch (Throwable throwable) {
+                throw new RuntimeException("Failed to load activity resources", throwable);
+            }
+            return resources;
+        }
+    }
+
+    private static final class BenchmarkSplitLoadManager extends SplitLoadManager {
+
+        BenchmarkSplitLoadManager(Context context) {
+            super(context, context.getPackageName(), SplitLoad.MULTIPLE_CLASSLOADER, false);
+        }
+
+        @Override
+        public void injectPathClassloader() {
+
+        }
+
+        @Override
+        public void loadInstalledSplitsWhenAppLaunches() {
+
+        }
+
+        @Override
+        public void getResources(Resources resources) {
+
+        }
+
+        @Override
+        public Runnable createSplitLoadTask(List<Intent> splitFileIntents, @Nullable OnSplitLoadListener loadListener) {
+            return null;
+        }
+
+        @Override
+        public void loadInstalledSplits() {
+
+        }
+
+        @Override
+        public void loadInstalledSplits(@NonNull Collection<String> splitNames) {
+
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.iqiyi.android.qigsaw.core.splitrequest.splitinfo;
+
+import com.iqiyi.android.qigsaw.benchmark.BenchmarkEnvironment;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse split details of synthetic splits and look up a split, which is done on every cold start.
+ * Binary table is mapped and opened the same way as it is from an uncompressed asset.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SplitInfoParseBenchmark {
+
+    @Param({"10", "100", "500"})
+    public int splitCount;
+
+    private String splitDetailsPath;
+
+    private File splitDetailsBinaryFile;
+
+    private String lastSplitName;
+
+    private SplitInfoManagerImpl infoManager;
+
+    @Setup
+    public void setUp() throws IOException {
+        File splitDetailsFile = BenchmarkEnvironment.getSplitDetailsFile(splitCount);
+        if (!splitDetailsFile.exists()) {
+            throw new IOException("Split details " + splitDetailsFile.getAbsolutePath() + " is not generated");
+        }
+        splitDetailsPath = splitDetailsFile.getAbsolutePath();
+        splitDetailsBinaryFile = BenchmarkEnvironment.getSplitDetailsBinaryFile(splitCount);
+        if (!splitDetailsBinaryFile.exists()) {
+            throw new IOException("Split details " + splitDetailsBinaryFile.getAbsolutePath() + " is not generated");
+        }
+        lastSplitName = "split" + (splitCount - 1);
+        infoManager = new SplitInfoManagerImpl();
+    }
+
+    @Benchmark
+    public SplitInfo parseJson() {
+        SplitDetails details = infoManager.createSplitDetailsForJsonFile(splitDetailsPath);
+        return details.getSplitInfoListing().getSplitInfo(lastSplitName);
+    }
+
+    @Benchmark
+    public SplitInfo parseBinary() throws IOException {
+        return openBinaryIndex().getSplitInfo(lastSplitName);
+    }
+
+    /**
+     * Decode all split infos of binary table, as getting all split infos does.
+     */
+    @Benchmark
+    public LinkedHashMap<String, SplitInfo> parseBinaryAll() throws IOException {
+        return new SplitInfoListing(openBinaryIndex()).getSplitInfoMap();
+    }
+
+    private SplitInfoBinaryIndex openBinaryIndex() throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(splitDetailsBinaryFile, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            return SplitInfoBinaryIndex.create(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            raf.close();
+        }
+    }
+}
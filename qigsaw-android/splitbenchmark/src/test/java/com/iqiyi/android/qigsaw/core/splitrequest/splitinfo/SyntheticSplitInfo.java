@@ -0,0 +1,57 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.iqiyi.android.qigsaw.core.splitrequest.splitinfo;
+
+import com.iqiyi.android.qigsaw.benchmark.SyntheticSplitApk;
+import com.iqiyi.android.qigsaw.core.common.FileUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Create split info of synthetic split apk, which is usually parsed from split details.
+ */
+public final class SyntheticSplitInfo {
+
+    private SyntheticSplitInfo() {
+
+    }
+
+    public static SplitInfo create(String splitName, SyntheticSplitApk splitApk, int dexCount) {
+        SplitInfo.LibInfo libInfo = null;
+        if (!splitApk.libMd5s.isEmpty()) {
+            List<SplitInfo.LibInfo.Lib> libs = new ArrayList<>(splitApk.libMd5s.size());
+            for (Map.Entry<String, String> entry : splitApk.libMd5s.entrySet()) {
+                libs.add(new SplitInfo.LibInfo.Lib(entry.getKey(), entry.getValue(), splitApk.libSize));
+            }
+            libInfo = new SplitInfo.LibInfo(SyntheticSplitApk.ABI, libs);
+        }
+        return new SplitInfo(splitName, "1.0.0", "1.0.0@1", "assets://" + splitName + ".zip",
+                FileUtil.getMD5(splitApk.file), splitApk.file.length(), true, 14, dexCount,
+                null, null, libInfo, null, 0, null);
+    }
+}
@@ -174,4 +174,21 @@ public class FileUtil {
         }
         return true;
     }
+
+    /**
+     * @return total length of the file, or all files under it if it is a directory.
+     */
+    public static long getTotalSize(File file) {
+        if (file.isFile()) {
+            return file.length();
+        }
+        long size = 0;
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File subFile : files) {
+                size += getTotalSize(subFile);
+            }
+        }
+        return size;
+    }
 }
@@ -22,16 +22,24 @@
  * SOFTWARE.
  */
 
-package com.iqiyi.android.qigsaw.core.splitinstall;
+package com.iqiyi.android.qigsaw.core.common;
+
+import android.support.annotation.RestrictTo;
 
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 
-final class SplitBackgroundExecutor {
+import static android.support.annotation.RestrictTo.Scope.LIBRARY_GROUP;
+
+/**
+ * Single background thread shared by installing and loading splits.
+ */
+@RestrictTo(LIBRARY_GROUP)
+public final class SplitBackgroundExecutor {
 
     private static final Executor sExecutor = Executors.newSingleThreadScheduledExecutor(new SplitBackgroundThread());
 
-    static Executor getExecutor() {
+    public static Executor getExecutor() {
         return sExecutor;
     }
 }
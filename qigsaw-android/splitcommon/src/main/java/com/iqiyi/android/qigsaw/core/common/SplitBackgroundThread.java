@@ -22,7 +22,7 @@
  * SOFTWARE.
  */
 
-package com.iqiyi.android.qigsaw.core.splitinstall;
+package com.iqiyi.android.qigsaw.core.common;
 
 import android.annotation.SuppressLint;
 import android.support.annotation.NonNull;
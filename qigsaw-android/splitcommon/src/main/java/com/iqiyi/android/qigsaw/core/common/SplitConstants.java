@@ -47,6 +47,10 @@ public class SplitConstants {
 
     public static final String DOT_JSON = ".json";
 
+    public static final String DOT_BIN = ".qgbin";
+
+    public static final String DOT_PATCH = ".patch";
+
     public static final String NEW_SPLIT_INFO_PATH = "new_split_info_path";
 
     public static final String NEW_SPLIT_INFO_VERSION = "new_split_info_version";
@@ -57,4 +61,12 @@ public class SplitConstants {
 
     public static final String KEY_ADDED_DEX = "added-dex";
 
+    public static final String KEY_CACHE_BUDGET = "cache-budget";
+
+    public static final String KEY_EVICTION_POLICY = "eviction-policy";
+
+    public static final int EVICTION_POLICY_LRU = 1;
+
+    public static final int EVICTION_POLICY_SIZE = 2;
+
 }
@@ -0,0 +1,119 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.iqiyi.android.qigsaw.core.common;
+
+import android.support.annotation.RestrictTo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static android.support.annotation.RestrictTo.Scope.LIBRARY_GROUP;
+
+/**
+ * Worker pool shared by stages of installing splits, it has min(cores, 4) threads at most,
+ * so that installing several splits, extracting libs and verifying signatures never start more threads than that together.
+ * <p>
+ * Tasks waiting for their sub tasks must use {@link #invokeAll(List)}, sub tasks which are still queued
+ * run on the waiting thread, so that workers never wait for tasks queued behind them.
+ */
+@RestrictTo(LIBRARY_GROUP)
+public final class SplitWorkerExecutor {
+
+    private static final int MAX_WORKER_COUNT = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), 4));
+
+    private static final ThreadPoolExecutor sWorkers;
+
+    static {
+        sWorkers = new ThreadPoolExecutor(MAX_WORKER_COUNT, MAX_WORKER_COUNT,
+                30L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new SplitWorkerThread());
+        sWorkers.allowCoreThreadTimeOut(true);
+    }
+
+    private SplitWorkerExecutor() {
+
+    }
+
+    /**
+     * @return max number of tasks running concurrently on workers.
+     */
+    public static int getMaxWorkerCount() {
+        return MAX_WORKER_COUNT;
+    }
+
+    public static void execute(Runnable task) {
+        sWorkers.execute(task);
+    }
+
+    /**
+     * Run tasks concurrently and wait until all of them are done, even if one fails or waiting thread is interrupted.
+     *
+     * @return results of tasks in the same order.
+     * @throws ExecutionException   of the first failed task.
+     * @throws InterruptedException if waiting thread is interrupted, all tasks are done anyway.
+     */
+    public static <T> List<T> invokeAll(List<? extends Callable<T>> tasks) throws ExecutionException, InterruptedException {
+        List<FutureTask<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            FutureTask<T> future = new FutureTask<>(task);
+            futures.add(future);
+            sWorkers.execute(future);
+        }
+        //run tasks which are not taken by workers yet, running or done tasks are skipped by FutureTask.
+        for (FutureTask<T> future : futures) {
+            future.run();
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        ExecutionException error = null;
+        boolean interrupted = false;
+        for (FutureTask<T> future : futures) {
+            while (true) {
+                try {
+                    results.add(future.get());
+                    break;
+                } catch (ExecutionException e) {
+                    if (error == null) {
+                        error = e;
+                    }
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            throw new InterruptedException("Interrupted while waiting for tasks");
+        }
+        if (error != null) {
+            throw error;
+        }
+        return results;
+    }
+}
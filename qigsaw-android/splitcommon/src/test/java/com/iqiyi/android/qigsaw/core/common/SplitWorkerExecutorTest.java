@@ -0,0 +1,129 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.iqiyi.android.qigsaw.core.common;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SplitWorkerExecutorTest {
+
+    @Test
+    public void resultsKeepOrderOfTasks() throws Exception {
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            tasks.add(new ValueTask(i));
+        }
+        List<Integer> results = SplitWorkerExecutor.invokeAll(tasks);
+        assertEquals(16, results.size());
+        for (int i = 0; i < 16; i++) {
+            assertEquals(i, (int) results.get(i));
+        }
+    }
+
+    @Test
+    public void allTasksAreDoneBeforeFirstErrorIsThrown() throws Exception {
+        final AtomicInteger finished = new AtomicInteger();
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        tasks.add(new Callable<Integer>() {
+            @Override
+            public Integer call() throws IOException {
+                throw new IOException("first");
+            }
+        });
+        for (int i = 0; i < 8; i++) {
+            tasks.add(new Callable<Integer>() {
+                @Override
+                public Integer call() throws InterruptedException {
+                    Thread.sleep(10);
+                    finished.incrementAndGet();
+                    return 0;
+                }
+            });
+        }
+        try {
+            SplitWorkerExecutor.invokeAll(tasks);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+            assertEquals("first", e.getCause().getMessage());
+        }
+        assertEquals(8, finished.get());
+    }
+
+    /**
+     * Every worker runs a task waiting for its own sub tasks, which are queued behind them.
+     */
+    @Test
+    public void nestedTasksDoNotDeadlockWhenWorkersAreBusy() throws Exception {
+        int outerCount = SplitWorkerExecutor.getMaxWorkerCount() * 2;
+        List<FutureTask<Integer>> outerTasks = new ArrayList<>(outerCount);
+        for (int i = 0; i < outerCount; i++) {
+            FutureTask<Integer> outerTask = new FutureTask<>(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    int sum = 0;
+                    for (int result : SplitWorkerExecutor.invokeAll(Arrays.asList(new ValueTask(1), new ValueTask(2), new ValueTask(3)))) {
+                        sum += result;
+                    }
+                    return sum;
+                }
+            });
+            outerTasks.add(outerTask);
+            SplitWorkerExecutor.execute(outerTask);
+        }
+        for (Future<Integer> outerTask : outerTasks) {
+            assertEquals(6, (int) outerTask.get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    private static final class ValueTask implements Callable<Integer> {
+
+        private final int value;
+
+        ValueTask(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public Integer call() throws InterruptedException {
+            Thread.sleep(1);
+            return value;
+        }
+    }
+}
@@ -45,6 +45,7 @@ import com.iqiyi.android.qigsaw.core.splitload.SplitLoadReporterManager;
 import com.iqiyi.android.qigsaw.core.splitreport.DefaultSplitInstallReporter;
 import com.iqiyi.android.qigsaw.core.splitreport.DefaultSplitLoadReporter;
 import com.iqiyi.android.qigsaw.core.splitreport.DefaultSplitUpdateReporter;
+import com.iqiyi.android.qigsaw.core.splitreport.SplitPhaseRecorder;
 import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitUpdateReporterManager;
 
 import java.util.concurrent.atomic.AtomicReference;
@@ -108,9 +109,11 @@ public class Qigsaw {
         SplitLoadReporterManager.install(splitConfiguration.loadReporter == null ? new DefaultSplitLoadReporter(context) : splitConfiguration.loadReporter);
         SplitInstallReporterManager.install(splitConfiguration.installReporter == null ? new DefaultSplitInstallReporter(context) : splitConfiguration.installReporter);
         SplitUpdateReporterManager.install(splitConfiguration.updateReporter == null ? new DefaultSplitUpdateReporter(context) : splitConfiguration.updateReporter);
+        SplitPhaseRecorder.setTraceEnabled(splitConfiguration.traceSplitPhases);
         //init SplitLoadManager and hook PatchCLassLoader.
         boolean qigsawMode = SplitBaseInfoProvider.isQigsawAssembleMode();
-        SplitLoadManagerService.install(context, currentProcessName, splitConfiguration.splitLoadMode, qigsawMode, splitConfiguration.forbiddenWorkProcesses);
+        SplitLoadManagerService.install(context, currentProcessName, splitConfiguration.splitLoadMode, qigsawMode, splitConfiguration.forbiddenWorkProcesses,
+                splitConfiguration.lazyLoadSplits, splitConfiguration.pinnedSplits);
         SplitLoadManagerService.getInstance().injectPathClassloader();
         AABExtension.getInstance().createAndActiveSplitApplication(context, qigsawMode);
         SplitCompat.install(context);
@@ -121,12 +124,16 @@ public class Qigsaw {
         SplitLoadManagerService.getInstance().loadInstalledSplitsWhenAppLaunches();
         //only work in main process!
         if (context.getPackageName().equals(currentProcessName)) {
-            SplitApkInstaller.install(context, downloader, splitConfiguration.obtainUserConfirmationDialogClass);
+            SplitApkInstaller.install(context, downloader,
+                    splitConfiguration.obtainUserConfirmationDialogClass, splitConfiguration.progressEmitInterval,
+                    splitConfiguration.maxActiveSessions, splitConfiguration.prefetchDiskBudget,
+                    splitConfiguration.prefetchMinBatteryLevel);
             Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
 
                 @Override
                 public boolean queueIdle() {
-                    cleanStaleSplits(context);
+                    cleanStaleSplits(context, splitConfiguration.splitCacheBudget, splitConfiguration.evictionPolicy);
+                    SplitApkInstaller.prefetchSplits();
                     return false;
                 }
             });
@@ -174,10 +181,12 @@ public class Qigsaw {
     /**
      * Clean stale disk cache of all splits.
      */
-    private static void cleanStaleSplits(Context context) {
+    private static void cleanStaleSplits(Context context, long splitCacheBudget, int evictionPolicy) {
         try {
             Intent intent = new Intent();
             intent.setClassName(context, "com.iqiyi.android.qigsaw.core.splitinstall.SplitCleanService");
+            intent.putExtra(SplitConstants.KEY_CACHE_BUDGET, splitCacheBudget);
+            intent.putExtra(SplitConstants.KEY_EVICTION_POLICY, evictionPolicy);
             context.startService(intent);
         } catch (Exception e) {
             //ignored
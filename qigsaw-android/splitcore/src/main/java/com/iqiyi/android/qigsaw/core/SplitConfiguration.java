@@ -24,16 +24,48 @@
 
 package com.iqiyi.android.qigsaw.core;
 
+import android.support.annotation.IntDef;
 import android.support.annotation.NonNull;
+import android.support.annotation.RestrictTo;
 
+import com.iqiyi.android.qigsaw.core.common.SplitConstants;
 import com.iqiyi.android.qigsaw.core.common.SplitLog;
 import com.iqiyi.android.qigsaw.core.splitload.SplitLoad;
 import com.iqiyi.android.qigsaw.core.splitreport.SplitInstallReporter;
 import com.iqiyi.android.qigsaw.core.splitreport.SplitLoadReporter;
+import com.iqiyi.android.qigsaw.core.splitreport.SplitPhaseReporter;
 import com.iqiyi.android.qigsaw.core.splitreport.SplitUpdateReporter;
 
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+import static android.support.annotation.RestrictTo.Scope.LIBRARY_GROUP;
+
 public class SplitConfiguration {
 
+    @IntDef({EVICTION_POLICY_LRU, EVICTION_POLICY_SIZE})
+    @Retention(RetentionPolicy.SOURCE)
+    @RestrictTo(LIBRARY_GROUP)
+    public @interface EvictionPolicy {
+
+    }
+
+    /**
+     * Least recently loaded split versions are evicted first.
+     */
+    public static final int EVICTION_POLICY_LRU = SplitConstants.EVICTION_POLICY_LRU;
+
+    /**
+     * Largest split versions are evicted first.
+     */
+    public static final int EVICTION_POLICY_SIZE = SplitConstants.EVICTION_POLICY_SIZE;
+
+    private static final long DEFAULT_PROGRESS_EMIT_INTERVAL = 100L;
+
+    private static final int DEFAULT_MAX_ACTIVE_SESSIONS = 2;
+
+    private static final int DEFAULT_PREFETCH_MIN_BATTERY_LEVEL = 50;
+
     /**
      * You can decide to use single or multiple class loader mode to load splits, see {@link SplitLoad} to know more details.
      */
@@ -44,6 +76,16 @@ public class SplitConfiguration {
      */
     final String[] forbiddenWorkProcesses;
 
+    /**
+     * Whether installed splits are loaded on first use of their components, classes or resources rather than at launch.
+     */
+    final boolean lazyLoadSplits;
+
+    /**
+     * Splits which are always loaded when app launches in lazy load mode.
+     */
+    final String[] pinnedSplits;
+
     /**
      * if the package name you declared in app manifest does not match applicationId in app/build.gradle,
      * you have to set it.
@@ -70,6 +112,42 @@ public class SplitConfiguration {
      */
     final Class<? extends ObtainUserConfirmationDialog> obtainUserConfirmationDialogClass;
 
+    /**
+     * Minimum interval in milliseconds between two download progress updates of an install session,
+     * state changes are always delivered immediately.
+     */
+    final long progressEmitInterval;
+
+    /**
+     * Whether phases of split installing and loading are emitted as {@link android.os.Trace} sections.
+     */
+    final boolean traceSplitPhases;
+
+    /**
+     * Maximum number of install sessions which are downloading splits at the same time.
+     */
+    final int maxActiveSessions;
+
+    /**
+     * Maximum bytes of splits kept on disk by prefetch, {@code 0} means prefetch is disabled.
+     */
+    final long prefetchDiskBudget;
+
+    /**
+     * Minimum battery level in percent to prefetch splits while device is not charging.
+     */
+    final int prefetchMinBatteryLevel;
+
+    /**
+     * Maximum bytes of installed split versions kept on disk, {@code 0} means no limit.
+     */
+    final long splitCacheBudget;
+
+    /**
+     * How to choose split versions to be evicted once {@link #splitCacheBudget} is exceeded.
+     */
+    final int evictionPolicy;
+
     public static SplitConfiguration.Builder newBuilder() {
         return new SplitConfiguration.Builder();
     }
@@ -77,11 +155,20 @@ public class SplitConfiguration {
     private SplitConfiguration(Builder builder) {
         this.splitLoadMode = builder.splitLoadMode;
         this.forbiddenWorkProcesses = builder.forbiddenWorkProcesses;
+        this.lazyLoadSplits = builder.lazyLoadSplits;
+        this.pinnedSplits = builder.pinnedSplits;
         this.manifestPackageName = builder.manifestPackageName;
         this.installReporter = builder.installReporter;
         this.loadReporter = builder.loadReporter;
         this.updateReporter = builder.updateReporter;
         this.obtainUserConfirmationDialogClass = builder.obtainUserConfirmationDialogClass;
+        this.progressEmitInterval = builder.progressEmitInterval;
+        this.traceSplitPhases = builder.traceSplitPhases;
+        this.maxActiveSessions = builder.maxActiveSessions;
+        this.prefetchDiskBudget = builder.prefetchDiskBudget;
+        this.prefetchMinBatteryLevel = builder.prefetchMinBatteryLevel;
+        this.splitCacheBudget = builder.splitCacheBudget;
+        this.evictionPolicy = builder.evictionPolicy;
     }
 
     public static class Builder {
@@ -90,6 +177,10 @@ public class SplitConfiguration {
 
         private String[] forbiddenWorkProcesses;
 
+        private boolean lazyLoadSplits;
+
+        private String[] pinnedSplits;
+
         private String manifestPackageName;
 
         private SplitInstallReporter installReporter;
@@ -100,6 +191,20 @@ public class SplitConfiguration {
 
         private Class<? extends ObtainUserConfirmationDialog> obtainUserConfirmationDialogClass;
 
+        private long progressEmitInterval = DEFAULT_PROGRESS_EMIT_INTERVAL;
+
+        private boolean traceSplitPhases;
+
+        private int maxActiveSessions = DEFAULT_MAX_ACTIVE_SESSIONS;
+
+        private long prefetchDiskBudget;
+
+        private int prefetchMinBatteryLevel = DEFAULT_PREFETCH_MIN_BATTERY_LEVEL;
+
+        private long splitCacheBudget;
+
+        private int evictionPolicy = EVICTION_POLICY_LRU;
+
         private Builder() {
             this.obtainUserConfirmationDialogClass = DefaultObtainUserConfirmationDialog.class;
         }
@@ -122,6 +227,21 @@ public class SplitConfiguration {
             return this;
         }
 
+        /**
+         * Load installed splits on first use instead of loading all of them when app launches.
+         * Splits declaring current process as work process and pinned splits are still loaded at launch,
+         * others are loaded when their components are started. Once a class of an unloaded split is looked up,
+         * the split is loaded in background and the class is found after that, so code which uses split classes
+         * by reflection should load the split in advance or pin it.
+         *
+         * @param pinnedSplits names of splits always loaded when app launches.
+         */
+        public Builder lazyLoadSplits(@NonNull String... pinnedSplits) {
+            this.lazyLoadSplits = true;
+            this.pinnedSplits = pinnedSplits;
+            return this;
+        }
+
         public Builder manifestPackageName(@NonNull String manifestPackageName) {
             this.manifestPackageName = manifestPackageName;
             return this;
@@ -147,6 +267,60 @@ public class SplitConfiguration {
             return this;
         }
 
+        /**
+         * @param progressEmitInterval minimum interval in milliseconds between two download progress updates,
+         *                             {@code 0} means every progress is delivered.
+         */
+        public Builder progressEmitInterval(long progressEmitInterval) {
+            this.progressEmitInterval = Math.max(0, progressEmitInterval);
+            return this;
+        }
+
+        /**
+         * Emit every install and load phase of splits as a systrace section, usually enabled for debug builds only.
+         * Phase durations are reported to install or load reporter which implements {@link SplitPhaseReporter} regardless of this option.
+         */
+        public Builder traceSplitPhases(boolean traceSplitPhases) {
+            this.traceSplitPhases = traceSplitPhases;
+            return this;
+        }
+
+        /**
+         * @param maxActiveSessions maximum number of install sessions downloading splits at the same time,
+         *                          a new session is rejected with ACTIVE_SESSIONS_LIMIT_EXCEEDED once exceeded.
+         *                          Deferred installs do not count and are paused while any session is downloading.
+         */
+        public Builder maxActiveSessions(int maxActiveSessions) {
+            this.maxActiveSessions = Math.max(1, maxActiveSessions);
+            return this;
+        }
+
+        /**
+         * Download and install splits which users are likely to request next when app is idle,
+         * while device is charging or using unmetered network. Prefetched splits are not loaded until requested.
+         *
+         * @param diskBudget      maximum bytes of splits kept on disk by prefetch, {@code 0} disables prefetch.
+         * @param minBatteryLevel minimum battery level in percent to prefetch while device is not charging.
+         */
+        public Builder prefetch(long diskBudget, int minBatteryLevel) {
+            this.prefetchDiskBudget = Math.max(0, diskBudget);
+            this.prefetchMinBatteryLevel = Math.min(100, Math.max(0, minBatteryLevel));
+            return this;
+        }
+
+        /**
+         * Evict installed split versions when app launches once their total footprint exceeds the budget.
+         * Obsolete versions are evicted before current ones, versions loaded by any process are never evicted.
+         *
+         * @param splitCacheBudget maximum bytes of apk, extracted libs and optimized dex of splits, {@code 0} means no limit.
+         * @param evictionPolicy   {@link #EVICTION_POLICY_LRU} or {@link #EVICTION_POLICY_SIZE}.
+         */
+        public Builder splitCacheBudget(long splitCacheBudget, @EvictionPolicy int evictionPolicy) {
+            this.splitCacheBudget = Math.max(0, splitCacheBudget);
+            this.evictionPolicy = evictionPolicy;
+            return this;
+        }
+
         public SplitConfiguration build() {
             return new SplitConfiguration(this);
         }
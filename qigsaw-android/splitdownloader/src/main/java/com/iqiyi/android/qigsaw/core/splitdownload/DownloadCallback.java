@@ -36,6 +36,14 @@ public interface DownloadCallback {
 
     void onCompleted();
 
+    /**
+     * Called before {@link #onCompleted()} if md5 of downloaded file, computed while it is written,
+     * matches {@link DownloadRequest#getMd5()}. Split apk would not be read again to verify md5.
+     *
+     * @param request the request whose file is verified.
+     */
+    void onVerified(DownloadRequest request);
+
     void onError(int errorCode);
 
 }
@@ -37,11 +37,17 @@ public final class DownloadRequest implements Parcelable {
 
     private final String moduleName;
 
+    private final long size;
+
+    private final String md5;
+
     private DownloadRequest(Parcel in) {
         url = in.readString();
         fileDir = in.readString();
         fileName = in.readString();
         moduleName = in.readString();
+        size = in.readLong();
+        md5 = in.readString();
     }
 
     public static final Creator<DownloadRequest> CREATOR = new Creator<DownloadRequest>() {
@@ -65,6 +71,8 @@ public final class DownloadRequest implements Parcelable {
         this.url = builder.url;
         this.fileName = builder.fileName;
         this.moduleName = builder.moduleName;
+        this.size = builder.size;
+        this.md5 = builder.md5;
     }
 
     public String getUrl() {
@@ -83,6 +91,22 @@ public final class DownloadRequest implements Parcelable {
         return moduleName;
     }
 
+    /**
+     * @return expected size of downloaded file, {@code 0} if unknown.
+     * Downloader may use it to check whether a partial file could be resumed.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return expected md5 of downloaded file, {@code null} if unknown.
+     * Downloader may compute md5 while writing file and call {@link DownloadCallback#onVerified(DownloadRequest)} if matched.
+     */
+    public String getMd5() {
+        return md5;
+    }
+
     @Override
     public int describeContents() {
         return 0;
@@ -94,6 +118,8 @@ public final class DownloadRequest implements Parcelable {
         dest.writeString(fileDir);
         dest.writeString(fileName);
         dest.writeString(moduleName);
+        dest.writeLong(size);
+        dest.writeString(md5);
     }
 
     public static class Builder {
@@ -106,6 +132,10 @@ public final class DownloadRequest implements Parcelable {
 
         private String moduleName;
 
+        private long size;
+
+        private String md5;
+
         public Builder url(String url) {
             this.url = url;
             return this;
@@ -126,6 +156,16 @@ public final class DownloadRequest implements Parcelable {
             return this;
         }
 
+        public Builder size(long size) {
+            this.size = size;
+            return this;
+        }
+
+        public Builder md5(String md5) {
+            this.md5 = md5;
+            return this;
+        }
+
         public DownloadRequest build() {
             return new DownloadRequest(this);
         }
@@ -28,6 +28,8 @@ import java.util.List;
 
 /**
  * Interface used to download splits, you are expected to implement it with your own downloader lib.
+ * Downloader is recommended to resume interrupted downloads and check md5 of files while writing them,
+ * see {@link DownloadRequest#getSize()} and {@link DownloadRequest#getMd5()}.
  */
 public interface Downloader {
 
@@ -150,6 +150,27 @@ public class AABExtension {
         return null;
     }
 
+    /**
+     * Find split which the class belongs to, using package index created by qigsaw-gradle-plugin.
+     * Classes in sub-packages of indexed packages are not matched, since they may belong to other splits.
+     *
+     * @param className name of class.
+     * @return name of split, or {@code null} if not found.
+     */
+    public String getSplitNameForClass(String className) {
+        return extensionManager.getSplitNameForClass(className);
+    }
+
+    /**
+     * Find split which declares the component, using component info created by qigsaw-gradle-plugin.
+     *
+     * @param componentName name of activity, service or receiver.
+     * @return name of split, or {@code null} if not found.
+     */
+    public String getSplitNameForComponent(String componentName) {
+        return extensionManager.getSplitNameForComponent(componentName);
+    }
+
     private Set<String> getSplitNames() {
         String[] dynamicFeatures = SplitBaseInfoProvider.getDynamicFeatures();
         Set<String> modules = new HashSet<>();
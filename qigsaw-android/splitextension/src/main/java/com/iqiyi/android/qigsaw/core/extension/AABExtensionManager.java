@@ -51,4 +51,21 @@ interface AABExtensionManager {
 
     boolean isSplitReceiver(String name);
 
+    /**
+     * Find split which the class belongs to by its package.
+     * Only packages indexed by qigsaw-gradle-plugin match, sub-packages of them are not indexed.
+     *
+     * @param className name of class
+     * @return name of split, or {@code null} if the class is not indexed.
+     */
+    String getSplitNameForClass(String className);
+
+    /**
+     * Find split which declares the activity, service or receiver.
+     *
+     * @param componentName name of component
+     * @return name of split, or {@code null} if the component is not declared by any split.
+     */
+    String getSplitNameForComponent(String componentName);
+
 }
@@ -32,9 +32,12 @@ import android.text.TextUtils;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.List;
+import java.util.Map;
 
 final class AABExtensionManagerImpl implements AABExtensionManager {
 
+    private static volatile Method sAttachMethod;
+
     private SplitComponentInfoProvider infoProvider;
 
     private List<String> splitActivities;
@@ -43,6 +46,10 @@ final class AABExtensionManagerImpl implements AABExtensionManager {
 
     private List<String> splitReceivers;
 
+    private volatile Map<String, String> splitPackages;
+
+    private volatile Map<String, String> splitComponents;
+
     AABExtensionManagerImpl(SplitComponentInfoProvider infoProvider) {
         this.infoProvider = infoProvider;
     }
@@ -76,9 +83,7 @@ final class AABExtensionManagerImpl implements AABExtensionManager {
         if (app != null) {
             Throwable error = null;
             try {
-                Method method = Application.class.getDeclaredMethod("attach", Context.class);
-                method.setAccessible(true);
-                method.invoke(app, appContext);
+                getAttachMethod().invoke(app, appContext);
             } catch (NoSuchMethodException e) {
                 error = e;
             } catch (IllegalAccessException e) {
@@ -92,6 +97,17 @@ final class AABExtensionManagerImpl implements AABExtensionManager {
         }
     }
 
+    @SuppressLint("DiscouragedPrivateApi")
+    private static Method getAttachMethod() throws NoSuchMethodException {
+        Method method = sAttachMethod;
+        if (method == null) {
+            method = Application.class.getDeclaredMethod("attach", Context.class);
+            method.setAccessible(true);
+            sAttachMethod = method;
+        }
+        return method;
+    }
+
     @Override
     public boolean isSplitActivity(String name) {
         if (splitActivities == null) {
@@ -115,4 +131,28 @@ final class AABExtensionManagerImpl implements AABExtensionManager {
         }
         return splitReceivers.contains(name);
     }
+
+    @Override
+    public String getSplitNameForClass(String className) {
+        Map<String, String> packages = splitPackages;
+        if (packages == null) {
+            packages = infoProvider.getSplitPackages();
+            splitPackages = packages;
+        }
+        int index = className.lastIndexOf('.');
+        if (index <= 0 || packages.isEmpty()) {
+            return null;
+        }
+        return packages.get(className.substring(0, index));
+    }
+
+    @Override
+    public String getSplitNameForComponent(String componentName) {
+        Map<String, String> components = splitComponents;
+        if (components == null) {
+            components = infoProvider.getSplitComponents();
+            splitComponents = components;
+        }
+        return components.get(componentName);
+    }
 }
@@ -41,6 +41,8 @@ final class ComponentInfoManager {
 
     private static final String APPLICATION_SUFFIX = "_APPLICATION";
 
+    private static final String PACKAGES_SUFFIX = "_PACKAGES";
+
     private static Class getComponentInfoClass() throws ClassNotFoundException {
         return Class.forName(CLASS_ComponentInfo);
     }
@@ -118,4 +120,23 @@ final class ComponentInfoManager {
         return null;
     }
 
+    static String[] getSplitPackages(String splitName) {
+        String fieldName = splitName + PACKAGES_SUFFIX;
+        try {
+            Field field = getComponentInfoClass().getField(fieldName);
+            field.setAccessible(true);
+            String result = (String) field.get(null);
+            if (result != null) {
+                return result.split(",");
+            }
+        } catch (NoSuchFieldException e) {
+            //
+        } catch (IllegalAccessException e) {
+            //
+        } catch (ClassNotFoundException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
 }
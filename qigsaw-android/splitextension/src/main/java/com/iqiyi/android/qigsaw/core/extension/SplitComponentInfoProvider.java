@@ -28,7 +28,10 @@ import android.support.annotation.NonNull;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 final class SplitComponentInfoProvider {
@@ -86,4 +89,57 @@ final class SplitComponentInfoProvider {
         return receivers;
     }
 
+    /**
+     * Gets index of activity, service and receiver name to split name.
+     *
+     * @return map of component name to split name.
+     */
+    @NonNull
+    Map<String, String> getSplitComponents() {
+        Map<String, String> componentIndex = new HashMap<>();
+        for (String splitName : splitNames) {
+            addSplitComponents(componentIndex, ComponentInfoManager.getSplitActivities(splitName), splitName);
+            addSplitComponents(componentIndex, ComponentInfoManager.getSplitServices(splitName), splitName);
+            addSplitComponents(componentIndex, ComponentInfoManager.getSplitReceivers(splitName), splitName);
+        }
+        return componentIndex;
+    }
+
+    private static void addSplitComponents(Map<String, String> componentIndex, String[] components, String splitName) {
+        if (components != null) {
+            for (String component : components) {
+                componentIndex.put(component, splitName);
+            }
+        }
+    }
+
+    /**
+     * Gets index of package to split name.
+     * Packages declared by more than one split are excluded, classes in them are found by probing.
+     *
+     * @return map of package name to split name.
+     */
+    @NonNull
+    Map<String, String> getSplitPackages() {
+        Map<String, String> packageIndex = new HashMap<>();
+        Set<String> sharedPackages = new HashSet<>(0);
+        for (String splitName : splitNames) {
+            String[] result = ComponentInfoManager.getSplitPackages(splitName);
+            if (result == null) {
+                continue;
+            }
+            for (String packageName : result) {
+                if (packageName.length() == 0 || sharedPackages.contains(packageName)) {
+                    continue;
+                }
+                String previous = packageIndex.put(packageName, splitName);
+                if (previous != null && !previous.equals(splitName)) {
+                    packageIndex.remove(packageName);
+                    sharedPackages.add(packageName);
+                }
+            }
+        }
+        return packageIndex;
+    }
+
 }
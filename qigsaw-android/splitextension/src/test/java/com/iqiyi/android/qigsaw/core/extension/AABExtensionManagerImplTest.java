@@ -0,0 +1,73 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.iqiyi.android.qigsaw.core.extension;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class AABExtensionManagerImplTest {
+
+    private AABExtensionManagerImpl extensionManager;
+
+    @Before
+    public void setUp() {
+        SplitComponentInfoProvider infoProvider = new SplitComponentInfoProvider(
+                new HashSet<>(Arrays.asList("java", "native", "assets", "unknown")));
+        extensionManager = new AABExtensionManagerImpl(infoProvider);
+    }
+
+    @Test
+    public void findSplitOfIndexedPackage() {
+        assertEquals("java", extensionManager.getSplitNameForClass("com.iqiyi.qigsaw.sample.java.JavaSampleActivity"));
+        assertEquals("native", extensionManager.getSplitNameForClass("com.iqiyi.qigsaw.sample.ndk.NativeSampleActivity"));
+        assertEquals("assets", extensionManager.getSplitNameForClass("com.iqiyi.qigsaw.sample.java.assets.AssetsActivity"));
+    }
+
+    @Test
+    public void ignoreSubPackageOfIndexedPackage() {
+        assertNull(extensionManager.getSplitNameForClass("com.iqiyi.qigsaw.sample.java.widget.SampleView"));
+        assertNull(extensionManager.getSplitNameForClass("com.iqiyi.qigsaw.sample.ndk.jni.NativeBridge"));
+    }
+
+    @Test
+    public void ignorePackageSharedBySplits() {
+        assertNull(extensionManager.getSplitNameForClass("com.iqiyi.qigsaw.sample.shared.SharedUtils"));
+    }
+
+    @Test
+    public void ignoreClassOutOfSplits() {
+        assertNull(extensionManager.getSplitNameForClass("com.iqiyi.qigsaw.sample.MainActivity"));
+        assertNull(extensionManager.getSplitNameForClass("com.iqiyi.qigsaw.sample"));
+        assertNull(extensionManager.getSplitNameForClass("MainActivity"));
+    }
+
+}
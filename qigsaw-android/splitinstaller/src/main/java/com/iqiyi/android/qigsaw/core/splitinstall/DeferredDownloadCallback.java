@@ -26,7 +26,9 @@ package com.iqiyi.android.qigsaw.core.splitinstall;
 
 import android.content.Context;
 
+import com.iqiyi.android.qigsaw.core.common.SplitBackgroundExecutor;
 import com.iqiyi.android.qigsaw.core.splitdownload.DownloadCallback;
+import com.iqiyi.android.qigsaw.core.splitdownload.DownloadRequest;
 import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfo;
 
 import java.util.List;
@@ -72,6 +74,11 @@ final class DeferredDownloadCallback implements DownloadCallback {
         SplitBackgroundExecutor.getExecutor().execute(new SplitDeferredInstallTask(installer, moduleNames, splitInfoList));
     }
 
+    @Override
+    public void onVerified(DownloadRequest request) {
+        SplitVerificationCache.markDownloadVerified(splitInfoList, request);
+    }
+
     @Override
     public void onError(int errorCode) {
 
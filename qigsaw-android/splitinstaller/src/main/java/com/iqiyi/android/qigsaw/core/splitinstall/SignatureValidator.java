@@ -34,12 +34,18 @@ import com.split.signature.G;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateEncodingException;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 class SignatureValidator {
 
@@ -49,47 +55,117 @@ class SignatureValidator {
 
     }
 
-    static boolean validateSplit(Context context, File splitFile) {
+    /**
+     * Certificates of base app never change during process lifetime, so decode them only once.
+     */
+    private static volatile List<X509Certificate> sAppCertificates;
+
+    /**
+     * @return signature of split if it is signed by all app certificates, otherwise {@code null}.
+     */
+    static SplitSignature validateSplit(Context context, File splitFile) {
+        List<X509Certificate> signatureList = getAppCertificates(context);
+        if (signatureList != null && !signatureList.isEmpty()) {
+            X509Certificate[][] signers = a(splitFile.getAbsolutePath(), signatureList);
+            if (signers != null) {
+                return new SplitSignature(getSignerDigests(signers));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check whether signers recorded by {@link #validateSplit(Context, File)} still include every app certificate,
+     * it is the same rule as validating split.
+     */
+    static boolean isSignedByApp(Context context, Collection<String> signerDigests) {
+        List<X509Certificate> signatureList = getAppCertificates(context);
+        if (signatureList == null || signatureList.isEmpty()) {
+            return false;
+        }
+        for (X509Certificate certificate : signatureList) {
+            String digest = getCertificateDigest(certificate);
+            if (digest == null || !signerDigests.contains(digest)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Integer.toString((b & 0xff) + 0x100, 16).substring(1));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * @return digests of certificates of all signers, or {@code null} if any of them fails to be digested.
+     */
+    private static Set<String> getSignerDigests(X509Certificate[][] signers) {
+        Set<String> digests = new TreeSet<>();
+        for (X509Certificate[] signer : signers) {
+            String digest = getCertificateDigest(signer[0]);
+            if (digest == null) {
+                return null;
+            }
+            digests.add(digest);
+        }
+        return digests;
+    }
+
+    private static String getCertificateDigest(X509Certificate certificate) {
+        try {
+            return toHex(MessageDigest.getInstance("SHA-256").digest(certificate.getEncoded()));
+        } catch (NoSuchAlgorithmException | CertificateEncodingException e) {
+            SplitLog.w(TAG, "Failed to digest certificate", e);
+            return null;
+        }
+    }
+
+    private static List<X509Certificate> getAppCertificates(Context context) {
+        List<X509Certificate> certificates = sAppCertificates;
+        if (certificates != null) {
+            return certificates;
+        }
         Signature[] signatures;
-        ArrayList<X509Certificate> signatureList;
         if ((signatures = getAppSignature(context)) == null) {
-            signatureList = null;
-        } else {
-            ArrayList<X509Certificate> temp = new ArrayList<>();
-            for (Signature signature : signatures) {
-                X509Certificate x509Certificate;
-                if ((x509Certificate = decodeCertificate(signature)) != null) {
-                    temp.add(x509Certificate);
-                }
+            return null;
+        }
+        ArrayList<X509Certificate> temp = new ArrayList<>();
+        for (Signature signature : signatures) {
+            X509Certificate x509Certificate;
+            if ((x509Certificate = decodeCertificate(signature)) != null) {
+                temp.add(x509Certificate);
             }
-            signatureList = temp;
         }
-        if (signatureList != null && !signatureList.isEmpty()) {
-            return a(splitFile.getAbsolutePath(), signatureList);
+        if (!temp.isEmpty()) {
+            sAppCertificates = temp;
         }
-        return false;
+        return temp;
     }
 
-    private static boolean a(String var1, List<X509Certificate> var2) {
+    private static X509Certificate[][] a(String var1, List<X509Certificate> var2) {
         X509Certificate[][] var3;
         try {
             var3 = G.a(var1);
         } catch (Exception var14) {
             SplitLog.e(TAG, "Downloaded split " + var1 + " is not signed.", var14);
-            return false;
+            return null;
         }
 
         if (var3 != null && var3.length != 0 && var3[0].length != 0) {
             X509Certificate[][] var5 = var3;
             if (var2.isEmpty()) {
                 SplitLog.e(TAG, "No certificates found for app.");
-                return false;
+                return null;
             } else {
                 Iterator var7 = var2.iterator();
                 boolean var9;
                 do {
                     if (!var7.hasNext()) {
-                        return true;
+                        return var5;
                     }
 
                     X509Certificate var8 = (X509Certificate) var7.next();
@@ -106,11 +182,11 @@ class SignatureValidator {
                 } while (var9);
 
                 SplitLog.i(TAG, "There's an app certificate that doesn't sign the split.");
-                return false;
+                return null;
             }
         } else {
             SplitLog.e(TAG, "Downloaded split " + var1 + " is not signed.");
-            return false;
+            return null;
         }
     }
 
@@ -132,4 +208,19 @@ class SignatureValidator {
         }
     }
 
+    /**
+     * Verified APK Signature Scheme v2 signers of split.
+     */
+    static final class SplitSignature {
+
+        /**
+         * SHA-256 of certificate of every signer in hex, {@code null} if they fail to be digested.
+         */
+        final Set<String> signerDigests;
+
+        SplitSignature(Set<String> signerDigests) {
+            this.signerDigests = signerDigests;
+        }
+    }
+
 }
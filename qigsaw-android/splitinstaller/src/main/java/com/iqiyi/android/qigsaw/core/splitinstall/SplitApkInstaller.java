@@ -41,20 +41,42 @@ public final class SplitApkInstaller {
 
     private static final AtomicReference<SplitInstallSupervisor> sSplitApkInstallerRef = new AtomicReference<>();
 
+    private static final AtomicReference<SplitPrefetcher> sSplitPrefetcherRef = new AtomicReference<>();
+
     private SplitApkInstaller() {
 
     }
 
     public static void install(Context context,
                                Downloader downloader,
-                               Class<? extends Activity> obtainUserConfirmationActivityClass) {
+                               Class<? extends Activity> obtainUserConfirmationActivityClass,
+                               long progressEmitInterval,
+                               int maxActiveSessions,
+                               long prefetchDiskBudget,
+                               int prefetchMinBatteryLevel) {
         if (sSplitApkInstallerRef.get() == null) {
-            sSplitApkInstallerRef.set(new SplitInstallSupervisorImpl(
+            SplitUsageModel usageModel = prefetchDiskBudget > 0 ? new SplitUsageModel(context) : null;
+            SplitInstallSupervisor supervisor = new SplitInstallSupervisorImpl(
                     context,
-                    new SplitInstallSessionManagerImpl(context),
+                    new SplitInstallSessionManagerImpl(context, progressEmitInterval, maxActiveSessions),
                     downloader,
-                    obtainUserConfirmationActivityClass)
-            );
+                    obtainUserConfirmationActivityClass,
+                    usageModel);
+            sSplitApkInstallerRef.set(supervisor);
+            if (usageModel != null) {
+                sSplitPrefetcherRef.set(new SplitPrefetcher(context, supervisor, usageModel, prefetchDiskBudget, prefetchMinBatteryLevel));
+            }
+        }
+    }
+
+    /**
+     * Prefetch splits which are likely to be requested next, called when app is idle.
+     * Nothing would be done if prefetch is disabled or device is not charging or using unmetered network.
+     */
+    public static void prefetchSplits() {
+        SplitPrefetcher prefetcher = sSplitPrefetcherRef.get();
+        if (prefetcher != null) {
+            prefetcher.prefetchIfNeeded();
         }
     }
 
@@ -0,0 +1,204 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.iqiyi.android.qigsaw.core.splitinstall;
+
+import android.support.annotation.Nullable;
+
+import com.iqiyi.android.qigsaw.core.common.FileUtil;
+import com.iqiyi.android.qigsaw.core.common.SplitConstants;
+import com.iqiyi.android.qigsaw.core.common.SplitLog;
+import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfo;
+import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitPathManager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reconstruct split apk from an old installed version and binary patch created by qigsaw-gradle-plugin.
+ * Layout of the patch must be consistent with SplitApkDiff of qigsaw-gradle-plugin.
+ */
+final class SplitApkPatcher {
+
+    private static final String TAG = "Split:ApkPatcher";
+
+    private static final int MAGIC = 0x51535044;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int OP_END = 0;
+
+    private static final int OP_COPY = 1;
+
+    private static final int OP_INSERT = 2;
+
+    private static final int BUFFER_SIZE = 16384;
+
+    private static final String PATCH_FAILED_SUFFIX = ".failed";
+
+    private SplitApkPatcher() {
+
+    }
+
+    static File getPatchFile(SplitInfo info) {
+        File splitDir = SplitPathManager.require().getSplitDir(info);
+        return new File(splitDir, info.getSplitName() + SplitConstants.DOT_PATCH);
+    }
+
+    /**
+     * Whether split apk should be reconstructed by binary patch instead of downloading full apk.
+     */
+    static boolean isPatchApplicable(SplitInfo info) {
+        if (!info.hasPatch() || info.isBuiltIn()) {
+            return false;
+        }
+        File patchFailedMark = new File(SplitPathManager.require().getSplitDir(info),
+                info.getSplitName() + SplitConstants.DOT_PATCH + PATCH_FAILED_SUFFIX);
+        return !patchFailedMark.exists() && findBaseApk(info) != null;
+    }
+
+    /**
+     * Find old installed split apk which binary patch is created against.
+     */
+    @Nullable
+    static File findBaseApk(SplitInfo info) {
+        File splitRootDir = SplitPathManager.require().getSplitRootDir(info);
+        File[] versionDirs = splitRootDir.listFiles();
+        if (versionDirs == null) {
+            return null;
+        }
+        for (File versionDir : versionDirs) {
+            if (!versionDir.isDirectory() || versionDir.getName().equals(info.getSplitVersion())) {
+                continue;
+            }
+            //mark file is named by md5 of split apk once it is installed.
+            File markFile = new File(versionDir, info.getPatchBaseMd5());
+            File baseApk = new File(versionDir, info.getSplitName() + SplitConstants.DOT_APK);
+            if (markFile.exists() && FileUtil.isLegalFile(baseApk)) {
+                return baseApk;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Record patch of this split is unusable, so full split apk is downloaded instead.
+     */
+    static void markPatchFailed(SplitInfo info) {
+        File patchFailedMark = new File(SplitPathManager.require().getSplitDir(info),
+                info.getSplitName() + SplitConstants.DOT_PATCH + PATCH_FAILED_SUFFIX);
+        try {
+            if (!patchFailedMark.createNewFile()) {
+                SplitLog.w(TAG, "Split %s patch failed mark already exists", info.getSplitName());
+            }
+        } catch (IOException e) {
+            SplitLog.w(TAG, "Failed to create patch failed mark of split %s", info.getSplitName());
+        }
+    }
+
+    /**
+     * Apply binary patch to old apk, memory usage is bounded by a fixed copy buffer.
+     *
+     * @param oldApk    old installed split apk.
+     * @param patchFile binary patch file.
+     * @param newApk    file to write reconstructed split apk.
+     */
+    static void patch(File oldApk, File patchFile, File newApk) throws IOException {
+        RandomAccessFile oldRaf = null;
+        DataInputStream patchInput = null;
+        OutputStream output = null;
+        try {
+            oldRaf = new RandomAccessFile(oldApk, "r");
+            patchInput = new DataInputStream(new BufferedInputStream(new FileInputStream(patchFile), BUFFER_SIZE));
+            if (patchInput.readInt() != MAGIC) {
+                throw new IOException("Bad split patch magic");
+            }
+            int version = patchInput.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported split patch version " + version);
+            }
+            long newSize = patchInput.readLong();
+            DataInputStream ops = new DataInputStream(new BufferedInputStream(new InflaterInputStream(patchInput), BUFFER_SIZE));
+            output = new BufferedOutputStream(new FileOutputStream(newApk), BUFFER_SIZE);
+            long oldSize = oldRaf.length();
+            long written = 0;
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int op;
+            while ((op = ops.readUnsignedByte()) != OP_END) {
+                if (op == OP_COPY) {
+                    long offset = ops.readLong();
+                    int length = ops.readInt();
+                    if (offset < 0 || length < 0 || offset + length > oldSize) {
+                        throw new IOException("Split patch copies out of old apk range");
+                    }
+                    oldRaf.seek(offset);
+                    while (length > 0) {
+                        int count = Math.min(length, buffer.length);
+                        oldRaf.readFully(buffer, 0, count);
+                        output.write(buffer, 0, count);
+                        length -= count;
+                        written += count;
+                    }
+                } else if (op == OP_INSERT) {
+                    int length = ops.readInt();
+                    if (length < 0) {
+                        throw new IOException("Split patch inserts negative length");
+                    }
+                    while (length > 0) {
+                        int count = Math.min(length, buffer.length);
+                        ops.readFully(buffer, 0, count);
+                        output.write(buffer, 0, count);
+                        length -= count;
+                        written += count;
+                    }
+                } else {
+                    throw new IOException("Unknown split patch operation " + op);
+                }
+                if (written > newSize) {
+                    throw new IOException("Split patch output exceeds expected size " + newSize);
+                }
+            }
+            if (written != newSize) {
+                throw new IOException("Split patch output size " + written + " mismatches expected size " + newSize);
+            }
+            //read to the end of deflated stream, so that its checksum is verified and truncated patch is rejected.
+            if (ops.read() != -1) {
+                throw new IOException("Split patch has data after end operation");
+            }
+            output.flush();
+        } finally {
+            FileUtil.closeQuietly(output);
+            FileUtil.closeQuietly(patchInput);
+            FileUtil.closeQuietly(oldRaf);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.iqiyi.android.qigsaw.core.splitinstall;
+
+import com.iqiyi.android.qigsaw.core.common.FileUtil;
+import com.iqiyi.android.qigsaw.core.common.SplitLog;
+import com.iqiyi.android.qigsaw.core.splitload.SplitLoadRecord;
+import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfo;
+import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitPathManager;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keep total footprint of split versions, including apk, extracted libs, optimized dex and multidex zips,
+ * within a byte budget.
+ * <p>
+ * Obsolete versions are evicted before current ones, both in the order of {@link SplitEvictionPolicy}.
+ * Current versions loaded recently are kept to avoid installing them again and again,
+ * versions loaded by any process are never evicted.
+ */
+final class SplitCacheEvictor {
+
+    private static final String TAG = "Split:SplitCacheEvictor";
+
+    private static final long RECENTLY_LOADED_PERIOD = TimeUnit.DAYS.toMillis(1);
+
+    private final long budget;
+
+    private final SplitEvictionPolicy policy;
+
+    SplitCacheEvictor(long budget, SplitEvictionPolicy policy) {
+        this.budget = budget;
+        this.policy = policy;
+    }
+
+    void evict(Collection<SplitInfo> splitInfoList) {
+        List<SplitVersion> obsoleteVersions = new ArrayList<>();
+        List<SplitVersion> currentVersions = new ArrayList<>();
+        long totalFootprint = 0;
+        for (SplitInfo info : splitInfoList) {
+            File currentVersionDir = SplitPathManager.require().getSplitDir(info);
+            File[] versionDirs = SplitPathManager.require().getSplitRootDir(info).listFiles();
+            if (versionDirs == null) {
+                continue;
+            }
+            for (File versionDir : versionDirs) {
+                if (!versionDir.isDirectory()) {
+                    continue;
+                }
+                long footprint = FileUtil.getTotalSize(versionDir);
+                if (footprint == 0) {
+                    continue;
+                }
+                totalFootprint += footprint;
+                boolean current = versionDir.equals(currentVersionDir);
+                SplitVersion version = new SplitVersion(info, versionDir, footprint, SplitLoadRecord.getLastLoadTime(versionDir));
+                if (!current) {
+                    obsoleteVersions.add(version);
+                } else if (System.currentTimeMillis() - version.lastLoadTime > RECENTLY_LOADED_PERIOD) {
+                    currentVersions.add(version);
+                }
+            }
+        }
+        SplitLog.i(TAG, "Total footprint of splits is %d bytes, budget is %d bytes", totalFootprint, budget);
+        if (totalFootprint <= budget) {
+            return;
+        }
+        Collections.sort(obsoleteVersions, policy);
+        Collections.sort(currentVersions, policy);
+        List<SplitVersion> candidates = new ArrayList<>(obsoleteVersions.size() + currentVersions.size());
+        candidates.addAll(obsoleteVersions);
+        candidates.addAll(currentVersions);
+        for (SplitVersion version : candidates) {
+            if (totalFootprint <= budget) {
+                break;
+            }
+            if (evictVersion(version)) {
+                totalFootprint -= version.footprint;
+            }
+        }
+        SplitLog.i(TAG, "Total footprint of splits is %d bytes after eviction", totalFootprint);
+    }
+
+    /**
+     * Delete split version dir, versions loaded by any process are skipped.
+     */
+    static boolean evictVersion(SplitVersion version) {
+        Closeable lock = SplitLoadRecord.lockForEviction(version.versionDir);
+        if (lock == null) {
+            SplitLog.i(TAG, "Split %s version %s is in use, skip it", version.info.getSplitName(), version.versionDir.getName());
+            return false;
+        }
+        try {
+            SplitLog.i(TAG, "Evict split %s version %s, %d bytes", version.info.getSplitName(), version.versionDir.getName(), version.footprint);
+            FileUtil.deleteDir(version.versionDir);
+            if (version.versionDir.getName().equals(version.info.getSplitVersion())) {
+                SplitVerificationCache.invalidate(version.info);
+            }
+            return true;
+        } finally {
+            FileUtil.closeQuietly(lock);
+        }
+    }
+
+    static final class SplitVersion {
+
+        final SplitInfo info;
+
+        final File versionDir;
+
+        final long footprint;
+
+        final long lastLoadTime;
+
+        SplitVersion(SplitInfo info, File versionDir, long footprint, long lastLoadTime) {
+            this.info = info;
+            this.versionDir = versionDir;
+            this.footprint = footprint;
+            this.lastLoadTime = lastLoadTime;
+        }
+    }
+}
@@ -29,8 +29,9 @@ import android.content.Intent;
 import android.support.annotation.Nullable;
 import android.support.annotation.RestrictTo;
 
-import com.iqiyi.android.qigsaw.core.common.FileUtil;
+import com.iqiyi.android.qigsaw.core.common.SplitConstants;
 import com.iqiyi.android.qigsaw.core.common.SplitLog;
+import com.iqiyi.android.qigsaw.core.splitload.SplitLoadRecord;
 import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfo;
 import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfoManager;
 import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfoManagerService;
@@ -38,9 +39,10 @@ import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitPathManager;
 
 import java.io.File;
 import java.io.FileFilter;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Comparator;
+import java.util.Collections;
+import java.util.List;
 
 import static android.support.annotation.RestrictTo.Scope.LIBRARY_GROUP;
 
@@ -58,13 +60,13 @@ public class SplitCleanService extends IntentService {
     @Override
     protected void onHandleIntent(@Nullable Intent intent) {
         try {
-            doClean();
+            doClean(intent);
         } catch (Exception e) {
             //ignored
         }
     }
 
-    private void doClean() {
+    private void doClean(@Nullable Intent intent) {
         SplitPathManager.require().clearCache();
         SplitInfoManager infoManager = SplitInfoManagerService.getInstance();
         if (infoManager != null) {
@@ -73,13 +75,18 @@ public class SplitCleanService extends IntentService {
                 for (SplitInfo splitInfo : splitInfoList) {
                     File splitDir = SplitPathManager.require().getSplitDir(splitInfo);
                     File splitRootDir = SplitPathManager.require().getSplitRootDir(splitInfo);
-                    deleteRedundantSplitVersionDirs(splitDir, splitRootDir);
+                    deleteRedundantSplitVersionDirs(splitInfo, splitDir, splitRootDir);
+                }
+                long cacheBudget = intent == null ? 0 : intent.getLongExtra(SplitConstants.KEY_CACHE_BUDGET, 0);
+                if (cacheBudget > 0) {
+                    int policy = intent.getIntExtra(SplitConstants.KEY_EVICTION_POLICY, SplitConstants.EVICTION_POLICY_LRU);
+                    new SplitCacheEvictor(cacheBudget, SplitEvictionPolicy.valueOf(policy)).evict(splitInfoList);
                 }
             }
         }
     }
 
-    private void deleteRedundantSplitVersionDirs(final File currentSplitVersionDir, File splitRootDir) {
+    private void deleteRedundantSplitVersionDirs(SplitInfo splitInfo, final File currentSplitVersionDir, File splitRootDir) {
         final String splitName = splitRootDir.getName();
         File[] files = splitRootDir.listFiles(new FileFilter() {
             @Override
@@ -93,21 +100,15 @@ public class SplitCleanService extends IntentService {
             }
         });
         if (files != null && files.length > MAX_SPLIT_CACHE_SIZE) {
-            Arrays.sort(files, new Comparator<File>() {
-                @Override
-                public int compare(File o1, File o2) {
-                    if (o1.lastModified() < o2.lastModified()) {
-                        return 1;
-                    } else if (o1.lastModified() == o2.lastModified()) {
-                        return 0;
-                    } else {
-                        return -1;
-                    }
-                }
-            });
-            for (int i = MAX_SPLIT_CACHE_SIZE; i < files.length; i++) {
-                SplitLog.i(TAG, "Split %s version %s is redundant, so wen try to delete it", splitName, files[i].getName());
-                FileUtil.deleteDir(files[i]);
+            List<SplitCacheEvictor.SplitVersion> versions = new ArrayList<>(files.length);
+            for (File file : files) {
+                versions.add(new SplitCacheEvictor.SplitVersion(splitInfo, file, 0, SplitLoadRecord.getLastLoadTime(file)));
+            }
+            //most recently loaded versions are kept.
+            Collections.sort(versions, Collections.reverseOrder(SplitEvictionPolicy.LRU));
+            for (int i = MAX_SPLIT_CACHE_SIZE; i < versions.size(); i++) {
+                SplitLog.i(TAG, "Split %s version %s is redundant, so wen try to delete it", splitName, versions.get(i).versionDir.getName());
+                SplitCacheEvictor.evictVersion(versions.get(i));
             }
         }
     }
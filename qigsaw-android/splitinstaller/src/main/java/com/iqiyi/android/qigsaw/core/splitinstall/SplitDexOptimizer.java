@@ -0,0 +1,195 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.iqiyi.android.qigsaw.core.splitinstall;
+
+import android.content.Context;
+import android.os.Build;
+import android.support.annotation.Nullable;
+
+import com.iqiyi.android.qigsaw.core.common.FileUtil;
+import com.iqiyi.android.qigsaw.core.common.SplitLog;
+import com.iqiyi.android.qigsaw.core.common.SplitWorkerExecutor;
+import com.iqiyi.android.qigsaw.core.splitload.SplitDexClassLoader;
+import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfo;
+import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitPathManager;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import dalvik.system.DexFile;
+
+/**
+ * Dex optimization stage of installing splits, on Dalvik secondary dex files are optimized on {@link SplitWorkerExecutor}.
+ * <p>
+ * Once optimized files of a split version are found, status is recorded with build fingerprint,
+ * so that other processes never trigger optimization again until the system is updated.
+ * Since API 26 creating class loader does not compile dex files, so this stage is skipped.
+ */
+final class SplitDexOptimizer {
+
+    private static final String TAG = "Split:DexOptimizer";
+
+    private static final String STATUS_FILE_NAME = "dexopt.status";
+
+    private static final String KEY_MD5 = "md5";
+
+    private static final String KEY_FINGERPRINT = "fingerprint";
+
+    private SplitDexOptimizer() {
+
+    }
+
+    /**
+     * @return {@code true} if dex files of this split version have been optimized on current system.
+     */
+    static boolean isOptimized(SplitInfo info) {
+        File statusFile = getStatusFile(info);
+        if (!statusFile.exists()) {
+            return false;
+        }
+        Properties status = new Properties();
+        FileInputStream input = null;
+        try {
+            input = new FileInputStream(statusFile);
+            status.load(input);
+        } catch (IOException e) {
+            SplitLog.w(TAG, "Failed to read dex optimization status of split %s", info.getSplitName());
+            return false;
+        } finally {
+            FileUtil.closeQuietly(input);
+        }
+        return info.getMd5().equals(status.getProperty(KEY_MD5))
+                && Build.FINGERPRINT.equals(status.getProperty(KEY_FINGERPRINT));
+    }
+
+    /**
+     * Whether dex files are compiled when class loader is created, ART only verifies them in memory since API 26.
+     */
+    static boolean isOptimizationSupported() {
+        return Build.VERSION.SDK_INT < Build.VERSION_CODES.O;
+    }
+
+    /**
+     * Optimize dex files of split and block until it is finished.
+     * On Dalvik, every dex file is optimized concurrently before class loader is created.
+     *
+     * @return class loader created by optimization.
+     */
+    static SplitDexClassLoader optimize(Context context, SplitInfo info, List<String> dexPaths, @Nullable File libDir) throws IOException {
+        File optDir = SplitPathManager.require().getSplitOptDir(info);
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP && dexPaths.size() > 1) {
+            optimizeConcurrently(dexPaths, optDir);
+        }
+        SplitDexClassLoader classLoader = SplitDexClassLoader.create(context, info.getSplitName(), dexPaths, optDir, libDir);
+        if (hasOptimizedFiles(dexPaths, optDir)) {
+            markOptimized(info);
+        } else {
+            SplitLog.w(TAG, "Optimized files of split %s are not found, it is optimized again next time", info.getSplitName());
+        }
+        return classLoader;
+    }
+
+    private static void optimizeConcurrently(List<String> dexPaths, final File optDir) throws IOException {
+        List<Callable<Void>> tasks = new ArrayList<>(dexPaths.size());
+        for (final String dexPath : dexPaths) {
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws IOException {
+                    DexFile dexFile = DexFile.loadDex(dexPath, optimizedPathFor(new File(dexPath), optDir), 0);
+                    dexFile.close();
+                    return null;
+                }
+            });
+        }
+        try {
+            SplitWorkerExecutor.invokeAll(tasks);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    private static boolean hasOptimizedFiles(List<String> dexPaths, File optDir) {
+        for (String dexPath : dexPaths) {
+            File optimizedFile = new File(optimizedPathFor(new File(dexPath), optDir));
+            if (!optimizedFile.isFile() || optimizedFile.length() == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Same as {@code dalvik.system.DexPathList#optimizedPathFor}, so that class loader finds optimized files.
+     */
+    private static String optimizedPathFor(File path, File optimizedDirectory) {
+        String fileName = path.getName();
+        if (!fileName.endsWith(".dex")) {
+            int lastDot = fileName.lastIndexOf('.');
+            if (lastDot < 0) {
+                fileName += ".dex";
+            } else {
+                fileName = fileName.substring(0, lastDot) + ".dex";
+            }
+        }
+        return new File(optimizedDirectory, fileName).getPath();
+    }
+
+    private static void markOptimized(SplitInfo info) {
+        Properties status = new Properties();
+        status.setProperty(KEY_MD5, info.getMd5());
+        status.setProperty(KEY_FINGERPRINT, Build.FINGERPRINT);
+        File statusFile = getStatusFile(info);
+        File tmpFile = new File(statusFile.getParentFile(), STATUS_FILE_NAME + ".tmp" + Thread.currentThread().getId());
+        FileOutputStream output = null;
+        try {
+            output = new FileOutputStream(tmpFile);
+            status.store(output, null);
+            output.close();
+            output = null;
+            if (!tmpFile.renameTo(statusFile)) {
+                SplitLog.w(TAG, "Failed to record dex optimization status of split %s", info.getSplitName());
+            }
+        } catch (IOException e) {
+            SplitLog.w(TAG, "Failed to record dex optimization status of split %s", info.getSplitName());
+        } finally {
+            FileUtil.closeQuietly(output);
+            FileUtil.safeDeleteFile(tmpFile);
+        }
+    }
+
+    private static File getStatusFile(SplitInfo info) {
+        return new File(SplitPathManager.require().getSplitOptDir(info), STATUS_FILE_NAME);
+    }
+}
@@ -25,26 +25,37 @@
 package com.iqiyi.android.qigsaw.core.splitinstall;
 
 import android.content.Context;
+import android.content.res.AssetFileDescriptor;
 
 import com.iqiyi.android.qigsaw.core.common.FileUtil;
 import com.iqiyi.android.qigsaw.core.common.SplitConstants;
 import com.iqiyi.android.qigsaw.core.common.SplitLog;
+import com.iqiyi.android.qigsaw.core.splitreport.SplitPhaseRecorder;
+import com.iqiyi.android.qigsaw.core.splitreport.SplitPhaseTiming;
 import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfo;
 import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitPathManager;
 
 import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 final class SplitDownloadPreprocessor implements Closeable {
 
     private static final int MAX_RETRY_ATTEMPTS = 3;
 
+    private static final long COPY_CHUNK_SIZE = 512 * 1024;
+
     private static final String TAG = "SplitDownloadPreprocessor";
 
     private final File splitApk;
@@ -78,7 +89,7 @@ final class SplitDownloadPreprocessor implements Closeable {
     }
 
 
-    void load(Context context, SplitInfo info) throws IOException {
+    void load(Context context, SplitInfo info, SplitPhaseRecorder recorder) throws IOException {
         if (!cacheLock.isValid()) {
             throw new IllegalStateException("FileCheckerAndCopier was closed");
         } else {
@@ -87,17 +98,17 @@ final class SplitDownloadPreprocessor implements Closeable {
                 if (!splitApk.exists()) {
                     SplitLog.v(TAG, "Built-in split %s is not existing, copy it from asset to [%s]", splitName, splitApk.getAbsolutePath());
                     //copy build in spilt apk file to splitDir
-                    copyBuiltInSplit(context, info);
+                    copyBuiltInSplit(context, info, recorder);
                     //check size
-                    if (!checkSplitApkSignature(context, info)) {
+                    if (!checkSplitApkSignature(context, info, recorder)) {
                         throw new IOException(String.format("Failed to check built-in split %s, it may be corrupted", splitName));
                     }
                 } else {
                     SplitLog.v(TAG, "Built-in split %s is existing", splitName);
 
-                    if (!checkSplitApkSignature(context, info)) {
-                        copyBuiltInSplit(context, info);
-                        if (!checkSplitApkSignature(context, info)) {
+                    if (!checkSplitApkSignature(context, info, recorder)) {
+                        copyBuiltInSplit(context, info, recorder);
+                        if (!checkSplitApkSignature(context, info, recorder)) {
                             throw new IOException(String.format("Failed to check built-in split %s, it may be corrupted", splitName));
                         }
                     }
@@ -105,7 +116,7 @@ final class SplitDownloadPreprocessor implements Closeable {
             } else {
                 if (splitApk.exists()) {
                     SplitLog.v(TAG, "split %s is downloaded", splitName);
-                    checkSplitApkSignature(context, info);
+                    checkSplitApkSignature(context, info, recorder);
                 } else {
                     SplitLog.v(TAG, " split %s is not downloaded", splitName);
                 }
@@ -113,12 +124,24 @@ final class SplitDownloadPreprocessor implements Closeable {
         }
     }
 
-    private boolean checkSplitApkSignature(Context context, SplitInfo info) {
-        if (SignatureValidator.validateSplit(context, splitApk)) {
+    private boolean checkSplitApkSignature(Context context, SplitInfo info, SplitPhaseRecorder recorder) {
+        if (SplitVerificationCache.isSignatureVerified(context, info, splitApk)) {
+            return true;
+        }
+        long startTime = recorder.begin(SplitPhaseTiming.PHASE_SIGNATURE);
+        SignatureValidator.SplitSignature signature;
+        try {
+            signature = SignatureValidator.validateSplit(context, splitApk);
+        } finally {
+            recorder.end(SplitPhaseTiming.PHASE_SIGNATURE, startTime, splitApk.length());
+        }
+        if (signature != null) {
+            SplitVerificationCache.markSignatureVerified(info, splitApk, signature);
             return true;
         }
         SplitLog.w(TAG, "Oops! Failed to check split %s signature", info.getSplitName());
         deleteCorruptedOrObsoletedSplitApk();
+        SplitVerificationCache.invalidate(info);
         return false;
     }
 
@@ -129,7 +152,16 @@ final class SplitDownloadPreprocessor implements Closeable {
         }
     }
 
-    private void copyBuiltInSplit(Context context, SplitInfo info) throws IOException {
+    private void copyBuiltInSplit(Context context, SplitInfo info, SplitPhaseRecorder recorder) throws IOException {
+        long startTime = recorder.begin(SplitPhaseTiming.PHASE_COPY_BUILT_IN);
+        try {
+            performCopyBuiltInSplit(context, info);
+        } finally {
+            recorder.end(SplitPhaseTiming.PHASE_COPY_BUILT_IN, startTime, splitApk.length());
+        }
+    }
+
+    private void performCopyBuiltInSplit(Context context, SplitInfo info) throws IOException {
         int numAttempts = 0;
         boolean isCopySuccessful = false;
         String splitFileName = info.getSplitName() + SplitConstants.DOT_ZIP;
@@ -138,12 +170,15 @@ final class SplitDownloadPreprocessor implements Closeable {
         while (!isCopySuccessful && numAttempts < MAX_RETRY_ATTEMPTS) {
             ++numAttempts;
             try {
-                InputStream is = context.getAssets().open(splitFileName);
-                FileUtil.copyFile(is, new FileOutputStream(tmp));
-                if (!tmp.renameTo(splitApk)) {
+                String md5 = copyAsset(context, splitFileName, tmp);
+                if (!info.getMd5().equals(md5)) {
+                    SplitLog.w(TAG, "Failed to check copied split %s md5, excepted %s but %s", info.getSplitName(), info.getMd5(), md5);
+                } else if (!tmp.renameTo(splitApk)) {
                     SplitLog.w(TAG, "Failed to rename \"" + tmp.getAbsolutePath() + "\" to \"" + splitApk.getAbsolutePath() + "\"");
                 } else {
                     isCopySuccessful = true;
+                    //md5 is computed while copying, no need to read it again.
+                    SplitVerificationCache.markMd5Verified(info, splitApk);
                 }
             } catch (IOException e) {
                 SplitLog.w(TAG, "Failed to copy built-in split apk, attempts times : " + numAttempts);
@@ -162,6 +197,140 @@ final class SplitDownloadPreprocessor implements Closeable {
         }
     }
 
+    /**
+     * Copy asset to dest in one pass and compute its md5 meanwhile.
+     * Asset stored uncompressed is read from base apk by its file descriptor, otherwise from asset stream.
+     *
+     * @return md5 of copied asset.
+     */
+    private static String copyAsset(Context context, String assetName, File dest) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        AssetFileDescriptor fd = null;
+        FileInputStream fdStream = null;
+        InputStream assetStream = null;
+        FileOutputStream os = null;
+        try {
+            ReadableByteChannel source;
+            long length;
+            try {
+                fd = context.getAssets().openFd(assetName);
+                fdStream = new FileInputStream(fd.getFileDescriptor());
+                FileChannel fdChannel = fdStream.getChannel();
+                fdChannel.position(fd.getStartOffset());
+                source = fdChannel;
+                length = fd.getLength();
+            } catch (IOException e) {
+                //asset is compressed.
+                assetStream = context.getAssets().open(assetName);
+                source = Channels.newChannel(assetStream);
+                length = Long.MAX_VALUE;
+            }
+            os = new FileOutputStream(dest);
+            FileChannel destChannel = os.getChannel();
+            DigestReadableByteChannel digestChannel = new DigestReadableByteChannel(source, md, length);
+            long position = 0;
+            long count;
+            while ((count = destChannel.transferFrom(digestChannel, position, COPY_CHUNK_SIZE)) > 0) {
+                position += count;
+            }
+            if (!digestChannel.isEnd()) {
+                throw new IOException("Failed to copy asset " + assetName + " completely");
+            }
+        } finally {
+            FileUtil.closeQuietly(os);
+            FileUtil.closeQuietly(assetStream);
+            FileUtil.closeQuietly(fdStream);
+            if (fd != null) {
+                try {
+                    fd.close();
+                } catch (IOException ignored) {
+
+                }
+            }
+        }
+        byte[] hashValue = md.digest();
+        StringBuilder md5Str = new StringBuilder(32);
+        for (byte b : hashValue) {
+            md5Str.append(Integer.toString((b & 0xff) + 0x100, 16).substring(1));
+        }
+        return md5Str.toString();
+    }
+
+    /**
+     * Update digest with bytes read from source, at most {@code limit} bytes are read.
+     */
+    private static final class DigestReadableByteChannel implements ReadableByteChannel {
+
+        private final ReadableByteChannel source;
+
+        private final MessageDigest md;
+
+        private long remaining;
+
+        private boolean end;
+
+        DigestReadableByteChannel(ReadableByteChannel source, MessageDigest md, long limit) {
+            this.source = source;
+            this.md = md;
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (remaining <= 0) {
+                end = true;
+                return -1;
+            }
+            int oldLimit = dst.limit();
+            if (dst.remaining() > remaining) {
+                dst.limit(dst.position() + (int) remaining);
+            }
+            int start = dst.position();
+            int read;
+            try {
+                read = source.read(dst);
+            } finally {
+                dst.limit(oldLimit);
+            }
+            if (read < 0) {
+                //only asset stream of unknown length may finish before limit.
+                end = remaining == Long.MAX_VALUE;
+                return -1;
+            }
+            if (read > 0) {
+                ByteBuffer readBytes = dst.duplicate();
+                readBytes.position(start);
+                readBytes.limit(start + read);
+                md.update(readBytes);
+                if (remaining != Long.MAX_VALUE) {
+                    remaining -= read;
+                }
+            }
+            return read;
+        }
+
+        /**
+         * @return {@code true} if source is read up to its limit or its end.
+         */
+        boolean isEnd() {
+            return end || remaining == 0;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return source.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            source.close();
+        }
+    }
 
     @Override
     public void close() throws IOException {
@@ -0,0 +1,64 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.iqiyi.android.qigsaw.core.splitinstall;
+
+import com.iqiyi.android.qigsaw.core.common.SplitConstants;
+
+import java.util.Comparator;
+
+/**
+ * Decide which split versions are evicted first when split cache exceeds its budget.
+ */
+abstract class SplitEvictionPolicy implements Comparator<SplitCacheEvictor.SplitVersion> {
+
+    /**
+     * Least recently loaded versions are evicted first.
+     */
+    static final SplitEvictionPolicy LRU = new SplitEvictionPolicy() {
+        @Override
+        public int compare(SplitCacheEvictor.SplitVersion o1, SplitCacheEvictor.SplitVersion o2) {
+            return compareLong(o1.lastLoadTime, o2.lastLoadTime);
+        }
+    };
+
+    /**
+     * Largest versions are evicted first, so that fewest splits need to be installed again.
+     */
+    static final SplitEvictionPolicy SIZE = new SplitEvictionPolicy() {
+        @Override
+        public int compare(SplitCacheEvictor.SplitVersion o1, SplitCacheEvictor.SplitVersion o2) {
+            int result = compareLong(o2.footprint, o1.footprint);
+            return result != 0 ? result : compareLong(o1.lastLoadTime, o2.lastLoadTime);
+        }
+    };
+
+    static SplitEvictionPolicy valueOf(int policy) {
+        return policy == SplitConstants.EVICTION_POLICY_SIZE ? SIZE : LRU;
+    }
+
+    private static int compareLong(long x, long y) {
+        return x < y ? -1 : (x == y ? 0 : 1);
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.iqiyi.android.qigsaw.core.splitinstall;
+
+import com.iqiyi.android.qigsaw.core.common.SplitLog;
+import com.iqiyi.android.qigsaw.core.common.SplitWorkerExecutor;
+import com.iqiyi.android.qigsaw.core.splitreport.SplitInstallError;
+import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Install splits of one session on {@link SplitWorkerExecutor}.
+ * A split is only scheduled once all of its dependencies in the same session have been installed,
+ * so independent splits are installed concurrently and dependent ones keep their order.
+ * If a split fails to install while installation continues ignoring errors,
+ * splits depending on it are skipped and reported as {@link SplitInstallError#DEPENDENCIES_NOT_INSTALLED}.
+ */
+final class SplitInstallScheduler {
+
+    private static final String TAG = "Split:InstallScheduler";
+
+    private final Object mLock = new Object();
+
+    private final SplitInstaller installer;
+
+    private final SplitInfo[] splits;
+
+    private final boolean continueInstallIgnoreError;
+
+    private final SplitInstaller.InstallResult[] installResults;
+
+    private final List<SplitInstallError> installErrors = new ArrayList<>(0);
+
+    private final int[] pendingDependencyCounts;
+
+    private final List<List<Integer>> dependents;
+
+    private final boolean[] scheduled;
+
+    private int runningCount;
+
+    private boolean aborted;
+
+    private Throwable uncaughtError;
+
+    SplitInstallScheduler(SplitInstaller installer,
+                          Collection<SplitInfo> needUpdateSplits,
+                          boolean continueInstallIgnoreError) {
+        this.installer = installer;
+        this.splits = needUpdateSplits.toArray(new SplitInfo[needUpdateSplits.size()]);
+        this.continueInstallIgnoreError = continueInstallIgnoreError;
+        this.installResults = new SplitInstaller.InstallResult[splits.length];
+        this.pendingDependencyCounts = new int[splits.length];
+        this.dependents = new ArrayList<>(splits.length);
+        this.scheduled = new boolean[splits.length];
+        Map<String, Integer> indexes = new HashMap<>(splits.length);
+        for (int i = 0; i < splits.length; i++) {
+            indexes.put(splits[i].getSplitName(), i);
+            dependents.add(new ArrayList<Integer>(0));
+        }
+        for (int i = 0; i < splits.length; i++) {
+            List<String> dependencies = splits[i].getDependencies();
+            if (dependencies == null) {
+                continue;
+            }
+            for (String dependency : dependencies) {
+                Integer index = indexes.get(dependency);
+                //dependencies out of this session have been installed or will be checked by installer.
+                if (index != null && index != i) {
+                    pendingDependencyCounts[i]++;
+                    dependents.get(index).add(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Install all splits and block until every scheduled install is finished.
+     *
+     * @return {@code true} if all splits are installed successfully, otherwise {@code false}.
+     */
+    boolean schedule() {
+        if (splits.length == 1) {
+            installSplit(0);
+        } else {
+            boolean interrupted = false;
+            synchronized (mLock) {
+                dispatchReadySplitsLocked();
+                while (runningCount > 0) {
+                    try {
+                        mLock.wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (uncaughtError instanceof RuntimeException) {
+            throw (RuntimeException) uncaughtError;
+        }
+        if (uncaughtError instanceof Error) {
+            throw (Error) uncaughtError;
+        }
+        return installErrors.isEmpty();
+    }
+
+    /**
+     * @return results of installed splits, in the order of requested splits.
+     */
+    List<SplitInstaller.InstallResult> getInstallResults() {
+        List<SplitInstaller.InstallResult> results = new ArrayList<>(installResults.length);
+        for (SplitInstaller.InstallResult result : installResults) {
+            if (result != null) {
+                results.add(result);
+            }
+        }
+        return results;
+    }
+
+    List<SplitInstallError> getInstallErrors() {
+        return installErrors;
+    }
+
+    private void dispatchReadySplitsLocked() {
+        if (aborted) {
+            return;
+        }
+        int dispatchedCount = 0;
+        for (int i = 0; i < splits.length; i++) {
+            if (!scheduled[i] && pendingDependencyCounts[i] <= 0) {
+                dispatchLocked(i);
+                dispatchedCount++;
+            }
+        }
+        if (dispatchedCount == 0 && runningCount == 0) {
+            //remaining splits depend on each other, install them in requested order.
+            for (int i = 0; i < splits.length; i++) {
+                if (!scheduled[i]) {
+                    SplitLog.w(TAG, "Split %s has circular dependencies in this session", splits[i].getSplitName());
+                    dispatchLocked(i);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void dispatchLocked(final int index) {
+        scheduled[index] = true;
+        runningCount++;
+        SplitWorkerExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                installSplit(index);
+            }
+        });
+    }
+
+    private void installSplit(int index) {
+        SplitInfo info = splits[index];
+        SplitInstaller.InstallResult result = null;
+        SplitInstallError error = null;
+        Throwable uncaught = null;
+        try {
+            result = installer.install(info);
+        } catch (SplitInstaller.InstallException e) {
+            SplitLog.printErrStackTrace(TAG, e, "Failed to install split " + info.getSplitName());
+            error = new SplitInstallError(info.getSplitName(), e.getErrorCode(), e.getCause());
+        } catch (RuntimeException | Error e) {
+            uncaught = e;
+        }
+        synchronized (mLock) {
+            if (result != null) {
+                installResults[index] = result;
+            }
+            if (error != null) {
+                installErrors.add(error);
+                if (continueInstallIgnoreError) {
+                    skipDependentsLocked(index);
+                } else {
+                    aborted = true;
+                }
+            }
+            if (uncaught != null) {
+                if (uncaughtError == null) {
+                    uncaughtError = uncaught;
+                }
+                aborted = true;
+            }
+            for (int dependent : dependents.get(index)) {
+                pendingDependencyCounts[dependent]--;
+            }
+            if (scheduled.length > 1) {
+                runningCount--;
+                dispatchReadySplitsLocked();
+                mLock.notifyAll();
+            }
+        }
+    }
+
+    private void skipDependentsLocked(int index) {
+        for (int dependent : dependents.get(index)) {
+            if (scheduled[dependent]) {
+                continue;
+            }
+            scheduled[dependent] = true;
+            String splitName = splits[dependent].getSplitName();
+            String dependency = splits[index].getSplitName();
+            SplitLog.w(TAG, "Skip split %s, its dependency %s is not installed", splitName, dependency);
+            installErrors.add(new SplitInstallError(splitName, SplitInstallError.DEPENDENCIES_NOT_INSTALLED,
+                    new IllegalStateException("Dependency " + dependency + " of split " + splitName + " is not installed")));
+            skipDependentsLocked(dependent);
+        }
+    }
+}
@@ -42,6 +42,8 @@ interface SplitInstallSessionManager {
 
     boolean isIncompatibleWithExistingSession(List<String> moduleNames);
 
+    SplitInstallInternalSessionState getSessionContaining(List<String> moduleNames);
+
     void emitSessionState(SplitInstallInternalSessionState sessionState);
 
 }
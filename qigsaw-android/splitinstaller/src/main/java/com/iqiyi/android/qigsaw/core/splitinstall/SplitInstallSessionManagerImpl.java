@@ -27,6 +27,9 @@ package com.iqiyi.android.qigsaw.core.splitinstall;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.SparseArray;
 
 import java.util.ArrayList;
@@ -42,9 +45,26 @@ final class SplitInstallSessionManagerImpl implements SplitInstallSessionManager
 
     private final Object mLock = new Object();
 
-    SplitInstallSessionManagerImpl(Context context) {
+    /**
+     * Emission records of active sessions, guarded by {@link #mEmitLock}.
+     * {@link #mEmitLock} may be acquired while holding {@link #mLock}, never the other way around.
+     */
+    private final SparseArray<SessionEmission> mSessionEmissions = new SparseArray<>();
+
+    private final Object mEmitLock = new Object();
+
+    private final Handler mHandler;
+
+    private final long mProgressEmitInterval;
+
+    private final int mMaxActiveSessions;
+
+    SplitInstallSessionManagerImpl(Context context, long progressEmitInterval, int maxActiveSessions) {
         this.mContext = context;
         this.mPackageName = context.getPackageName();
+        this.mProgressEmitInterval = progressEmitInterval;
+        this.mMaxActiveSessions = Math.max(1, maxActiveSessions);
+        this.mHandler = new Handler(Looper.getMainLooper());
     }
 
     @Override
@@ -73,25 +93,48 @@ final class SplitInstallSessionManagerImpl implements SplitInstallSessionManager
         }
     }
 
+    /**
+     * Emission record of session is dropped as well, whatever state the session is in.
+     */
     @Override
     public void removeSessionState(int sessionId) {
         synchronized (mLock) {
             if (sessionId != 0) {
                 mActiveSessionStates.remove(sessionId);
+                removeSessionEmission(sessionId);
+            }
+        }
+    }
+
+    private void removeSessionEmission(int sessionId) {
+        synchronized (mEmitLock) {
+            SessionEmission emission = mSessionEmissions.get(sessionId);
+            if (emission != null) {
+                if (emission.pending) {
+                    emission.pending = false;
+                    mHandler.removeCallbacks(emission);
+                }
+                mSessionEmissions.remove(sessionId);
             }
         }
     }
 
+    /**
+     * Sessions which are pending or downloading occupy a download slot, the limit is exceeded
+     * once all slots are occupied.
+     */
     @Override
     public boolean isActiveSessionsLimitExceeded() {
         synchronized (mLock) {
+            int downloadingSessions = 0;
             for (int i = 0; i < mActiveSessionStates.size(); i++) {
                 SplitInstallInternalSessionState state = mActiveSessionStates.valueAt(i);
-                if (state.status() == SplitInstallInternalSessionStatus.DOWNLOADING) {
-                    return true;
+                if (state.status() == SplitInstallInternalSessionStatus.PENDING
+                        || state.status() == SplitInstallInternalSessionStatus.DOWNLOADING) {
+                    downloadingSessions++;
                 }
             }
-            return false;
+            return downloadingSessions >= mMaxActiveSessions;
         }
     }
 
@@ -130,9 +173,68 @@ final class SplitInstallSessionManagerImpl implements SplitInstallSessionManager
         }
     }
 
+    @Override
+    public SplitInstallInternalSessionState getSessionContaining(List<String> moduleNames) {
+        synchronized (mLock) {
+            for (int i = 0; i < mActiveSessionStates.size(); i++) {
+                SplitInstallInternalSessionState sessionState = mActiveSessionStates.valueAt(i);
+                if (sessionState.status() != SplitInstallInternalSessionStatus.REQUIRES_USER_CONFIRMATION
+                        && sessionState.moduleNames().containsAll(moduleNames)) {
+                    return sessionState;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * State changes are emitted immediately and in order. Download progress of a session is emitted
+     * at most once per progress emit interval, a delayed emission always carries the latest progress
+     * and is dropped once the state of session is changed.
+     */
     @Override
     public void emitSessionState(SplitInstallInternalSessionState sessionState) {
-        Bundle bundle = SplitInstallInternalSessionState.transform2Bundle(sessionState);
+        synchronized (mEmitLock) {
+            int sessionId = sessionState.sessionId();
+            int status = sessionState.status();
+            long now = SystemClock.elapsedRealtime();
+            SessionEmission emission = mSessionEmissions.get(sessionId);
+            if (emission == null) {
+                emission = new SessionEmission(sessionState);
+                mSessionEmissions.put(sessionId, emission);
+            } else {
+                emission.sessionState = sessionState;
+            }
+            if (emission.lastEmittedStatus == SplitInstallInternalSessionStatus.DOWNLOADING
+                    && status == SplitInstallInternalSessionStatus.DOWNLOADING
+                    && mProgressEmitInterval > 0) {
+                long delay = emission.lastEmittedTime + mProgressEmitInterval - now;
+                if (delay > 0) {
+                    if (!emission.pending) {
+                        emission.pending = true;
+                        mHandler.postDelayed(emission, delay);
+                    }
+                    return;
+                }
+            }
+            if (emission.pending) {
+                emission.pending = false;
+                mHandler.removeCallbacks(emission);
+            }
+            emitSessionStateLocked(emission, now);
+            if (status == SplitInstallInternalSessionStatus.CANCELED
+                    || status == SplitInstallInternalSessionStatus.FAILED
+                    || status == SplitInstallInternalSessionStatus.INSTALLED
+                    || status == SplitInstallInternalSessionStatus.POST_INSTALLED) {
+                mSessionEmissions.remove(sessionId);
+            }
+        }
+    }
+
+    private void emitSessionStateLocked(SessionEmission emission, long time) {
+        emission.lastEmittedStatus = emission.sessionState.status();
+        emission.lastEmittedTime = time;
+        Bundle bundle = SplitInstallInternalSessionState.transform2Bundle(emission.sessionState);
         Intent intent = new Intent();
         intent.putExtra("session_state", bundle);
         intent.setPackage(mPackageName);
@@ -147,4 +249,33 @@ final class SplitInstallSessionManagerImpl implements SplitInstallSessionManager
         }
         return arrayList;
     }
+
+    private final class SessionEmission implements Runnable {
+
+        SplitInstallInternalSessionState sessionState;
+
+        int lastEmittedStatus = SplitInstallInternalSessionStatus.UNKNOWN;
+
+        long lastEmittedTime;
+
+        boolean pending;
+
+        SessionEmission(SplitInstallInternalSessionState sessionState) {
+            this.sessionState = sessionState;
+        }
+
+        @Override
+        public void run() {
+            synchronized (mEmitLock) {
+                if (!pending) {
+                    return;
+                }
+                pending = false;
+                //a newer state will be emitted by itself.
+                if (sessionState.status() == SplitInstallInternalSessionStatus.DOWNLOADING) {
+                    emitSessionStateLocked(this, SystemClock.elapsedRealtime());
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,302 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.iqiyi.android.qigsaw.core.splitinstall;
+
+import android.util.SparseArray;
+
+import com.iqiyi.android.qigsaw.core.common.SplitLog;
+import com.iqiyi.android.qigsaw.core.splitdownload.DownloadCallback;
+import com.iqiyi.android.qigsaw.core.splitdownload.DownloadRequest;
+import com.iqiyi.android.qigsaw.core.splitdownload.Downloader;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Schedule download sessions of {@link Downloader} by priority.
+ * <p>
+ * Sessions started by {@code startInstall} run concurrently. Deferred sessions have lower priority,
+ * they are paused while any started session is downloading and resumed when all started sessions are finished.
+ * When resumed, splits which have been downloaded by started sessions are not downloaded again.
+ */
+final class SplitInstallSessionScheduler {
+
+    private static final String TAG = "Split:SplitInstallSessionScheduler";
+
+    private final Downloader downloader;
+
+    private final Object lock = new Object();
+
+    private final Set<Integer> startedSessions = new HashSet<>();
+
+    private final SparseArray<DeferredSession> deferredSessions = new SparseArray<>();
+
+    SplitInstallSessionScheduler(Downloader downloader) {
+        this.downloader = downloader;
+    }
+
+    void startDownload(int sessionId, List<DownloadRequest> requests, DownloadCallback callback) {
+        List<DeferredSession> pausedSessions = new ArrayList<>(0);
+        synchronized (lock) {
+            startedSessions.add(sessionId);
+            for (int i = 0; i < deferredSessions.size(); i++) {
+                DeferredSession deferredSession = deferredSessions.valueAt(i);
+                if (!deferredSession.paused) {
+                    deferredSession.paused = true;
+                    deferredSession.attempt++;
+                    pausedSessions.add(deferredSession);
+                }
+            }
+        }
+        for (DeferredSession deferredSession : pausedSessions) {
+            boolean ret = downloader.cancelDownloadSync(deferredSession.sessionId);
+            SplitLog.i(TAG, "Pause deferred session %d for session %d, result: %b", deferredSession.sessionId, sessionId, ret);
+        }
+        downloader.startDownload(sessionId, requests, new StartedSessionCallback(sessionId, callback));
+    }
+
+    void deferredDownload(int sessionId, List<DownloadRequest> requests, DownloadCallback callback, boolean usingMobileDataPermitted) {
+        DeferredSession deferredSession;
+        synchronized (lock) {
+            if (deferredSessions.get(sessionId) != null) {
+                SplitLog.i(TAG, "Deferred session %d is already scheduled", sessionId);
+                return;
+            }
+            deferredSession = new DeferredSession(sessionId, requests, callback, usingMobileDataPermitted);
+            deferredSessions.put(sessionId, deferredSession);
+            if (!startedSessions.isEmpty()) {
+                SplitLog.i(TAG, "Deferred session %d is paused until started sessions are finished", sessionId);
+                deferredSession.paused = true;
+                return;
+            }
+        }
+        submitDeferredSession(deferredSession, deferredSession.attempt, requests);
+    }
+
+    boolean cancelDownloadSync(int sessionId) {
+        return downloader.cancelDownloadSync(sessionId);
+    }
+
+    private void onStartedSessionFinished(int sessionId) {
+        List<DeferredSession> resumedSessions = new ArrayList<>(0);
+        List<Integer> attempts = new ArrayList<>(0);
+        synchronized (lock) {
+            if (!startedSessions.remove(sessionId) || !startedSessions.isEmpty()) {
+                return;
+            }
+            for (int i = 0; i < deferredSessions.size(); i++) {
+                DeferredSession deferredSession = deferredSessions.valueAt(i);
+                if (deferredSession.paused) {
+                    deferredSession.paused = false;
+                    deferredSession.attempt++;
+                    resumedSessions.add(deferredSession);
+                    attempts.add(deferredSession.attempt);
+                }
+            }
+        }
+        for (int i = 0; i < resumedSessions.size(); i++) {
+            DeferredSession deferredSession = resumedSessions.get(i);
+            List<DownloadRequest> requests = getUndownloadedRequests(deferredSession.requests);
+            SplitLog.i(TAG, "Resume deferred session %d, %d of %d requests remain",
+                    deferredSession.sessionId, requests.size(), deferredSession.requests.size());
+            submitDeferredSession(deferredSession, attempts.get(i), requests);
+        }
+    }
+
+    private void submitDeferredSession(DeferredSession deferredSession, int attempt, List<DownloadRequest> requests) {
+        DeferredSessionCallback callback = new DeferredSessionCallback(deferredSession, attempt);
+        if (requests.isEmpty()) {
+            callback.onCompleted();
+        } else {
+            downloader.deferredDownload(deferredSession.sessionId, requests, callback, deferredSession.usingMobileDataPermitted);
+        }
+    }
+
+    /**
+     * Whether the callback of deferred session should be delivered, callbacks of a paused attempt are dropped.
+     */
+    private boolean isCurrentAttempt(DeferredSession deferredSession, int attempt, boolean finished) {
+        synchronized (lock) {
+            if (deferredSessions.get(deferredSession.sessionId) != deferredSession
+                    || deferredSession.paused
+                    || deferredSession.attempt != attempt) {
+                return false;
+            }
+            if (finished) {
+                deferredSessions.remove(deferredSession.sessionId);
+            }
+            return true;
+        }
+    }
+
+    private static List<DownloadRequest> getUndownloadedRequests(List<DownloadRequest> requests) {
+        List<DownloadRequest> undownloadedRequests = new ArrayList<>(requests.size());
+        for (DownloadRequest request : requests) {
+            File file = new File(request.getFileDir(), request.getFileName());
+            if (!file.exists() || file.length() != request.getSize()) {
+                undownloadedRequests.add(request);
+            }
+        }
+        return undownloadedRequests;
+    }
+
+    private static final class DeferredSession {
+
+        final int sessionId;
+
+        final List<DownloadRequest> requests;
+
+        final DownloadCallback callback;
+
+        final boolean usingMobileDataPermitted;
+
+        boolean paused;
+
+        int attempt;
+
+        DeferredSession(int sessionId,
+                        List<DownloadRequest> requests,
+                        DownloadCallback callback,
+                        boolean usingMobileDataPermitted) {
+            this.sessionId = sessionId;
+            this.requests = requests;
+            this.callback = callback;
+            this.usingMobileDataPermitted = usingMobileDataPermitted;
+        }
+    }
+
+    private final class StartedSessionCallback implements DownloadCallback {
+
+        private final int sessionId;
+
+        private final DownloadCallback callback;
+
+        StartedSessionCallback(int sessionId, DownloadCallback callback) {
+            this.sessionId = sessionId;
+            this.callback = callback;
+        }
+
+        @Override
+        public void onStart() {
+            callback.onStart();
+        }
+
+        @Override
+        public void onCanceled() {
+            callback.onCanceled();
+            onStartedSessionFinished(sessionId);
+        }
+
+        @Override
+        public void onCanceling() {
+            callback.onCanceling();
+        }
+
+        @Override
+        public void onProgress(long currentBytes) {
+            callback.onProgress(currentBytes);
+        }
+
+        @Override
+        public void onCompleted() {
+            callback.onCompleted();
+            onStartedSessionFinished(sessionId);
+        }
+
+        @Override
+        public void onVerified(DownloadRequest request) {
+            callback.onVerified(request);
+        }
+
+        @Override
+        public void onError(int errorCode) {
+            callback.onError(errorCode);
+            onStartedSessionFinished(sessionId);
+        }
+    }
+
+    private final class DeferredSessionCallback implements DownloadCallback {
+
+        private final DeferredSession deferredSession;
+
+        private final int attempt;
+
+        DeferredSessionCallback(DeferredSession deferredSession, int attempt) {
+            this.deferredSession = deferredSession;
+            this.attempt = attempt;
+        }
+
+        @Override
+        public void onStart() {
+            if (isCurrentAttempt(deferredSession, attempt, false)) {
+                deferredSession.callback.onStart();
+            }
+        }
+
+        @Override
+        public void onCanceled() {
+            if (isCurrentAttempt(deferredSession, attempt, true)) {
+                deferredSession.callback.onCanceled();
+            }
+        }
+
+        @Override
+        public void onCanceling() {
+            if (isCurrentAttempt(deferredSession, attempt, false)) {
+                deferredSession.callback.onCanceling();
+            }
+        }
+
+        @Override
+        public void onProgress(long currentBytes) {
+            if (isCurrentAttempt(deferredSession, attempt, false)) {
+                deferredSession.callback.onProgress(currentBytes);
+            }
+        }
+
+        @Override
+        public void onCompleted() {
+            if (isCurrentAttempt(deferredSession, attempt, true)) {
+                deferredSession.callback.onCompleted();
+            }
+        }
+
+        @Override
+        public void onVerified(DownloadRequest request) {
+            //verified file is valid even if the attempt is paused.
+            deferredSession.callback.onVerified(request);
+        }
+
+        @Override
+        public void onError(int errorCode) {
+            if (isCurrentAttempt(deferredSession, attempt, true)) {
+                deferredSession.callback.onError(errorCode);
+            }
+        }
+    }
+}
@@ -30,6 +30,8 @@ import android.content.Context;
 import android.content.Intent;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.Parcelable;
 import android.support.v4.util.ArraySet;
 import android.text.TextUtils;
@@ -41,9 +43,14 @@ import com.iqiyi.android.qigsaw.core.common.SplitAABInfoProvider;
 import com.iqiyi.android.qigsaw.core.common.SplitLog;
 import com.iqiyi.android.qigsaw.core.splitdownload.DownloadRequest;
 import com.iqiyi.android.qigsaw.core.splitdownload.Downloader;
+import com.iqiyi.android.qigsaw.core.splitload.SplitLoadManagerService;
+import com.iqiyi.android.qigsaw.core.splitload.SplitPendingUninstall;
+import com.iqiyi.android.qigsaw.core.splitreport.SplitPhaseRecorder;
+import com.iqiyi.android.qigsaw.core.splitreport.SplitPhaseTiming;
 import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfo;
 import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfoManager;
 import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfoManagerService;
+import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfoSnapshot;
 import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitPathManager;
 import com.iqiyi.android.qigsaw.core.splitinstall.remote.SplitInstallSupervisor;
 
@@ -65,23 +72,30 @@ final class SplitInstallSupervisorImpl extends SplitInstallSupervisor {
 
     private final Downloader userDownloader;
 
+    private final SplitInstallSessionScheduler sessionScheduler;
+
     private final long downloadSizeThresholdValue;
 
     private final Set<String> installedSplitInstallInfo;
 
     private final Class<?> obtainUserConfirmationActivityClass;
 
+    private final SplitUsageModel usageModel;
+
     SplitInstallSupervisorImpl(Context appContext,
                                SplitInstallSessionManager sessionManager,
                                Downloader userDownloader,
-                               Class<? extends Activity> obtainUserConfirmationActivityClass) {
+                               Class<? extends Activity> obtainUserConfirmationActivityClass,
+                               SplitUsageModel usageModel) {
         this.appContext = appContext;
         this.sessionManager = sessionManager;
         this.userDownloader = userDownloader;
+        this.sessionScheduler = new SplitInstallSessionScheduler(userDownloader);
         long downloadSizeThreshold = userDownloader.getDownloadSizeThresholdWhenUsingMobileData();
         this.downloadSizeThresholdValue = downloadSizeThreshold < 0 ? Long.MAX_VALUE : downloadSizeThreshold;
         this.installedSplitInstallInfo = new SplitAABInfoProvider(this.appContext).getInstalledSplitsForAAB();
         this.obtainUserConfirmationActivityClass = obtainUserConfirmationActivityClass;
+        this.usageModel = usageModel;
     }
 
     @Override
@@ -91,7 +105,11 @@ final class SplitInstallSupervisorImpl extends SplitInstallSupervisor {
         if (errorCode != SplitInstallInternalErrorCode.NO_ERROR) {
             callback.onError(bundleErrorCode(errorCode));
         } else {
+            if (usageModel != null) {
+                usageModel.recordRequest(moduleNameList);
+            }
             List<SplitInfo> needInstallSplits = getNeed2BeInstalledSplits(moduleNameList);
+            cancelPendingUninstall(needInstallSplits);
             //check network status
             if (!isAllSplitsBuiltIn(needInstallSplits) && !isNetworkAvailable(appContext)) {
                 callback.onError(bundleErrorCode(SplitInstallInternalErrorCode.NETWORK_ERROR));
@@ -107,11 +125,9 @@ final class SplitInstallSupervisorImpl extends SplitInstallSupervisor {
 
     private Set<String> getAllDependencies(List<String> moduleNames, List<SplitInfo> needInstallSplits) {
         Set<String> splitDependencies = new ArraySet<>(0);
+        SplitInfoSnapshot snapshot = getSplitInfoSnapshot();
         for (SplitInfo info : needInstallSplits) {
-            List<String> dependencies = info.getDependencies();
-            if (dependencies != null) {
-                splitDependencies.addAll(dependencies);
-            }
+            splitDependencies.addAll(snapshot.getDependencyClosure(info.getSplitName()));
         }
         if (!splitDependencies.isEmpty()) {
             splitDependencies.removeAll(moduleNames);
@@ -130,6 +146,7 @@ final class SplitInstallSupervisorImpl extends SplitInstallSupervisor {
                 }
             } else {
                 List<SplitInfo> needInstallSplits = getNeed2BeInstalledSplits(moduleNameList);
+                cancelPendingUninstall(needInstallSplits);
                 deferredDownloadSplits(moduleNameList, needInstallSplits, callback);
             }
         } else {
@@ -137,10 +154,49 @@ final class SplitInstallSupervisorImpl extends SplitInstallSupervisor {
         }
     }
 
+    /**
+     * Splits are marked uninstalled and their files are deleted when app launches next time.
+     * Splits which are loaded but not activated yet are dropped from current process immediately.
+     */
     @Override
     public void deferredUninstall(List<Bundle> moduleNames, Callback callback) {
-        //don't support now.
-        callback.onError(bundleErrorCode(SplitInstallInternalErrorCode.INTERNAL_ERROR));
+        final List<String> moduleNameList = unBundleModuleNames(moduleNames);
+        if (!getInstalledSplitInstallInfo().isEmpty()) {
+            //splits installed by google play can't be uninstalled by qigsaw.
+            callback.onError(bundleErrorCode(SplitInstallInternalErrorCode.INTERNAL_ERROR));
+            return;
+        }
+        int errorCode = checkInternalErrorCode();
+        if (errorCode == SplitInstallInternalErrorCode.NO_ERROR && !isRequestValid(moduleNameList)) {
+            errorCode = SplitInstallInternalErrorCode.INVALID_REQUEST;
+        }
+        if (errorCode == SplitInstallInternalErrorCode.NO_ERROR && sessionManager.isIncompatibleWithExistingSession(moduleNameList)) {
+            errorCode = SplitInstallInternalErrorCode.INCOMPATIBLE_WITH_EXISTING_SESSION;
+        }
+        if (errorCode != SplitInstallInternalErrorCode.NO_ERROR) {
+            callback.onError(bundleErrorCode(errorCode));
+            return;
+        }
+        for (SplitInfo info : getNeed2BeInstalledSplits(moduleNameList)) {
+            if (!SplitPendingUninstall.mark(info)) {
+                callback.onError(bundleErrorCode(SplitInstallInternalErrorCode.INTERNAL_ERROR));
+                return;
+            }
+        }
+        SplitLog.i(TAG, "Splits %s are marked uninstalled", moduleNameList);
+        if (SplitLoadManagerService.hasInstance()) {
+            new Handler(Looper.getMainLooper()).post(new Runnable() {
+                @Override
+                public void run() {
+                    for (String moduleName : moduleNameList) {
+                        if (SplitLoadManagerService.getInstance().unloadSplit(moduleName)) {
+                            SplitLog.i(TAG, "Split %s is unloaded from current process", moduleName);
+                        }
+                    }
+                }
+            });
+        }
+        callback.onDeferredUninstall(null);
     }
 
     @Override
@@ -154,7 +210,7 @@ final class SplitInstallSupervisorImpl extends SplitInstallSupervisor {
         }
         if (sessionState.status() == SplitInstallInternalSessionStatus.PENDING
                 || sessionState.status() == SplitInstallInternalSessionStatus.DOWNLOADING) {
-            boolean ret = userDownloader.cancelDownloadSync(sessionId);
+            boolean ret = sessionScheduler.cancelDownloadSync(sessionId);
             SplitLog.d(TAG, "result of cancel request : " + ret);
             if (ret) {
                 callback.onCancelInstall(sessionId, null);
@@ -195,11 +251,11 @@ final class SplitInstallSupervisorImpl extends SplitInstallSupervisor {
         SplitInstallInternalSessionState sessionState = sessionManager.getSessionState(sessionId);
         if (sessionState != null) {
             StartDownloadCallback downloadCallback = new StartDownloadCallback(
-                    appContext, sessionId, sessionManager,
+                    appContext, sessionId, sessionManager, sessionScheduler,
                     sessionState.moduleNames(), sessionState.needInstalledSplits);
             sessionManager.changeSessionState(sessionId, SplitInstallInternalSessionStatus.PENDING);
             sessionManager.emitSessionState(sessionState);
-            userDownloader.startDownload(sessionState.sessionId(), sessionState.downloadRequests, downloadCallback);
+            sessionScheduler.startDownload(sessionState.sessionId(), sessionState.downloadRequests, downloadCallback);
             return true;
         }
         return false;
@@ -216,6 +272,12 @@ final class SplitInstallSupervisorImpl extends SplitInstallSupervisor {
         return false;
     }
 
+    private void cancelPendingUninstall(List<SplitInfo> needInstallSplits) {
+        for (SplitInfo info : needInstallSplits) {
+            SplitPendingUninstall.unmark(info);
+        }
+    }
+
     private boolean isAllSplitsBuiltIn(List<SplitInfo> needInstallSplits) {
         for (SplitInfo info : needInstallSplits) {
             if (!info.isBuiltIn()) {
@@ -256,8 +318,8 @@ final class SplitInstallSupervisorImpl extends SplitInstallSupervisor {
             SplitLog.w(TAG, "Failed to fetch SplitInfoManager instance!");
             return SplitInstallInternalErrorCode.INTERNAL_ERROR;
         }
-        Collection<SplitInfo> allSplits = manager.getAllSplitInfo(appContext);
-        if (allSplits == null || allSplits.isEmpty()) {
+        SplitInfoSnapshot snapshot = manager.getSplitInfoSnapshot(appContext);
+        if (snapshot == null || snapshot.isEmpty()) {
             SplitLog.w(TAG, "Failed to parse json file of split info!");
             return SplitInstallInternalErrorCode.INTERNAL_ERROR;
         }
@@ -281,21 +343,28 @@ final class SplitInstallSupervisorImpl extends SplitInstallSupervisor {
     }
 
     private List<SplitInfo> getNeed2BeInstalledSplits(List<String> moduleNames) {
+        return getSplitInfoSnapshot().getSplitInfos(moduleNames);
+    }
+
+    /**
+     * Only called after {@link #checkInternalErrorCode()} succeeded, so snapshot is available.
+     */
+    private SplitInfoSnapshot getSplitInfoSnapshot() {
         SplitInfoManager manager = SplitInfoManagerService.getInstance();
         assert manager != null;
-        Collection<SplitInfo> allSplits = manager.getAllSplitInfo(appContext);
-        List<SplitInfo> needInstallSplits = new ArrayList<>(moduleNames.size());
-        for (SplitInfo info : allSplits) {
-            if (moduleNames.contains(info.getSplitName())) {
-                needInstallSplits.add(info);
-            }
-        }
-        return needInstallSplits;
+        SplitInfoSnapshot snapshot = manager.getSplitInfoSnapshot(appContext);
+        assert snapshot != null;
+        return snapshot;
     }
 
     private void deferredDownloadSplits(final List<String> moduleNames,
                                         final List<SplitInfo> needInstallSplits,
                                         final Callback callback) {
+        if (sessionManager.getSessionContaining(moduleNames) != null) {
+            SplitLog.d(TAG, "Splits %s are being installed by started session, ignore deferred request!", moduleNames);
+            callback.onDeferredInstall(null);
+            return;
+        }
         try {
             long[] result = onPreDownloadSplits(needInstallSplits);
             callback.onDeferredInstall(null);
@@ -309,7 +378,7 @@ final class SplitInstallSupervisorImpl extends SplitInstallSupervisor {
             } else {
                 boolean usingMobileDataPermitted = realTotalBytesNeedToDownload < downloadSizeThresholdValue && !userDownloader.isDeferredDownloadOnlyWhenUsingWifiData();
 
-                userDownloader.deferredDownload(sessionId, createDownloadRequests(needInstallSplits), downloadCallback, usingMobileDataPermitted);
+                sessionScheduler.deferredDownload(sessionId, createDownloadRequests(needInstallSplits), downloadCallback, usingMobileDataPermitted);
             }
         } catch (IOException e) {
             callback.onError(bundleErrorCode(SplitInstallInternalErrorCode.BUILTIN_SPLIT_APK_COPIED_FAILED));
@@ -320,19 +389,28 @@ final class SplitInstallSupervisorImpl extends SplitInstallSupervisor {
     private void startDownloadSplits(final List<String> moduleNames,
                                      final List<SplitInfo> needInstallSplits,
                                      final Callback callback) {
+        int sessionId = createSessionId(needInstallSplits);
+        SplitLog.d(TAG, "startInstall session id: " + sessionId);
+        SplitInstallInternalSessionState sessionState = sessionManager.getSessionState(sessionId);
+        boolean needUserConfirmation = sessionState != null
+                && sessionState.status() == SplitInstallInternalSessionStatus.REQUIRES_USER_CONFIRMATION;
+        if (!needUserConfirmation) {
+            //join the existing session which installs all requested splits.
+            SplitInstallInternalSessionState existingSessionState = sessionManager.getSessionContaining(moduleNames);
+            if (existingSessionState != null) {
+                SplitLog.i(TAG, "Splits %s are being installed by session %d", moduleNames, existingSessionState.sessionId());
+                callback.onStartInstall(existingSessionState.sessionId(), null);
+                sessionManager.emitSessionState(existingSessionState);
+                return;
+            }
+        }
         if (sessionManager.isActiveSessionsLimitExceeded()) {
             SplitLog.w(TAG, "Start install request error code: ACTIVE_SESSIONS_LIMIT_EXCEEDED");
             callback.onError(bundleErrorCode(SplitInstallInternalErrorCode.ACTIVE_SESSIONS_LIMIT_EXCEEDED));
             return;
         }
-        int sessionId = createSessionId(needInstallSplits);
         List<DownloadRequest> downloadRequests = createDownloadRequests(needInstallSplits);
-        SplitLog.d(TAG, "startInstall session id: " + sessionId);
-        SplitInstallInternalSessionState sessionState = sessionManager.getSessionState(sessionId);
-        boolean needUserConfirmation = false;
-        if (sessionState != null) {
-            needUserConfirmation = sessionState.status() == SplitInstallInternalSessionStatus.REQUIRES_USER_CONFIRMATION;
-        } else {
+        if (sessionState == null) {
             sessionState = new SplitInstallInternalSessionState(sessionId, moduleNames, needInstallSplits, downloadRequests);
         }
         if (!needUserConfirmation && sessionManager.isIncompatibleWithExistingSession(moduleNames)) {
@@ -353,7 +431,7 @@ final class SplitInstallSupervisorImpl extends SplitInstallSupervisor {
             long realTotalBytesNeedToDownload = result[1];
             SplitLog.d(TAG, "totalBytesToDownload: %d, realTotalBytesNeedToDownload: %d ", totalBytesToDownload, realTotalBytesNeedToDownload);
             sessionState.setTotalBytesToDownload(totalBytesToDownload);
-            StartDownloadCallback downloadCallback = new StartDownloadCallback(appContext, sessionId, sessionManager, moduleNames, needInstallSplits);
+            StartDownloadCallback downloadCallback = new StartDownloadCallback(appContext, sessionId, sessionManager, sessionScheduler, moduleNames, needInstallSplits);
             if (realTotalBytesNeedToDownload <= 0) {
                 SplitLog.d(TAG, "Splits have been downloaded, install them directly!");
                 downloadCallback.onCompleted();
@@ -366,7 +444,7 @@ final class SplitInstallSupervisorImpl extends SplitInstallSupervisor {
                 }
                 sessionManager.changeSessionState(sessionId, SplitInstallInternalSessionStatus.PENDING);
                 sessionManager.emitSessionState(sessionState);
-                userDownloader.startDownload(sessionId, downloadRequests, downloadCallback);
+                sessionScheduler.startDownload(sessionId, downloadRequests, downloadCallback);
             }
         } catch (IOException e) {
             //copy local split file failed!
@@ -391,27 +469,15 @@ final class SplitInstallSupervisorImpl extends SplitInstallSupervisor {
     }
 
     private boolean isRequestValid(List<String> moduleNames) {
-        SplitInfoManager manager = SplitInfoManagerService.getInstance();
-        List<String> allSplits = new ArrayList<>();
-        assert manager != null;
-        Collection<SplitInfo> splitInfoList = manager.getAllSplitInfo(appContext);
-        for (SplitInfo info : splitInfoList) {
-            allSplits.add(info.getSplitName());
-        }
-        return allSplits.containsAll(moduleNames);
+        return getSplitInfoSnapshot().containsAll(moduleNames);
     }
 
     private boolean isModuleAvailable(List<String> moduleNames) {
-        SplitInfoManager manager = SplitInfoManagerService.getInstance();
-        assert manager != null;
-        Collection<SplitInfo> splitInfoList = manager.getAllSplitInfo(appContext);
+        SplitInfoSnapshot snapshot = getSplitInfoSnapshot();
         for (String moduleName : moduleNames) {
-            for (SplitInfo info : splitInfoList) {
-                if (info.getSplitName().equals(moduleName)) {
-                    if (!checkSplitInfo(info)) {
-                        return false;
-                    }
-                }
+            SplitInfo info = snapshot.getSplitInfo(moduleName);
+            if (info != null && !checkSplitInfo(info)) {
+                return false;
             }
         }
         return true;
@@ -452,14 +518,26 @@ final class SplitInstallSupervisorImpl extends SplitInstallSupervisor {
         return true;
     }
 
-    private List<DownloadRequest> createDownloadRequests(Collection<SplitInfo> splitInfoList) {
+    static List<DownloadRequest> createDownloadRequests(Collection<SplitInfo> splitInfoList) {
         List<DownloadRequest> requests = new ArrayList<>(splitInfoList.size());
         for (SplitInfo splitInfo : splitInfoList) {
             File splitDir = SplitPathManager.require().getSplitDir(splitInfo);
             String fileName = splitInfo.getSplitName() + SplitConstants.DOT_APK;
+            String url = splitInfo.getUrl();
+            long size = splitInfo.getSize();
+            String md5 = splitInfo.getMd5();
+            if (!new File(splitDir, fileName).exists() && SplitApkPatcher.isPatchApplicable(splitInfo)) {
+                //download binary patch, split apk is reconstructed when installing.
+                fileName = splitInfo.getSplitName() + SplitConstants.DOT_PATCH;
+                url = splitInfo.getPatchUrl();
+                size = splitInfo.getPatchSize();
+                md5 = null;
+            }
             //create download request
             DownloadRequest request = DownloadRequest.newBuilder()
-                    .url(splitInfo.getUrl())
+                    .url(url)
+                    .size(size)
+                    .md5(md5)
                     .fileDir(splitDir.getAbsolutePath())
                     .fileName(fileName)
                     .moduleName(splitInfo.getSplitName())
@@ -476,16 +554,25 @@ final class SplitInstallSupervisorImpl extends SplitInstallSupervisor {
             File splitDir = SplitPathManager.require().getSplitDir(splitInfo);
             String fileName = splitInfo.getSplitName() + SplitConstants.DOT_APK;
             File splitApk = new File(splitDir, fileName);
-            checkSplitApkMd5(splitInfo, splitDir, splitApk);
+            SplitPhaseRecorder recorder = SplitPhaseRecorder.create(splitInfo.getSplitName(), SplitInstallReporterManager.getInstallReporter());
+            checkSplitApkMd5(splitInfo, splitDir, splitApk, recorder);
             SplitDownloadPreprocessor processor = new SplitDownloadPreprocessor(splitDir, splitApk);
             try {
-                processor.load(appContext, splitInfo);
+                processor.load(appContext, splitInfo, recorder);
             } finally {
                 FileUtil.closeQuietly(processor);
+                recorder.report();
             }
             SplitLog.d(TAG, "Split dir :" + splitDir.getAbsolutePath());
             SplitLog.d(TAG, "Split Name :" + fileName);
             //calculate splits total download size.
+            if (!splitApk.exists() && SplitApkPatcher.isPatchApplicable(splitInfo)) {
+                totalBytesToDownload = totalBytesToDownload + splitInfo.getPatchSize();
+                if (!SplitApkPatcher.getPatchFile(splitInfo).exists()) {
+                    realTotalBytesNeedToDownload = realTotalBytesNeedToDownload + splitInfo.getPatchSize();
+                }
+                continue;
+            }
             totalBytesToDownload = totalBytesToDownload + splitInfo.getSize();
             if (!splitApk.exists()) {
                 realTotalBytesNeedToDownload = realTotalBytesNeedToDownload + splitInfo.getSize();
@@ -494,19 +581,33 @@ final class SplitInstallSupervisorImpl extends SplitInstallSupervisor {
         return new long[]{totalBytesToDownload, realTotalBytesNeedToDownload};
     }
 
-    private void checkSplitApkMd5(SplitInfo info, File splitDir, File splitApk) {
+    private void checkSplitApkMd5(SplitInfo info, File splitDir, File splitApk, SplitPhaseRecorder recorder) {
         if (FileUtil.isLegalFile(splitApk)) {
-            String apkMd5 = FileUtil.getMD5(splitApk);
+            if (SplitVerificationCache.isMd5Verified(info, splitApk)) {
+                SplitLog.i(TAG, "Split %s md5 has been verified", info.getSplitName());
+                return;
+            }
+            long startTime = recorder.begin(SplitPhaseTiming.PHASE_MD5);
+            String apkMd5;
+            try {
+                apkMd5 = FileUtil.getMD5(splitApk);
+            } finally {
+                recorder.end(SplitPhaseTiming.PHASE_MD5, startTime, splitApk.length());
+            }
             if (TextUtils.isEmpty(apkMd5)) {
                 //fallback to check apk length.
                 if (info.getSize() != splitApk.length()) {
                     SplitLog.w(TAG, "Split %s length change", info.getSplitName());
                     FileUtil.deleteDir(splitDir, false);
+                    SplitVerificationCache.invalidate(info);
                 }
             } else {
                 if (!info.getMd5().equals(apkMd5)) {
                     SplitLog.w(TAG, "Split %s md5 change", info.getSplitName());
                     FileUtil.deleteDir(splitDir, false);
+                    SplitVerificationCache.invalidate(info);
+                } else {
+                    SplitVerificationCache.markMd5Verified(info, splitApk);
                 }
             }
         }
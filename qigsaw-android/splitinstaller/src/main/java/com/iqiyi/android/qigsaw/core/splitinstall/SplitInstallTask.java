@@ -24,18 +24,14 @@
 
 package com.iqiyi.android.qigsaw.core.splitinstall;
 
-import com.iqiyi.android.qigsaw.core.common.SplitLog;
 import com.iqiyi.android.qigsaw.core.splitreport.SplitInstallError;
 import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfo;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
 abstract class SplitInstallTask implements Runnable {
 
-    private static final String TAG = "SplitInstallTask";
-
     private final SplitInstaller installer;
 
     private final Collection<SplitInfo> needUpdateSplits;
@@ -56,26 +52,12 @@ abstract class SplitInstallTask implements Runnable {
     public final void run() {
         onPreInstall();
         long currentTime = System.currentTimeMillis();
-        List<SplitInstaller.InstallResult> installResults = new ArrayList<>();
-        List<SplitInstallError> installErrors = new ArrayList<>(0);
-        boolean installCompleted = true;
-        for (SplitInfo info : needUpdateSplits) {
-            try {
-                SplitInstaller.InstallResult installResult = installer.install(info);
-                installResults.add(installResult);
-            } catch (SplitInstaller.InstallException error) {
-                SplitLog.printErrStackTrace(TAG, error, "Failed to install split " + info.getSplitName());
-                installCompleted = false;
-                installErrors.add(new SplitInstallError(info.getSplitName(), error.getErrorCode(), error.getCause()));
-                if (!continueInstallIgnoreError()) {
-                    break;
-                }
-            }
-        }
+        SplitInstallScheduler scheduler = new SplitInstallScheduler(installer, needUpdateSplits, continueInstallIgnoreError());
+        boolean installCompleted = scheduler.schedule();
         if (installCompleted) {
-            onInstallCompleted(installResults, System.currentTimeMillis() - currentTime);
+            onInstallCompleted(scheduler.getInstallResults(), System.currentTimeMillis() - currentTime);
         } else {
-            onInstallFailed(installErrors, System.currentTimeMillis() - currentTime);
+            onInstallFailed(scheduler.getInstallErrors(), System.currentTimeMillis() - currentTime);
         }
     }
 
@@ -41,12 +41,21 @@ abstract class SplitInstaller {
      */
     public abstract InstallResult install(SplitInfo splitInfo) throws InstallException;
 
+    /**
+     * Reconstruct split apk from old installed version and downloaded binary patch.
+     *
+     * @param splitInfo {@link SplitInfo}
+     * @param splitApk  file to write reconstructed split apk.
+     */
+    protected abstract void applyPatch(SplitInfo splitInfo, File splitApk) throws InstallException;
+
     /**
      * Check whether the signature of split apk is consistent with base app.
      *
-     * @param splitApk file of split apk.
+     * @param splitInfo {@link SplitInfo}
+     * @param splitApk  file of split apk.
      */
-    protected abstract void validateSignature(File splitApk) throws InstallException;
+    protected abstract void validateSignature(SplitInfo splitInfo, File splitApk) throws InstallException;
 
     /**
      * Extract split apk dex files if current platform does't support multi dex.
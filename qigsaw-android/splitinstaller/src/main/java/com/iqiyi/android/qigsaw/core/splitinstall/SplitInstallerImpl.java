@@ -34,7 +34,10 @@ import com.iqiyi.android.qigsaw.core.splitload.SplitApplicationLoaders;
 import com.iqiyi.android.qigsaw.core.splitload.SplitDexClassLoader;
 import com.iqiyi.android.qigsaw.core.splitload.SplitLoad;
 import com.iqiyi.android.qigsaw.core.splitload.SplitLoadManagerService;
+import com.iqiyi.android.qigsaw.core.splitload.SplitNativeLibraryLayout;
 import com.iqiyi.android.qigsaw.core.splitreport.SplitInstallError;
+import com.iqiyi.android.qigsaw.core.splitreport.SplitPhaseRecorder;
+import com.iqiyi.android.qigsaw.core.splitreport.SplitPhaseTiming;
 import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfo;
 import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfoManager;
 import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfoManagerService;
@@ -64,13 +67,45 @@ final class SplitInstallerImpl extends SplitInstaller {
 
     @Override
     public InstallResult install(SplitInfo info) throws InstallException {
+        SplitPhaseRecorder recorder = SplitPhaseRecorder.create(info.getSplitName(), SplitInstallReporterManager.getInstallReporter());
+        try {
+            return install(info, recorder);
+        } finally {
+            recorder.report();
+        }
+    }
+
+    private InstallResult install(SplitInfo info, SplitPhaseRecorder recorder) throws InstallException {
         File splitDir = SplitPathManager.require().getSplitDir(info);
         File sourceApk = new File(splitDir, info.getSplitName() + SplitConstants.DOT_APK);
-        validateSignature(sourceApk);
+        long startTime;
+        if (!sourceApk.exists() && info.hasPatch()) {
+            startTime = recorder.begin(SplitPhaseTiming.PHASE_PATCH);
+            try {
+                applyPatch(info, sourceApk);
+            } finally {
+                recorder.end(SplitPhaseTiming.PHASE_PATCH, startTime, sourceApk.length());
+            }
+        }
+        startTime = recorder.begin(SplitPhaseTiming.PHASE_SIGNATURE);
+        try {
+            validateSignature(info, sourceApk);
+        } finally {
+            recorder.end(SplitPhaseTiming.PHASE_SIGNATURE, startTime, sourceApk.length());
+        }
         File splitLibDir = null;
-        if (isLibExtractNeeded(info)) {
-            extractLib(info, sourceApk);
-            splitLibDir = SplitPathManager.require().getSplitLibDir(info);
+        if (info.hasLibs()) {
+            if (isLibExtractNeeded(info, sourceApk)) {
+                startTime = recorder.begin(SplitPhaseTiming.PHASE_EXTRACT_LIB);
+                try {
+                    extractLib(info, sourceApk);
+                } finally {
+                    recorder.end(SplitPhaseTiming.PHASE_EXTRACT_LIB, startTime, 0);
+                }
+                splitLibDir = SplitPathManager.require().getSplitLibDir(info);
+            } else {
+                splitLibDir = SplitNativeLibraryLayout.getApkLibraryDir(sourceApk, info);
+            }
         }
         List<String> addedDexPaths = null;
         if (info.hasDex()) {
@@ -78,23 +113,46 @@ final class SplitInstallerImpl extends SplitInstaller {
             addedDexPaths.add(sourceApk.getAbsolutePath());
             if (!isVMMultiDexCapable()) {
                 if (isMultiDexExtractNeeded(info)) {
-                    addedDexPaths.addAll(extractMultiDex(info, sourceApk));
+                    startTime = recorder.begin(SplitPhaseTiming.PHASE_EXTRACT_MULTI_DEX);
+                    try {
+                        addedDexPaths.addAll(extractMultiDex(info, sourceApk));
+                    } finally {
+                        recorder.end(SplitPhaseTiming.PHASE_EXTRACT_MULTI_DEX, startTime, 0);
+                    }
                 }
             }
         }
-        SplitDexClassLoader dexClassLoader = SplitDexClassLoader.create(
-                appContext, info.getSplitName(),
-                addedDexPaths,
-                SplitPathManager.require().getSplitOptDir(info),
-                splitLibDir
-        );
-        if (SplitLoadManagerService.getInstance().splitLoadMode() == SplitLoad.MULTIPLE_CLASSLOADER) {
-            SplitApplicationLoaders.getInstance().addClassLoader(dexClassLoader);
+        if (addedDexPaths != null) {
+            startTime = recorder.begin(SplitPhaseTiming.PHASE_DEX_OPT);
+            try {
+                optimizeDex(info, addedDexPaths, splitLibDir);
+            } finally {
+                recorder.end(SplitPhaseTiming.PHASE_DEX_OPT, startTime, 0);
+            }
         }
         createInstalledMark(info);
         return new InstallResult(info.getSplitName(), sourceApk, addedDexPaths, checkDependenciesInstalledStatus(info));
     }
 
+    private void optimizeDex(SplitInfo info, List<String> addedDexPaths, File splitLibDir) throws InstallException {
+        if (!SplitDexOptimizer.isOptimizationSupported()) {
+            return;
+        }
+        if (SplitDexOptimizer.isOptimized(info)) {
+            SplitLog.i(TAG, "Split %s has been optimized", info.getSplitName());
+            return;
+        }
+        SplitDexClassLoader dexClassLoader;
+        try {
+            dexClassLoader = SplitDexOptimizer.optimize(appContext, info, addedDexPaths, splitLibDir);
+        } catch (IOException e) {
+            throw new InstallException(SplitInstallError.DEX_OPT_FAILED, e);
+        }
+        if (SplitLoadManagerService.getInstance().splitLoadMode() == SplitLoad.MULTIPLE_CLASSLOADER) {
+            SplitApplicationLoaders.getInstance().addClassLoaderIfAbsent(dexClassLoader);
+        }
+    }
+
     private boolean checkDependenciesInstalledStatus(SplitInfo info) {
         SplitInfoManager manager = SplitInfoManagerService.getInstance();
         if (manager == null) {
@@ -116,14 +174,57 @@ final class SplitInstallerImpl extends SplitInstaller {
     }
 
     @Override
-    protected void validateSignature(File splitApk) throws InstallException {
+    protected void applyPatch(SplitInfo info, File splitApk) throws InstallException {
+        File patchFile = SplitApkPatcher.getPatchFile(info);
+        if (!patchFile.exists()) {
+            return;
+        }
+        try {
+            File baseApk = SplitApkPatcher.findBaseApk(info);
+            if (baseApk == null) {
+                throw new FileNotFoundException("Base apk of split " + info.getSplitName() + " patch is not found!");
+            }
+            File tmp = File.createTempFile("tmp-" + info.getSplitName(), SplitConstants.DOT_APK, SplitPathManager.require().getSplitTmpDir());
+            try {
+                SplitApkPatcher.patch(baseApk, patchFile, tmp);
+                String apkMd5 = FileUtil.getMD5(tmp);
+                if (!info.getMd5().equals(apkMd5)) {
+                    throw new IOException(String.format("Failed to check reconstructed split %s md5, excepted %s but %s",
+                            info.getSplitName(), info.getMd5(), apkMd5));
+                }
+                if (!tmp.renameTo(splitApk)) {
+                    throw new IOException("Failed to rename \"" + tmp.getAbsolutePath() + "\" to \"" + splitApk.getAbsolutePath() + "\"");
+                }
+            } finally {
+                FileUtil.safeDeleteFile(tmp);
+            }
+            SplitVerificationCache.markMd5Verified(info, splitApk);
+            SplitLog.i(TAG, "Succeed to reconstruct split %s from %s", info.getSplitName(), baseApk.getAbsolutePath());
+        } catch (IOException e) {
+            SplitApkPatcher.markPatchFailed(info);
+            throw new InstallException(SplitInstallError.APK_PATCH_FAILED, e);
+        } finally {
+            FileUtil.safeDeleteFile(patchFile);
+        }
+    }
+
+    @Override
+    protected void validateSignature(SplitInfo info, File splitApk) throws InstallException {
         if (!FileUtil.isLegalFile(splitApk)) {
             throw new InstallException(
                     SplitInstallError.APK_FILE_ILLEGAL,
                     new FileNotFoundException("Split apk " + splitApk.getAbsolutePath() + " is illegal!")
             );
         }
-        if (!SignatureValidator.validateSplit(appContext, splitApk)) {
+        if (SplitVerificationCache.isSignatureVerified(appContext, info, splitApk)) {
+            SplitLog.i(TAG, "Split %s signature has been verified", info.getSplitName());
+            return;
+        }
+        SignatureValidator.SplitSignature signature = SignatureValidator.validateSplit(appContext, splitApk);
+        if (signature != null) {
+            SplitVerificationCache.markSignatureVerified(info, splitApk, signature);
+        } else {
+            SplitVerificationCache.invalidate(info);
             deleteCorruptedFiles(Collections.singletonList(splitApk));
             throw new InstallException(
                     SplitInstallError.SIGNATURE_MISMATCH,
@@ -225,12 +326,25 @@ final class SplitInstallerImpl extends SplitInstaller {
     }
 
     /**
-     * check whether split apk has native libraries.
+     * check whether native libraries of split apk need to be extracted.
+     * Libraries stored uncompressed and page-aligned in split apk are loaded from apk directly since Android M.
      *
-     * @param info {@link SplitInfo}
+     * @param info      {@link SplitInfo}
+     * @param sourceApk installed split apk
      */
-    private boolean isLibExtractNeeded(SplitInfo info) {
-        return info.hasLibs();
+    private boolean isLibExtractNeeded(SplitInfo info, File sourceApk) {
+        File splitLibDir = SplitPathManager.require().getSplitLibDir(info);
+        if (SplitNativeLibraryLayout.isMarkedLoadFromApk(splitLibDir, sourceApk, info)) {
+            return false;
+        }
+        boolean loadFromApk = SplitNativeLibraryLayout.canLoadFromApk(sourceApk, info);
+        try {
+            SplitNativeLibraryLayout.markLoadFromApk(splitLibDir, sourceApk, info, loadFromApk);
+        } catch (IOException e) {
+            SplitLog.w(TAG, "Failed to mark split %s libs loaded from apk", info.getSplitName());
+            return true;
+        }
+        return !loadFromApk;
     }
 
     /**
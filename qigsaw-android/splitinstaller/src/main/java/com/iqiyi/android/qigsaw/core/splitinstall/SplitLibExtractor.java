@@ -27,31 +27,64 @@ package com.iqiyi.android.qigsaw.core.splitinstall;
 import com.iqiyi.android.qigsaw.core.common.FileUtil;
 import com.iqiyi.android.qigsaw.core.common.SplitConstants;
 import com.iqiyi.android.qigsaw.core.common.SplitLog;
+import com.iqiyi.android.qigsaw.core.common.SplitWorkerExecutor;
 import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfo;
 import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitPathManager;
 
+import java.io.BufferedInputStream;
 import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
+/**
+ * Extract native libraries of a split, libraries are streamed to tmp files concurrently on {@link SplitWorkerExecutor}.
+ * A manifest of (name, size, crc, md5) is recorded after a successful extraction,
+ * later loads validate extracted libraries by size and crc instead of md5.
+ */
 final class SplitLibExtractor implements Closeable {
 
     private static final String TAG = "Split:LibExtractor";
 
+    private static final String LOCK_FILENAME = "SplitLib.lock";
+
+    private static final String MANIFEST_FILENAME = "SplitLib.manifest";
+
+    private static final String KEY_SIZE = ".size";
+
+    private static final String KEY_CRC = ".crc";
+
+    private static final String KEY_MD5 = ".md5";
+
+    private static final Map<String, ReentrantLock> sSplitLocks = new HashMap<>();
+
     private final File sourceApk;
 
     private final File libDir;
 
-    private static final String LOCK_FILENAME = "SplitLib.lock";
+    private final File manifestFile;
+
+    private final ReentrantLock splitLock;
 
     private final RandomAccessFile lockRaf;
 
@@ -62,24 +95,43 @@ final class SplitLibExtractor implements Closeable {
     SplitLibExtractor(File sourceApk, File libDir) throws IOException {
         this.sourceApk = sourceApk;
         this.libDir = libDir;
+        this.manifestFile = new File(libDir, MANIFEST_FILENAME);
+        //file lock only guards other processes, threads of this process are serialized by split lock.
+        this.splitLock = getSplitLock(libDir);
+        this.splitLock.lock();
         File lockFile = new File(libDir, LOCK_FILENAME);
-        this.lockRaf = new RandomAccessFile(lockFile, "rw");
         try {
-            this.lockChannel = this.lockRaf.getChannel();
+            this.lockRaf = new RandomAccessFile(lockFile, "rw");
             try {
-                SplitLog.i(TAG, "Blocking on lock " + lockFile.getPath());
-                this.cacheLock = this.lockChannel.lock();
-            } catch (RuntimeException | Error | IOException var5) {
-                FileUtil.closeQuietly(this.lockChannel);
-                throw var5;
+                this.lockChannel = this.lockRaf.getChannel();
+                try {
+                    SplitLog.i(TAG, "Blocking on lock " + lockFile.getPath());
+                    this.cacheLock = this.lockChannel.lock();
+                } catch (RuntimeException | Error | IOException var5) {
+                    FileUtil.closeQuietly(this.lockChannel);
+                    throw var5;
+                }
+                SplitLog.i(TAG, lockFile.getPath() + " locked");
+            } catch (RuntimeException | Error | IOException var6) {
+                FileUtil.closeQuietly(this.lockRaf);
+                throw var6;
             }
-            SplitLog.i(TAG, lockFile.getPath() + " locked");
-        } catch (RuntimeException | Error | IOException var6) {
-            FileUtil.closeQuietly(this.lockRaf);
-            throw var6;
+        } catch (RuntimeException | Error | IOException var7) {
+            this.splitLock.unlock();
+            throw var7;
         }
     }
 
+    private static synchronized ReentrantLock getSplitLock(File libDir) {
+        String key = libDir.getAbsolutePath();
+        ReentrantLock lock = sSplitLocks.get(key);
+        if (lock == null) {
+            lock = new ReentrantLock();
+            sSplitLocks.put(key, lock);
+        }
+        return lock;
+    }
+
     List<File> load(SplitInfo info, boolean forceReload) throws IOException {
         if (!cacheLock.isValid()) {
             throw new IllegalStateException("SplitLibExtractor was closed");
@@ -101,10 +153,52 @@ final class SplitLibExtractor implements Closeable {
     }
 
     private List<File> performExtractions(SplitInfo info) throws IOException {
+        Properties oldManifest = readManifest();
+        //manifest is only trusted if all libs are extracted successfully.
+        FileUtil.safeDeleteFile(manifestFile);
         ZipFile sourceZip = new ZipFile(sourceApk);
-        String libPrefix = String.format("lib/%s/", info.getLibInfo().getAbi());
+        try {
+            List<ZipEntry> libEntries = findLibEntries(sourceZip, info.getLibInfo().getAbi());
+            List<ExtractedLib> extractedLibs = new ArrayList<>(libEntries.size());
+            List<ExtractLibTask> tasks = new ArrayList<>(libEntries.size());
+            for (ZipEntry entry : libEntries) {
+                String entryName = entry.getName();
+                String libName = entryName.substring(entryName.lastIndexOf('/') + 1);
+                SplitInfo.LibInfo.Lib lib = findLib(libName, info.getLibInfo().getLibs());
+                if (lib == null) {
+                    throw new IOException(String.format("Failed to find %s in split-info", libName));
+                }
+                ExtractedLib existing = checkExtractedLib(lib, oldManifest);
+                if (existing != null) {
+                    extractedLibs.add(existing);
+                    continue;
+                }
+                tasks.add(new ExtractLibTask(sourceZip, entry, lib));
+            }
+            //all tasks are done even if one fails, source zip is closed afterwards.
+            try {
+                extractedLibs.addAll(SplitWorkerExecutor.invokeAll(tasks));
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while extracting libs", e);
+            }
+            writeManifest(extractedLibs);
+            List<File> libFiles = new ArrayList<>(extractedLibs.size());
+            for (ExtractedLib extractedLib : extractedLibs) {
+                libFiles.add(extractedLib.file);
+            }
+            return libFiles;
+        } finally {
+            FileUtil.closeQuietly(sourceZip);
+        }
+    }
+
+    private static List<ZipEntry> findLibEntries(ZipFile sourceZip, String abi) {
+        String libPrefix = String.format("lib/%s/", abi);
         Enumeration e = sourceZip.entries();
-        List<File> libFiles = new ArrayList<>();
+        List<ZipEntry> libEntries = new ArrayList<>();
         while (e.hasMoreElements()) {
             ZipEntry entry = (ZipEntry) e.nextElement();
             String entryName = entry.getName();
@@ -120,66 +214,105 @@ final class SplitLibExtractor implements Closeable {
             if (!entryName.endsWith(SplitConstants.DOT_SO) || !entryName.startsWith(libPrefix)) {
                 continue;
             }
-            String libName = entryName.substring(entryName.lastIndexOf('/') + 1);
-            SplitInfo.LibInfo.Lib lib = findLib(libName, info.getLibInfo().getLibs());
-            if (lib == null) {
-                throw new IOException(String.format("Failed to find %s in split-info", libName));
-            }
-            File extractedLib = new File(libDir, libName);
+            libEntries.add(entry);
+        }
+        return libEntries;
+    }
+
+    private ExtractedLib extractLib(ZipFile sourceZip, ZipEntry entry, SplitInfo.LibInfo.Lib lib) throws IOException {
+        String libName = lib.getName();
+        File extractedLib = new File(libDir, libName);
+        if (extractedLib.exists()) {
+            FileUtil.safeDeleteFile(extractedLib);
             if (extractedLib.exists()) {
-                if (lib.getMd5().equals(FileUtil.getMD5(extractedLib))) {
-                    libFiles.add(extractedLib);
-                    continue;
-                } else {
-                    FileUtil.safeDeleteFile(extractedLib);
-                    if (extractedLib.exists()) {
-                        SplitLog.w(TAG, "Failed to delete corrupted lib file '" + extractedLib.getPath() + "'");
-                    }
-                }
+                SplitLog.w(TAG, "Failed to delete corrupted lib file '" + extractedLib.getPath() + "'");
             }
-            SplitLog.i(TAG, "Extraction is needed for lib: " + extractedLib.getAbsolutePath());
-            int numAttempts = 0;
-            boolean isExtractionSuccessful = false;
-            File tempDir = SplitPathManager.require().getSplitTmpDir();
-            File tmp = File.createTempFile("tmp-" + libName, "", tempDir);
-            while (numAttempts < SplitConstants.MAX_RETRY_ATTEMPTS && !isExtractionSuccessful) {
+        }
+        SplitLog.i(TAG, "Extraction is needed for lib: " + extractedLib.getAbsolutePath());
+        int numAttempts = 0;
+        File tempDir = SplitPathManager.require().getSplitTmpDir();
+        File tmp = File.createTempFile("tmp-" + libName, "", tempDir);
+        try {
+            while (numAttempts < SplitConstants.MAX_RETRY_ATTEMPTS) {
                 ++numAttempts;
+                ExtractedLib result;
                 try {
-                    FileOutputStream fos = new FileOutputStream(tmp);
-                    FileUtil.copyFile(sourceZip.getInputStream(entry), fos);
-                    if (!tmp.renameTo(extractedLib)) {
-                        SplitLog.w(TAG, "Failed to rename \"" + tmp.getAbsolutePath() + "\" to \"" + extractedLib.getAbsolutePath() + "\"");
-                    } else {
-                        isExtractionSuccessful = true;
-                    }
+                    result = copyAndDigest(sourceZip.getInputStream(entry), new FileOutputStream(tmp), extractedLib);
                 } catch (IOException copyError) {
                     SplitLog.w(TAG, "Failed to extract so :" + libName + ", attempts times : " + numAttempts);
+                    continue;
                 }
-                SplitLog.i(TAG, "Extraction " + (isExtractionSuccessful ? "succeeded" : "failed") + " '" + extractedLib.getAbsolutePath() + "': length " + extractedLib.length());
                 //check md5
-                String libFileMd5 = FileUtil.getMD5(extractedLib);
-                if (!lib.getMd5().equals(libFileMd5)) {
-                    SplitLog.w(TAG, "Failed to check %s md5, excepted %s but %s", libName, lib.getMd5(), libFileMd5);
-                    isExtractionSuccessful = false;
+                if (!lib.getMd5().equals(result.md5)) {
+                    SplitLog.w(TAG, "Failed to check %s md5, excepted %s but %s", libName, lib.getMd5(), result.md5);
+                    continue;
                 }
-                if (!isExtractionSuccessful) {
-                    FileUtil.safeDeleteFile(extractedLib);
-                    if (extractedLib.exists()) {
-                        SplitLog.w(TAG, "Failed to delete extracted lib that has been corrupted'" + extractedLib.getPath() + "'");
-                    }
-                } else {
-                    libFiles.add(extractedLib);
+                if (!tmp.renameTo(extractedLib)) {
+                    SplitLog.w(TAG, "Failed to rename \"" + tmp.getAbsolutePath() + "\" to \"" + extractedLib.getAbsolutePath() + "\"");
+                    continue;
                 }
+                SplitLog.i(TAG, "Extraction succeeded '" + extractedLib.getAbsolutePath() + "': length " + result.size);
+                return result;
             }
+        } finally {
             FileUtil.safeDeleteFile(tmp);
-            if (!isExtractionSuccessful) {
-                throw new IOException("Could not create lib file " + extractedLib.getAbsolutePath() + ")");
+        }
+        throw new IOException("Could not create lib file " + extractedLib.getAbsolutePath() + ")");
+    }
+
+    /**
+     * Copy stream and compute its size, crc and md5 in one pass.
+     */
+    private static ExtractedLib copyAndDigest(InputStream input, OutputStream output, File target) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            FileUtil.closeQuietly(input);
+            FileUtil.closeQuietly(output);
+            throw new IOException(e);
+        }
+        CRC32 crc = new CRC32();
+        long size = 0;
+        BufferedInputStream bufferedInput = new BufferedInputStream(input);
+        try {
+            byte[] buffer = new byte[16384];
+            for (int length = bufferedInput.read(buffer); length != -1; length = bufferedInput.read(buffer)) {
+                output.write(buffer, 0, length);
+                md.update(buffer, 0, length);
+                crc.update(buffer, 0, length);
+                size += length;
             }
+            output.flush();
+        } finally {
+            FileUtil.closeQuietly(input);
+            FileUtil.closeQuietly(output);
         }
-        FileUtil.closeQuietly(sourceZip);
-        return libFiles;
+        return new ExtractedLib(target, size, crc.getValue(), toHexString(md.digest()));
     }
 
+    private static String toHexString(byte[] hashValue) {
+        StringBuilder md5Str = new StringBuilder(32);
+        for (byte b : hashValue) {
+            md5Str.append(Integer.toString((b & 0xff) + 0x100, 16).substring(1));
+        }
+        return md5Str.toString();
+    }
+
+    private static long computeCrc(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        InputStream is = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[16384];
+            int length;
+            while ((length = is.read(buffer)) != -1) {
+                crc.update(buffer, 0, length);
+            }
+        } finally {
+            FileUtil.closeQuietly(is);
+        }
+        return crc.getValue();
+    }
 
     private SplitInfo.LibInfo.Lib findLib(String libName, List<SplitInfo.LibInfo.Lib> libs) {
         for (SplitInfo.LibInfo.Lib lib : libs) {
@@ -192,35 +325,133 @@ final class SplitLibExtractor implements Closeable {
 
     private List<File> loadExistingExtractions(List<SplitInfo.LibInfo.Lib> libs) throws IOException {
         SplitLog.i(TAG, "loading existing lib files");
-        File[] files = libDir.listFiles();
-        if (files == null || files.length <= 0) {
-            throw new IOException("Missing extracted lib file '" + libDir.getPath() + "'");
+        Properties manifest = readManifest();
+        if (manifest.isEmpty()) {
+            throw new IOException("Missing lib manifest '" + manifestFile.getPath() + "'");
         }
-        List<File> libFiles = new ArrayList<>(files.length);
+        List<File> libFiles = new ArrayList<>(libs.size());
         for (SplitInfo.LibInfo.Lib lib : libs) {
-            boolean hasSo = false;
-            for (File file : files) {
-                if (lib.getName().equals(file.getName())) {
-                    hasSo = true;
-                    if (!lib.getMd5().equals(FileUtil.getMD5(file))) {
-                        throw new IOException("Invalid extracted lib : file md5 is unmatched!");
-                    } else {
-                        libFiles.add(file);
-                    }
-                }
-            }
-            if (!hasSo) {
-                throw new IOException(String.format("Invalid extracted lib: file %s is not existing!", lib.getName()));
+            ExtractedLib extractedLib = checkExtractedLib(lib, manifest);
+            if (extractedLib == null) {
+                throw new IOException(String.format("Invalid extracted lib: file %s is not matched with manifest!", lib.getName()));
             }
+            libFiles.add(extractedLib.file);
         }
         SplitLog.i(TAG, "Existing lib files loaded");
         return libFiles;
     }
 
+    /**
+     * @return extracted lib if it is recorded in manifest for the same md5 and its size and crc are unchanged, otherwise {@code null}.
+     */
+    private ExtractedLib checkExtractedLib(SplitInfo.LibInfo.Lib lib, Properties manifest) {
+        String name = lib.getName();
+        if (!lib.getMd5().equals(manifest.getProperty(name + KEY_MD5))) {
+            return null;
+        }
+        File file = new File(libDir, name);
+        try {
+            long size = Long.parseLong(manifest.getProperty(name + KEY_SIZE));
+            long crc = Long.parseLong(manifest.getProperty(name + KEY_CRC));
+            if (!file.exists() || file.length() != size) {
+                return null;
+            }
+            if (computeCrc(file) != crc) {
+                SplitLog.w(TAG, "Crc of extracted lib %s is unmatched!", name);
+                return null;
+            }
+            return new ExtractedLib(file, size, crc, lib.getMd5());
+        } catch (NumberFormatException e) {
+            return null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private Properties readManifest() {
+        Properties manifest = new Properties();
+        if (manifestFile.exists()) {
+            InputStream is = null;
+            try {
+                is = new FileInputStream(manifestFile);
+                manifest.load(is);
+            } catch (IOException e) {
+                SplitLog.w(TAG, "Failed to read lib manifest " + manifestFile.getPath());
+                manifest.clear();
+            } finally {
+                FileUtil.closeQuietly(is);
+            }
+        }
+        return manifest;
+    }
+
+    private void writeManifest(List<ExtractedLib> extractedLibs) throws IOException {
+        Properties manifest = new Properties();
+        for (ExtractedLib extractedLib : extractedLibs) {
+            String name = extractedLib.file.getName();
+            manifest.setProperty(name + KEY_SIZE, String.valueOf(extractedLib.size));
+            manifest.setProperty(name + KEY_CRC, String.valueOf(extractedLib.crc));
+            manifest.setProperty(name + KEY_MD5, extractedLib.md5);
+        }
+        File tmp = new File(libDir, MANIFEST_FILENAME + ".tmp");
+        OutputStream os = new FileOutputStream(tmp);
+        try {
+            manifest.store(os, null);
+        } finally {
+            FileUtil.closeQuietly(os);
+        }
+        if (!tmp.renameTo(manifestFile)) {
+            FileUtil.safeDeleteFile(tmp);
+            SplitLog.w(TAG, "Failed to create lib manifest " + manifestFile.getPath());
+        }
+    }
+
     @Override
     public void close() throws IOException {
-        lockChannel.close();
-        lockRaf.close();
-        cacheLock.release();
+        try {
+            cacheLock.release();
+            lockChannel.close();
+            lockRaf.close();
+        } finally {
+            splitLock.unlock();
+        }
+    }
+
+    private final class ExtractLibTask implements Callable<ExtractedLib> {
+
+        private final ZipFile sourceZip;
+
+        private final ZipEntry entry;
+
+        private final SplitInfo.LibInfo.Lib lib;
+
+        ExtractLibTask(ZipFile sourceZip, ZipEntry entry, SplitInfo.LibInfo.Lib lib) {
+            this.sourceZip = sourceZip;
+            this.entry = entry;
+            this.lib = lib;
+        }
+
+        @Override
+        public ExtractedLib call() throws IOException {
+            return extractLib(sourceZip, entry, lib);
+        }
+    }
+
+    private static final class ExtractedLib {
+
+        final File file;
+
+        final long size;
+
+        final long crc;
+
+        final String md5;
+
+        ExtractedLib(File file, long size, long crc, String md5) {
+            this.file = file;
+            this.size = size;
+            this.crc = crc;
+            this.md5 = md5;
+        }
     }
 }
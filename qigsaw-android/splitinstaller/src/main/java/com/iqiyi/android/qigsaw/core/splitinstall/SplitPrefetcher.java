@@ -0,0 +1,261 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.iqiyi.android.qigsaw.core.splitinstall;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.PowerManager;
+
+import com.iqiyi.android.qigsaw.core.common.SplitBackgroundExecutor;
+import com.iqiyi.android.qigsaw.core.common.SplitConstants;
+import com.iqiyi.android.qigsaw.core.common.SplitLog;
+import com.iqiyi.android.qigsaw.core.splitinstall.remote.SplitInstallSupervisor;
+import com.iqiyi.android.qigsaw.core.splitload.SplitPendingUninstall;
+import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfo;
+import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfoManager;
+import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfoManagerService;
+import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfoSnapshot;
+import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitPathManager;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Download and install splits which are likely to be requested next according to {@link SplitUsageModel},
+ * so that they only need to be loaded when users request them.
+ * <p>
+ * Prefetch is done by {@code deferredInstall} when app is idle, and only while device is charging or
+ * using unmetered network with enough battery. Splits kept on disk by prefetch never exceed the disk budget.
+ */
+final class SplitPrefetcher {
+
+    private static final String TAG = "Split:SplitPrefetcher";
+
+    private static final int MAX_PREFETCH_SPLITS = 3;
+
+    private static final long MIN_PREFETCH_INTERVAL = TimeUnit.HOURS.toMillis(6);
+
+    private final Context context;
+
+    private final SplitInstallSupervisor supervisor;
+
+    private final SplitUsageModel usageModel;
+
+    private final long diskBudget;
+
+    private final int minBatteryLevel;
+
+    SplitPrefetcher(Context context,
+                    SplitInstallSupervisor supervisor,
+                    SplitUsageModel usageModel,
+                    long diskBudget,
+                    int minBatteryLevel) {
+        this.context = context;
+        this.supervisor = supervisor;
+        this.usageModel = usageModel;
+        this.diskBudget = diskBudget;
+        this.minBatteryLevel = minBatteryLevel;
+    }
+
+    void prefetchIfNeeded() {
+        SplitBackgroundExecutor.getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    prefetch();
+                } catch (Throwable e) {
+                    SplitLog.printErrStackTrace(TAG, e, "Failed to prefetch splits");
+                }
+            }
+        });
+    }
+
+    private void prefetch() throws Exception {
+        long now = System.currentTimeMillis();
+        if (Math.abs(now - usageModel.getLastPrefetchTime()) < MIN_PREFETCH_INTERVAL) {
+            return;
+        }
+        if (!isPrefetchWindow()) {
+            SplitLog.d(TAG, "Device is not charging or using unmetered network, skip prefetch");
+            return;
+        }
+        SplitInfoManager manager = SplitInfoManagerService.getInstance();
+        SplitInfoSnapshot snapshot = manager == null ? null : manager.getSplitInfoSnapshot(context);
+        if (snapshot == null || snapshot.isEmpty()) {
+            return;
+        }
+        //splits prefetched before and still kept on disk occupy the budget.
+        Set<String> prefetchedSplits = new LinkedHashSet<>();
+        long usedBudget = 0;
+        for (String moduleName : usageModel.getPrefetchedSplits()) {
+            SplitInfo info = snapshot.getSplitInfo(moduleName);
+            if (info != null && isDownloaded(info)) {
+                prefetchedSplits.add(moduleName);
+                usedBudget += info.getSize();
+            }
+        }
+        List<String> moduleNames = new ArrayList<>(MAX_PREFETCH_SPLITS);
+        for (String moduleName : usageModel.predict()) {
+            if (moduleNames.size() >= MAX_PREFETCH_SPLITS) {
+                break;
+            }
+            SplitInfo predictedInfo = snapshot.getSplitInfo(moduleName);
+            //prefetch would cancel pending uninstallation of split.
+            if (predictedInfo == null || SplitPendingUninstall.isMarked(predictedInfo)) {
+                continue;
+            }
+            long bytes = 0;
+            Set<String> splits = new LinkedHashSet<>(snapshot.getDependencyClosure(moduleName));
+            splits.add(moduleName);
+            List<String> uninstalledSplits = new ArrayList<>(splits.size());
+            List<String> missingSplits = new ArrayList<>(splits.size());
+            for (String split : splits) {
+                SplitInfo info = snapshot.getSplitInfo(split);
+                if (info != null && !isInstalled(info)) {
+                    uninstalledSplits.add(split);
+                    if (!isDownloaded(info)) {
+                        bytes += info.getSize();
+                        missingSplits.add(split);
+                    }
+                }
+            }
+            if (uninstalledSplits.isEmpty() || usedBudget + bytes > diskBudget) {
+                continue;
+            }
+            usedBudget += bytes;
+            for (String split : uninstalledSplits) {
+                if (!moduleNames.contains(split)) {
+                    moduleNames.add(split);
+                }
+            }
+            prefetchedSplits.addAll(missingSplits);
+        }
+        usageModel.recordPrefetch(prefetchedSplits, now);
+        if (moduleNames.isEmpty()) {
+            SplitLog.d(TAG, "No split needs to be prefetched");
+            return;
+        }
+        SplitLog.i(TAG, "Prefetch splits %s, disk budget used %d of %d bytes", moduleNames, usedBudget, diskBudget);
+        List<Bundle> moduleNamesBundle = new ArrayList<>(moduleNames.size());
+        for (String moduleName : moduleNames) {
+            Bundle bundle = new Bundle();
+            bundle.putString("module_name", moduleName);
+            moduleNamesBundle.add(bundle);
+        }
+        supervisor.deferredInstall(moduleNamesBundle, new PrefetchCallback());
+    }
+
+    private boolean isPrefetchWindow() {
+        Intent batteryStatus = context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        boolean charging = false;
+        if (batteryStatus != null) {
+            int status = batteryStatus.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
+            charging = status == BatteryManager.BATTERY_STATUS_CHARGING || status == BatteryManager.BATTERY_STATUS_FULL;
+            int level = batteryStatus.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+            int scale = batteryStatus.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+            if (!charging && level >= 0 && scale > 0 && level * 100 / scale < minBatteryLevel) {
+                return false;
+            }
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+            if (powerManager != null && powerManager.isPowerSaveMode()) {
+                return false;
+            }
+        }
+        return charging || isUnmeteredNetwork();
+    }
+
+    private boolean isUnmeteredNetwork() {
+        ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivityManager == null) {
+            return false;
+        }
+        NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
+        if (networkInfo == null || !networkInfo.isConnected()) {
+            return false;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            return !connectivityManager.isActiveNetworkMetered();
+        }
+        return networkInfo.getType() == ConnectivityManager.TYPE_WIFI;
+    }
+
+    private static boolean isInstalled(SplitInfo info) {
+        return new File(SplitPathManager.require().getSplitDir(info), info.getMd5()).exists();
+    }
+
+    private static boolean isDownloaded(SplitInfo info) {
+        return new File(SplitPathManager.require().getSplitDir(info), info.getSplitName() + SplitConstants.DOT_APK).exists();
+    }
+
+    private static final class PrefetchCallback implements SplitInstallSupervisor.Callback {
+
+        @Override
+        public void onStartInstall(int sessionId, Bundle data) {
+
+        }
+
+        @Override
+        public void onCancelInstall(int sessionId, Bundle data) {
+
+        }
+
+        @Override
+        public void onGetSession(int sessionId, Bundle data) {
+
+        }
+
+        @Override
+        public void onDeferredUninstall(Bundle data) {
+
+        }
+
+        @Override
+        public void onDeferredInstall(Bundle data) {
+            SplitLog.d(TAG, "Prefetch request is accepted");
+        }
+
+        @Override
+        public void onGetSessionStates(List<Bundle> data) {
+
+        }
+
+        @Override
+        public void onError(Bundle data) {
+            SplitLog.w(TAG, "Failed to prefetch splits, error code: " + data.getInt("error_code"));
+        }
+    }
+}
@@ -34,4 +34,16 @@ import java.util.List;
 interface SplitSessionInstaller {
 
     void install(int sessionId, List<String> moduleNames, List<SplitInfo> splitInfoList);
+
+    /**
+     * Used to download full split apks in the same session when binary patches fail to be applied.
+     */
+    interface PatchFallback {
+
+        /**
+         * @param patchFailedSplits splits whose binary patches fail to be applied.
+         * @return {@code true} if full split apks are being downloaded, then the session is not failed.
+         */
+        boolean onPatchFailed(List<SplitInfo> patchFailedSplits);
+    }
 }
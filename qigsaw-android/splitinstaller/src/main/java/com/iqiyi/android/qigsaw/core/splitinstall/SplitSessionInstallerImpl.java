@@ -25,6 +25,7 @@
 package com.iqiyi.android.qigsaw.core.splitinstall;
 
 import android.content.Context;
+import android.support.annotation.Nullable;
 
 import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfo;
 
@@ -39,18 +40,23 @@ final class SplitSessionInstallerImpl implements SplitSessionInstaller {
 
     private final SplitInstaller splitInstaller;
 
-    SplitSessionInstallerImpl(Context context, SplitInstallSessionManager sessionManager, Executor executor) {
-        this(new SplitInstallerImpl(context), sessionManager, executor);
+    private final PatchFallback patchFallback;
+
+    SplitSessionInstallerImpl(Context context, SplitInstallSessionManager sessionManager, Executor executor,
+                              @Nullable PatchFallback patchFallback) {
+        this(new SplitInstallerImpl(context), sessionManager, executor, patchFallback);
     }
 
-    private SplitSessionInstallerImpl(SplitInstaller splitInstaller, SplitInstallSessionManager sessionManager, Executor executor) {
+    private SplitSessionInstallerImpl(SplitInstaller splitInstaller, SplitInstallSessionManager sessionManager, Executor executor,
+                                      @Nullable PatchFallback patchFallback) {
         this.splitInstaller = splitInstaller;
         this.sessionManager = sessionManager;
         this.executor = executor;
+        this.patchFallback = patchFallback;
     }
 
     @Override
     public void install(int sessionId, List<String> moduleNames, List<SplitInfo> splitInfoList) {
-        executor.execute(new SplitStartInstallTask(sessionId, splitInstaller, sessionManager, moduleNames, splitInfoList));
+        executor.execute(new SplitStartInstallTask(sessionId, splitInstaller, sessionManager, moduleNames, splitInfoList, patchFallback));
     }
 }
@@ -25,8 +25,10 @@
 package com.iqiyi.android.qigsaw.core.splitinstall;
 
 import android.content.Intent;
+import android.support.annotation.Nullable;
 
 import com.iqiyi.android.qigsaw.core.common.SplitConstants;
+import com.iqiyi.android.qigsaw.core.common.SplitLog;
 import com.iqiyi.android.qigsaw.core.splitreport.SplitInstallError;
 import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfo;
 
@@ -36,18 +38,27 @@ import java.util.List;
 
 final class SplitStartInstallTask extends SplitInstallTask {
 
+    private static final String TAG = "Split:SplitStartInstallTask";
+
     private final SplitInstallSessionManager mSessionManager;
 
     private final SplitInstallInternalSessionState mSessionState;
 
+    private final List<SplitInfo> mSplitInfoList;
+
+    private final SplitSessionInstaller.PatchFallback mPatchFallback;
+
     SplitStartInstallTask(int sessionId,
                           SplitInstaller installer,
                           SplitInstallSessionManager sessionManager,
                           List<String> moduleNames,
-                          List<SplitInfo> splitInfoList) {
+                          List<SplitInfo> splitInfoList,
+                          @Nullable SplitSessionInstaller.PatchFallback patchFallback) {
         super(installer, moduleNames, splitInfoList);
         this.mSessionState = sessionManager.getSessionState(sessionId);
         this.mSessionManager = sessionManager;
+        this.mSplitInfoList = splitInfoList;
+        this.mPatchFallback = patchFallback;
     }
 
     @Override
@@ -95,6 +106,13 @@ final class SplitStartInstallTask extends SplitInstallTask {
 
     @Override
     protected void onInstallFailed(List<SplitInstallError> errors, long cost) {
+        if (mPatchFallback != null) {
+            List<SplitInfo> patchFailedSplits = getPatchFailedSplits(errors);
+            if (!patchFailedSplits.isEmpty() && mPatchFallback.onPatchFailed(patchFailedSplits)) {
+                SplitLog.w(TAG, "Failed to apply patches of splits, download full apks of them in session %d", mSessionState.sessionId());
+                return;
+            }
+        }
         mSessionState.setErrorCode(errors.get(0).getErrorCode());
         mSessionManager.changeSessionState(mSessionState.sessionId(), SplitInstallInternalSessionStatus.FAILED);
         emitSessionStatus();
@@ -103,6 +121,21 @@ final class SplitStartInstallTask extends SplitInstallTask {
         }
     }
 
+    private List<SplitInfo> getPatchFailedSplits(List<SplitInstallError> errors) {
+        List<SplitInfo> patchFailedSplits = new ArrayList<>(0);
+        for (SplitInstallError error : errors) {
+            if (error.getErrorCode() != SplitInstallError.APK_PATCH_FAILED) {
+                continue;
+            }
+            for (SplitInfo info : mSplitInfoList) {
+                if (info.getSplitName().equals(error.getModuleName())) {
+                    patchFailedSplits.add(info);
+                }
+            }
+        }
+        return patchFailedSplits;
+    }
+
     private void emitSessionStatus() {
         mSessionManager.emitSessionState(mSessionState);
     }
@@ -0,0 +1,261 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.iqiyi.android.qigsaw.core.splitinstall;
+
+import android.content.Context;
+
+import com.iqiyi.android.qigsaw.core.common.FileUtil;
+import com.iqiyi.android.qigsaw.core.common.SplitConstants;
+import com.iqiyi.android.qigsaw.core.common.SplitLog;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * A small usage model of splits requested by users, it records how often each split is requested
+ * and which split is requested after another one.
+ * <p>
+ * Counts are halved once total requests reach {@link #MAX_TOTAL_REQUESTS}, so that recent usage weighs more
+ * and the model stays small.
+ */
+final class SplitUsageModel {
+
+    private static final String TAG = "Split:SplitUsageModel";
+
+    private static final String MODEL_FILE_NAME = "split_usage.model";
+
+    private static final String KEY_TOTAL = "total";
+
+    private static final String KEY_LAST = "last";
+
+    private static final String KEY_LAST_PREFETCH_TIME = "lastPrefetchTime";
+
+    private static final String PREFIX_COUNT = "count.";
+
+    private static final String PREFIX_NEXT = "next.";
+
+    private static final String PREFIX_PREFETCHED = "prefetched.";
+
+    private static final int MAX_TOTAL_REQUESTS = 256;
+
+    /**
+     * A split whose score is lower than it would not be predicted.
+     */
+    private static final int MIN_SCORE = 2;
+
+    private static final int NEXT_WEIGHT = 2;
+
+    private final File modelFile;
+
+    private final File tmpDir;
+
+    private Properties model;
+
+    SplitUsageModel(Context context) {
+        this(context.getDir(SplitConstants.QIGSAW, Context.MODE_PRIVATE));
+    }
+
+    SplitUsageModel(File rootDir) {
+        this.modelFile = new File(rootDir, MODEL_FILE_NAME);
+        this.tmpDir = rootDir;
+    }
+
+    synchronized void recordRequest(List<String> moduleNames) {
+        Properties model = getModel();
+        String last = model.getProperty(KEY_LAST);
+        for (String moduleName : moduleNames) {
+            increase(model, PREFIX_COUNT + moduleName);
+            if (last != null && !last.equals(moduleName)) {
+                increase(model, PREFIX_NEXT + last + "." + moduleName);
+            }
+            //prefetched split is in use now.
+            model.remove(PREFIX_PREFETCHED + moduleName);
+            last = moduleName;
+        }
+        if (last != null) {
+            model.setProperty(KEY_LAST, last);
+        }
+        int total = getInt(model, KEY_TOTAL) + moduleNames.size();
+        if (total >= MAX_TOTAL_REQUESTS) {
+            decay(model);
+            total = total / 2;
+        }
+        model.setProperty(KEY_TOTAL, String.valueOf(total));
+        writeModel(model);
+    }
+
+    /**
+     * @return splits likely to be requested next, ordered by score.
+     */
+    synchronized List<String> predict() {
+        Properties model = getModel();
+        String last = model.getProperty(KEY_LAST);
+        final Map<String, Integer> scores = new HashMap<>();
+        for (String key : model.stringPropertyNames()) {
+            if (key.startsWith(PREFIX_COUNT)) {
+                String moduleName = key.substring(PREFIX_COUNT.length());
+                int score = getInt(model, key);
+                if (last != null) {
+                    score += NEXT_WEIGHT * getInt(model, PREFIX_NEXT + last + "." + moduleName);
+                }
+                if (score >= MIN_SCORE) {
+                    scores.put(moduleName, score);
+                }
+            }
+        }
+        List<String> moduleNames = new ArrayList<>(scores.keySet());
+        Collections.sort(moduleNames, new Comparator<String>() {
+            @Override
+            public int compare(String o1, String o2) {
+                return scores.get(o2).compareTo(scores.get(o1));
+            }
+        });
+        return moduleNames;
+    }
+
+    /**
+     * @return splits which are prefetched but have not been requested by users yet.
+     */
+    synchronized Set<String> getPrefetchedSplits() {
+        Set<String> prefetchedSplits = new HashSet<>();
+        for (String key : getModel().stringPropertyNames()) {
+            if (key.startsWith(PREFIX_PREFETCHED)) {
+                prefetchedSplits.add(key.substring(PREFIX_PREFETCHED.length()));
+            }
+        }
+        return prefetchedSplits;
+    }
+
+    /**
+     * @param prefetchedSplits all splits which are prefetched and kept on disk, replace previous records.
+     */
+    synchronized void recordPrefetch(Collection<String> prefetchedSplits, long time) {
+        Properties model = getModel();
+        for (String key : model.stringPropertyNames()) {
+            if (key.startsWith(PREFIX_PREFETCHED)) {
+                model.remove(key);
+            }
+        }
+        for (String moduleName : prefetchedSplits) {
+            model.setProperty(PREFIX_PREFETCHED + moduleName, Boolean.TRUE.toString());
+        }
+        model.setProperty(KEY_LAST_PREFETCH_TIME, String.valueOf(time));
+        writeModel(model);
+    }
+
+    synchronized long getLastPrefetchTime() {
+        return getLong(getModel(), KEY_LAST_PREFETCH_TIME);
+    }
+
+    private static void decay(Properties model) {
+        for (String key : model.stringPropertyNames()) {
+            if (key.startsWith(PREFIX_COUNT) || key.startsWith(PREFIX_NEXT)) {
+                int value = getInt(model, key) / 2;
+                if (value > 0) {
+                    model.setProperty(key, String.valueOf(value));
+                } else {
+                    model.remove(key);
+                }
+            }
+        }
+    }
+
+    private static void increase(Properties model, String key) {
+        model.setProperty(key, String.valueOf(getInt(model, key) + 1));
+    }
+
+    private static int getInt(Properties model, String key) {
+        return (int) getLong(model, key);
+    }
+
+    private static long getLong(Properties model, String key) {
+        String value = model.getProperty(key);
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private Properties getModel() {
+        if (model == null) {
+            model = readModel();
+        }
+        return model;
+    }
+
+    private Properties readModel() {
+        Properties model = new Properties();
+        if (!modelFile.exists()) {
+            return model;
+        }
+        FileInputStream is = null;
+        try {
+            is = new FileInputStream(modelFile);
+            model.load(is);
+        } catch (IOException | IllegalArgumentException e) {
+            SplitLog.w(TAG, "Failed to read split usage model, start a new one");
+            model.clear();
+        } finally {
+            FileUtil.closeQuietly(is);
+        }
+        return model;
+    }
+
+    private void writeModel(Properties model) {
+        FileOutputStream os = null;
+        File tmp = null;
+        try {
+            tmp = File.createTempFile("tmp-", MODEL_FILE_NAME, tmpDir);
+            os = new FileOutputStream(tmp);
+            model.store(os, null);
+            FileUtil.closeQuietly(os);
+            os = null;
+            if (!tmp.renameTo(modelFile)) {
+                SplitLog.w(TAG, "Failed to rename \"" + tmp.getAbsolutePath() + "\" to \"" + modelFile.getAbsolutePath() + "\"");
+            }
+        } catch (IOException e) {
+            SplitLog.w(TAG, "Failed to write split usage model");
+        } finally {
+            FileUtil.closeQuietly(os);
+            FileUtil.safeDeleteFile(tmp);
+        }
+    }
+}
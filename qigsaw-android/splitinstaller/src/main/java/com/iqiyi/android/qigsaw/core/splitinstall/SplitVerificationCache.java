@@ -0,0 +1,307 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.iqiyi.android.qigsaw.core.splitinstall;
+
+import android.content.Context;
+import android.os.Build;
+import android.system.Os;
+
+import com.iqiyi.android.qigsaw.core.common.FileUtil;
+import com.iqiyi.android.qigsaw.core.common.SplitConstants;
+import com.iqiyi.android.qigsaw.core.common.SplitLog;
+import com.iqiyi.android.qigsaw.core.splitdownload.DownloadRequest;
+import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfo;
+import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitPathManager;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Record verification results of split apk, so that md5 and signature of an unchanged apk
+ * are not computed again. A record is keyed by path, size, last modified time, inode and expected md5,
+ * it is dropped once any of them is changed.
+ * <p>
+ * A verified signature also records certificates of all signers and digest of sampled chunks,
+ * re-verification checks signers still include every app certificate and sampled chunks are unchanged.
+ */
+final class SplitVerificationCache {
+
+    private static final String TAG = "Split:VerificationCache";
+
+    private static final String CACHE_FILE_NAME = "verification.cache";
+
+    private static final String KEY_PATH = "path";
+
+    private static final String KEY_SIZE = "size";
+
+    private static final String KEY_MODIFIED_TIME = "mtime";
+
+    private static final String KEY_INODE = "inode";
+
+    private static final String KEY_MD5 = "md5";
+
+    private static final String KEY_MD5_VERIFIED = "md5Verified";
+
+    private static final String KEY_SIGNATURE_VERIFIED = "signatureVerified";
+
+    private static final String KEY_SIGNER_DIGESTS = "signerDigests";
+
+    private static final String KEY_SAMPLE_DIGEST = "sampleDigest";
+
+    private static final int SAMPLE_COUNT = 8;
+
+    private static final int SAMPLE_SIZE = 4096;
+
+    private static final Object sLock = new Object();
+
+    private SplitVerificationCache() {
+
+    }
+
+    static boolean isMd5Verified(SplitInfo info, File splitApk) {
+        return isVerified(info, splitApk, KEY_MD5_VERIFIED);
+    }
+
+    static void markMd5Verified(SplitInfo info, File splitApk) {
+        markVerified(info, splitApk, KEY_MD5_VERIFIED);
+    }
+
+    /**
+     * Record md5 of split apk which has been verified by downloader while writing it.
+     * <p>
+     * Md5 of request is created from the same split info, so comparing them only makes sure the request
+     * belongs to current split info. Downloader is trusted to have hashed exactly the bytes it wrote,
+     * this record only skips md5 check of installing, signature of split apk is still verified before it is loaded.
+     */
+    static void markDownloadVerified(List<SplitInfo> splitInfoList, DownloadRequest request) {
+        for (SplitInfo info : splitInfoList) {
+            if (info.getSplitName().equals(request.getModuleName())) {
+                File splitApk = new File(request.getFileDir(), request.getFileName());
+                if (info.getMd5().equals(request.getMd5())
+                        && splitApk.getName().equals(info.getSplitName() + SplitConstants.DOT_APK)
+                        && splitApk.length() == info.getSize()) {
+                    markMd5Verified(info, splitApk);
+                }
+                return;
+            }
+        }
+    }
+
+    static boolean isSignatureVerified(Context context, SplitInfo info, File splitApk) {
+        synchronized (sLock) {
+            Properties record = readMatchedRecord(info, splitApk);
+            if (record == null || !Boolean.parseBoolean(record.getProperty(KEY_SIGNATURE_VERIFIED))) {
+                return false;
+            }
+            String signerDigests = record.getProperty(KEY_SIGNER_DIGESTS);
+            if (signerDigests == null
+                    || !SignatureValidator.isSignedByApp(context, Arrays.asList(signerDigests.split(",")))) {
+                SplitLog.i(TAG, "Split %s is not signed by all app certificates", info.getSplitName());
+                return false;
+            }
+            String sampleDigest = getSampleDigest(splitApk);
+            if (sampleDigest == null || !sampleDigest.equals(record.getProperty(KEY_SAMPLE_DIGEST))) {
+                SplitLog.i(TAG, "Split %s apk content is changed, verification record is stale", info.getSplitName());
+                FileUtil.safeDeleteFile(getCacheFile(info));
+                return false;
+            }
+            return true;
+        }
+    }
+
+    static void markSignatureVerified(SplitInfo info, File splitApk, SignatureValidator.SplitSignature signature) {
+        String sampleDigest = getSampleDigest(splitApk);
+        if (sampleDigest == null || signature.signerDigests == null || signature.signerDigests.isEmpty()) {
+            return;
+        }
+        StringBuilder signerDigests = new StringBuilder();
+        for (String signerDigest : signature.signerDigests) {
+            if (signerDigests.length() > 0) {
+                signerDigests.append(',');
+            }
+            signerDigests.append(signerDigest);
+        }
+        Properties values = new Properties();
+        values.setProperty(KEY_SIGNATURE_VERIFIED, Boolean.TRUE.toString());
+        values.setProperty(KEY_SIGNER_DIGESTS, signerDigests.toString());
+        values.setProperty(KEY_SAMPLE_DIGEST, sampleDigest);
+        markVerified(info, splitApk, values);
+    }
+
+    static void invalidate(SplitInfo info) {
+        synchronized (sLock) {
+            FileUtil.safeDeleteFile(getCacheFile(info));
+        }
+    }
+
+    private static boolean isVerified(SplitInfo info, File splitApk, String key) {
+        synchronized (sLock) {
+            Properties record = readMatchedRecord(info, splitApk);
+            return record != null && Boolean.parseBoolean(record.getProperty(key));
+        }
+    }
+
+    private static Properties readMatchedRecord(SplitInfo info, File splitApk) {
+        Properties record = readRecord(info);
+        if (record == null) {
+            return null;
+        }
+        if (!isRecordMatched(record, info, splitApk)) {
+            SplitLog.i(TAG, "Split %s apk is changed, verification record is stale", info.getSplitName());
+            FileUtil.safeDeleteFile(getCacheFile(info));
+            return null;
+        }
+        return record;
+    }
+
+    private static void markVerified(SplitInfo info, File splitApk, String key) {
+        Properties values = new Properties();
+        values.setProperty(key, Boolean.TRUE.toString());
+        markVerified(info, splitApk, values);
+    }
+
+    private static void markVerified(SplitInfo info, File splitApk, Properties values) {
+        synchronized (sLock) {
+            Properties record = readRecord(info);
+            if (record == null || !isRecordMatched(record, info, splitApk)) {
+                record = new Properties();
+                record.setProperty(KEY_PATH, splitApk.getAbsolutePath());
+                record.setProperty(KEY_SIZE, String.valueOf(splitApk.length()));
+                record.setProperty(KEY_MODIFIED_TIME, String.valueOf(splitApk.lastModified()));
+                record.setProperty(KEY_INODE, String.valueOf(getInode(splitApk)));
+                record.setProperty(KEY_MD5, info.getMd5());
+            }
+            record.putAll(values);
+            writeRecord(info, record);
+        }
+    }
+
+    private static boolean isRecordMatched(Properties record, SplitInfo info, File splitApk) {
+        return splitApk.getAbsolutePath().equals(record.getProperty(KEY_PATH))
+                && String.valueOf(splitApk.length()).equals(record.getProperty(KEY_SIZE))
+                && String.valueOf(splitApk.lastModified()).equals(record.getProperty(KEY_MODIFIED_TIME))
+                && String.valueOf(getInode(splitApk)).equals(record.getProperty(KEY_INODE))
+                && info.getMd5().equals(record.getProperty(KEY_MD5));
+    }
+
+    private static Properties readRecord(SplitInfo info) {
+        File cacheFile = getCacheFile(info);
+        if (!cacheFile.exists()) {
+            return null;
+        }
+        FileInputStream is = null;
+        try {
+            is = new FileInputStream(cacheFile);
+            Properties record = new Properties();
+            record.load(is);
+            return record;
+        } catch (IOException e) {
+            SplitLog.w(TAG, "Failed to read verification record of split %s", info.getSplitName());
+            return null;
+        } finally {
+            FileUtil.closeQuietly(is);
+        }
+    }
+
+    private static void writeRecord(SplitInfo info, Properties record) {
+        File cacheFile = getCacheFile(info);
+        FileOutputStream os = null;
+        File tmp = null;
+        try {
+            tmp = File.createTempFile("tmp-" + info.getSplitName(), CACHE_FILE_NAME, SplitPathManager.require().getSplitTmpDir());
+            os = new FileOutputStream(tmp);
+            record.store(os, null);
+            FileUtil.closeQuietly(os);
+            os = null;
+            if (!tmp.renameTo(cacheFile)) {
+                SplitLog.w(TAG, "Failed to rename \"" + tmp.getAbsolutePath() + "\" to \"" + cacheFile.getAbsolutePath() + "\"");
+            }
+        } catch (IOException e) {
+            SplitLog.w(TAG, "Failed to write verification record of split %s", info.getSplitName());
+        } finally {
+            FileUtil.closeQuietly(os);
+            FileUtil.safeDeleteFile(tmp);
+        }
+    }
+
+    private static File getCacheFile(SplitInfo info) {
+        return new File(SplitPathManager.require().getSplitRootDir(info), CACHE_FILE_NAME);
+    }
+
+    /**
+     * Digest a few chunks evenly spaced over apk, including its head and tail,
+     * so that re-verification is not required to read whole apk.
+     */
+    private static String getSampleDigest(File splitApk) {
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(splitApk, "r");
+            FileChannel channel = file.getChannel();
+            long length = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(SAMPLE_SIZE, length));
+            long lastPosition = length - buffer.capacity();
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (int i = 0; i < SAMPLE_COUNT; i++) {
+                long position = lastPosition * i / (SAMPLE_COUNT - 1);
+                buffer.clear();
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, position + buffer.position()) < 0) {
+                        throw new EOFException("Unexpected end of " + splitApk.getName());
+                    }
+                }
+                buffer.flip();
+                digest.update(buffer);
+            }
+            return SignatureValidator.toHex(digest.digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            SplitLog.w(TAG, "Failed to digest sampled chunks of " + splitApk.getName(), e);
+            return null;
+        } finally {
+            FileUtil.closeQuietly(file);
+        }
+    }
+
+    private static long getInode(File file) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            try {
+                return Os.stat(file.getAbsolutePath()).st_ino;
+            } catch (Throwable ignored) {
+
+            }
+        }
+        return 0L;
+    }
+}
@@ -27,12 +27,15 @@ package com.iqiyi.android.qigsaw.core.splitinstall;
 
 import android.content.Context;
 
+import com.iqiyi.android.qigsaw.core.common.SplitBackgroundExecutor;
+import com.iqiyi.android.qigsaw.core.common.SplitConstants;
 import com.iqiyi.android.qigsaw.core.splitdownload.DownloadCallback;
+import com.iqiyi.android.qigsaw.core.splitdownload.DownloadRequest;
 import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfo;
 
 import java.util.List;
 
-final class StartDownloadCallback implements DownloadCallback {
+final class StartDownloadCallback implements DownloadCallback, SplitSessionInstaller.PatchFallback {
 
     private final SplitInstallInternalSessionState sessionState;
 
@@ -46,14 +49,18 @@ final class StartDownloadCallback implements DownloadCallback {
 
     private final SplitSessionInstaller installer;
 
+    private final SplitInstallSessionScheduler sessionScheduler;
+
     StartDownloadCallback(Context context,
                           int sessionId,
                           SplitInstallSessionManager sessionManager,
+                          SplitInstallSessionScheduler sessionScheduler,
                           List<String> moduleNames,
                           List<SplitInfo> splitInfoList) {
         this.sessionId = sessionId;
         this.sessionManager = sessionManager;
-        this.installer = new SplitSessionInstallerImpl(context, sessionManager, SplitBackgroundExecutor.getExecutor());
+        this.sessionScheduler = sessionScheduler;
+        this.installer = new SplitSessionInstallerImpl(context, sessionManager, SplitBackgroundExecutor.getExecutor(), this);
         this.moduleNames = moduleNames;
         this.splitInfoList = splitInfoList;
         this.sessionState = sessionManager.getSessionState(sessionId);
@@ -91,6 +98,11 @@ final class StartDownloadCallback implements DownloadCallback {
         onInstall();
     }
 
+    @Override
+    public void onVerified(DownloadRequest request) {
+        SplitVerificationCache.markDownloadVerified(splitInfoList, request);
+    }
+
     @Override
     public void onError(int errorCode) {
         sessionState.setErrorCode(SplitInstallInternalErrorCode.DOWNLOAD_FAILED);
@@ -98,6 +110,28 @@ final class StartDownloadCallback implements DownloadCallback {
         broadcastSessionStatusChange();
     }
 
+    /**
+     * Patch failed marks are created by installer, so requests of these splits point to full apks now.
+     */
+    @Override
+    public boolean onPatchFailed(List<SplitInfo> patchFailedSplits) {
+        List<DownloadRequest> requests = SplitInstallSupervisorImpl.createDownloadRequests(patchFailedSplits);
+        long totalBytesToDownload = 0L;
+        for (DownloadRequest request : requests) {
+            //if failed mark is not created, patch would be downloaded again.
+            if (!request.getFileName().endsWith(SplitConstants.DOT_APK)) {
+                return false;
+            }
+            totalBytesToDownload = totalBytesToDownload + request.getSize();
+        }
+        sessionState.setTotalBytesToDownload(totalBytesToDownload);
+        sessionState.setBytesDownloaded(0L);
+        sessionManager.changeSessionState(sessionId, SplitInstallInternalSessionStatus.PENDING);
+        broadcastSessionStatusChange();
+        sessionScheduler.startDownload(sessionId, requests, this);
+        return true;
+    }
+
     private void onInstall() {
         installer.install(sessionId, moduleNames, splitInfoList);
     }
@@ -2,11 +2,14 @@ package com.split.signature;
 
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 
 interface A {
     long a();
 
-    void a(MessageDigest[] var1, long var2, int var4) throws IOException;
+    /**
+     * @param var5 buffer of caller which chunk may be read into, its capacity is at least {@code var4}.
+     */
+    void a(MessageDigest[] var1, long var2, int var4, ByteBuffer var5) throws IOException;
 }
-
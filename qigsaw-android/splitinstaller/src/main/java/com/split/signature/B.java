@@ -1,9 +1,9 @@
 package com.split.signature;
 
+import java.io.EOFException;
 import java.io.IOException;
-import java.nio.MappedByteBuffer;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
-import java.nio.channels.FileChannel.MapMode;
 import java.security.MessageDigest;
 
 final class B implements A {
@@ -21,18 +21,21 @@ final class B implements A {
         return this.c;
     }
 
-    public void a(MessageDigest[] var1, long var2, int var4) throws IOException {
+    /**
+     * Chunk is read by positional reads into buffer of digest worker, instead of mapping every chunk.
+     */
+    public void a(MessageDigest[] var1, long var2, int var4, ByteBuffer var7) throws IOException {
         long var5 = this.b + var2;
-        MappedByteBuffer var7;
-        (var7 = this.a.map(MapMode.READ_ONLY, var5, (long) var4)).load();
-        MessageDigest[] var8 = var1;
-        int var9 = var1.length;
-
-        for (int var10 = 0; var10 < var9; ++var10) {
-            MessageDigest var11 = var8[var10];
-            var7.position(0);
+        var7.clear();
+        var7.limit(var4);
+        while (var7.hasRemaining()) {
+            if (this.a.read(var7, var5 + var7.position()) < 0) {
+                throw new EOFException("Unexpected end of file while reading chunk at " + var5);
+            }
+        }
+        for (MessageDigest var11 : var1) {
+            var7.flip();
             var11.update(var7);
         }
-
     }
 }
@@ -2,6 +2,8 @@ package com.split.signature;
 
 import android.util.Pair;
 
+import com.iqiyi.android.qigsaw.core.common.SplitWorkerExecutor;
+
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
@@ -32,6 +34,8 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 public class G implements A {
     private final ByteBuffer a;
@@ -390,69 +394,12 @@ public class G implements A {
                 var30[var6] = var9;
             }
 
-            byte[] var31;
-            (var31 = new byte[5])[0] = -91;
-            int var32 = 0;
-            MessageDigest[] var33 = new MessageDigest[var0.length];
-
-            int var34;
-            for (var34 = 0; var34 < var0.length; ++var34) {
-                String var10 = c(var0[var34]);
-
-                try {
-                    var33[var34] = MessageDigest.getInstance(var10);
-                } catch (NoSuchAlgorithmException var28) {
-                    throw new RuntimeException(var10.concat(" digest not supported"), var28);
-                }
-            }
-
-            var34 = 0;
-            A[] var35 = var1;
-            int var11 = var1.length;
-
-            int var12;
-            for (var12 = 0; var12 < var11; ++var12) {
-                A var13 = var35[var12];
-                long var14 = 0L;
-
-                for (long var16 = var13.a(); var16 > 0L; ++var32) {
-                    int var18;
-                    a(var18 = (int) Math.min(var16, 1048576L), var31, 1);
-
-                    int var19;
-                    for (var19 = 0; var19 < var33.length; ++var19) {
-                        var33[var19].update(var31);
-                    }
-
-                    try {
-                        var13.a(var33, var14, var18);
-                    } catch (IOException var27) {
-                        throw new DigestException((new StringBuilder(59)).append("Failed to digest chunk #").append(var32).append(" of section #").append(var34).toString(), var27);
-                    }
-
-                    for (var19 = 0; var19 < var0.length; ++var19) {
-                        int var20 = var0[var19];
-                        byte[] var21 = var30[var19];
-                        int var22 = d(var20);
-                        MessageDigest var23;
-                        int var24;
-                        if ((var24 = (var23 = var33[var19]).digest(var21, 5 + var32 * var22, var22)) != var22) {
-                            String var25 = var23.getAlgorithm();
-                            throw new RuntimeException((new StringBuilder(46 + String.valueOf(var25).length())).append("Unexpected output size of ").append(var25).append(" digest: ").append(var24).toString());
-                        }
-                    }
-
-                    var14 += (long) var18;
-                    var16 -= (long) var18;
-                }
-
-                ++var34;
-            }
+            a(var0, var1, var29, var30);
 
             byte[][] var36 = new byte[var0.length][];
 
-            for (var11 = 0; var11 < var0.length; ++var11) {
-                var12 = var0[var11];
+            for (int var11 = 0; var11 < var0.length; ++var11) {
+                int var12 = var0[var11];
                 byte[] var37 = var30[var11];
                 String var38 = c(var12);
 
@@ -471,6 +418,99 @@ public class G implements A {
         }
     }
 
+    /**
+     * Digest chunks of all sections into {@code output}, chunks are split into contiguous ranges
+     * and digested concurrently on {@link SplitWorkerExecutor}, every worker has its own digests and chunk buffer,
+     * which is dropped once its range is digested.
+     */
+    private static void a(final int[] algorithms, final A[] sections, int chunkCount, final byte[][] output) throws DigestException {
+        int workerCount = Math.min(chunkCount, SplitWorkerExecutor.getMaxWorkerCount());
+        if (workerCount <= 1) {
+            a(algorithms, sections, 0, chunkCount, output);
+            return;
+        }
+        int chunksPerWorker = (chunkCount + workerCount - 1) / workerCount;
+        List<Callable<Void>> tasks = new ArrayList<>(workerCount);
+        for (int start = 0; start < chunkCount; start += chunksPerWorker) {
+            final int startChunk = start;
+            final int endChunk = Math.min(chunkCount, start + chunksPerWorker);
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws DigestException {
+                    a(algorithms, sections, startChunk, endChunk, output);
+                    return null;
+                }
+            });
+        }
+        try {
+            SplitWorkerExecutor.invokeAll(tasks);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw cause instanceof DigestException ? (DigestException) cause : new DigestException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DigestException(e);
+        }
+    }
+
+    private static void a(int[] algorithms, A[] sections, int startChunk, int endChunk, byte[][] output) throws DigestException {
+        MessageDigest[] digests = new MessageDigest[algorithms.length];
+        for (int i = 0; i < algorithms.length; ++i) {
+            String algorithm = c(algorithms[i]);
+            try {
+                digests[i] = MessageDigest.getInstance(algorithm);
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(algorithm.concat(" digest not supported"), e);
+            }
+        }
+        byte[] chunkPrefix = new byte[5];
+        chunkPrefix[0] = -91;
+        ByteBuffer chunkBuffer = null;
+        int chunkIndex = 0;
+        for (int sectionIndex = 0; sectionIndex < sections.length && chunkIndex < endChunk; ++sectionIndex) {
+            A section = sections[sectionIndex];
+            long sectionSize = section.a();
+            long sectionChunkCount = a(sectionSize);
+            if (chunkIndex + sectionChunkCount <= startChunk) {
+                chunkIndex += (int) sectionChunkCount;
+                continue;
+            }
+            long offset = 0L;
+            if (chunkIndex < startChunk) {
+                offset = (long) (startChunk - chunkIndex) * 1048576L;
+                chunkIndex = startChunk;
+            }
+            while (offset < sectionSize && chunkIndex < endChunk) {
+                int chunkSize = (int) Math.min(sectionSize - offset, 1048576L);
+                a(chunkSize, chunkPrefix, 1);
+                for (MessageDigest digest : digests) {
+                    digest.update(chunkPrefix);
+                }
+                if (chunkBuffer == null || chunkBuffer.capacity() < chunkSize) {
+                    chunkBuffer = ByteBuffer.allocate(chunkSize);
+                }
+                try {
+                    section.a(digests, offset, chunkSize, chunkBuffer);
+                } catch (IOException e) {
+                    throw new DigestException((new StringBuilder(59)).append("Failed to digest chunk #").append(chunkIndex).append(" of section #").append(sectionIndex).toString(), e);
+                }
+                for (int i = 0; i < algorithms.length; ++i) {
+                    int digestSize = d(algorithms[i]);
+                    int written;
+                    if ((written = digests[i].digest(output[i], 5 + chunkIndex * digestSize, digestSize)) != digestSize) {
+                        String name = digests[i].getAlgorithm();
+                        throw new RuntimeException((new StringBuilder(46 + String.valueOf(name).length())).append("Unexpected output size of ").append(name).append(" digest: ").append(written).toString());
+                    }
+                }
+                offset += chunkSize;
+                ++chunkIndex;
+            }
+        }
+    }
+
     private static Pair<ByteBuffer, Long> c(RandomAccessFile var0) throws IOException, D {
         Pair var1;
         Pair var7;
@@ -806,7 +846,7 @@ public class G implements A {
         return (long) this.a.capacity();
     }
 
-    public void a(MessageDigest[] var1, long var2, int var4) {
+    public void a(MessageDigest[] var1, long var2, int var4, ByteBuffer var12) {
         ByteBuffer var6 = this.a;
         ByteBuffer var5;
         synchronized (this.a) {
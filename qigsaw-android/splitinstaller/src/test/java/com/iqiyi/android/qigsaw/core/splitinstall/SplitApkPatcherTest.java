@@ -0,0 +1,151 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.iqiyi.android.qigsaw.core.splitinstall;
+
+import com.iqiyi.android.qigsaw.core.common.FileUtil;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Apply binary patch created by qigsaw-gradle-plugin, see generateTestSplitPatches of build.gradle.
+ */
+public class SplitApkPatcherTest {
+
+    private File oldSplitApk;
+
+    private File newSplitApk;
+
+    private byte[] patch;
+
+    private File workDir;
+
+    @Before
+    public void setUp() throws IOException {
+        File splitPatchDir = new File(System.getProperty("qigsaw.splitPatchDir", "build/generated/test/splitPatches"));
+        oldSplitApk = new File(splitPatchDir, "java_old.zip");
+        newSplitApk = new File(splitPatchDir, "java.apk");
+        File patchFile = new File(splitPatchDir, "java.patch");
+        assertTrue(patchFile.getAbsolutePath() + " is not generated", patchFile.exists());
+        patch = readBytes(patchFile);
+        workDir = File.createTempFile("SplitApkPatcherTest", "");
+        assertTrue(workDir.delete() && workDir.mkdirs());
+    }
+
+    @After
+    public void tearDown() {
+        FileUtil.deleteDir(workDir);
+    }
+
+    @Test
+    public void reconstructNewApk() throws IOException {
+        assertTrue(patch.length < newSplitApk.length() / 2);
+        File apk = new File(workDir, "java.apk");
+        SplitApkPatcher.patch(oldSplitApk, writePatch(patch, patch.length), apk);
+        assertEquals(FileUtil.getMD5(newSplitApk), FileUtil.getMD5(apk));
+    }
+
+    @Test
+    public void rejectTruncatedPatch() {
+        File apk = new File(workDir, "java.apk");
+        for (int length = 0; length < patch.length; length++) {
+            try {
+                SplitApkPatcher.patch(oldSplitApk, writePatch(patch, length), apk);
+                fail("Patch truncated to " + length + " bytes is applied");
+            } catch (IOException e) {
+                //expected
+            }
+        }
+    }
+
+    @Test
+    public void rejectCorruptedPatch() throws IOException {
+        String expectedMd5 = FileUtil.getMD5(newSplitApk);
+        File apk = new File(workDir, "java.apk");
+        for (int offset = 0; offset < patch.length; offset++) {
+            byte[] corrupted = patch.clone();
+            corrupted[offset] ^= 0x5a;
+            File patchFile = writePatch(corrupted, corrupted.length);
+            try {
+                SplitApkPatcher.patch(oldSplitApk, patchFile, apk);
+            } catch (IOException e) {
+                continue;
+            }
+            //installer checks md5 of reconstructed apk at last.
+            assertNotEquals("Patch corrupted at " + offset + " is applied", expectedMd5, FileUtil.getMD5(apk));
+        }
+    }
+
+    @Test
+    public void rejectPatchOfOtherApk() throws IOException {
+        File otherApk = new File(workDir, "other.apk");
+        FileOutputStream os = new FileOutputStream(otherApk);
+        try {
+            os.write(new byte[(int) (oldSplitApk.length() / 2)]);
+        } finally {
+            os.close();
+        }
+        try {
+            SplitApkPatcher.patch(otherApk, writePatch(patch, patch.length), new File(workDir, "java.apk"));
+            fail("Patch is applied to apk shorter than its base");
+        } catch (IOException e) {
+            //expected
+        }
+    }
+
+    private File writePatch(byte[] bytes, int length) throws IOException {
+        File patchFile = new File(workDir, "java.patch");
+        FileOutputStream os = new FileOutputStream(patchFile);
+        try {
+            os.write(bytes, 0, length);
+        } finally {
+            os.close();
+        }
+        return patchFile;
+    }
+
+    private static byte[] readBytes(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            byte[] bytes = new byte[(int) raf.length()];
+            raf.readFully(bytes);
+            return bytes;
+        } finally {
+            raf.close();
+        }
+    }
+}
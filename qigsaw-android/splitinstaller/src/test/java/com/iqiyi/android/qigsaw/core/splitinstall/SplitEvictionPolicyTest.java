@@ -0,0 +1,91 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.iqiyi.android.qigsaw.core.splitinstall;
+
+import com.iqiyi.android.qigsaw.core.common.SplitConstants;
+import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfoFactory;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class SplitEvictionPolicyTest {
+
+    @Test
+    public void lruEvictsLeastRecentlyLoadedFirst() {
+        List<SplitCacheEvictor.SplitVersion> versions = Arrays.asList(
+                version("a", 100, 3000),
+                version("b", 300, 1000),
+                version("c", 200, 2000));
+        assertEquals(Arrays.asList("b", "c", "a"), evictionOrder(SplitEvictionPolicy.LRU, versions));
+    }
+
+    @Test
+    public void sizeEvictsLargestFirst() {
+        List<SplitCacheEvictor.SplitVersion> versions = Arrays.asList(
+                version("a", 100, 3000),
+                version("b", 300, 1000),
+                version("c", 200, 2000));
+        assertEquals(Arrays.asList("b", "c", "a"), evictionOrder(SplitEvictionPolicy.SIZE, versions));
+    }
+
+    @Test
+    public void sizeEvictsLeastRecentlyLoadedOfSameSizeFirst() {
+        List<SplitCacheEvictor.SplitVersion> versions = Arrays.asList(
+                version("a", 100, 3000),
+                version("b", 100, 1000),
+                version("c", 200, 2000));
+        assertEquals(Arrays.asList("c", "b", "a"), evictionOrder(SplitEvictionPolicy.SIZE, versions));
+    }
+
+    @Test
+    public void unknownPolicyFallsBackToLru() {
+        assertSame(SplitEvictionPolicy.SIZE, SplitEvictionPolicy.valueOf(SplitConstants.EVICTION_POLICY_SIZE));
+        assertSame(SplitEvictionPolicy.LRU, SplitEvictionPolicy.valueOf(SplitConstants.EVICTION_POLICY_LRU));
+        assertSame(SplitEvictionPolicy.LRU, SplitEvictionPolicy.valueOf(0));
+    }
+
+    private static SplitCacheEvictor.SplitVersion version(String splitName, long footprint, long lastLoadTime) {
+        return new SplitCacheEvictor.SplitVersion(SplitInfoFactory.create(splitName),
+                new File(splitName), footprint, lastLoadTime);
+    }
+
+    private static List<String> evictionOrder(SplitEvictionPolicy policy, List<SplitCacheEvictor.SplitVersion> versions) {
+        List<SplitCacheEvictor.SplitVersion> sorted = new ArrayList<>(versions);
+        Collections.sort(sorted, policy);
+        List<String> splitNames = new ArrayList<>(sorted.size());
+        for (SplitCacheEvictor.SplitVersion version : sorted) {
+            splitNames.add(version.info.getSplitName());
+        }
+        return splitNames;
+    }
+}
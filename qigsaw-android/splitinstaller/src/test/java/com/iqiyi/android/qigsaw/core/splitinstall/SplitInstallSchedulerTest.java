@@ -0,0 +1,235 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.iqiyi.android.qigsaw.core.splitinstall;
+
+import com.iqiyi.android.qigsaw.core.splitreport.SplitInstallError;
+import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfo;
+import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfoFactory;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SplitInstallSchedulerTest {
+
+    @Test
+    public void installDependenciesBeforeDependents() {
+        RecordingInstaller installer = new RecordingInstaller();
+        SplitInstallScheduler scheduler = new SplitInstallScheduler(installer, Arrays.asList(
+                SplitInfoFactory.create("c", "b"),
+                SplitInfoFactory.create("b", "a"),
+                SplitInfoFactory.create("d"),
+                SplitInfoFactory.create("a")), false);
+
+        assertTrue(scheduler.schedule());
+        assertTrue(installer.finishedBefore("a", "b"));
+        assertTrue(installer.finishedBefore("b", "c"));
+        assertEquals(4, installer.finished.size());
+        assertEquals(Arrays.asList("c", "b", "d", "a"), resultNames(scheduler));
+    }
+
+    @Test
+    public void dependenciesOutOfSessionAreIgnored() {
+        RecordingInstaller installer = new RecordingInstaller();
+        SplitInstallScheduler scheduler = new SplitInstallScheduler(installer, Arrays.asList(
+                SplitInfoFactory.create("a", "installed"),
+                SplitInfoFactory.create("b", "a")), false);
+
+        assertTrue(scheduler.schedule());
+        assertEquals(Arrays.asList("a", "b"), installer.finished);
+    }
+
+    @Test
+    public void circularDependenciesFallBackToRequestedOrder() {
+        RecordingInstaller installer = new RecordingInstaller();
+        SplitInstallScheduler scheduler = new SplitInstallScheduler(installer, Arrays.asList(
+                SplitInfoFactory.create("x"),
+                SplitInfoFactory.create("a", "b"),
+                SplitInfoFactory.create("b", "a"),
+                SplitInfoFactory.create("c", "b")), false);
+
+        assertTrue(scheduler.schedule());
+        assertEquals(4, installer.finished.size());
+        assertTrue(installer.finishedBefore("a", "b"));
+        assertTrue(installer.finishedBefore("b", "c"));
+    }
+
+    @Test
+    public void independentSplitsAreInstalledConcurrently() {
+        Assume.assumeTrue(Runtime.getRuntime().availableProcessors() > 1);
+        final CountDownLatch bothStarted = new CountDownLatch(2);
+        RecordingInstaller installer = new RecordingInstaller() {
+            @Override
+            void onInstall(String splitName) throws InstallException {
+                bothStarted.countDown();
+                try {
+                    if (!bothStarted.await(5, TimeUnit.SECONDS)) {
+                        throw new InstallException(SplitInstallError.DEX_OPT_FAILED, new Exception("Splits are installed serially"));
+                    }
+                } catch (InterruptedException e) {
+                    throw new InstallException(SplitInstallError.DEX_OPT_FAILED, e);
+                }
+            }
+        };
+        SplitInstallScheduler scheduler = new SplitInstallScheduler(installer, Arrays.asList(
+                SplitInfoFactory.create("a"),
+                SplitInfoFactory.create("b")), false);
+
+        assertTrue(scheduler.schedule());
+    }
+
+    @Test
+    public void failedSplitSkipsDependentsWhenIgnoringErrors() {
+        RecordingInstaller installer = new RecordingInstaller();
+        installer.failingSplits.add("a");
+        SplitInstallScheduler scheduler = new SplitInstallScheduler(installer, Arrays.asList(
+                SplitInfoFactory.create("a"),
+                SplitInfoFactory.create("b", "a"),
+                SplitInfoFactory.create("c", "b"),
+                SplitInfoFactory.create("d")), true);
+
+        assertFalse(scheduler.schedule());
+        assertEquals(new HashSet<>(Arrays.asList("a", "d")), new HashSet<>(installer.started));
+        assertEquals(Collections.singletonList("d"), resultNames(scheduler));
+        List<SplitInstallError> errors = scheduler.getInstallErrors();
+        assertEquals(3, errors.size());
+        assertEquals(SplitInstallError.DEX_OPT_FAILED, findError(errors, "a").getErrorCode());
+        assertEquals(SplitInstallError.DEPENDENCIES_NOT_INSTALLED, findError(errors, "b").getErrorCode());
+        assertEquals(SplitInstallError.DEPENDENCIES_NOT_INSTALLED, findError(errors, "c").getErrorCode());
+    }
+
+    @Test
+    public void failedSplitAbortsSession() {
+        RecordingInstaller installer = new RecordingInstaller();
+        installer.failingSplits.add("a");
+        SplitInstallScheduler scheduler = new SplitInstallScheduler(installer, Arrays.asList(
+                SplitInfoFactory.create("a"),
+                SplitInfoFactory.create("b", "a")), false);
+
+        assertFalse(scheduler.schedule());
+        assertEquals(Collections.singletonList("a"), installer.started);
+        assertEquals(1, scheduler.getInstallErrors().size());
+        assertTrue(scheduler.getInstallResults().isEmpty());
+    }
+
+    private static List<String> resultNames(SplitInstallScheduler scheduler) {
+        List<String> names = new ArrayList<>();
+        for (SplitInstaller.InstallResult result : scheduler.getInstallResults()) {
+            names.add(result.splitName);
+        }
+        return names;
+    }
+
+    private static SplitInstallError findError(List<SplitInstallError> errors, String splitName) {
+        for (SplitInstallError error : errors) {
+            if (error.getModuleName().equals(splitName)) {
+                return error;
+            }
+        }
+        throw new AssertionError("No error of split " + splitName);
+    }
+
+    private static class RecordingInstaller extends SplitInstaller {
+
+        final List<String> started = Collections.synchronizedList(new ArrayList<String>());
+
+        final List<String> finished = Collections.synchronizedList(new ArrayList<String>());
+
+        /**
+         * Starts and finishes of all splits in one order, positions are only compared within it.
+         */
+        private final List<String> events = new ArrayList<>();
+
+        final Set<String> failingSplits = new HashSet<>();
+
+        void onInstall(String splitName) throws InstallException {
+
+        }
+
+        boolean finishedBefore(String first, String second) {
+            synchronized (events) {
+                int finishOfFirst = events.indexOf("finish:" + first);
+                int startOfSecond = events.indexOf("start:" + second);
+                return finishOfFirst >= 0 && startOfSecond >= 0 && finishOfFirst < startOfSecond;
+            }
+        }
+
+        @Override
+        public InstallResult install(SplitInfo splitInfo) throws InstallException {
+            String splitName = splitInfo.getSplitName();
+            synchronized (events) {
+                started.add(splitName);
+                events.add("start:" + splitName);
+            }
+            onInstall(splitName);
+            if (failingSplits.contains(splitName)) {
+                throw new InstallException(SplitInstallError.DEX_OPT_FAILED, new Exception("Failed to install " + splitName));
+            }
+            synchronized (events) {
+                finished.add(splitName);
+                events.add("finish:" + splitName);
+            }
+            return new InstallResult(splitName, new File(splitName), null, true);
+        }
+
+        @Override
+        protected void applyPatch(SplitInfo splitInfo, File splitApk) {
+
+        }
+
+        @Override
+        protected void validateSignature(SplitInfo splitInfo, File splitApk) {
+
+        }
+
+        @Override
+        protected List<String> extractMultiDex(SplitInfo splitInfo, File splitApk) {
+            return null;
+        }
+
+        @Override
+        protected void extractLib(SplitInfo info, File splitApk) {
+
+        }
+
+        @Override
+        protected void createInstalledMark(SplitInfo info) {
+
+        }
+    }
+}
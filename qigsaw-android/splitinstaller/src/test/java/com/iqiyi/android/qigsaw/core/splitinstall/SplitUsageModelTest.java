@@ -0,0 +1,144 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.iqiyi.android.qigsaw.core.splitinstall;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SplitUsageModelTest {
+
+    private File rootDir;
+
+    @Before
+    public void setUp() throws IOException {
+        rootDir = File.createTempFile("SplitUsageModelTest", "");
+        assertTrue(rootDir.delete() && rootDir.mkdirs());
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = rootDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        rootDir.delete();
+    }
+
+    @Test
+    public void splitRequestedOnceIsNotPredicted() {
+        SplitUsageModel model = new SplitUsageModel(rootDir);
+        model.recordRequest(Collections.singletonList("a"));
+        assertTrue(model.predict().isEmpty());
+
+        model.recordRequest(Collections.singletonList("a"));
+        assertEquals(Collections.singletonList("a"), model.predict());
+    }
+
+    @Test
+    public void splitsFollowingLastRequestWeighMore() {
+        SplitUsageModel model = new SplitUsageModel(rootDir);
+        for (String moduleName : Arrays.asList("a", "b", "a", "b", "c", "c", "c", "a")) {
+            model.recordRequest(Collections.singletonList(moduleName));
+        }
+        //a: 3, b: 2 + 2 * (a -> b: 2), c: 3
+        List<String> predicted = model.predict();
+        assertEquals(3, predicted.size());
+        assertEquals("b", predicted.get(0));
+        assertEquals(new HashSet<>(Arrays.asList("a", "c")), new HashSet<>(predicted.subList(1, 3)));
+    }
+
+    @Test
+    public void countsDecayOnceTotalRequestsReachLimit() {
+        SplitUsageModel model = new SplitUsageModel(rootDir);
+        model.recordRequest(Arrays.asList("b", "b"));
+        assertTrue(model.predict().contains("b"));
+        //total requests reach 256 with the last one, then all counts are halved.
+        for (int i = 0; i < 254; i++) {
+            model.recordRequest(Collections.singletonList("a"));
+        }
+        List<String> predicted = model.predict();
+        assertEquals(Collections.singletonList("a"), predicted);
+    }
+
+    @Test
+    public void prefetchedSplitIsDroppedOnceRequested() {
+        SplitUsageModel model = new SplitUsageModel(rootDir);
+        model.recordPrefetch(Arrays.asList("x", "y"), 100L);
+        assertEquals(new HashSet<>(Arrays.asList("x", "y")), model.getPrefetchedSplits());
+        assertEquals(100L, model.getLastPrefetchTime());
+
+        model.recordRequest(Collections.singletonList("x"));
+        assertEquals(Collections.singleton("y"), model.getPrefetchedSplits());
+
+        model.recordPrefetch(Collections.singletonList("z"), 200L);
+        assertEquals(Collections.singleton("z"), model.getPrefetchedSplits());
+        assertEquals(200L, model.getLastPrefetchTime());
+    }
+
+    @Test
+    public void modelIsPersisted() {
+        SplitUsageModel model = new SplitUsageModel(rootDir);
+        for (String moduleName : Arrays.asList("a", "b", "a", "b", "c", "c", "c", "a")) {
+            model.recordRequest(Collections.singletonList(moduleName));
+        }
+        model.recordPrefetch(Collections.singletonList("d"), 300L);
+
+        SplitUsageModel restored = new SplitUsageModel(rootDir);
+        assertEquals(model.predict().get(0), restored.predict().get(0));
+        assertEquals(new HashSet<>(model.predict()), new HashSet<>(restored.predict()));
+        assertEquals(Collections.singleton("d"), restored.getPrefetchedSplits());
+        assertEquals(300L, restored.getLastPrefetchTime());
+    }
+
+    @Test
+    public void malformedModelIsReplaced() throws IOException {
+        FileOutputStream os = new FileOutputStream(new File(rootDir, "split_usage.model"));
+        try {
+            os.write("count.a=\\u00zz\n".getBytes("ISO-8859-1"));
+        } finally {
+            os.close();
+        }
+        SplitUsageModel model = new SplitUsageModel(rootDir);
+        assertTrue(model.predict().isEmpty());
+        model.recordRequest(Arrays.asList("a", "a"));
+        assertEquals(Collections.singletonList("a"), new SplitUsageModel(rootDir).predict());
+        assertFalse(new SplitUsageModel(rootDir).getPrefetchedSplits().contains("a"));
+    }
+}
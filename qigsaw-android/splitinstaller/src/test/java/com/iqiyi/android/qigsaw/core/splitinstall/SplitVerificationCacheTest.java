@@ -0,0 +1,126 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.iqiyi.android.qigsaw.core.splitinstall;
+
+import android.content.ContextWrapper;
+
+import com.iqiyi.android.qigsaw.core.common.FileUtil;
+import com.iqiyi.android.qigsaw.core.common.SplitConstants;
+import com.iqiyi.android.qigsaw.core.splitdownload.DownloadRequest;
+import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfo;
+import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfoFactory;
+import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitPathManager;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Md5 verified by downloader is recorded, so that supervisor does not read split apk again to check it.
+ */
+public class SplitVerificationCacheTest {
+
+    private static File rootDir;
+
+    private final SplitInfo info = SplitInfoFactory.create("java");
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        rootDir = File.createTempFile("SplitVerificationCacheTest", "");
+        assertTrue(rootDir.delete() && rootDir.mkdirs());
+        SplitPathManager.install(new ContextWrapper(null) {
+            @Override
+            public File getDir(String name, int mode) {
+                return rootDir;
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        FileUtil.deleteDir(SplitPathManager.require().getSplitRootDir(info));
+    }
+
+    @Test
+    public void skipMd5CheckOfDownloadVerifiedApk() throws IOException {
+        File splitApk = writeSplitApk(info.getSize());
+        SplitVerificationCache.markDownloadVerified(Collections.singletonList(info), request(splitApk, info.getMd5()));
+        assertTrue(SplitVerificationCache.isMd5Verified(info, splitApk));
+    }
+
+    @Test
+    public void ignoreRequestOfOtherMd5() throws IOException {
+        File splitApk = writeSplitApk(info.getSize());
+        SplitVerificationCache.markDownloadVerified(Collections.singletonList(info), request(splitApk, "md5-other"));
+        assertFalse(SplitVerificationCache.isMd5Verified(info, splitApk));
+    }
+
+    @Test
+    public void ignoreVerifiedPatch() throws IOException {
+        File splitApk = writeSplitApk(info.getSize());
+        File patch = new File(splitApk.getParentFile(), info.getSplitName() + SplitConstants.DOT_PATCH);
+        SplitVerificationCache.markDownloadVerified(Collections.singletonList(info), request(patch, info.getMd5()));
+        assertFalse(SplitVerificationCache.isMd5Verified(info, splitApk));
+    }
+
+    @Test
+    public void checkMd5AgainIfApkChanged() throws IOException {
+        File splitApk = writeSplitApk(info.getSize());
+        SplitVerificationCache.markDownloadVerified(Collections.singletonList(info), request(splitApk, info.getMd5()));
+        writeSplitApk(info.getSize() + 1);
+        assertFalse(SplitVerificationCache.isMd5Verified(info, splitApk));
+    }
+
+    private File writeSplitApk(long size) throws IOException {
+        File splitApk = new File(SplitPathManager.require().getSplitDir(info), info.getSplitName() + SplitConstants.DOT_APK);
+        FileOutputStream os = new FileOutputStream(splitApk);
+        try {
+            os.write(new byte[(int) size]);
+        } finally {
+            os.close();
+        }
+        return splitApk;
+    }
+
+    private DownloadRequest request(File file, String md5) {
+        return DownloadRequest.newBuilder()
+                .url("https://qigsaw/" + file.getName())
+                .fileDir(file.getParent())
+                .fileName(file.getName())
+                .moduleName(info.getSplitName())
+                .size(file.length())
+                .md5(md5)
+                .build();
+    }
+}
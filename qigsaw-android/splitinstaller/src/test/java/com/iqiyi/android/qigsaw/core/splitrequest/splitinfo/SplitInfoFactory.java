@@ -0,0 +1,45 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.iqiyi.android.qigsaw.core.splitrequest.splitinfo;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Create {@link SplitInfo} for tests, its constructor is only visible to split-info package.
+ */
+public final class SplitInfoFactory {
+
+    private SplitInfoFactory() {
+
+    }
+
+    public static SplitInfo create(String splitName, String... dependencies) {
+        return new SplitInfo(splitName, "1.0.0", "1.0.0@1", "https://qigsaw/" + splitName + ".apk",
+                "md5-" + splitName, 1024L, false, 14, 1, Collections.<String>emptyList(),
+                dependencies.length == 0 ? null : Arrays.asList(dependencies),
+                null, null, 0L, null);
+    }
+}
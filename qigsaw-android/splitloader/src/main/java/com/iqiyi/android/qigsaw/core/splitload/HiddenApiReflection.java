@@ -5,6 +5,7 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Source code from Tinker
@@ -15,6 +16,18 @@ final class HiddenApiReflection {
 
     }
 
+    /**
+     * Placeholder of members which are not found, hidden members may not exist on some OS versions.
+     */
+    private static final Object NOT_FOUND = new Object();
+
+    /**
+     * Members found by reflection are cached for the lifetime of process,
+     * so that class hierarchy is walked and {@code setAccessible} is called only once for each member.
+     * Keys are framework classes or classes of base apk in practice, which are never unloaded.
+     */
+    private static final ConcurrentHashMap<MemberKey, Object> sMemberCache = new ConcurrentHashMap<>();
+
     /**
      * Locates a given field anywhere in the class inheritance hierarchy.
      *
@@ -24,37 +37,20 @@ final class HiddenApiReflection {
      * @throws NoSuchFieldException if the field cannot be located
      */
     static Field findField(Object instance, String name) throws NoSuchFieldException {
-        for (Class<?> clazz = instance.getClass(); clazz != null; clazz = clazz.getSuperclass()) {
-            try {
-                Field field = clazz.getDeclaredField(name);
-                if (!field.isAccessible()) {
-                    field.setAccessible(true);
-                }
-                return field;
-            } catch (NoSuchFieldException e) {
-                // ignore and search next
-            }
-        }
-
-        throw new NoSuchFieldException("Field " + name + " not found in " + instance.getClass());
+        return findField(instance.getClass(), name);
     }
 
     static Field findField(Class<?> originClazz, String name) throws NoSuchFieldException {
-        for (Class<?> clazz = originClazz; clazz != null; clazz = clazz.getSuperclass()) {
-            try {
-                Field field = clazz.getDeclaredField(name);
-
-                if (!field.isAccessible()) {
-                    field.setAccessible(true);
-                }
-
-                return field;
-            } catch (NoSuchFieldException e) {
-                // ignore and search next
-            }
+        MemberKey key = new MemberKey(originClazz, name, null);
+        Object member = sMemberCache.get(key);
+        if (member == null) {
+            member = lookupField(originClazz, name);
+            sMemberCache.put(key, member);
         }
-
-        throw new NoSuchFieldException("Field " + name + " not found in " + originClazz);
+        if (member == NOT_FOUND) {
+            throw new NoSuchFieldException("Field " + name + " not found in " + originClazz);
+        }
+        return (Field) member;
     }
 
     /**
@@ -68,25 +64,7 @@ final class HiddenApiReflection {
      */
     static Method findMethod(Object instance, String name, Class<?>... parameterTypes)
             throws NoSuchMethodException {
-        for (Class<?> clazz = instance.getClass(); clazz != null; clazz = clazz.getSuperclass()) {
-            try {
-                Method method = clazz.getDeclaredMethod(name, parameterTypes);
-
-                if (!method.isAccessible()) {
-                    method.setAccessible(true);
-                }
-
-                return method;
-            } catch (NoSuchMethodException e) {
-                // ignore and search next
-            }
-        }
-
-        throw new NoSuchMethodException("Method "
-                + name
-                + " with parameters "
-                + Arrays.asList(parameterTypes)
-                + " not found in " + instance.getClass());
+        return findMethod(instance.getClass(), name, parameterTypes);
     }
 
     /**
@@ -100,7 +78,67 @@ final class HiddenApiReflection {
      */
     static Method findMethod(Class<?> clazz, String name, Class<?>... parameterTypes)
             throws NoSuchMethodException {
-        for (; clazz != null; clazz = clazz.getSuperclass()) {
+        MemberKey key = new MemberKey(clazz, name, parameterTypes);
+        Object member = sMemberCache.get(key);
+        if (member == null) {
+            member = lookupMethod(clazz, name, parameterTypes);
+            sMemberCache.put(key, member);
+        }
+        if (member == NOT_FOUND) {
+            throw new NoSuchMethodException("Method "
+                    + name
+                    + " with parameters "
+                    + Arrays.asList(parameterTypes)
+                    + " not found in " + clazz);
+        }
+        return (Method) member;
+    }
+
+    /**
+     * Locates a given constructor anywhere in the class inheritance hierarchy.
+     *
+     * @param instance       an object to search the constructor from.
+     * @param parameterTypes constructor parameter types
+     * @return a constructor object
+     * @throws NoSuchMethodException if the constructor cannot be located
+     */
+    static Constructor<?> findConstructor(Object instance, Class<?>... parameterTypes)
+            throws NoSuchMethodException {
+        Class<?> clazz = instance.getClass();
+        MemberKey key = new MemberKey(clazz, MemberKey.CONSTRUCTOR, parameterTypes);
+        Object member = sMemberCache.get(key);
+        if (member == null) {
+            member = lookupConstructor(clazz, parameterTypes);
+            sMemberCache.put(key, member);
+        }
+        if (member == NOT_FOUND) {
+            throw new NoSuchMethodException("Constructor"
+                    + " with parameters "
+                    + Arrays.asList(parameterTypes)
+                    + " not found in " + clazz);
+        }
+        return (Constructor<?>) member;
+    }
+
+    private static Object lookupField(Class<?> originClazz, String name) {
+        for (Class<?> clazz = originClazz; clazz != null; clazz = clazz.getSuperclass()) {
+            try {
+                Field field = clazz.getDeclaredField(name);
+
+                if (!field.isAccessible()) {
+                    field.setAccessible(true);
+                }
+
+                return field;
+            } catch (NoSuchFieldException e) {
+                // ignore and search next
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    private static Object lookupMethod(Class<?> originClazz, String name, Class<?>... parameterTypes) {
+        for (Class<?> clazz = originClazz; clazz != null; clazz = clazz.getSuperclass()) {
             try {
                 Method method = clazz.getDeclaredMethod(name, parameterTypes);
 
@@ -113,25 +151,11 @@ final class HiddenApiReflection {
                 // ignore and search next
             }
         }
-
-        throw new NoSuchMethodException("Method "
-                + name
-                + " with parameters "
-                + Arrays.asList(parameterTypes)
-                + " not found in " + clazz);
+        return NOT_FOUND;
     }
 
-    /**
-     * Locates a given constructor anywhere in the class inheritance hierarchy.
-     *
-     * @param instance       an object to search the constructor from.
-     * @param parameterTypes constructor parameter types
-     * @return a constructor object
-     * @throws NoSuchMethodException if the constructor cannot be located
-     */
-    static Constructor<?> findConstructor(Object instance, Class<?>... parameterTypes)
-            throws NoSuchMethodException {
-        for (Class<?> clazz = instance.getClass(); clazz != null; clazz = clazz.getSuperclass()) {
+    private static Object lookupConstructor(Class<?> originClazz, Class<?>... parameterTypes) {
+        for (Class<?> clazz = originClazz; clazz != null; clazz = clazz.getSuperclass()) {
             try {
                 Constructor<?> ctor = clazz.getDeclaredConstructor(parameterTypes);
 
@@ -144,11 +168,7 @@ final class HiddenApiReflection {
                 // ignore and search next
             }
         }
-
-        throw new NoSuchMethodException("Constructor"
-                + " with parameters "
-                + Arrays.asList(parameterTypes)
-                + " not found in " + instance.getClass());
+        return NOT_FOUND;
     }
 
     /**
@@ -202,5 +222,46 @@ final class HiddenApiReflection {
 
         jlrField.set(instance, combined);
     }
-}
 
+    /**
+     * Identifies a member by the class it is searched from, its name and parameter types, parameter types of field are {@code null}.
+     */
+    private static final class MemberKey {
+
+        static final String CONSTRUCTOR = "<init>";
+
+        final Class<?> clazz;
+
+        final String name;
+
+        final Class<?>[] parameterTypes;
+
+        final int hashCode;
+
+        MemberKey(Class<?> clazz, String name, Class<?>[] parameterTypes) {
+            this.clazz = clazz;
+            this.name = name;
+            this.parameterTypes = parameterTypes;
+            this.hashCode = 31 * (31 * clazz.hashCode() + name.hashCode()) + Arrays.hashCode(parameterTypes);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof MemberKey)) {
+                return false;
+            }
+            MemberKey other = (MemberKey) obj;
+            return clazz == other.clazz
+                    && name.equals(other.name)
+                    && Arrays.equals(parameterTypes, other.parameterTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -31,6 +31,8 @@ import android.content.pm.ApplicationInfo;
 import com.iqiyi.android.qigsaw.core.extension.AABExtension;
 import com.iqiyi.android.qigsaw.core.extension.AABExtensionException;
 import com.iqiyi.android.qigsaw.core.splitreport.SplitLoadError;
+import com.iqiyi.android.qigsaw.core.splitreport.SplitPhaseRecorder;
+import com.iqiyi.android.qigsaw.core.splitreport.SplitPhaseTiming;
 
 final class SplitActivator {
 
@@ -43,8 +45,9 @@ final class SplitActivator {
         this.aabExtension = AABExtension.getInstance();
     }
 
-    void activate(ClassLoader classLoader, String splitName) throws SplitLoadException {
+    void activate(ClassLoader classLoader, String splitName, SplitPhaseRecorder recorder) throws SplitLoadException {
         Application app;
+        long startTime = recorder.begin(SplitPhaseTiming.PHASE_ACTIVATE_APPLICATION);
         try {
             app = aabExtension.createApplication(classLoader, splitName);
             aabExtension.activeApplication(app, appContext);
@@ -55,14 +58,24 @@ final class SplitActivator {
                 }
             }
             throw new SplitLoadException(SplitLoadError.ACTIVATE_APPLICATION_FAILED, e);
+        } finally {
+            recorder.end(SplitPhaseTiming.PHASE_ACTIVATE_APPLICATION, startTime, 0);
         }
+        startTime = recorder.begin(SplitPhaseTiming.PHASE_ACTIVATE_PROVIDERS);
         try {
             aabExtension.activateSplitProviders(classLoader, splitName);
         } catch (AABExtensionException e) {
             throw new SplitLoadException(SplitLoadError.ACTIVATE_PROVIDERS_FAILED, e);
+        } finally {
+            recorder.end(SplitPhaseTiming.PHASE_ACTIVATE_PROVIDERS, startTime, 0);
         }
         if (app != null) {
-            app.onCreate();
+            startTime = recorder.begin(SplitPhaseTiming.PHASE_APPLICATION_CREATE);
+            try {
+                app.onCreate();
+            } finally {
+                recorder.end(SplitPhaseTiming.PHASE_APPLICATION_CREATE, startTime, 0);
+            }
         }
     }
 
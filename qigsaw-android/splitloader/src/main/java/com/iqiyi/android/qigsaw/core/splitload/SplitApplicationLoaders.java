@@ -55,6 +55,22 @@ public final class SplitApplicationLoaders {
         }
     }
 
+    /**
+     * Add class loader unless another one of the same split has been added.
+     *
+     * @return class loader of the split which is added.
+     */
+    public SplitDexClassLoader addClassLoaderIfAbsent(SplitDexClassLoader classLoader) {
+        synchronized (sLock) {
+            SplitDexClassLoader added = getClassLoader(classLoader.moduleName());
+            if (added != null) {
+                return added;
+            }
+            splitDexClassLoaders.add(classLoader);
+            return classLoader;
+        }
+    }
+
     Set<SplitDexClassLoader> getClassLoaders() {
         synchronized (sLock) {
             return splitDexClassLoaders;
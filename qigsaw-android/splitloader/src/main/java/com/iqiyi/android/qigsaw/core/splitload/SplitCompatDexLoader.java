@@ -1,16 +1,25 @@
 package com.iqiyi.android.qigsaw.core.splitload;
 
 import android.os.Build;
+import android.support.annotation.Nullable;
 
 import com.iqiyi.android.qigsaw.core.common.SplitLog;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Source code from Tinker
@@ -19,65 +28,134 @@ final class SplitCompatDexLoader {
 
     private static final String TAG = "SplitCompatDexLoader";
 
-    private static int sPatchDexCount = 0;
+    /**
+     * Dex elements injected for each split, they are removed if split fails to be activated.
+     */
+    private static final Map<String, Object[]> sSplitDexElements = new HashMap<>();
 
-    static void load(ClassLoader classLoader, File dexOptDir, List<File> files)
+    /**
+     * Make dex elements of splits without injecting them, this could be called in any thread.
+     * Elements are made for each split, because optimized directories of splits are different.
+     *
+     * @param splitDexFiles        dex files of each split, keyed by split name.
+     * @param optimizedDirectories optimized directory of each split, keyed by split name.
+     * @return dex elements of each split, keyed by split name.
+     */
+    static Map<String, Object[]> prepare(ClassLoader classLoader, Map<String, List<File>> splitDexFiles, Map<String, File> optimizedDirectories)
             throws Throwable {
-        if (!files.isEmpty()) {
-            if (Build.VERSION.SDK_INT >= 23) {
-                V23.load(classLoader, files, dexOptDir);
-            } else if (Build.VERSION.SDK_INT >= 19) {
-                V19.load(classLoader, files, dexOptDir);
-            } else if (Build.VERSION.SDK_INT >= 14) {
-                V14.load(classLoader, files, dexOptDir);
-            } else {
-                throw new UnsupportedOperationException("don't support under SDK version 14!");
-            }
-            sPatchDexCount = files.size();
+        Map<String, Object[]> splitElements = new LinkedHashMap<>(splitDexFiles.size());
+        if (splitDexFiles.isEmpty()) {
+            return splitElements;
         }
+        if (Build.VERSION.SDK_INT < 14) {
+            throw new UnsupportedOperationException("don't support under SDK version 14!");
+        }
+        Object dexPathList = getDexPathList(classLoader);
+        for (Map.Entry<String, List<File>> entry : splitDexFiles.entrySet()) {
+            splitElements.put(entry.getKey(), makeElements(dexPathList, new ArrayList<>(entry.getValue()), optimizedDirectories.get(entry.getKey())));
+        }
+        return splitElements;
     }
 
-    static void unLoad(ClassLoader classLoader) throws Throwable {
-        if (sPatchDexCount <= 0) {
+    /**
+     * Inject dex files of splits into class loader, {@code dexElements} is expanded once for all splits
+     * and nothing is changed if it fails.
+     *
+     * @param splitDexFiles        dex files of each split, keyed by split name.
+     * @param optimizedDirectories optimized directory of each split, keyed by split name.
+     * @param preparedElements     elements made by {@link #prepare(ClassLoader, Map, Map)}, elements of
+     *                             splits which are absent are made here.
+     */
+    static void load(ClassLoader classLoader, Map<String, List<File>> splitDexFiles, Map<String, File> optimizedDirectories,
+                     @Nullable Map<String, Object[]> preparedElements) throws Throwable {
+        if (splitDexFiles.isEmpty()) {
             return;
         }
-        if (Build.VERSION.SDK_INT >= 14) {
-            Field pathListField = HiddenApiReflection.findField(classLoader, "pathList");
-            Object dexPathList = pathListField.get(classLoader);
-            HiddenApiReflection.reduceFieldArray(dexPathList, "dexElements", sPatchDexCount);
-        } else {
-            throw new RuntimeException("don't support under SDK version 14!");
+        if (Build.VERSION.SDK_INT < 14) {
+            throw new UnsupportedOperationException("don't support under SDK version 14!");
+        }
+        /* The patched class loader is expected to be a descendant of
+         * dalvik.system.BaseDexClassLoader. We modify its
+         * dalvik.system.DexPathList pathList field to append additional DEX
+         * file entries.
+         */
+        Object dexPathList = getDexPathList(classLoader);
+        Map<String, Object[]> splitElements = new LinkedHashMap<>(splitDexFiles.size());
+        List<Object> extraElements = new ArrayList<>();
+        Class<?> elementClass = null;
+        for (Map.Entry<String, List<File>> entry : splitDexFiles.entrySet()) {
+            Object[] elements = preparedElements == null ? null : preparedElements.get(entry.getKey());
+            if (elements == null) {
+                elements = makeElements(dexPathList, new ArrayList<>(entry.getValue()), optimizedDirectories.get(entry.getKey()));
+            }
+            splitElements.put(entry.getKey(), elements);
+            extraElements.addAll(Arrays.asList(elements));
+            elementClass = elements.getClass().getComponentType();
+        }
+        if (elementClass != null && !extraElements.isEmpty()) {
+            Object[] extraArray = (Object[]) Array.newInstance(elementClass, extraElements.size());
+            HiddenApiReflection.expandFieldArray(dexPathList, "dexElements", extraElements.toArray(extraArray));
+        }
+        synchronized (sSplitDexElements) {
+            sSplitDexElements.putAll(splitElements);
         }
     }
 
     /**
-     * Installer for platform versions 19.
+     * Remove dex elements of split from class loader.
      */
-    private static final class V23 {
+    static void unLoad(ClassLoader classLoader, String splitName) throws Throwable {
+        Object[] splitElements;
+        synchronized (sSplitDexElements) {
+            splitElements = sSplitDexElements.remove(splitName);
+        }
+        if (splitElements == null || splitElements.length == 0) {
+            return;
+        }
+        Object dexPathList = getDexPathList(classLoader);
+        Field dexElementsField = HiddenApiReflection.findField(dexPathList, "dexElements");
+        Object[] original = (Object[]) dexElementsField.get(dexPathList);
+        Set<Object> removed = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        removed.addAll(Arrays.asList(splitElements));
+        List<Object> remaining = new ArrayList<>(original.length);
+        for (Object element : original) {
+            if (!removed.contains(element)) {
+                remaining.add(element);
+            }
+        }
+        Object[] reduced = (Object[]) Array.newInstance(original.getClass().getComponentType(), remaining.size());
+        dexElementsField.set(dexPathList, remaining.toArray(reduced));
+    }
 
-        private static void load(ClassLoader loader, List<File> additionalClassPathEntries,
-                                 File optimizedDirectory)
-                throws IllegalArgumentException, IllegalAccessException,
-                NoSuchFieldException, InvocationTargetException, NoSuchMethodException, IOException {
-            /* The patched class loader is expected to be a descendant of
-             * dalvik.system.BaseDexClassLoader. We modify its
-             * dalvik.system.DexPathList pathList field to append additional DEX
-             * file entries.
-             */
-            Field pathListField = HiddenApiReflection.findField(loader, "pathList");
-            Object dexPathList = pathListField.get(loader);
-            ArrayList<IOException> suppressedExceptions = new ArrayList<>();
-            HiddenApiReflection.expandFieldArray(dexPathList, "dexElements", makePathElements(dexPathList,
-                    new ArrayList<>(additionalClassPathEntries), optimizedDirectory,
-                    suppressedExceptions));
-            if (suppressedExceptions.size() > 0) {
-                for (IOException e : suppressedExceptions) {
-                    SplitLog.e(TAG, "Exception in makePathElement", e);
-                    throw e;
-                }
+    private static Object getDexPathList(ClassLoader classLoader) throws NoSuchFieldException, IllegalAccessException {
+        Field pathListField = HiddenApiReflection.findField(classLoader, "pathList");
+        return pathListField.get(classLoader);
+    }
 
+    private static Object[] makeElements(Object dexPathList, ArrayList<File> files, File optimizedDirectory)
+            throws IllegalAccessException, InvocationTargetException, NoSuchMethodException, IOException {
+        ArrayList<IOException> suppressedExceptions = new ArrayList<>();
+        Object[] elements;
+        if (Build.VERSION.SDK_INT >= 23) {
+            elements = V23.makePathElements(dexPathList, files, optimizedDirectory, suppressedExceptions);
+        } else if (Build.VERSION.SDK_INT >= 19) {
+            elements = V19.makeDexElements(dexPathList, files, optimizedDirectory, suppressedExceptions);
+        } else {
+            elements = V14.makeDexElements(dexPathList, files, optimizedDirectory);
+        }
+        if (suppressedExceptions.size() > 0) {
+            for (IOException e : suppressedExceptions) {
+                SplitLog.e(TAG, "Exception in makePathElement", e);
             }
+            throw suppressedExceptions.get(0);
         }
+        return elements;
+    }
+
+    /**
+     * Installer for platform versions 19.
+     */
+    private static final class V23 {
 
         /**
          * A wrapper around
@@ -117,29 +195,6 @@ final class SplitCompatDexLoader {
      */
     private static final class V19 {
 
-        private static void load(ClassLoader loader, List<File> additionalClassPathEntries,
-                                 File optimizedDirectory)
-                throws IllegalArgumentException, IllegalAccessException,
-                NoSuchFieldException, InvocationTargetException, NoSuchMethodException, IOException {
-            /* The patched class loader is expected to be a descendant of
-             * dalvik.system.BaseDexClassLoader. We modify its
-             * dalvik.system.DexPathList pathList field to append additional DEX
-             * file entries.
-             */
-            Field pathListField = HiddenApiReflection.findField(loader, "pathList");
-            Object dexPathList = pathListField.get(loader);
-            ArrayList<IOException> suppressedExceptions = new ArrayList<>();
-            HiddenApiReflection.expandFieldArray(dexPathList, "dexElements", makeDexElements(dexPathList,
-                    new ArrayList<>(additionalClassPathEntries), optimizedDirectory,
-                    suppressedExceptions));
-            if (suppressedExceptions.size() > 0) {
-                for (IOException e : suppressedExceptions) {
-                    SplitLog.e(TAG, "Exception in makeDexElement", e);
-                    throw e;
-                }
-            }
-        }
-
         /**
          * A wrapper around
          * {@code private static final dalvik.system.DexPathList#makeDexElements}.
@@ -172,21 +227,6 @@ final class SplitCompatDexLoader {
      */
     private static final class V14 {
 
-        private static void load(ClassLoader loader, List<File> additionalClassPathEntries,
-                                 File optimizedDirectory)
-                throws IllegalArgumentException, IllegalAccessException,
-                NoSuchFieldException, InvocationTargetException, NoSuchMethodException {
-            /* The patched class loader is expected to be a descendant of
-             * dalvik.system.BaseDexClassLoader. We modify its
-             * dalvik.system.DexPathList pathList field to append additional DEX
-             * file entries.
-             */
-            Field pathListField = HiddenApiReflection.findField(loader, "pathList");
-            Object dexPathList = pathListField.get(loader);
-            HiddenApiReflection.expandFieldArray(dexPathList, "dexElements", makeDexElements(dexPathList,
-                    new ArrayList<>(additionalClassPathEntries), optimizedDirectory));
-        }
-
         /**
          * A wrapper around
          * {@code private static final dalvik.system.DexPathList#makeDexElements}.
@@ -1,6 +1,7 @@
 package com.iqiyi.android.qigsaw.core.splitload;
 
 import android.os.Build;
+import android.support.annotation.Nullable;
 
 import com.iqiyi.android.qigsaw.core.common.SplitLog;
 
@@ -9,7 +10,7 @@ import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -21,87 +22,179 @@ final class SplitCompatLibraryLoader {
 
     /**
      * All versions of createSplitInstallService logic follow these rules:
-     * 1. If path of {@code folder} is not injected into the classloader, inject it to the
+     * 1. If path of {@code folders} are not injected into the classloader, inject them to the
      * beginning of pathList in the classloader.
      * <p>
-     * 2. Otherwise remove path of {@code folder} first, then re-inject it to the
+     * 2. Otherwise remove path of {@code folders} first, then re-inject them to the
      * beginning of pathList in the classloader.
+     * <p>
+     * Native library elements are made once for all folders, and nothing is changed if it fails.
+     *
+     * @param preparedPath made by {@link #prepare(ClassLoader, List)}, it is made again if library
+     *                     directories of the classloader are changed since then.
      */
-    static void load(ClassLoader classLoader, File folder)
+    static void load(ClassLoader classLoader, List<File> folders, @Nullable PreparedLibraryPath preparedPath)
             throws Throwable {
-        if (folder == null || !folder.exists()) {
-            SplitLog.e(TAG, "load, folder %s is illegal", folder);
+        final Object dexPathList = getDexPathList(classLoader);
+        final Field nativeLibraryDirectories = HiddenApiReflection.findField(dexPathList, "nativeLibraryDirectories");
+        if (preparedPath == null || !preparedPath.folders.equals(folders)
+                || !preparedPath.origLibDirs.equals(getLibraryDirectories(dexPathList, nativeLibraryDirectories))) {
+            preparedPath = prepare(classLoader, folders);
+        }
+        if (preparedPath == null) {
             return;
         }
+        if (preparedPath.elements == null) {
+            nativeLibraryDirectories.set(dexPathList, preparedPath.newAppLibDirs.toArray(new File[0]));
+        } else {
+            final Field nativeLibraryPathElements = HiddenApiReflection.findField(dexPathList, "nativeLibraryPathElements");
+            updateLibraryDirectories(dexPathList, nativeLibraryDirectories,
+                    (List<File>) nativeLibraryDirectories.get(dexPathList), preparedPath.newAppLibDirs);
+            nativeLibraryPathElements.set(dexPathList, preparedPath.elements);
+        }
+    }
+
+    /**
+     * Make native library elements of {@code folders} without injecting them, this could be called in any thread.
+     *
+     * @return {@code null} if none of {@code folders} is legal.
+     */
+    @Nullable
+    static PreparedLibraryPath prepare(ClassLoader classLoader, List<File> folders)
+            throws Throwable {
+        List<File> legalFolders = new ArrayList<>(folders.size());
+        for (File folder : folders) {
+            if (folder == null || !(folder.exists() || SplitNativeLibraryLayout.isApkLibraryDir(folder))) {
+                SplitLog.e(TAG, "load, folder %s is illegal", folder);
+                continue;
+            }
+            if (!legalFolders.contains(folder)) {
+                legalFolders.add(folder);
+            }
+        }
+        if (legalFolders.isEmpty()) {
+            return null;
+        }
+        final Object dexPathList = getDexPathList(classLoader);
+        final List<File> requestedFolders = new ArrayList<>(folders);
         // android o sdk_int 26
         // for android o preview sdk_int 25
         if ((Build.VERSION.SDK_INT == 25 && Build.VERSION.PREVIEW_SDK_INT != 0)
                 || Build.VERSION.SDK_INT > 25) {
             try {
-                V25.load(classLoader, folder);
+                return V25.prepare(dexPathList, requestedFolders, legalFolders);
             } catch (Throwable throwable) {
                 // createSplitInstallService fail, try to treat it as v23
                 // some preview N version may go here
                 SplitLog.e(TAG, "load, v25 fail, sdk: %d, error: %s, try to fallback to V23",
                         Build.VERSION.SDK_INT, throwable.getMessage());
-                V23.load(classLoader, folder);
+                return V23.prepare(dexPathList, requestedFolders, legalFolders);
             }
         } else if (Build.VERSION.SDK_INT >= 23) {
             try {
-                V23.load(classLoader, folder);
+                return V23.prepare(dexPathList, requestedFolders, legalFolders);
             } catch (Throwable throwable) {
                 // createSplitInstallService fail, try to treat it as v14
                 SplitLog.e(TAG, "load, v23 fail, sdk: %d, error: %s, try to fallback to V14",
                         Build.VERSION.SDK_INT, throwable.getMessage());
 
-                V14.load(classLoader, folder);
+                return V14.prepare(dexPathList, requestedFolders, legalFolders);
             }
         } else if (Build.VERSION.SDK_INT >= 14) {
-            V14.load(classLoader, folder);
+            return V14.prepare(dexPathList, requestedFolders, legalFolders);
         } else {
             throw new UnsupportedOperationException("don't support under SDK version 14!");
         }
     }
 
-    private static final class V14 {
-        private static void load(ClassLoader classLoader, File folder) throws Throwable {
-            final Field pathListField = HiddenApiReflection.findField(classLoader, "pathList");
-            final Object dexPathList = pathListField.get(classLoader);
+    private static Object getDexPathList(ClassLoader classLoader) throws Throwable {
+        final Field pathListField = HiddenApiReflection.findField(classLoader, "pathList");
+        return pathListField.get(classLoader);
+    }
 
-            final Field nativeLibDirField = HiddenApiReflection.findField(dexPathList, "nativeLibraryDirectories");
-            final File[] origNativeLibDirs = (File[]) nativeLibDirField.get(dexPathList);
-
-            final List<File> newNativeLibDirList = new ArrayList<>(origNativeLibDirs.length + 1);
-            newNativeLibDirList.add(folder);
-            for (File origNativeLibDir : origNativeLibDirs) {
-                if (!folder.equals(origNativeLibDir)) {
-                    newNativeLibDirList.add(origNativeLibDir);
-                }
+    /**
+     * @return a copy of app native library directories, they are an array below Android M.
+     */
+    @SuppressWarnings("unchecked")
+    private static List<File> getLibraryDirectories(Object dexPathList, Field nativeLibraryDirectories) throws Throwable {
+        final Object libDirs = nativeLibraryDirectories.get(dexPathList);
+        if (libDirs instanceof File[]) {
+            return new ArrayList<>(Arrays.asList((File[]) libDirs));
+        }
+        return libDirs == null ? new ArrayList<File>(0) : new ArrayList<>((List<File>) libDirs);
+    }
+
+    /**
+     * @return {@code folders} followed by original library directories except {@code folders}.
+     */
+    private static List<File> prependFolders(List<File> folders, List<File> origLibDirs) {
+        final List<File> newLibDirs = new ArrayList<>(folders.size() + origLibDirs.size());
+        newLibDirs.addAll(folders);
+        for (File origLibDir : origLibDirs) {
+            if (!folders.contains(origLibDir)) {
+                newLibDirs.add(origLibDir);
             }
-            nativeLibDirField.set(dexPathList, newNativeLibDirList.toArray(new File[0]));
         }
+        return newLibDirs;
     }
 
-    private static final class V23 {
-        private static void load(ClassLoader classLoader, File folder) throws Throwable {
-            final Field pathListField = HiddenApiReflection.findField(classLoader, "pathList");
-            final Object dexPathList = pathListField.get(classLoader);
+    private static void updateLibraryDirectories(Object dexPathList, Field nativeLibraryDirectories,
+                                                 List<File> origLibDirs, List<File> newLibDirs) throws Throwable {
+        //field is final in DexPathList, modify the list in place if it exists.
+        if (origLibDirs == null) {
+            nativeLibraryDirectories.set(dexPathList, new ArrayList<>(newLibDirs));
+        } else {
+            origLibDirs.clear();
+            origLibDirs.addAll(newLibDirs);
+        }
+    }
 
+    /**
+     * Native library directories and elements made for folders of splits.
+     */
+    static final class PreparedLibraryPath {
+
+        /**
+         * Folders requested to be injected.
+         */
+        final List<File> folders;
+
+        /**
+         * App native library directories which {@link #elements} are made from.
+         */
+        final List<File> origLibDirs;
+
+        final List<File> newAppLibDirs;
+
+        /**
+         * Elements of {@code nativeLibraryPathElements}, it is {@code null} below Android M.
+         */
+        final Object[] elements;
+
+        PreparedLibraryPath(List<File> folders, List<File> origLibDirs, List<File> newAppLibDirs, Object[] elements) {
+            this.folders = folders;
+            this.origLibDirs = origLibDirs;
+            this.newAppLibDirs = newAppLibDirs;
+            this.elements = elements;
+        }
+    }
+
+    private static final class V14 {
+        private static PreparedLibraryPath prepare(Object dexPathList, List<File> requestedFolders, List<File> folders) throws Throwable {
+            final Field nativeLibDirField = HiddenApiReflection.findField(dexPathList, "nativeLibraryDirectories");
+            final List<File> origNativeLibDirs = getLibraryDirectories(dexPathList, nativeLibDirField);
+
+            final List<File> newNativeLibDirList = prependFolders(folders, origNativeLibDirs);
+            return new PreparedLibraryPath(requestedFolders, origNativeLibDirs, newNativeLibDirList, null);
+        }
+    }
+
+    private static final class V23 {
+        private static PreparedLibraryPath prepare(Object dexPathList, List<File> requestedFolders, List<File> folders) throws Throwable {
             final Field nativeLibraryDirectories = HiddenApiReflection.findField(dexPathList, "nativeLibraryDirectories");
 
-            List<File> origLibDirs = (List<File>) nativeLibraryDirectories.get(dexPathList);
-            if (origLibDirs == null) {
-                origLibDirs = new ArrayList<>(2);
-            }
-            final Iterator<File> libDirIt = origLibDirs.iterator();
-            while (libDirIt.hasNext()) {
-                final File libDir = libDirIt.next();
-                if (folder.equals(libDir)) {
-                    libDirIt.remove();
-                    break;
-                }
-            }
-            origLibDirs.add(0, folder);
+            final List<File> origLibDirs = getLibraryDirectories(dexPathList, nativeLibraryDirectories);
+            final List<File> newAppLibDirs = prependFolders(folders, origLibDirs);
 
             final Field systemNativeLibraryDirectories = HiddenApiReflection.findField(dexPathList, "systemNativeLibraryDirectories");
             List<File> origSystemLibDirs = (List<File>) systemNativeLibraryDirectories.get(dexPathList);
@@ -109,8 +202,8 @@ final class SplitCompatLibraryLoader {
                 origSystemLibDirs = new ArrayList<>(2);
             }
 
-            final List<File> newLibDirs = new ArrayList<>(origLibDirs.size() + origSystemLibDirs.size() + 1);
-            newLibDirs.addAll(origLibDirs);
+            final List<File> newLibDirs = new ArrayList<>(newAppLibDirs.size() + origSystemLibDirs.size());
+            newLibDirs.addAll(newAppLibDirs);
             newLibDirs.addAll(origSystemLibDirs);
 
             final Method makeElements = HiddenApiReflection.findMethod(dexPathList,
@@ -118,48 +211,31 @@ final class SplitCompatLibraryLoader {
             final ArrayList<IOException> suppressedExceptions = new ArrayList<>();
 
             final Object[] elements = (Object[]) makeElements.invoke(dexPathList, newLibDirs, null, suppressedExceptions);
-
-            final Field nativeLibraryPathElements = HiddenApiReflection.findField(dexPathList, "nativeLibraryPathElements");
-            nativeLibraryPathElements.set(dexPathList, elements);
+            return new PreparedLibraryPath(requestedFolders, origLibDirs, newAppLibDirs, elements);
         }
     }
 
     private static final class V25 {
-        private static void load(ClassLoader classLoader, File folder) throws Throwable {
-            final Field pathListField = HiddenApiReflection.findField(classLoader, "pathList");
-            final Object dexPathList = pathListField.get(classLoader);
-
+        private static PreparedLibraryPath prepare(Object dexPathList, List<File> requestedFolders, List<File> folders) throws Throwable {
             final Field nativeLibraryDirectories = HiddenApiReflection.findField(dexPathList, "nativeLibraryDirectories");
 
-            List<File> origLibDirs = (List<File>) nativeLibraryDirectories.get(dexPathList);
-            if (origLibDirs == null) {
-                origLibDirs = new ArrayList<>(2);
-            }
-            final Iterator<File> libDirIt = origLibDirs.iterator();
-            while (libDirIt.hasNext()) {
-                final File libDir = libDirIt.next();
-                if (folder.equals(libDir)) {
-                    libDirIt.remove();
-                    break;
-                }
-            }
-            origLibDirs.add(0, folder);
+            final List<File> origLibDirs = getLibraryDirectories(dexPathList, nativeLibraryDirectories);
+            final List<File> newAppLibDirs = prependFolders(folders, origLibDirs);
+
             final Field systemNativeLibraryDirectories = HiddenApiReflection.findField(dexPathList, "systemNativeLibraryDirectories");
             List<File> origSystemLibDirs = (List<File>) systemNativeLibraryDirectories.get(dexPathList);
             if (origSystemLibDirs == null) {
                 origSystemLibDirs = new ArrayList<>(2);
             }
 
-            final List<File> newLibDirs = new ArrayList<>(origLibDirs.size() + origSystemLibDirs.size() + 1);
-            newLibDirs.addAll(origLibDirs);
+            final List<File> newLibDirs = new ArrayList<>(newAppLibDirs.size() + origSystemLibDirs.size());
+            newLibDirs.addAll(newAppLibDirs);
             newLibDirs.addAll(origSystemLibDirs);
 
             final Method makeElements = HiddenApiReflection.findMethod(dexPathList, "makePathElements", List.class);
 
             final Object[] elements = (Object[]) makeElements.invoke(dexPathList, newLibDirs);
-
-            final Field nativeLibraryPathElements = HiddenApiReflection.findField(dexPathList, "nativeLibraryPathElements");
-            nativeLibraryPathElements.set(dexPathList, elements);
+            return new PreparedLibraryPath(requestedFolders, origLibDirs, newAppLibDirs, elements);
         }
     }
 }
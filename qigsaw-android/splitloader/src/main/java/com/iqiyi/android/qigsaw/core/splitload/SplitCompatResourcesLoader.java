@@ -43,6 +43,7 @@ import android.view.ContextThemeWrapper;
 import com.iqiyi.android.qigsaw.core.common.SplitLog;
 
 import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -51,6 +52,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 import static android.support.annotation.RestrictTo.Scope.LIBRARY_GROUP;
 
@@ -64,31 +66,58 @@ public class SplitCompatResourcesLoader {
 
     private static final Object sLock = new Object();
 
+    /**
+     * Generation of loaded splits which asset manager has been checked to contain,
+     * asset manager does not override equals, so it is keyed by identity.
+     */
+    private static final Map<AssetManager, Integer> sCheckedGenerations = Collections.synchronizedMap(new WeakHashMap<AssetManager, Integer>());
+
     /**
      * Check if split res dir has been added into {@link Resources}, this method should be invoked in {@link Activity#getResources()}.
      * After Android 7.0, WebView.apk resources is added dynamically.
      */
     public static void loadResources(Context context, Resources resources) throws Throwable {
+        //split of component may be not loaded yet in lazy load mode.
+        if (SplitLoadManagerService.hasInstance()) {
+            SplitLoadManagerService.getInstance().loadSplitForClass(context.getClass().getName());
+        }
         checkOrUpdateResources(context, resources);
     }
 
-    static void loadResources(Context context, Resources preResources, String splitApkPath) throws Throwable {
+    /**
+     * Install resources of splits loaded together in one pass, so that resources table is rebuilt once.
+     */
+    static void loadResources(Context context, Resources preResources, List<String> splitApkPaths) throws Throwable {
         List<String> loadedResDirs = getLoadedResourcesDirs(preResources.getAssets());
-        if (!loadedResDirs.contains(splitApkPath)) {
-            installSplitResDirs(context, preResources, Collections.singletonList(splitApkPath));
-            SplitLog.d(TAG, "Install split %s resources for application.", splitApkPath);
+        List<String> unloadedSplitPaths = new ArrayList<>(splitApkPaths.size());
+        for (String splitApkPath : splitApkPaths) {
+            if (!loadedResDirs.contains(splitApkPath)) {
+                unloadedSplitPaths.add(splitApkPath);
+            }
+        }
+        if (!unloadedSplitPaths.isEmpty()) {
+            installSplitResDirs(context, preResources, unloadedSplitPaths);
+            SplitLog.d(TAG, "Install split %s resources for application.", unloadedSplitPaths);
         }
     }
 
     private static void checkOrUpdateResources(Context context, Resources resources) throws SplitCompatResourcesException {
+        SplitLoadManager loadManager = SplitLoadManagerService.getInstance();
+        //read generation before loaded split paths, so splits loaded concurrently are checked next time.
+        int generation = loadManager.getLoadedSplitsGeneration();
+        AssetManager asset = resources.getAssets();
+        Integer checkedGeneration = sCheckedGenerations.get(asset);
+        if (checkedGeneration != null && checkedGeneration == generation) {
+            return;
+        }
         List<String> loadedResDirsInAsset;
         try {
-            loadedResDirsInAsset = getLoadedResourcesDirs(resources.getAssets());
+            loadedResDirsInAsset = getLoadedResourcesDirs(asset);
         } catch (Throwable e) {
             throw new SplitCompatResourcesException("Failed to get all loaded split resources for " + context.getClass().getName(), e);
         }
-        Collection<String> loadedSplitPaths = getLoadedSplitPaths();
-        if (loadedSplitPaths != null && !loadedSplitPaths.isEmpty()) {
+        Collection<String> loadedSplitPaths = loadManager.getLoadedSplitApkPaths();
+        if (!loadedSplitPaths.isEmpty()) {
             if (!loadedResDirsInAsset.containsAll(loadedSplitPaths)) {
                 List<String> unloadedSplitPaths = new ArrayList<>();
                 for (String splitPath : loadedSplitPaths) {
@@ -101,16 +130,13 @@ public class SplitCompatResourcesLoader {
                 } catch (Throwable e) {
                     throw new SplitCompatResourcesException("Failed to install resources " + unloadedSplitPaths.toString() + " for " + context.getClass().getName(), e);
                 }
+                if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+                    //a new asset manager has replaced the old one.
+                    return;
+                }
             }
         }
-    }
-
-    private static Collection<String> getLoadedSplitPaths() {
-        SplitLoadManager loadManager = SplitLoadManagerService.getInstance();
-        if (loadManager != null) {
-            return loadManager.getLoadedSplitApkPaths();
-        }
-        return null;
+        sCheckedGenerations.put(asset, generation);
     }
 
     private static void installSplitResDirs(final Context context, final Resources resources, final List<String> splitResPaths) throws Throwable {
@@ -166,10 +192,51 @@ public class SplitCompatResourcesLoader {
     private static class V21 extends VersionCompat {
 
         private static void installSplitResDirs(Resources preResources, List<String> splitResPaths) throws Throwable {
+            AssetManager asset = preResources.getAssets();
+            if (splitResPaths.size() > 1 && installSplitResDirsInOnePass(asset, splitResPaths)) {
+                return;
+            }
             Method method = VersionCompat.getAddAssetPathMethod();
             for (String splitResPath : splitResPaths) {
-                method.invoke(preResources.getAssets(), splitResPath);
+                method.invoke(asset, splitResPath);
+            }
+        }
+
+        /**
+         * Every {@code addAssetPath} call rebuilds resources table, add all paths with one call instead.
+         *
+         * @return {@code false} if hidden methods are not available, paths should be added one by one.
+         */
+        private static boolean installSplitResDirsInOnePass(AssetManager asset, List<String> splitResPaths) throws Throwable {
+            if (Build.VERSION.SDK_INT >= 28) {
+                Object[] apkAssets = (Object[]) VersionCompat.getGetApkAssetsMethod().invoke(asset);
+                Class<?> apkAssetsClass = apkAssets.getClass().getComponentType();
+                Method loadFromPathMethod;
+                Method setApkAssetsMethod;
+                try {
+                    loadFromPathMethod = HiddenApiReflection.findMethod(apkAssetsClass, "loadFromPath", String.class);
+                    setApkAssetsMethod = HiddenApiReflection.findMethod(AssetManager.class, "setApkAssets", apkAssets.getClass(), boolean.class);
+                } catch (NoSuchMethodException e) {
+                    SplitLog.w(TAG, "Failed to reflect ApkAssets methods, add asset paths one by one!");
+                    return false;
+                }
+                Object[] combined = (Object[]) Array.newInstance(apkAssetsClass, apkAssets.length + splitResPaths.size());
+                System.arraycopy(apkAssets, 0, combined, 0, apkAssets.length);
+                for (int i = 0; i < splitResPaths.size(); i++) {
+                    combined[apkAssets.length + i] = loadFromPathMethod.invoke(null, splitResPaths.get(i));
+                }
+                setApkAssetsMethod.invoke(asset, combined, true);
+            } else {
+                Method addAssetPathsMethod;
+                try {
+                    addAssetPathsMethod = HiddenApiReflection.findMethod(AssetManager.class, "addAssetPaths", String[].class);
+                } catch (NoSuchMethodException e) {
+                    SplitLog.w(TAG, "Failed to reflect 'addAssetPaths' method, add asset paths one by one!");
+                    return false;
+                }
+                addAssetPathsMethod.invoke(asset, (Object) splitResPaths.toArray(new String[0]));
             }
+            return true;
         }
     }
 
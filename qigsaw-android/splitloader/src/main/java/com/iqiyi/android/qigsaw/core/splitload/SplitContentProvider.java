@@ -30,6 +30,8 @@ import com.iqiyi.android.qigsaw.core.extension.ContentProviderProxy;
 import com.iqiyi.android.qigsaw.core.splitload.SplitLoadManager;
 import com.iqiyi.android.qigsaw.core.splitload.SplitLoadManagerService;
 
+import java.util.Collections;
+
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
 public abstract class SplitContentProvider extends ContentProviderProxy {
 
@@ -40,7 +42,10 @@ public abstract class SplitContentProvider extends ContentProviderProxy {
         } else {
             if (SplitLoadManagerService.hasInstance()) {
                 SplitLoadManager loadManager = SplitLoadManagerService.getInstance();
-                loadManager.loadInstalledSplits();
+                loadManager.loadInstalledSplits(Collections.singletonList(splitName));
+                if (getRealContentProvider() == null) {
+                    loadManager.loadInstalledSplits();
+                }
                 return getRealContentProvider() != null;
             }
         }
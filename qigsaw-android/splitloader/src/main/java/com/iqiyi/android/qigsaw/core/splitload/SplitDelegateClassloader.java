@@ -94,6 +94,13 @@ final class SplitDelegateClassloader extends PathClassLoader {
         if (ret != null) {
             return ret;
         }
+        //split may be not loaded yet in lazy load mode, load the owning split only.
+        if (SplitLoadManagerService.getInstance().loadSplitForClass(name) != null) {
+            ret = findClassInSplits(name);
+            if (ret != null) {
+                return ret;
+            }
+        }
         Class<?> fakeComponent = AABExtension.getInstance().getFakeComponent(name);
         if (fakeComponent != null) {
             SplitLoadManagerService.getInstance().loadInstalledSplits();
@@ -108,6 +115,14 @@ final class SplitDelegateClassloader extends PathClassLoader {
     }
 
     private Class<?> onClassNotFound2(String name) {
+        //split may be not loaded yet in lazy load mode, load the owning split only.
+        if (SplitLoadManagerService.getInstance().loadSplitForClass(name) != null) {
+            try {
+                return originClassLoader.loadClass(name);
+            } catch (ClassNotFoundException e) {
+                //ignored
+            }
+        }
         Class<?> fakeComponent = AABExtension.getInstance().getFakeComponent(name);
         if (fakeComponent != null) {
             SplitLoadManagerService.getInstance().loadInstalledSplits();
@@ -122,14 +137,31 @@ final class SplitDelegateClassloader extends PathClassLoader {
     }
 
     private Class<?> findClassInSplits(String name) {
+        //go straight to the owning split if the class is indexed.
+        SplitDexClassLoader ownerClassLoader = null;
+        String splitName = AABExtension.getInstance().getSplitNameForClass(name);
+        if (splitName != null) {
+            ownerClassLoader = SplitApplicationLoaders.getInstance().getClassLoader(splitName);
+            if (ownerClassLoader != null) {
+                try {
+                    return ownerClassLoader.loadClassItself(name);
+                } catch (ClassNotFoundException e) {
+                    //class may be moved to other split, fall back to probing.
+                }
+            }
+        }
         Set<SplitDexClassLoader> splitDexClassLoaders = SplitApplicationLoaders.getInstance().getClassLoaders();
         for (SplitDexClassLoader classLoader : splitDexClassLoaders) {
+            if (classLoader == ownerClassLoader) {
+                continue;
+            }
             try {
                 return classLoader.loadClassItself(name);
             } catch (ClassNotFoundException e) {
-                SplitLog.w(TAG, "Class %s is not found in %s ClassLoader", name, classLoader.moduleName());
+                //ignored
             }
         }
+        SplitLog.w(TAG, "Class %s is not found in split ClassLoaders", name);
         return null;
     }
 
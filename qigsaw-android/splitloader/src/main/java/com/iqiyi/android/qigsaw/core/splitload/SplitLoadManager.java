@@ -29,15 +29,18 @@ import android.content.Context;
 import android.content.ContextWrapper;
 import android.content.Intent;
 import android.content.res.Resources;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.RestrictTo;
 import android.support.v4.util.ArraySet;
 import android.text.TextUtils;
 
 import com.iqiyi.android.qigsaw.core.common.ProcessUtil;
+import com.iqiyi.android.qigsaw.core.extension.AABExtension;
 import com.iqiyi.android.qigsaw.core.splitload.listener.OnSplitLoadListener;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
@@ -54,16 +57,22 @@ public abstract class SplitLoadManager {
 
     private final Set<String> loadedSplitApkPaths = new ArraySet<>();
 
+    private volatile int loadedSplitsGeneration;
+
     final String currentProcessName;
 
     final int splitLoadMode;
 
+    final boolean lazyLoadSplits;
+
     SplitLoadManager(Context context,
                      String currentProcessName,
-                     int splitLoadMode) {
+                     int splitLoadMode,
+                     boolean lazyLoadSplits) {
         this.context = context;
         this.currentProcessName = currentProcessName;
         this.splitLoadMode = splitLoadMode;
+        this.lazyLoadSplits = lazyLoadSplits;
     }
 
     /**
@@ -72,7 +81,8 @@ public abstract class SplitLoadManager {
     public abstract void injectPathClassloader();
 
     /**
-     * Load all installed splits when application launches.
+     * Load installed splits when application launches, in lazy load mode only splits
+     * working in current process explicitly and pinned splits are loaded.
      */
     public abstract void loadInstalledSplitsWhenAppLaunches();
 
@@ -98,6 +108,37 @@ public abstract class SplitLoadManager {
      */
     public abstract void loadInstalledSplits();
 
+    /**
+     * Using to load installed splits and their dependencies which are not loaded yet.
+     *
+     * @param splitNames names of splits.
+     */
+    public abstract void loadInstalledSplits(@NonNull Collection<String> splitNames);
+
+    /**
+     * In lazy load mode, load the installed split which declares the component or owns the package of the class
+     * with its dependencies on first use, so that the class is found by retrying.
+     *
+     * @param className name of component or class.
+     * @return name of split which the class belongs to, or {@code null} if the class is not indexed.
+     */
+    @Nullable
+    final String loadSplitForClass(String className) {
+        if (!lazyLoadSplits) {
+            return null;
+        }
+        AABExtension extension = AABExtension.getInstance();
+        String splitName = extension.getSplitNameForComponent(className);
+        if (splitName == null) {
+            splitName = extension.getSplitNameForClass(className);
+        }
+        if (splitName != null && !getLoadedSplitNames().contains(splitName)
+                && SplitApplicationLoaders.getInstance().getClassLoader(splitName) == null) {
+            loadInstalledSplits(Collections.singletonList(splitName));
+        }
+        return splitName;
+    }
+
     /**
      * Get names of loaded splits
      *
@@ -109,6 +150,27 @@ public abstract class SplitLoadManager {
         }
     }
 
+    /**
+     * Drop a split whose class loader is created but not activated yet from current process,
+     * it is only supported in {@link SplitLoad#MULTIPLE_CLASSLOADER} mode. This must be called in UI thread.
+     * Loading task releases {@link SplitLoadRecord} of a dropped split, so its files may be evicted.
+     *
+     * @param splitName name of split.
+     * @return {@code true} if class loader of split is dropped, {@code false} if split has been activated or not loaded.
+     */
+    public boolean unloadSplit(String splitName) {
+        if (splitLoadMode != SplitLoad.MULTIPLE_CLASSLOADER) {
+            return false;
+        }
+        synchronized (this) {
+            if (loadedSplitNames.contains(splitName)) {
+                return false;
+            }
+        }
+        SplitDexClassLoader classLoader = SplitApplicationLoaders.getInstance().getClassLoader(splitName);
+        return classLoader != null && SplitApplicationLoaders.getInstance().removeClassLoader(classLoader);
+    }
+
     public int splitLoadMode() {
         return splitLoadMode;
     }
@@ -124,6 +186,15 @@ public abstract class SplitLoadManager {
         }
     }
 
+    /**
+     * Get generation of loaded splits, it is increased whenever splits are loaded.
+     *
+     * @return generation of loaded splits.
+     */
+    int getLoadedSplitsGeneration() {
+        return loadedSplitsGeneration;
+    }
+
     Context getContext() {
         return context;
     }
@@ -135,6 +206,7 @@ public abstract class SplitLoadManager {
                 loadedSplitNames.add(split.splitName);
                 loadedSplitApkPaths.add(split.splitApkPath);
             }
+            loadedSplitsGeneration++;
         }
     }
 
@@ -35,6 +35,7 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
 
+import com.iqiyi.android.qigsaw.core.common.SplitBackgroundExecutor;
 import com.iqiyi.android.qigsaw.core.common.SplitConstants;
 import com.iqiyi.android.qigsaw.core.common.SplitLog;
 import com.iqiyi.android.qigsaw.core.splitload.listener.OnSplitLoadListener;
@@ -46,8 +47,12 @@ import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitPathManager;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 final class SplitLoadManagerImpl extends SplitLoadManager {
 
@@ -57,14 +62,19 @@ final class SplitLoadManagerImpl extends SplitLoadManager {
 
     private final String[] forbiddenWorkProcesses;
 
+    private final List<String> pinnedSplits;
+
     SplitLoadManagerImpl(Context context,
                          String currentProcessName,
                          int splitLoadMode,
                          boolean qigsawMode,
-                         String[] forbiddenWorkProcesses) {
-        super(context, currentProcessName, splitLoadMode);
+                         String[] forbiddenWorkProcesses,
+                         boolean lazyLoadSplits,
+                         String[] pinnedSplits) {
+        super(context, currentProcessName, splitLoadMode, lazyLoadSplits);
         this.qigsawMode = qigsawMode;
         this.forbiddenWorkProcesses = forbiddenWorkProcesses;
+        this.pinnedSplits = pinnedSplits == null ? Collections.<String>emptyList() : Arrays.asList(pinnedSplits);
         SplitInfoManagerService.install(context, currentProcessName);
         SplitPathManager.install(context);
     }
@@ -112,11 +122,39 @@ final class SplitLoadManagerImpl extends SplitLoadManager {
 
     @Override
     public void loadInstalledSplits() {
+        loadInstalledSplits(false, null);
+    }
+
+    @Override
+    public void loadInstalledSplits(@NonNull Collection<String> splitNames) {
+        loadInstalledSplits(false, splitNames);
+    }
+
+    /**
+     * Only splits which have files on disk and their dependencies are looked up, so that split infos
+     * are not decoded as a whole when app launches.
+     *
+     * @param launching  whether splits are loaded when app launches, only eager splits are loaded in lazy mode.
+     * @param splitNames names of splits to be loaded with their dependencies, {@code null} means all splits work in this process.
+     */
+    private void loadInstalledSplits(boolean launching, @Nullable Collection<String> splitNames) {
         SplitInfoManager manager = SplitInfoManagerService.getInstance();
         if (manager != null) {
-            Collection<SplitInfo> splitInfoList = manager.getAllSplitInfo(getContext());
-            if (splitInfoList != null) {
-                List<Intent> splitFileIntents = createInstalledSplitFileIntents(splitInfoList);
+            if (manager.getQigsawId(getContext()) != null) {
+                List<SplitInfo> workSplits;
+                if (splitNames == null) {
+                    List<SplitInfo> splitsOnDisk = getSplitInfos(manager, SplitPathManager.require().getSplitNamesOnDisk());
+                    uninstallMarkedSplits(splitsOnDisk);
+                    if (launching && lazyLoadSplits) {
+                        workSplits = getSplitsWithDependencies(manager, getEagerSplitNames(splitsOnDisk));
+                        SplitLog.i(TAG, "Lazy load mode, splits %s are loaded when app launches", getSplitNames(workSplits));
+                    } else {
+                        workSplits = getSplitsWithDependencies(manager, getSplitNames(splitsOnDisk));
+                    }
+                } else {
+                    workSplits = getSplitsWithDependencies(manager, splitNames);
+                }
+                List<Intent> splitFileIntents = createInstalledSplitFileIntents(manager, workSplits);
                 if (!splitFileIntents.isEmpty()) {
                     createSplitLoadTask(splitFileIntents, null).run();
                 } else {
@@ -139,36 +177,116 @@ final class SplitLoadManagerImpl extends SplitLoadManager {
         }
     }
 
-    private List<Intent> createInstalledSplitFileIntents(@NonNull Collection<SplitInfo> splitInfoList) {
-        List<Intent> splitFileIntents = new ArrayList<>();
-        for (SplitInfo splitInfo : splitInfoList) {
-            if (canBeWorkedInThisProcessForSplit(splitInfo)) {
-                if (getLoadedSplitNames().contains(splitInfo.getSplitName())) {
-                    SplitLog.i(TAG, "Split %s has been loaded, ignore it!", splitInfo.getSplitName());
-                    continue;
-                }
-                SplitLog.i(TAG, "Split %s will work in this process!", splitInfo.getSplitName());
-                Intent splitFileIntent = createLastInstalledSplitFileIntent(splitInfo);
-                if (splitFileIntent != null) {
-                    SplitLog.i(TAG, "Split %s has been installed, pack it!", splitInfo.getSplitName());
-                    splitFileIntents.add(splitFileIntent);
-                }
-            } else {
-                SplitLog.i(TAG, "Split %s do not need work in this process", splitInfo.getSplitName());
+    /**
+     * Delete files of splits uninstalled by {@code deferredUninstall} before installed splits are loaded.
+     */
+    private void uninstallMarkedSplits(@NonNull List<SplitInfo> splitsOnDisk) {
+        for (SplitInfo splitInfo : splitsOnDisk) {
+            if (SplitPendingUninstall.isMarked(splitInfo) && !getLoadedSplitNames().contains(splitInfo.getSplitName())) {
+                SplitPendingUninstall.uninstall(splitInfo);
             }
         }
-        return splitFileIntents;
     }
 
-    private boolean canBeWorkedInThisProcessForSplit(SplitInfo splitInfo) {
+    private String getSimpleProcessName() {
+        return currentProcessName.replace(getContext().getPackageName(), "");
+    }
+
+    /**
+     * Splits which declare no work processes or declare current process work in this process.
+     */
+    private static boolean isWorkSplit(@NonNull SplitInfo splitInfo, String simpleProcessName) {
         List<String> workProcesses = splitInfo.getWorkProcesses();
-        if (workProcesses != null && !workProcesses.isEmpty()) {
-            String packageName = getContext().getPackageName();
-            String simpleProcessName = currentProcessName.replace(packageName, "");
-            SplitLog.i(TAG, "Current process simple name: " + (TextUtils.isEmpty(simpleProcessName) ? "null" : simpleProcessName));
-            return workProcesses.contains(simpleProcessName);
+        return workProcesses == null || workProcesses.isEmpty() || workProcesses.contains(simpleProcessName);
+    }
+
+    /**
+     * Splits which declare current process as work process explicitly or are pinned by app are loaded eagerly,
+     * others are loaded with their dependencies on first use of their components or classes.
+     */
+    private List<String> getEagerSplitNames(@NonNull List<SplitInfo> splitsOnDisk) {
+        String simpleProcessName = getSimpleProcessName();
+        Set<String> eagerSplitNames = new LinkedHashSet<>(pinnedSplits);
+        for (SplitInfo splitInfo : splitsOnDisk) {
+            List<String> workProcesses = splitInfo.getWorkProcesses();
+            if (workProcesses != null && workProcesses.contains(simpleProcessName)) {
+                eagerSplitNames.add(splitInfo.getSplitName());
+            }
         }
-        return true;
+        return new ArrayList<>(eagerSplitNames);
+    }
+
+    /**
+     * Look up splits by names, names which are not declared are ignored.
+     */
+    private List<SplitInfo> getSplitInfos(@NonNull SplitInfoManager manager, @NonNull List<String> splitNames) {
+        List<SplitInfo> splitInfos = new ArrayList<>(splitNames.size());
+        for (String splitName : splitNames) {
+            SplitInfo splitInfo = manager.getSplitInfo(getContext(), splitName);
+            if (splitInfo != null) {
+                splitInfos.add(splitInfo);
+            }
+        }
+        return splitInfos;
+    }
+
+    /**
+     * Dependencies of a split are placed before it, splits not working in current process are ignored.
+     */
+    private List<SplitInfo> getSplitsWithDependencies(@NonNull SplitInfoManager manager,
+                                                      @NonNull Collection<String> splitNames) {
+        String simpleProcessName = getSimpleProcessName();
+        SplitLog.i(TAG, "Current process simple name: " + (TextUtils.isEmpty(simpleProcessName) ? "null" : simpleProcessName));
+        Set<SplitInfo> result = new LinkedHashSet<>(splitNames.size());
+        for (String splitName : splitNames) {
+            addSplitWithDependencies(manager, simpleProcessName, manager.getSplitInfo(getContext(), splitName), result);
+        }
+        return new ArrayList<>(result);
+    }
+
+    private void addSplitWithDependencies(@NonNull SplitInfoManager manager,
+                                          String simpleProcessName,
+                                          @Nullable SplitInfo splitInfo,
+                                          @NonNull Set<SplitInfo> result) {
+        if (splitInfo == null || result.contains(splitInfo) || !isWorkSplit(splitInfo, simpleProcessName)) {
+            return;
+        }
+        List<String> dependencies = splitInfo.getDependencies();
+        if (dependencies != null) {
+            for (String dependency : dependencies) {
+                addSplitWithDependencies(manager, simpleProcessName, manager.getSplitInfo(getContext(), dependency), result);
+            }
+        }
+        result.add(splitInfo);
+    }
+
+    private static List<String> getSplitNames(@NonNull List<SplitInfo> splits) {
+        List<String> splitNames = new ArrayList<>(splits.size());
+        for (SplitInfo splitInfo : splits) {
+            splitNames.add(splitInfo.getSplitName());
+        }
+        return splitNames;
+    }
+
+    private List<Intent> createInstalledSplitFileIntents(@NonNull SplitInfoManager manager, @NonNull List<SplitInfo> workSplits) {
+        List<Intent> splitFileIntents = new ArrayList<>(workSplits.size());
+        for (SplitInfo splitInfo : workSplits) {
+            if (getLoadedSplitNames().contains(splitInfo.getSplitName())) {
+                SplitLog.i(TAG, "Split %s has been loaded, ignore it!", splitInfo.getSplitName());
+                continue;
+            }
+            if (SplitPendingUninstall.isMarked(splitInfo)) {
+                SplitLog.i(TAG, "Split %s has been uninstalled, ignore it!", splitInfo.getSplitName());
+                continue;
+            }
+            SplitLog.i(TAG, "Split %s will work in this process!", splitInfo.getSplitName());
+            Intent splitFileIntent = createLastInstalledSplitFileIntent(manager, splitInfo);
+            if (splitFileIntent != null) {
+                SplitLog.i(TAG, "Split %s has been installed, pack it!", splitInfo.getSplitName());
+                splitFileIntents.add(splitFileIntent);
+            }
+        }
+        return splitFileIntents;
     }
 
     private void deferredLoadInstalledSplits() {
@@ -176,19 +294,25 @@ final class SplitLoadManagerImpl extends SplitLoadManager {
             Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
                 @Override
                 public boolean queueIdle() {
-                    loadInstalledSplits();
+                    //splits are prepared in background, then their resources and code are injected on UI thread.
+                    SplitBackgroundExecutor.getExecutor().execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            loadInstalledSplits(true, null);
+                        }
+                    });
                     return false;
                 }
             });
         } else {
-            loadInstalledSplits();
+            loadInstalledSplits(true, null);
         }
     }
 
     /**
      * fast check operation
      */
-    private Intent createLastInstalledSplitFileIntent(SplitInfo splitInfo) {
+    private Intent createLastInstalledSplitFileIntent(SplitInfoManager manager, SplitInfo splitInfo) {
         String splitName = splitInfo.getSplitName();
         File splitDir = SplitPathManager.require().getSplitDir(splitInfo);
         File markFile = new File(splitDir, splitInfo.getMd5());
@@ -199,7 +323,7 @@ final class SplitLoadManagerImpl extends SplitLoadManager {
             if (dependencies != null) {
                 SplitLog.i(TAG, "Split %s has dependencies %s !", splitName, dependencies);
                 for (String dependency : dependencies) {
-                    SplitInfo dependencySplitInfo = SplitInfoManagerService.getInstance().getSplitInfo(getContext(), dependency);
+                    SplitInfo dependencySplitInfo = manager.getSplitInfo(getContext(), dependency);
                     File dependencySplitDir = SplitPathManager.require().getSplitDir(dependencySplitInfo);
                     File dependencyMarkFile = new File(dependencySplitDir, dependencySplitInfo.getMd5());
                     if (!dependencyMarkFile.exists()) {
@@ -43,9 +43,11 @@ public class SplitLoadManagerService {
                                String currentProcessName,
                                int splitLoadMode,
                                boolean qigsawMode,
-                               String[] forbiddenWorkProcesses) {
+                               String[] forbiddenWorkProcesses,
+                               boolean lazyLoadSplits,
+                               String[] pinnedSplits) {
         if (sReference.get() == null) {
-            sReference.set(create(context, currentProcessName, splitLoadMode, qigsawMode, forbiddenWorkProcesses));
+            sReference.set(create(context, currentProcessName, splitLoadMode, qigsawMode, forbiddenWorkProcesses, lazyLoadSplits, pinnedSplits));
         }
     }
 
@@ -64,7 +66,10 @@ public class SplitLoadManagerService {
                                            String currentProcessName,
                                            int splitLoadMode,
                                            boolean qigsawMode,
-                                           String[] forbiddenWorkProcesses) {
-        return new SplitLoadManagerImpl(context, currentProcessName, splitLoadMode, qigsawMode, forbiddenWorkProcesses);
+                                           String[] forbiddenWorkProcesses,
+                                           boolean lazyLoadSplits,
+                                           String[] pinnedSplits) {
+        return new SplitLoadManagerImpl(context, currentProcessName, splitLoadMode, qigsawMode,
+                forbiddenWorkProcesses, lazyLoadSplits, pinnedSplits);
     }
 }
@@ -0,0 +1,189 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.iqiyi.android.qigsaw.core.splitload;
+
+import android.support.annotation.Nullable;
+import android.support.annotation.RestrictTo;
+
+import com.iqiyi.android.qigsaw.core.common.FileUtil;
+import com.iqiyi.android.qigsaw.core.common.SplitLog;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static android.support.annotation.RestrictTo.Scope.LIBRARY_GROUP;
+
+/**
+ * Record usage of an installed split version, kept in the split version dir.
+ * <p>
+ * Last load time is written when a split is loaded. A process holds a shared lock on the version dir
+ * for its lifetime once it loads the split, so that cache eviction which requires an exclusive lock
+ * never deletes a version in use by any process. Tasks loading the same split concurrently share the lock,
+ * it is released once all of them release it.
+ * <p>
+ * Lock of a split which fails to load or is dropped by {@link SplitLoadManager#unloadSplit(String)} before
+ * activation is released. An activated split can not be unloaded from a running process, so eviction never
+ * touches versions loaded in a running process until that process exits.
+ */
+@RestrictTo(LIBRARY_GROUP)
+public final class SplitLoadRecord {
+
+    private static final String TAG = "Split:SplitLoadRecord";
+
+    private static final String LOAD_TIME_FILE = "SplitLoad.time";
+
+    private static final String LOAD_LOCK_FILE = "SplitLoad.lock";
+
+    private static final Map<String, VersionLock> sLoadLocks = new HashMap<>();
+
+    private SplitLoadRecord() {
+
+    }
+
+    /**
+     * Hold shared lock of the split version dir until it is released as many times as it is acquired.
+     *
+     * @return {@code false} if the version is being evicted, then it must not be released.
+     */
+    static boolean acquire(File splitDir) {
+        String key = splitDir.getAbsolutePath();
+        synchronized (sLoadLocks) {
+            VersionLock lock = sLoadLocks.get(key);
+            if (lock == null) {
+                lock = VersionLock.tryLock(splitDir, true);
+                if (lock == null) {
+                    return false;
+                }
+                sLoadLocks.put(key, lock);
+            }
+            lock.refCount++;
+            return true;
+        }
+    }
+
+    static void release(File splitDir) {
+        String key = splitDir.getAbsolutePath();
+        synchronized (sLoadLocks) {
+            VersionLock lock = sLoadLocks.get(key);
+            if (lock != null && --lock.refCount <= 0) {
+                FileUtil.closeQuietly(sLoadLocks.remove(key));
+            }
+        }
+    }
+
+    static void markLoaded(File splitDir) {
+        File timeFile = new File(splitDir, LOAD_TIME_FILE);
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(timeFile, "rw");
+            raf.setLength(0);
+            raf.writeLong(System.currentTimeMillis());
+        } catch (IOException e) {
+            SplitLog.w(TAG, "Failed to record load time of " + splitDir.getAbsolutePath());
+        } finally {
+            FileUtil.closeQuietly(raf);
+        }
+    }
+
+    /**
+     * @return last time the split version is loaded, or last modified time of dir if it has never been recorded.
+     */
+    public static long getLastLoadTime(File splitDir) {
+        File timeFile = new File(splitDir, LOAD_TIME_FILE);
+        if (timeFile.length() == 8) {
+            RandomAccessFile raf = null;
+            try {
+                raf = new RandomAccessFile(timeFile, "r");
+                return raf.readLong();
+            } catch (IOException e) {
+                SplitLog.w(TAG, "Failed to read load time of " + splitDir.getAbsolutePath());
+            } finally {
+                FileUtil.closeQuietly(raf);
+            }
+        }
+        return splitDir.lastModified();
+    }
+
+    /**
+     * Lock the split version dir exclusively before it is deleted.
+     *
+     * @return {@code null} if the version is loaded by any process, otherwise the lock which must be closed after deletion.
+     */
+    @Nullable
+    public static Closeable lockForEviction(File splitDir) {
+        synchronized (sLoadLocks) {
+            if (sLoadLocks.containsKey(splitDir.getAbsolutePath())) {
+                return null;
+            }
+            return VersionLock.tryLock(splitDir, false);
+        }
+    }
+
+    private static final class VersionLock implements Closeable {
+
+        private final RandomAccessFile raf;
+
+        private final FileLock lock;
+
+        int refCount;
+
+        private VersionLock(RandomAccessFile raf, FileLock lock) {
+            this.raf = raf;
+            this.lock = lock;
+        }
+
+        static VersionLock tryLock(File splitDir, boolean shared) {
+            RandomAccessFile raf = null;
+            try {
+                raf = new RandomAccessFile(new File(splitDir, LOAD_LOCK_FILE), "rw");
+                FileChannel channel = raf.getChannel();
+                FileLock lock = channel.tryLock(0L, Long.MAX_VALUE, shared);
+                if (lock != null) {
+                    return new VersionLock(raf, lock);
+                }
+            } catch (IOException | OverlappingFileLockException e) {
+                SplitLog.w(TAG, "Failed to lock " + splitDir.getAbsolutePath());
+            }
+            FileUtil.closeQuietly(raf);
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                lock.release();
+            } finally {
+                raf.close();
+            }
+        }
+    }
+}
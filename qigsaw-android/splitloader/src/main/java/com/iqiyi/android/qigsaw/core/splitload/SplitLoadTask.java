@@ -37,6 +37,8 @@ import com.iqiyi.android.qigsaw.core.common.SplitLog;
 import com.iqiyi.android.qigsaw.core.splitload.listener.OnSplitLoadListener;
 import com.iqiyi.android.qigsaw.core.splitreport.SplitLoadError;
 import com.iqiyi.android.qigsaw.core.splitreport.SplitLoadReporter;
+import com.iqiyi.android.qigsaw.core.splitreport.SplitPhaseRecorder;
+import com.iqiyi.android.qigsaw.core.splitreport.SplitPhaseTiming;
 import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfo;
 import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfoManager;
 import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfoManagerService;
@@ -45,6 +47,7 @@ import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitPathManager;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
@@ -85,26 +88,58 @@ abstract class SplitLoadTask implements Runnable {
 
     abstract SplitLoader createSplitLoader();
 
-    abstract ClassLoader loadCode(SplitLoader loader,
-                                  String splitName,
-                                  List<String> addedDexPaths,
-                                  File optimizedDirectory,
-                                  File librarySearchPath) throws SplitLoadException;
+    /**
+     * Create code of split which is not visible to app yet, this could be called in any thread.
+     */
+    void prepareCode(SplitLoader loader, PreparedSplit preparedSplit) {
 
-    abstract void onSplitActivateFailed(ClassLoader classLoader);
+    }
+
+    /**
+     * Create code of all prepared splits, this could be called in any thread.
+     */
+    void prepareCode(SplitLoader loader, List<PreparedSplit> preparedSplits) {
+        for (PreparedSplit preparedSplit : preparedSplits) {
+            prepareCode(loader, preparedSplit);
+        }
+    }
+
+    /**
+     * Inject or publish code of split, this must be called in UI thread.
+     */
+    abstract ClassLoader loadCode(SplitLoader loader, PreparedSplit preparedSplit) throws SplitLoadException;
+
+    abstract void onSplitActivateFailed(String splitName, ClassLoader classLoader);
+
+    /**
+     * @return {@code true} if class loader of split is dropped by {@link SplitLoadManager#unloadSplit(String)} while preparing.
+     */
+    boolean isSplitUnloaded(PreparedSplit preparedSplit) {
+        return false;
+    }
 
+    /**
+     * Paths of splits are resolved and class loaders are created on the calling thread, global state
+     * (resources, dex elements, native library paths and registered class loaders) is only changed on UI thread.
+     */
     @Override
     public final void run() {
         if (Looper.getMainLooper().getThread() == Thread.currentThread()) {
             loadSplitOnUIThread();
         } else {
+            final long time = System.currentTimeMillis();
+            final List<SplitLoadError> loadErrors = new ArrayList<>(0);
+            final SplitLoader loader = createSplitLoader();
+            final List<PreparedSplit> preparedSplits = prepareSplits(loader, loadErrors);
             synchronized (mLock) {
                 mainHandler.post(new Runnable() {
 
                     @Override
                     public void run() {
                         synchronized (mLock) {
-                            loadSplitOnUIThread();
+                            activateSplits(loader, preparedSplits, loadErrors);
+                            long cost = System.currentTimeMillis() - time;
+                            reportLoadResult(loadErrors, cost);
                             mLock.notifyAll();
                         }
                     }
@@ -121,15 +156,19 @@ abstract class SplitLoadTask implements Runnable {
 
     private void loadSplitOnUIThread() {
         long time = System.currentTimeMillis();
-        List<SplitLoadError> errors = loadSplitInternal();
+        List<SplitLoadError> loadErrors = new ArrayList<>(0);
+        SplitLoader loader = createSplitLoader();
+        List<PreparedSplit> preparedSplits = prepareSplits(loader, loadErrors);
+        activateSplits(loader, preparedSplits, loadErrors);
         long cost = System.currentTimeMillis() - time;
-        reportLoadResult(errors, cost);
+        reportLoadResult(loadErrors, cost);
     }
 
-    private List<SplitLoadError> loadSplitInternal() {
-        SplitLoader loader = createSplitLoader();
-        Set<Split> splits = new ArraySet<>();
-        List<SplitLoadError> loadErrors = new ArrayList<>(0);
+    /**
+     * Resolve files of splits and create their code, this could be called in any thread.
+     */
+    private List<PreparedSplit> prepareSplits(SplitLoader loader, List<SplitLoadError> loadErrors) {
+        List<PreparedSplit> preparedSplits = new ArrayList<>(splitFileIntents.size());
         for (Intent splitFileIntent : splitFileIntents) {
             String splitName = splitFileIntent.getStringExtra(SplitConstants.KET_NAME);
             //if if split has been loaded, just skip.
@@ -138,46 +177,171 @@ abstract class SplitLoadTask implements Runnable {
                 continue;
             }
             String splitApkPath = splitFileIntent.getStringExtra(SplitConstants.KEY_APK);
-            try {
-                //load split's resources.
-                loader.loadResources(splitApkPath);
-            } catch (SplitLoadException e) {
-                SplitLog.printErrStackTrace(TAG, e, "Failed to load split %s resources!", splitName);
-                loadErrors.add(new SplitLoadError(splitName, e.getErrorCode(), e.getCause()));
-                continue;
+            SplitInfo info = infoManager.getSplitInfo(appContext, splitName);
+            File splitDir = SplitPathManager.require().getSplitDir(info);
+            //keep the version from being evicted while it is in use.
+            boolean recordAcquired = SplitLoadRecord.acquire(splitDir);
+            if (!recordAcquired) {
+                SplitLog.w(TAG, "Split %s is being evicted!", splitName);
             }
+            SplitPhaseRecorder recorder = SplitPhaseRecorder.create(splitName, SplitLoadReporterManager.getLoadReporter());
             List<String> addedDexPaths = splitFileIntent.getStringArrayListExtra(SplitConstants.KEY_ADDED_DEX);
-            SplitInfo info = infoManager.getSplitInfo(appContext, splitName);
             File optimizedDirectory = SplitPathManager.require().getSplitOptDir(info);
             File librarySearchPath = null;
             if (info.hasLibs()) {
                 librarySearchPath = SplitPathManager.require().getSplitLibDir(info);
+                if (SplitNativeLibraryLayout.isMarkedLoadFromApk(librarySearchPath, new File(splitApkPath), info)) {
+                    librarySearchPath = SplitNativeLibraryLayout.getApkLibraryDir(new File(splitApkPath), info);
+                }
             }
-            File splitDir = SplitPathManager.require().getSplitDir(info);
-            ClassLoader classLoader;
+            PreparedSplit preparedSplit = new PreparedSplit(splitName, splitApkPath, splitDir, recordAcquired,
+                    addedDexPaths, optimizedDirectory, librarySearchPath, recorder);
+            preparedSplits.add(preparedSplit);
+        }
+        prepareCode(loader, preparedSplits);
+        return preparedSplits;
+    }
+
+    /**
+     * Load code of splits one by one, splits failed to load are removed.
+     */
+    void loadCode(SplitLoader loader, List<PreparedSplit> preparedSplits, List<SplitLoadError> loadErrors) {
+        Iterator<PreparedSplit> iterator = preparedSplits.iterator();
+        while (iterator.hasNext()) {
+            PreparedSplit preparedSplit = iterator.next();
+            SplitPhaseRecorder recorder = preparedSplit.recorder;
+            long startTime = recorder.begin(SplitPhaseTiming.PHASE_LOAD_CODE);
             try {
-                classLoader = loadCode(loader, splitName, addedDexPaths, optimizedDirectory, librarySearchPath);
+                preparedSplit.classLoader = loadCode(loader, preparedSplit);
             } catch (SplitLoadException e) {
-                SplitLog.printErrStackTrace(TAG, e, "Failed to load split %s code!", splitName);
-                loadErrors.add(new SplitLoadError(splitName, e.getErrorCode(), e.getCause()));
+                SplitLog.printErrStackTrace(TAG, e, "Failed to load split %s code!", preparedSplit.splitName);
+                loadErrors.add(new SplitLoadError(preparedSplit.splitName, e.getErrorCode(), e.getCause()));
+                recorder.end(SplitPhaseTiming.PHASE_LOAD_CODE, startTime, 0);
+                recorder.report();
+                releaseRecord(preparedSplit);
+                iterator.remove();
                 continue;
             }
-            //activate split, include application and provider.
+            recorder.end(SplitPhaseTiming.PHASE_LOAD_CODE, startTime, 0);
+        }
+    }
+
+    /**
+     * Begin the phase for each split of a batch.
+     *
+     * @return start times, pass them to {@link #endPhase(List, String, long[])}.
+     */
+    static long[] beginPhase(List<PreparedSplit> preparedSplits, String phase) {
+        long[] startTimes = new long[preparedSplits.size()];
+        for (int i = 0; i < preparedSplits.size(); i++) {
+            startTimes[i] = preparedSplits.get(i).recorder.begin(phase);
+        }
+        return startTimes;
+    }
+
+    static void endPhase(List<PreparedSplit> preparedSplits, String phase, long[] startTimes) {
+        //trace sections are nested, so end them in reverse order.
+        for (int i = preparedSplits.size() - 1; i >= 0; i--) {
+            preparedSplits.get(i).recorder.end(phase, startTimes[i], 0);
+        }
+    }
+
+    /**
+     * Resources of splits are installed in one pass, if it fails they are installed one by one,
+     * so that only splits whose resources are broken are removed.
+     */
+    private void loadResources(SplitLoader loader, List<PreparedSplit> preparedSplits, List<SplitLoadError> loadErrors) {
+        if (preparedSplits.isEmpty()) {
+            return;
+        }
+        List<String> splitApkPaths = new ArrayList<>(preparedSplits.size());
+        for (PreparedSplit preparedSplit : preparedSplits) {
+            splitApkPaths.add(preparedSplit.splitApkPath);
+        }
+        long[] startTimes = beginPhase(preparedSplits, SplitPhaseTiming.PHASE_LOAD_RESOURCES);
+        SplitLoadException error = null;
+        try {
+            loader.loadResources(splitApkPaths);
+        } catch (SplitLoadException e) {
+            error = e;
+        }
+        endPhase(preparedSplits, SplitPhaseTiming.PHASE_LOAD_RESOURCES, startTimes);
+        if (error == null) {
+            return;
+        }
+        if (preparedSplits.size() == 1) {
+            onLoadResourcesFailed(preparedSplits.remove(0), error, loadErrors);
+            return;
+        }
+        SplitLog.printErrStackTrace(TAG, error, "Failed to load resources of splits %s in one pass!", splitApkPaths);
+        Iterator<PreparedSplit> iterator = preparedSplits.iterator();
+        while (iterator.hasNext()) {
+            PreparedSplit preparedSplit = iterator.next();
+            try {
+                loader.loadResources(Collections.singletonList(preparedSplit.splitApkPath));
+            } catch (SplitLoadException e) {
+                iterator.remove();
+                onLoadResourcesFailed(preparedSplit, e, loadErrors);
+            }
+        }
+    }
+
+    private void onLoadResourcesFailed(PreparedSplit preparedSplit, SplitLoadException error, List<SplitLoadError> loadErrors) {
+        SplitLog.printErrStackTrace(TAG, error, "Failed to load split %s resources!", preparedSplit.splitName);
+        loadErrors.add(new SplitLoadError(preparedSplit.splitName, error.getErrorCode(), error.getCause()));
+        preparedSplit.recorder.report();
+        releaseRecord(preparedSplit);
+    }
+
+    /**
+     * Load resources and code of prepared splits, then activate them, include application and provider.
+     * This must be called in UI thread.
+     */
+    private void activateSplits(SplitLoader loader, List<PreparedSplit> preparedSplits, List<SplitLoadError> loadErrors) {
+        Iterator<PreparedSplit> iterator = preparedSplits.iterator();
+        while (iterator.hasNext()) {
+            PreparedSplit preparedSplit = iterator.next();
+            //split may be loaded by another task while preparing.
+            if (checkSplitLoaded(preparedSplit.splitName)) {
+                SplitLog.i(TAG, "Split %s has been loaded!", preparedSplit.splitName);
+            } else if (isSplitUnloaded(preparedSplit)) {
+                SplitLog.i(TAG, "Split %s has been unloaded, skip activating it!", preparedSplit.splitName);
+            } else {
+                continue;
+            }
+            //class loader which is not published yet is just dropped.
+            preparedSplit.classLoader = null;
+            preparedSplit.recorder.report();
+            releaseRecord(preparedSplit);
+            iterator.remove();
+        }
+        //load resources of all splits in one pass.
+        loadResources(loader, preparedSplits, loadErrors);
+        loadCode(loader, preparedSplits, loadErrors);
+        Set<Split> splits = new ArraySet<>();
+        for (PreparedSplit preparedSplit : preparedSplits) {
+            String splitName = preparedSplit.splitName;
             try {
-                activator.activate(classLoader, splitName);
+                activator.activate(preparedSplit.classLoader, splitName, preparedSplit.recorder);
             } catch (SplitLoadException e) {
                 SplitLog.printErrStackTrace(TAG, e, "Failed to activate " + splitName);
                 loadErrors.add(new SplitLoadError(splitName, e.getErrorCode(), e.getCause()));
-                onSplitActivateFailed(classLoader);
+                onSplitActivateFailed(splitName, preparedSplit.classLoader);
+                releaseRecord(preparedSplit);
                 continue;
+            } finally {
+                preparedSplit.recorder.report();
             }
-            splits.add(new Split(splitName, splitApkPath));
-            if (!splitDir.setLastModified(System.currentTimeMillis())) {
-                SplitLog.w(TAG, "Failed to set last modified time for " + splitName);
-            }
+            splits.add(new Split(splitName, preparedSplit.splitApkPath));
+            SplitLoadRecord.markLoaded(preparedSplit.splitDir);
         }
         loadManager.putSplits(splits);
-        return loadErrors;
+    }
+
+    private static void releaseRecord(PreparedSplit preparedSplit) {
+        if (preparedSplit.recordAcquired) {
+            SplitLoadRecord.release(preparedSplit.splitDir);
+        }
     }
 
     private void reportLoadResult(List<SplitLoadError> errors, long cost) {
@@ -217,5 +381,42 @@ abstract class SplitLoadTask implements Runnable {
         return false;
     }
 
+    static final class PreparedSplit {
+
+        final String splitName;
+
+        final String splitApkPath;
+
+        final File splitDir;
+
+        final boolean recordAcquired;
 
+        final List<String> addedDexPaths;
+
+        final File optimizedDirectory;
+
+        final File librarySearchPath;
+
+        final SplitPhaseRecorder recorder;
+
+        ClassLoader classLoader;
+
+        /**
+         * Whether {@link #classLoader} is taken from {@link SplitApplicationLoaders} while preparing.
+         */
+        boolean classLoaderRegistered;
+
+        PreparedSplit(String splitName, String splitApkPath, File splitDir, boolean recordAcquired,
+                      List<String> addedDexPaths, File optimizedDirectory, File librarySearchPath,
+                      SplitPhaseRecorder recorder) {
+            this.splitName = splitName;
+            this.splitApkPath = splitApkPath;
+            this.splitDir = splitDir;
+            this.recordAcquired = recordAcquired;
+            this.addedDexPaths = addedDexPaths;
+            this.optimizedDirectory = optimizedDirectory;
+            this.librarySearchPath = librarySearchPath;
+            this.recorder = recorder;
+        }
+    }
 }
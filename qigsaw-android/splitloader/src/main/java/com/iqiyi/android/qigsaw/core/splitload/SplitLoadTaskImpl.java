@@ -29,8 +29,9 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import com.iqiyi.android.qigsaw.core.splitload.listener.OnSplitLoadListener;
+import com.iqiyi.android.qigsaw.core.splitreport.SplitPhaseRecorder;
+import com.iqiyi.android.qigsaw.core.splitreport.SplitPhaseTiming;
 
-import java.io.File;
 import java.util.List;
 
 final class SplitLoadTaskImpl extends SplitLoadTask {
@@ -47,21 +48,37 @@ final class SplitLoadTaskImpl extends SplitLoadTask {
     }
 
     @Override
-    ClassLoader loadCode(SplitLoader loader,
-                         String splitName,
-                         List<String> addedDexPaths,
-                         File optimizedDirectory,
-                         File librarySearchPath) {
-        SplitDexClassLoader classLoader = SplitApplicationLoaders.getInstance().getClassLoader(splitName);
-        if (classLoader == null) {
-            classLoader = loader.loadCode(splitName, addedDexPaths, optimizedDirectory, librarySearchPath);
-            SplitApplicationLoaders.getInstance().addClassLoader(classLoader);
+    void prepareCode(SplitLoader loader, PreparedSplit preparedSplit) {
+        SplitDexClassLoader classLoader = SplitApplicationLoaders.getInstance().getClassLoader(preparedSplit.splitName);
+        if (classLoader != null) {
+            preparedSplit.classLoaderRegistered = true;
+        } else {
+            SplitPhaseRecorder recorder = preparedSplit.recorder;
+            long startTime = recorder.begin(SplitPhaseTiming.PHASE_LOAD_CODE);
+            classLoader = loader.loadCode(preparedSplit.splitName, preparedSplit.addedDexPaths,
+                    preparedSplit.optimizedDirectory, preparedSplit.librarySearchPath);
+            recorder.end(SplitPhaseTiming.PHASE_LOAD_CODE, startTime, 0);
         }
-        return classLoader;
+        preparedSplit.classLoader = classLoader;
     }
 
+    /**
+     * Class loader created while preparing is published here, if another one has been published
+     * for the split, it is used instead.
+     */
     @Override
-    void onSplitActivateFailed(ClassLoader classLoader) {
+    ClassLoader loadCode(SplitLoader loader, PreparedSplit preparedSplit) {
+        return SplitApplicationLoaders.getInstance().addClassLoaderIfAbsent((SplitDexClassLoader) preparedSplit.classLoader);
+    }
+
+    @Override
+    boolean isSplitUnloaded(PreparedSplit preparedSplit) {
+        return preparedSplit.classLoaderRegistered
+                && SplitApplicationLoaders.getInstance().getClassLoader(preparedSplit.splitName) != preparedSplit.classLoader;
+    }
+
+    @Override
+    void onSplitActivateFailed(String splitName, ClassLoader classLoader) {
         if (classLoader instanceof SplitDexClassLoader) {
             SplitApplicationLoaders.getInstance().removeClassLoader((SplitDexClassLoader) classLoader);
         }
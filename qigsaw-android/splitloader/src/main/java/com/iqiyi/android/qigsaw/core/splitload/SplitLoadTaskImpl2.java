@@ -29,16 +29,29 @@ import android.content.Intent;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import com.iqiyi.android.qigsaw.core.common.SplitLog;
 import com.iqiyi.android.qigsaw.core.splitload.listener.OnSplitLoadListener;
+import com.iqiyi.android.qigsaw.core.splitreport.SplitLoadError;
+import com.iqiyi.android.qigsaw.core.splitreport.SplitPhaseTiming;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Loading split for single class loader mode.
  */
 final class SplitLoadTaskImpl2 extends SplitLoadTask {
 
+    private static final String TAG = "SplitLoadTaskImpl2";
+
+    /**
+     * Elements of splits made while preparing, they are only injected on UI thread.
+     */
+    private SplitLoader.PreparedCode preparedCode;
+
     SplitLoadTaskImpl2(@NonNull SplitLoadManager loadManager,
                        @NonNull List<Intent> splitFileIntents,
                        @Nullable OnSplitLoadListener loadListener) {
@@ -50,20 +63,95 @@ final class SplitLoadTaskImpl2 extends SplitLoadTask {
         return new SplitLoaderImpl2(appContext);
     }
 
+    /**
+     * Dex and native library elements are made here, so that only arrays of DexPathList are swapped on UI thread.
+     * If it fails, elements are made again while loading code and errors are reported there.
+     */
+    @Override
+    void prepareCode(SplitLoader loader, List<PreparedSplit> preparedSplits) {
+        if (preparedSplits.isEmpty()) {
+            return;
+        }
+        Map<String, List<String>> splitDexPaths = new LinkedHashMap<>(preparedSplits.size());
+        Map<String, File> optimizedDirectories = new LinkedHashMap<>(preparedSplits.size());
+        List<File> librarySearchPaths = new ArrayList<>(0);
+        for (PreparedSplit preparedSplit : preparedSplits) {
+            addSplitCode(preparedSplit.splitName, preparedSplit.addedDexPaths, preparedSplit.optimizedDirectory,
+                    preparedSplit.librarySearchPath, splitDexPaths, optimizedDirectories, librarySearchPaths);
+        }
+        long[] startTimes = beginPhase(preparedSplits, SplitPhaseTiming.PHASE_LOAD_CODE);
+        try {
+            preparedCode = loader.prepareCode2(splitDexPaths, optimizedDirectories, librarySearchPaths);
+        } catch (SplitLoadException e) {
+            SplitLog.printErrStackTrace(TAG, e, "Failed to prepare code of splits!");
+        }
+        endPhase(preparedSplits, SplitPhaseTiming.PHASE_LOAD_CODE, startTimes);
+    }
+
+    /**
+     * Dex and native library elements of all splits are injected in one pass, so that arrays of
+     * DexPathList are expanded once. If it fails nothing is injected, then splits are loaded one by one.
+     */
     @Override
-    ClassLoader loadCode(SplitLoader loader,
-                         String splitName,
-                         List<String> addedDexPaths,
-                         File optimizedDirectory,
-                         File librarySearchPath) throws SplitLoadException {
-        loader.loadCode2(addedDexPaths, optimizedDirectory, librarySearchPath);
+    void loadCode(SplitLoader loader, List<PreparedSplit> preparedSplits, List<SplitLoadError> loadErrors) {
+        if (preparedSplits.size() > 1) {
+            Map<String, List<String>> splitDexPaths = new LinkedHashMap<>(preparedSplits.size());
+            Map<String, File> optimizedDirectories = new LinkedHashMap<>(preparedSplits.size());
+            List<File> librarySearchPaths = new ArrayList<>(0);
+            for (PreparedSplit preparedSplit : preparedSplits) {
+                addSplitCode(preparedSplit.splitName, preparedSplit.addedDexPaths, preparedSplit.optimizedDirectory,
+                        preparedSplit.librarySearchPath, splitDexPaths, optimizedDirectories, librarySearchPaths);
+            }
+            long[] startTimes = beginPhase(preparedSplits, SplitPhaseTiming.PHASE_LOAD_CODE);
+            SplitLoadException error = null;
+            try {
+                loader.loadCode2(splitDexPaths, optimizedDirectories, librarySearchPaths, preparedCode);
+            } catch (SplitLoadException e) {
+                error = e;
+            }
+            endPhase(preparedSplits, SplitPhaseTiming.PHASE_LOAD_CODE, startTimes);
+            if (error == null) {
+                for (PreparedSplit preparedSplit : preparedSplits) {
+                    preparedSplit.classLoader = SplitLoadTask.class.getClassLoader();
+                }
+                return;
+            }
+            SplitLog.printErrStackTrace(TAG, error, "Failed to load code of splits in one pass, load them one by one!");
+        }
+        super.loadCode(loader, preparedSplits, loadErrors);
+    }
+
+    @Override
+    ClassLoader loadCode(SplitLoader loader, PreparedSplit preparedSplit) throws SplitLoadException {
+        Map<String, List<String>> splitDexPaths = new LinkedHashMap<>(1);
+        Map<String, File> optimizedDirectories = new LinkedHashMap<>(1);
+        List<File> librarySearchPaths = new ArrayList<>(1);
+        addSplitCode(preparedSplit.splitName, preparedSplit.addedDexPaths, preparedSplit.optimizedDirectory,
+                preparedSplit.librarySearchPath, splitDexPaths, optimizedDirectories, librarySearchPaths);
+        loader.loadCode2(splitDexPaths, optimizedDirectories, librarySearchPaths, preparedCode);
         return SplitLoadTask.class.getClassLoader();
     }
 
+    private static void addSplitCode(String splitName,
+                                     List<String> addedDexPaths,
+                                     File optimizedDirectory,
+                                     File librarySearchPath,
+                                     Map<String, List<String>> splitDexPaths,
+                                     Map<String, File> optimizedDirectories,
+                                     List<File> librarySearchPaths) {
+        if (addedDexPaths != null) {
+            splitDexPaths.put(splitName, addedDexPaths);
+            optimizedDirectories.put(splitName, optimizedDirectory);
+        }
+        if (librarySearchPath != null) {
+            librarySearchPaths.add(librarySearchPath);
+        }
+    }
+
     @Override
-    void onSplitActivateFailed(ClassLoader classLoader) {
+    void onSplitActivateFailed(String splitName, ClassLoader classLoader) {
         try {
-            SplitCompatDexLoader.unLoad(classLoader);
+            SplitCompatDexLoader.unLoad(classLoader, splitName);
         } catch (Throwable throwable) {
             //
         }
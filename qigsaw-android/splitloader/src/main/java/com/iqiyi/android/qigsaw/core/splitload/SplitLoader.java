@@ -34,7 +34,10 @@ import com.iqiyi.android.qigsaw.core.splitreport.SplitLoadError;
 
 import java.io.File;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Interface definition for loading installed splits.
@@ -67,25 +70,46 @@ abstract class SplitLoader {
     }
 
     /**
-     * Load split' code for single class loader mode.
+     * Make dex and native library elements of splits for single class loader mode without injecting them,
+     * this could be called in any thread.
+     *
+     * @param splitDexPaths        dex paths of each split which has code, keyed by split name.
+     * @param optimizedDirectories optimized directory of each split, keyed by split name.
+     * @param librarySearchPaths   native library directories of splits.
+     */
+    PreparedCode prepareCode2(Map<String, List<String>> splitDexPaths,
+                              Map<String, File> optimizedDirectories,
+                              List<File> librarySearchPaths) throws SplitLoadException {
+        return null;
+    }
+
+    /**
+     * Load code of splits in one pass for single class loader mode, nothing is injected if it fails.
+     *
+     * @param splitDexPaths        dex paths of each split which has code, keyed by split name.
+     * @param optimizedDirectories optimized directory of each split, keyed by split name.
+     * @param librarySearchPaths   native library directories of splits.
+     * @param preparedCode         elements made by {@link #prepareCode2(Map, Map, List)}, missing or
+     *                             out of date elements are made here.
      */
-    void loadCode2(@Nullable List<String> dexPaths,
-                   File optimizedDirectory,
-                   @Nullable File librarySearchPath) throws SplitLoadException {
+    void loadCode2(Map<String, List<String>> splitDexPaths,
+                   Map<String, File> optimizedDirectories,
+                   List<File> librarySearchPaths,
+                   @Nullable PreparedCode preparedCode) throws SplitLoadException {
 
     }
 
     /**
-     * load resources of installed split.
+     * load resources of installed splits in one pass.
      *
-     * @param splitResDir local file path of split apk.
+     * @param splitResDirs local file paths of split apks.
      */
-    final void loadResources(String splitResDir) throws SplitLoadException {
+    final void loadResources(List<String> splitResDirs) throws SplitLoadException {
         try {
-            SplitCompatResourcesLoader.loadResources(context, context.getResources(), splitResDir);
+            SplitCompatResourcesLoader.loadResources(context, context.getResources(), splitResDirs);
             Context base = getBaseContext();
             try {
-                installSplitResourceDir(base, splitResDir);
+                installSplitResourceDirs(base, splitResDirs);
             } catch (Throwable ignored) {
 
             }
@@ -111,22 +135,22 @@ abstract class SplitLoader {
         return ctx;
     }
 
-    private void installSplitResourceDir(Context baseContext, String splitResDir) throws Throwable {
+    private void installSplitResourceDirs(Context baseContext, List<String> splitResDirs) throws Throwable {
         Object packageInfo = getPackageInfo(baseContext);
         if (packageInfo != null) {
             Field mSplitResDirsField = getFieldSplitResDirsInPackageInfo(packageInfo);
             if (mSplitResDirsField != null) {
-                String[] splitResDirs = (String[]) mSplitResDirsField.get(packageInfo);
-                if (splitResDirs == null) {
-                    mSplitResDirsField.set(packageInfo, new String[]{splitResDir});
-                } else {
-                    int splitSourceDirsLength = splitResDirs.length;
-                    String[] combined = new String[splitSourceDirsLength + 1];
-                    String[] expanded = new String[]{splitResDir};
-                    System.arraycopy(splitResDirs, 0, combined, 0, splitResDirs.length);
-                    System.arraycopy(expanded, 0, combined, splitResDirs.length, expanded.length);
-                    mSplitResDirsField.set(packageInfo, combined);
+                String[] installedResDirs = (String[]) mSplitResDirsField.get(packageInfo);
+                List<String> combined = new ArrayList<>();
+                if (installedResDirs != null) {
+                    combined.addAll(Arrays.asList(installedResDirs));
+                }
+                for (String splitResDir : splitResDirs) {
+                    if (!combined.contains(splitResDir)) {
+                        combined.add(splitResDir);
+                    }
                 }
+                mSplitResDirsField.set(packageInfo, combined.toArray(new String[0]));
             }
         }
     }
@@ -142,4 +166,20 @@ abstract class SplitLoader {
         return mPackageInfo;
     }
 
+    /**
+     * Code elements of splits which are not injected yet.
+     */
+    static final class PreparedCode {
+
+        final Map<String, Object[]> splitDexElements;
+
+        final SplitCompatLibraryLoader.PreparedLibraryPath libraryPath;
+
+        PreparedCode(Map<String, Object[]> splitDexElements,
+                     @Nullable SplitCompatLibraryLoader.PreparedLibraryPath libraryPath) {
+            this.splitDexElements = splitDexElements;
+            this.libraryPath = libraryPath;
+        }
+    }
+
 }
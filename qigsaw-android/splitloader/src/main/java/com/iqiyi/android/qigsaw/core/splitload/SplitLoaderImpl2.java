@@ -30,46 +30,146 @@ import android.support.annotation.Nullable;
 import com.iqiyi.android.qigsaw.core.splitreport.SplitLoadError;
 
 import java.io.File;
+import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 final class SplitLoaderImpl2 extends SplitLoader {
 
+    /**
+     * Fields of DexPathList changed by loading code, they are restored if loading fails.
+     */
+    private static final String[] PATH_LIST_FIELDS = {"dexElements", "nativeLibraryDirectories", "nativeLibraryPathElements"};
+
     SplitLoaderImpl2(Context context) {
         super(context);
     }
 
     @Override
-    void loadCode2(@Nullable List<String> dexPaths,
-                   File optimizedDirectory,
-                   @Nullable File librarySearchPath) throws SplitLoadException {
+    PreparedCode prepareCode2(Map<String, List<String>> splitDexPaths,
+                              Map<String, File> optimizedDirectories,
+                              List<File> librarySearchPaths) throws SplitLoadException {
         ClassLoader curCl = SplitLoader.class.getClassLoader();
-        loadLibrary(curCl, librarySearchPath);
-        loadDex(curCl, dexPaths, optimizedDirectory);
+        Map<String, Object[]> splitDexElements;
+        try {
+            splitDexElements = SplitCompatDexLoader.prepare(curCl, toDexFiles(splitDexPaths), optimizedDirectories);
+        } catch (Throwable cause) {
+            throw new SplitLoadException(SplitLoadError.LOAD_DEX_FAILED, cause);
+        }
+        SplitCompatLibraryLoader.PreparedLibraryPath libraryPath = null;
+        if (!librarySearchPaths.isEmpty()) {
+            try {
+                libraryPath = SplitCompatLibraryLoader.prepare(curCl, librarySearchPaths);
+            } catch (Throwable cause) {
+                throw new SplitLoadException(SplitLoadError.LOAD_LIB_FAILED, cause);
+            }
+        }
+        return new PreparedCode(splitDexElements, libraryPath);
     }
 
-    private void loadLibrary(ClassLoader classLoader, File librarySearchPath) throws SplitLoadException {
-        if (librarySearchPath != null) {
+    @Override
+    void loadCode2(Map<String, List<String>> splitDexPaths,
+                   Map<String, File> optimizedDirectories,
+                   List<File> librarySearchPaths,
+                   @Nullable PreparedCode preparedCode) throws SplitLoadException {
+        ClassLoader curCl = SplitLoader.class.getClassLoader();
+        Object dexPathList;
+        Object[] snapshot;
+        try {
+            dexPathList = HiddenApiReflection.findField(curCl, "pathList").get(curCl);
+            snapshot = snapshotPathList(dexPathList);
+        } catch (Throwable cause) {
+            throw new SplitLoadException(SplitLoadError.LOAD_DEX_FAILED, cause);
+        }
+        try {
+            loadLibrary(curCl, librarySearchPaths, preparedCode == null ? null : preparedCode.libraryPath);
+            loadDex(curCl, splitDexPaths, optimizedDirectories, preparedCode == null ? null : preparedCode.splitDexElements);
+        } catch (SplitLoadException e) {
+            restorePathList(dexPathList, snapshot);
+            throw e;
+        }
+    }
+
+    private void loadLibrary(ClassLoader classLoader, List<File> librarySearchPaths,
+                             SplitCompatLibraryLoader.PreparedLibraryPath libraryPath) throws SplitLoadException {
+        if (!librarySearchPaths.isEmpty()) {
             try {
-                SplitCompatLibraryLoader.load(classLoader, librarySearchPath);
+                SplitCompatLibraryLoader.load(classLoader, librarySearchPaths, libraryPath);
             } catch (Throwable cause) {
                 throw new SplitLoadException(SplitLoadError.LOAD_LIB_FAILED, cause);
             }
         }
     }
 
-    private void loadDex(ClassLoader classLoader, List<String> dexPaths, File optimizedDirectory) throws SplitLoadException {
-        if (dexPaths != null) {
-            List<File> dexFiles = new ArrayList<>(dexPaths.size());
-            for (String dexPath : dexPaths) {
-                dexFiles.add(new File(dexPath));
-            }
+    private void loadDex(ClassLoader classLoader, Map<String, List<String>> splitDexPaths, Map<String, File> optimizedDirectories,
+                         Map<String, Object[]> splitDexElements) throws SplitLoadException {
+        if (!splitDexPaths.isEmpty()) {
             try {
-                SplitCompatDexLoader.load(classLoader, optimizedDirectory, dexFiles);
+                SplitCompatDexLoader.load(classLoader, toDexFiles(splitDexPaths), optimizedDirectories, splitDexElements);
             } catch (Throwable cause) {
                 throw new SplitLoadException(SplitLoadError.LOAD_DEX_FAILED, cause);
             }
         }
     }
 
+    private static Map<String, List<File>> toDexFiles(Map<String, List<String>> splitDexPaths) {
+        Map<String, List<File>> splitDexFiles = new LinkedHashMap<>(splitDexPaths.size());
+        for (Map.Entry<String, List<String>> entry : splitDexPaths.entrySet()) {
+            List<File> dexFiles = new ArrayList<>(entry.getValue().size());
+            for (String dexPath : entry.getValue()) {
+                dexFiles.add(new File(dexPath));
+            }
+            splitDexFiles.put(entry.getKey(), dexFiles);
+        }
+        return splitDexFiles;
+    }
+
+    /**
+     * Arrays of DexPathList are replaced while lists are modified in place, so copy lists.
+     */
+    private static Object[] snapshotPathList(Object dexPathList) throws IllegalAccessException {
+        Object[] snapshot = new Object[PATH_LIST_FIELDS.length];
+        for (int i = 0; i < PATH_LIST_FIELDS.length; i++) {
+            Field field = findPathListField(dexPathList, PATH_LIST_FIELDS[i]);
+            if (field != null) {
+                Object value = field.get(dexPathList);
+                snapshot[i] = value instanceof List ? new ArrayList<>((List<?>) value) : value;
+            }
+        }
+        return snapshot;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void restorePathList(Object dexPathList, Object[] snapshot) {
+        for (int i = 0; i < PATH_LIST_FIELDS.length; i++) {
+            Field field = findPathListField(dexPathList, PATH_LIST_FIELDS[i]);
+            if (field == null) {
+                continue;
+            }
+            try {
+                Object value = field.get(dexPathList);
+                if (value instanceof List && snapshot[i] instanceof List) {
+                    List<Object> list = (List<Object>) value;
+                    list.clear();
+                    list.addAll((List<Object>) snapshot[i]);
+                } else {
+                    field.set(dexPathList, snapshot[i]);
+                }
+            } catch (IllegalAccessException e) {
+                //ignored
+            }
+        }
+    }
+
+    private static Field findPathListField(Object dexPathList, String name) {
+        try {
+            return HiddenApiReflection.findField(dexPathList, name);
+        } catch (NoSuchFieldException e) {
+            //field does not exist on this version.
+            return null;
+        }
+    }
+
 }
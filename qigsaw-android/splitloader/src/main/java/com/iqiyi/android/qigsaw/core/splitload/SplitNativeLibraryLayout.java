@@ -0,0 +1,245 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.iqiyi.android.qigsaw.core.splitload;
+
+import android.os.Build;
+import android.support.annotation.RestrictTo;
+
+import com.iqiyi.android.qigsaw.core.common.FileUtil;
+import com.iqiyi.android.qigsaw.core.common.SplitLog;
+import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfo;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static android.support.annotation.RestrictTo.Scope.LIBRARY_GROUP;
+
+/**
+ * Since Android M, native libraries can be loaded from an apk directly if they are stored uncompressed
+ * and page-aligned, such as split apks built with {@code qigsawSplit.storeNativeLibsUncompressed}.
+ * Libraries of those splits are not extracted, {@code split.apk!/lib/<abi>} is used as library search path instead.
+ */
+@RestrictTo(LIBRARY_GROUP)
+public final class SplitNativeLibraryLayout {
+
+    private static final String TAG = "Split:NativeLibraryLayout";
+
+    private static final String APK_LIB_MARK = "SplitLib.apk";
+
+    private static final String ZIP_SEPARATOR = "!/";
+
+    private static final int PAGE_SIZE = 4096;
+
+    private static final int EOCD_SIG = 0x06054b50;
+
+    private static final int EOCD_MIN_SIZE = 22;
+
+    private static final int CD_ENTRY_SIG = 0x02014b50;
+
+    private static final int CD_ENTRY_MIN_SIZE = 46;
+
+    private static final int LOCAL_HEADER_SIG = 0x04034b50;
+
+    private static final int LOCAL_HEADER_MIN_SIZE = 30;
+
+    private static final int METHOD_STORED = 0;
+
+    private SplitNativeLibraryLayout() {
+
+    }
+
+    /**
+     * @return library search path inside split apk.
+     */
+    public static File getApkLibraryDir(File splitApk, SplitInfo info) {
+        return new File(splitApk.getAbsolutePath() + ZIP_SEPARATOR + "lib/" + info.getLibInfo().getAbi());
+    }
+
+    static boolean isApkLibraryDir(File folder) {
+        String path = folder.getPath();
+        int index = path.indexOf(ZIP_SEPARATOR);
+        return index > 0 && new File(path.substring(0, index)).exists();
+    }
+
+    /**
+     * Mark is keyed to md5, size and modified time of split apk, so it is ignored once apk is replaced.
+     *
+     * @param libDir lib dir of split, see {@link com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitPathManager#getSplitLibDir(SplitInfo)}
+     * @return {@code true} if installer decided to load libraries of this split apk from apk directly.
+     */
+    public static boolean isMarkedLoadFromApk(File libDir, File splitApk, SplitInfo info) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            return false;
+        }
+        File markFile = new File(libDir, APK_LIB_MARK);
+        if (!markFile.exists()) {
+            return false;
+        }
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(markFile, "r");
+            if (raf.length() > 1024) {
+                return false;
+            }
+            byte[] bytes = new byte[(int) raf.length()];
+            raf.readFully(bytes);
+            if (createMarkKey(splitApk, info).equals(new String(bytes, Charset.forName("UTF-8")))) {
+                return true;
+            }
+            SplitLog.i(TAG, "Split %s apk is changed since libs were marked loaded from apk", info.getSplitName());
+            return false;
+        } catch (IOException e) {
+            SplitLog.w(TAG, "Failed to read mark file " + markFile.getAbsolutePath(), e);
+            return false;
+        } finally {
+            FileUtil.closeQuietly(raf);
+        }
+    }
+
+    public static void markLoadFromApk(File libDir, File splitApk, SplitInfo info, boolean loadFromApk) throws IOException {
+        File markFile = new File(libDir, APK_LIB_MARK);
+        if (loadFromApk) {
+            FileOutputStream os = new FileOutputStream(markFile);
+            try {
+                os.write(createMarkKey(splitApk, info).getBytes(Charset.forName("UTF-8")));
+                os.getFD().sync();
+            } finally {
+                FileUtil.closeQuietly(os);
+            }
+        } else {
+            FileUtil.safeDeleteFile(markFile);
+        }
+    }
+
+    private static String createMarkKey(File splitApk, SplitInfo info) {
+        return info.getMd5() + ":" + splitApk.length() + ":" + splitApk.lastModified();
+    }
+
+    /**
+     * Check whether every library of split is stored uncompressed and page-aligned in split apk.
+     */
+    public static boolean canLoadFromApk(File splitApk, SplitInfo info) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M || !info.hasLibs()) {
+            return false;
+        }
+        String libPrefix = "lib/" + info.getLibInfo().getAbi() + "/";
+        Set<String> expectedLibs = new HashSet<>();
+        List<SplitInfo.LibInfo.Lib> libs = info.getLibInfo().getLibs();
+        for (SplitInfo.LibInfo.Lib lib : libs) {
+            expectedLibs.add(libPrefix + lib.getName());
+        }
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(splitApk, "r");
+            return checkStoredAndAligned(raf, expectedLibs);
+        } catch (IOException e) {
+            SplitLog.w(TAG, "Failed to read layout of " + splitApk.getAbsolutePath(), e);
+            return false;
+        } finally {
+            FileUtil.closeQuietly(raf);
+        }
+    }
+
+    private static boolean checkStoredAndAligned(RandomAccessFile raf, Set<String> expectedLibs) throws IOException {
+        long fileLength = raf.length();
+        if (fileLength < EOCD_MIN_SIZE) {
+            return false;
+        }
+        //end of central directory is followed by a comment of at most 65535 bytes.
+        int tailLength = (int) Math.min(fileLength, EOCD_MIN_SIZE + 0xffff);
+        ByteBuffer tail = read(raf, fileLength - tailLength, tailLength);
+        int eocdPos = -1;
+        for (int i = tailLength - EOCD_MIN_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == EOCD_SIG) {
+                eocdPos = i;
+                break;
+            }
+        }
+        if (eocdPos < 0) {
+            return false;
+        }
+        int entryCount = tail.getShort(eocdPos + 10) & 0xffff;
+        long cdSize = tail.getInt(eocdPos + 12) & 0xffffffffL;
+        long cdOffset = tail.getInt(eocdPos + 16) & 0xffffffffL;
+        if (cdOffset + cdSize > fileLength || cdSize > Integer.MAX_VALUE) {
+            return false;
+        }
+        ByteBuffer cd = read(raf, cdOffset, (int) cdSize);
+        Charset utf8 = Charset.forName("UTF-8");
+        int pos = 0;
+        int found = 0;
+        for (int i = 0; i < entryCount; i++) {
+            if (pos + CD_ENTRY_MIN_SIZE > cd.limit() || cd.getInt(pos) != CD_ENTRY_SIG) {
+                return false;
+            }
+            int method = cd.getShort(pos + 10) & 0xffff;
+            int nameLength = cd.getShort(pos + 28) & 0xffff;
+            int extraLength = cd.getShort(pos + 30) & 0xffff;
+            int commentLength = cd.getShort(pos + 32) & 0xffff;
+            long localHeaderOffset = cd.getInt(pos + 42) & 0xffffffffL;
+            if (pos + CD_ENTRY_MIN_SIZE + nameLength > cd.limit()) {
+                return false;
+            }
+            String name = new String(cd.array(), cd.arrayOffset() + pos + CD_ENTRY_MIN_SIZE, nameLength, utf8);
+            if (expectedLibs.contains(name)) {
+                if (method != METHOD_STORED) {
+                    SplitLog.i(TAG, "Lib %s is compressed, extraction is needed", name);
+                    return false;
+                }
+                ByteBuffer localHeader = read(raf, localHeaderOffset, LOCAL_HEADER_MIN_SIZE);
+                if (localHeader.getInt(0) != LOCAL_HEADER_SIG) {
+                    return false;
+                }
+                long dataOffset = localHeaderOffset + LOCAL_HEADER_MIN_SIZE
+                        + (localHeader.getShort(26) & 0xffff) + (localHeader.getShort(28) & 0xffff);
+                if (dataOffset % PAGE_SIZE != 0) {
+                    SplitLog.i(TAG, "Lib %s is not page-aligned, extraction is needed", name);
+                    return false;
+                }
+                found++;
+            }
+            pos += CD_ENTRY_MIN_SIZE + nameLength + extraLength + commentLength;
+        }
+        return found == expectedLibs.size();
+    }
+
+    private static ByteBuffer read(RandomAccessFile raf, long offset, int length) throws IOException {
+        if (offset < 0 || offset + length > raf.length()) {
+            throw new IOException("Out of range of zip file");
+        }
+        byte[] bytes = new byte[length];
+        raf.seek(offset);
+        raf.readFully(bytes);
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
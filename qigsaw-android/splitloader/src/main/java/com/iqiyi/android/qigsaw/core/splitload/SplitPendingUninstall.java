@@ -0,0 +1,117 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.iqiyi.android.qigsaw.core.splitload;
+
+import android.support.annotation.RestrictTo;
+
+import com.iqiyi.android.qigsaw.core.common.FileUtil;
+import com.iqiyi.android.qigsaw.core.common.SplitLog;
+import com.iqiyi.android.qigsaw.core.splitreport.SplitLoadReporter;
+import com.iqiyi.android.qigsaw.core.splitreport.SplitUninstallReporter;
+import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitInfo;
+import com.iqiyi.android.qigsaw.core.splitrequest.splitinfo.SplitPathManager;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static android.support.annotation.RestrictTo.Scope.LIBRARY_GROUP;
+
+/**
+ * Splits uninstalled by {@code deferredUninstall} are marked at first, their files are deleted
+ * when app launches next time before installed splits are loaded.
+ * Files are only deleted once no process holds the split, see {@link SplitLoadRecord}.
+ */
+@RestrictTo(LIBRARY_GROUP)
+public final class SplitPendingUninstall {
+
+    private static final String TAG = "Split:SplitPendingUninstall";
+
+    private static final String UNINSTALL_MARK = "SplitUninstall.mark";
+
+    private SplitPendingUninstall() {
+
+    }
+
+    public static boolean mark(SplitInfo info) {
+        File markFile = new File(SplitPathManager.require().getSplitRootDir(info), UNINSTALL_MARK);
+        try {
+            return markFile.exists() || markFile.createNewFile();
+        } catch (IOException e) {
+            SplitLog.w(TAG, "Failed to mark split %s uninstalled", info.getSplitName());
+            return false;
+        }
+    }
+
+    /**
+     * Cancel the pending uninstallation, called when split is requested to be installed again.
+     */
+    public static void unmark(SplitInfo info) {
+        FileUtil.safeDeleteFile(new File(SplitPathManager.require().getSplitRootDir(info), UNINSTALL_MARK));
+    }
+
+    public static boolean isMarked(SplitInfo info) {
+        return new File(SplitPathManager.require().getSplitRootDir(info), UNINSTALL_MARK).exists();
+    }
+
+    /**
+     * Delete all versions of a marked split.
+     *
+     * @return {@code false} if any version is still in use by other processes.
+     */
+    static boolean uninstall(SplitInfo info) {
+        File splitRootDir = SplitPathManager.require().getSplitRootDir(info);
+        File[] versionDirs = splitRootDir.listFiles();
+        List<Closeable> locks = new ArrayList<>(versionDirs == null ? 0 : versionDirs.length);
+        try {
+            if (versionDirs != null) {
+                for (File versionDir : versionDirs) {
+                    if (versionDir.isDirectory()) {
+                        Closeable lock = SplitLoadRecord.lockForEviction(versionDir);
+                        if (lock == null) {
+                            SplitLog.i(TAG, "Split %s version %s is in use, uninstall it later", info.getSplitName(), versionDir.getName());
+                            return false;
+                        }
+                        locks.add(lock);
+                    }
+                }
+            }
+            long reclaimedBytes = FileUtil.getTotalSize(splitRootDir);
+            FileUtil.deleteDir(splitRootDir);
+            SplitLog.i(TAG, "Split %s is uninstalled, %d bytes are reclaimed", info.getSplitName(), reclaimedBytes);
+            SplitLoadReporter loadReporter = SplitLoadReporterManager.getLoadReporter();
+            if (loadReporter instanceof SplitUninstallReporter) {
+                ((SplitUninstallReporter) loadReporter).onUninstallOK(info.getSplitName(), reclaimedBytes);
+            }
+            return true;
+        } finally {
+            for (Closeable lock : locks) {
+                FileUtil.closeQuietly(lock);
+            }
+        }
+    }
+}
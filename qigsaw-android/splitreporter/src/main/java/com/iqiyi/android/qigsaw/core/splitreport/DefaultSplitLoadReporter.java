@@ -30,7 +30,7 @@ import com.iqiyi.android.qigsaw.core.common.SplitLog;
 
 import java.util.List;
 
-public class DefaultSplitLoadReporter implements SplitLoadReporter {
+public class DefaultSplitLoadReporter implements SplitLoadReporter, SplitUninstallReporter {
 
     private static final String TAG = "SplitLoadReporter";
 
@@ -49,4 +49,9 @@ public class DefaultSplitLoadReporter implements SplitLoadReporter {
     public void onLoadFailed(List<String> requestModuleNames, String processName, List<SplitLoadError> errors, long cost) {
         SplitLog.w(TAG, "Failed to load %s in process %s cost %d ms!", errors.toString(), processName, cost);
     }
+
+    @Override
+    public void onUninstallOK(String splitName, long reclaimedBytes) {
+        SplitLog.i(TAG, "Success to uninstall %s, %d bytes are reclaimed!", splitName, reclaimedBytes);
+    }
 }
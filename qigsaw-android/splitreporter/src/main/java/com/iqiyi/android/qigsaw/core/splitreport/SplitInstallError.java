@@ -68,6 +68,11 @@ public class SplitInstallError {
      */
     public static final int DEPENDENCIES_NOT_INSTALLED = -18;
 
+    /**
+     * Split apk failed to be reconstructed from binary patch.
+     */
+    public static final int APK_PATCH_FAILED = -19;
+
     private final String moduleName;
 
     private final int errorCode;
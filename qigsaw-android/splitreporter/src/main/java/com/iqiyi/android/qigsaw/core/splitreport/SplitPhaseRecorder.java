@@ -0,0 +1,134 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.iqiyi.android.qigsaw.core.splitreport;
+
+import android.os.Build;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.support.annotation.Nullable;
+import android.support.annotation.RestrictTo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static android.support.annotation.RestrictTo.Scope.LIBRARY_GROUP;
+
+/**
+ * Record phases of installing or loading a split, phases must begin and end on the same thread.
+ * If no reporter is interested and trace is disabled, a shared no-op recorder is used.
+ */
+@RestrictTo(LIBRARY_GROUP)
+public final class SplitPhaseRecorder {
+
+    private static final int MAX_SECTION_NAME_LENGTH = 127;
+
+    private static final SplitPhaseRecorder NONE = new SplitPhaseRecorder(null, null, false);
+
+    private static volatile boolean sTraceEnabled;
+
+    private final String splitName;
+
+    private final SplitPhaseReporter phaseReporter;
+
+    private final boolean traceEnabled;
+
+    private final List<SplitPhaseTiming> phases;
+
+    private SplitPhaseRecorder(String splitName, SplitPhaseReporter phaseReporter, boolean traceEnabled) {
+        this.splitName = splitName;
+        this.phaseReporter = phaseReporter;
+        this.traceEnabled = traceEnabled;
+        this.phases = phaseReporter == null ? null : new ArrayList<SplitPhaseTiming>();
+    }
+
+    /**
+     * Whether to emit phases as {@link Trace} sections.
+     */
+    public static void setTraceEnabled(boolean traceEnabled) {
+        sTraceEnabled = traceEnabled;
+    }
+
+    /**
+     * @param splitName name of split.
+     * @param reporter  install or load reporter, phases are recorded only if it implements {@link SplitPhaseReporter}.
+     */
+    public static SplitPhaseRecorder create(String splitName, @Nullable Object reporter) {
+        SplitPhaseReporter phaseReporter = reporter instanceof SplitPhaseReporter ? (SplitPhaseReporter) reporter : null;
+        boolean traceEnabled = sTraceEnabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+        if (phaseReporter == null && !traceEnabled) {
+            return NONE;
+        }
+        return new SplitPhaseRecorder(splitName, phaseReporter, traceEnabled);
+    }
+
+    /**
+     * @return start time of phase, pass it to {@link #end(String, long, long)}.
+     */
+    public long begin(String phase) {
+        if (traceEnabled) {
+            String sectionName = "Qigsaw:" + splitName + ":" + phase;
+            if (sectionName.length() > MAX_SECTION_NAME_LENGTH) {
+                sectionName = sectionName.substring(0, MAX_SECTION_NAME_LENGTH);
+            }
+            Trace.beginSection(sectionName);
+        }
+        return phaseReporter == null ? 0 : SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * @param startTime returned by {@link #begin(String)}.
+     * @param bytes     bytes processed in this phase, {@code 0} if unknown.
+     */
+    public void end(String phase, long startTime, long bytes) {
+        if (traceEnabled) {
+            Trace.endSection();
+        }
+        if (phaseReporter != null) {
+            SplitPhaseTiming timing = new SplitPhaseTiming(splitName, phase, startTime,
+                    SystemClock.elapsedRealtime() - startTime, bytes, Thread.currentThread().getName());
+            synchronized (phases) {
+                phases.add(timing);
+            }
+        }
+    }
+
+    /**
+     * Deliver recorded phases to reporter and clear them.
+     */
+    public void report() {
+        if (phaseReporter == null) {
+            return;
+        }
+        List<SplitPhaseTiming> recorded;
+        synchronized (phases) {
+            if (phases.isEmpty()) {
+                return;
+            }
+            recorded = new ArrayList<>(phases);
+            phases.clear();
+        }
+        phaseReporter.onPhasesRecorded(splitName, recorded);
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.iqiyi.android.qigsaw.core.splitreport;
+
+/**
+ * Time cost of a single phase when installing or loading a split.
+ */
+public final class SplitPhaseTiming {
+
+    /**
+     * Copy built-in split apk from assets.
+     */
+    public static final String PHASE_COPY_BUILT_IN = "copy_built_in";
+
+    /**
+     * Check md5 of split apk.
+     */
+    public static final String PHASE_MD5 = "md5";
+
+    /**
+     * Check signature of split apk.
+     */
+    public static final String PHASE_SIGNATURE = "signature";
+
+    /**
+     * Reconstruct split apk from binary patch.
+     */
+    public static final String PHASE_PATCH = "patch";
+
+    /**
+     * Extract native libraries of split apk.
+     */
+    public static final String PHASE_EXTRACT_LIB = "extract_lib";
+
+    /**
+     * Extract secondary dex files of split apk if VM does not support multi dex.
+     */
+    public static final String PHASE_EXTRACT_MULTI_DEX = "extract_multi_dex";
+
+    /**
+     * Create class loader of split when installing, dex files are optimized in this phase.
+     */
+    public static final String PHASE_DEX_OPT = "dex_opt";
+
+    /**
+     * Add split apk to resources of app.
+     */
+    public static final String PHASE_LOAD_RESOURCES = "load_resources";
+
+    /**
+     * Create class loader or inject dex files and native library paths of split.
+     */
+    public static final String PHASE_LOAD_CODE = "load_code";
+
+    /**
+     * Create and attach split application.
+     */
+    public static final String PHASE_ACTIVATE_APPLICATION = "activate_application";
+
+    /**
+     * Create content providers of split.
+     */
+    public static final String PHASE_ACTIVATE_PROVIDERS = "activate_providers";
+
+    /**
+     * Invoke onCreate of split application.
+     */
+    public static final String PHASE_APPLICATION_CREATE = "application_create";
+
+    private final String splitName;
+
+    private final String phase;
+
+    private final long startTime;
+
+    private final long duration;
+
+    private final long bytes;
+
+    private final String threadName;
+
+    public SplitPhaseTiming(String splitName,
+                            String phase,
+                            long startTime,
+                            long duration,
+                            long bytes,
+                            String threadName) {
+        this.splitName = splitName;
+        this.phase = phase;
+        this.startTime = startTime;
+        this.duration = duration;
+        this.bytes = bytes;
+        this.threadName = threadName;
+    }
+
+    public String getSplitName() {
+        return splitName;
+    }
+
+    /**
+     * @return one of PHASE_* constants.
+     */
+    public String getPhase() {
+        return phase;
+    }
+
+    /**
+     * @return start time in ms, measured by {@link android.os.SystemClock#elapsedRealtime()}.
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * @return time cost in ms.
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return bytes processed in this phase, {@code 0} if unknown.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return name of the thread which this phase runs on.
+     */
+    public String getThreadName() {
+        return threadName;
+    }
+
+    @Override
+    public String toString() {
+        return "SplitPhaseTiming{"
+                + " splitName=" + splitName
+                + " phase=" + phase
+                + " startTime=" + startTime
+                + " duration=" + duration
+                + " bytes=" + bytes
+                + " thread=" + threadName
+                + "}";
+    }
+}
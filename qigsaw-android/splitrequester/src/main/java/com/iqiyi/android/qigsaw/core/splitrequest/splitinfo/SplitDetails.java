@@ -64,6 +64,10 @@ final class SplitDetails {
     }
 
     boolean verifySplitInfoListing() {
+        if (splitInfoListing != null && splitInfoListing.isLazy()) {
+            //binary table is only created for verified split infos.
+            return true;
+        }
         if (splitInfoListing != null
                 && splitInfoListing.getSplitInfoMap() != null) {
             boolean verified = true;
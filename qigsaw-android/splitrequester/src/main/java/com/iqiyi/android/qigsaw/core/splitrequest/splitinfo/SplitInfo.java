@@ -60,6 +60,12 @@ public class SplitInfo {
 
     private final List<String> dependencies;
 
+    private final String patchUrl;
+
+    private final long patchSize;
+
+    private final String patchBaseMd5;
+
     SplitInfo(String splitName,
               String appVersion,
               String version,
@@ -71,7 +77,10 @@ public class SplitInfo {
               int dexNumber,
               List<String> workProcesses,
               List<String> dependencies,
-              LibInfo libInfo) {
+              LibInfo libInfo,
+              String patchUrl,
+              long patchSize,
+              String patchBaseMd5) {
         this.splitName = splitName;
         this.appVersion = appVersion;
         this.splitVersion = version;
@@ -85,6 +94,9 @@ public class SplitInfo {
         this.dependencies = dependencies;
         this.libInfo = libInfo;
         this.isMultiDex = dexNumber > 1;
+        this.patchUrl = patchUrl;
+        this.patchSize = patchSize;
+        this.patchBaseMd5 = patchBaseMd5;
     }
 
     public String getSplitName() {
@@ -139,6 +151,31 @@ public class SplitInfo {
         return minSdkVersion;
     }
 
+    /**
+     * Whether split apk could be reconstructed from an old installed version by a binary patch.
+     */
+    public boolean hasPatch() {
+        return !TextUtils.isEmpty(patchUrl) && !TextUtils.isEmpty(patchBaseMd5) && patchSize > 0;
+    }
+
+    /**
+     * @return download link of binary patch, {@code null} if split has no patch.
+     */
+    public String getPatchUrl() {
+        return patchUrl;
+    }
+
+    public long getPatchSize() {
+        return patchSize;
+    }
+
+    /**
+     * @return md5 of the old split apk which binary patch is created against.
+     */
+    public String getPatchBaseMd5() {
+        return patchBaseMd5;
+    }
+
     boolean isValid() {
         return !TextUtils.isEmpty(url) && checkLibInfo()
                 && !TextUtils.isEmpty(splitName) && !TextUtils.isEmpty(md5)
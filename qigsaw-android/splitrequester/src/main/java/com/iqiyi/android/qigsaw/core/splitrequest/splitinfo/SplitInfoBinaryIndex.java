@@ -0,0 +1,364 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.iqiyi.android.qigsaw.core.splitrequest.splitinfo;
+
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary split info table created by qigsaw-gradle-plugin alongside the json file.
+ * Split infos are decoded on demand, name lookup uses the hash index of table.
+ * Offsets and string indexes of the whole table are checked when it is opened without decoding any split info,
+ * so a truncated or corrupted table is rejected up front and caller falls back to json.
+ * <p>
+ * Layout (big-endian):
+ * header: magic, format version, qigsawId, appVersionName, split count, string count,
+ * offsets of update splits, split table, hash table, string table, string data.
+ * update splits: count, string indexes.
+ * split table: offset of each split record.
+ * hash table: bucket count, split ordinal of each bucket or -1, linear probing by {@link String#hashCode()}.
+ * string table: offset of each string in string data, every string is length prefixed UTF-8 bytes.
+ * split record: name, version, url, md5, size, builtIn, minSdkVersion, dexNumber,
+ * work processes, dependencies, abi (-1 if no libs), libs (name, md5, size),
+ * patch url and patch base md5 (-1 if no patch), patch size.
+ */
+final class SplitInfoBinaryIndex {
+
+    static final int MAGIC = 0x51534946;
+
+    static final int FORMAT_VERSION = 2;
+
+    private static final int HEADER_SIZE = 44;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ByteBuffer buffer;
+
+    private final int splitCount;
+
+    private final int stringCount;
+
+    private final int updateSplitsOffset;
+
+    private final int splitTableOffset;
+
+    private final int hashTableOffset;
+
+    private final int stringTableOffset;
+
+    private final int stringDataOffset;
+
+    private final String[] strings;
+
+    private final SplitInfo[] splitInfos;
+
+    private final String qigsawId;
+
+    private final String appVersionName;
+
+    private SplitInfoBinaryIndex(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Bad split info table magic");
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Unsupported split info table version " + buffer.getInt(4));
+        }
+        this.splitCount = buffer.getInt(16);
+        this.stringCount = buffer.getInt(20);
+        this.updateSplitsOffset = buffer.getInt(24);
+        this.splitTableOffset = buffer.getInt(28);
+        this.hashTableOffset = buffer.getInt(32);
+        this.stringTableOffset = buffer.getInt(36);
+        this.stringDataOffset = buffer.getInt(40);
+        if (splitCount < 0 || stringCount < 0
+                || !checkRange(updateSplitsOffset, 4)
+                || !checkRange(splitTableOffset, 4L * splitCount)
+                || !checkRange(hashTableOffset, 4)
+                || !checkRange(stringTableOffset, 4L * stringCount)
+                || !checkRange(stringDataOffset, 0)
+                || !verifyTable()) {
+            throw new IOException("Corrupted split info table");
+        }
+        this.strings = new String[stringCount];
+        this.splitInfos = new SplitInfo[splitCount];
+        this.qigsawId = getString(buffer.getInt(8));
+        this.appVersionName = getString(buffer.getInt(12));
+    }
+
+    static SplitInfoBinaryIndex create(ByteBuffer buffer) throws IOException {
+        try {
+            return new SplitInfoBinaryIndex(buffer);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupted split info table", e);
+        }
+    }
+
+    String getQigsawId() {
+        return qigsawId;
+    }
+
+    String getAppVersionName() {
+        return appVersionName;
+    }
+
+    int getSplitCount() {
+        return splitCount;
+    }
+
+    @Nullable
+    List<String> getUpdateSplits() {
+        int count = buffer.getInt(updateSplitsOffset);
+        if (count <= 0) {
+            return null;
+        }
+        return getStrings(updateSplitsOffset + 4, count);
+    }
+
+    /**
+     * Find split info by name using hash index.
+     *
+     * @param splitName name of split.
+     * @return {@link SplitInfo} or {@code null} if not found.
+     */
+    @Nullable
+    SplitInfo getSplitInfo(String splitName) {
+        int bucketCount = buffer.getInt(hashTableOffset);
+        if (bucketCount <= 0) {
+            return null;
+        }
+        int bucket = (splitName.hashCode() & 0x7fffffff) % bucketCount;
+        for (int i = 0; i < bucketCount; i++) {
+            int ordinal = buffer.getInt(hashTableOffset + 4 + 4 * bucket);
+            if (ordinal < 0) {
+                return null;
+            }
+            int nameIndex = buffer.getInt(buffer.getInt(splitTableOffset + 4 * ordinal));
+            if (splitName.equals(getString(nameIndex))) {
+                return getSplitInfo(ordinal);
+            }
+            bucket = (bucket + 1) % bucketCount;
+        }
+        return null;
+    }
+
+    SplitInfo getSplitInfo(int ordinal) {
+        synchronized (splitInfos) {
+            SplitInfo info = splitInfos[ordinal];
+            if (info == null) {
+                info = decodeSplitInfo(buffer.getInt(splitTableOffset + 4 * ordinal));
+                splitInfos[ordinal] = info;
+            }
+            return info;
+        }
+    }
+
+    private SplitInfo decodeSplitInfo(int offset) {
+        String splitName = getString(buffer.getInt(offset));
+        String version = getString(buffer.getInt(offset + 4));
+        String url = getString(buffer.getInt(offset + 8));
+        String md5 = getString(buffer.getInt(offset + 12));
+        long size = buffer.getLong(offset + 16);
+        boolean builtIn = buffer.get(offset + 24) != 0;
+        int minSdkVersion = buffer.getInt(offset + 25);
+        int dexNumber = buffer.getInt(offset + 29);
+        int position = offset + 33;
+        int workProcessCount = buffer.getInt(position);
+        List<String> workProcesses = workProcessCount > 0 ? getStrings(position + 4, workProcessCount) : null;
+        position += 4 + 4 * workProcessCount;
+        int dependencyCount = buffer.getInt(position);
+        List<String> dependencies = dependencyCount > 0 ? getStrings(position + 4, dependencyCount) : null;
+        position += 4 + 4 * dependencyCount;
+        SplitInfo.LibInfo libInfo = null;
+        int abiIndex = buffer.getInt(position);
+        if (abiIndex >= 0) {
+            int libCount = buffer.getInt(position + 4);
+            position += 8;
+            List<SplitInfo.LibInfo.Lib> libs = new ArrayList<>(libCount);
+            for (int i = 0; i < libCount; i++) {
+                String name = getString(buffer.getInt(position));
+                String libMd5 = getString(buffer.getInt(position + 4));
+                long libSize = buffer.getLong(position + 8);
+                libs.add(new SplitInfo.LibInfo.Lib(name, libMd5, libSize));
+                position += 16;
+            }
+            if (!libs.isEmpty()) {
+                libInfo = new SplitInfo.LibInfo(getString(abiIndex), libs);
+            }
+        } else {
+            position += 4;
+        }
+        String patchUrl = getString(buffer.getInt(position));
+        String patchBaseMd5 = getString(buffer.getInt(position + 4));
+        long patchSize = buffer.getLong(position + 8);
+        return new SplitInfo(splitName, appVersionName, version, url, md5,
+                size, builtIn, minSdkVersion, dexNumber, workProcesses, dependencies, libInfo,
+                patchUrl, patchSize, patchBaseMd5);
+    }
+
+    private List<String> getStrings(int offset, int count) {
+        List<String> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(getString(buffer.getInt(offset + 4 * i)));
+        }
+        return result;
+    }
+
+    private String getString(int index) {
+        if (index < 0) {
+            return null;
+        }
+        synchronized (strings) {
+            String str = strings[index];
+            if (str == null) {
+                int offset = stringDataOffset + buffer.getInt(stringTableOffset + 4 * index);
+                int length = buffer.getInt(offset);
+                byte[] bytes = new byte[length];
+                ByteBuffer data = buffer.duplicate();
+                data.position(offset + 4);
+                data.get(bytes);
+                str = new String(bytes, UTF_8);
+                strings[index] = str;
+            }
+            return str;
+        }
+    }
+
+    /**
+     * Check that every string and split record lies in the table and only refers to existing strings.
+     * Contents of split infos are checked by qigsaw-gradle-plugin before the table is written.
+     */
+    private boolean verifyTable() {
+        for (int i = 0; i < stringCount; i++) {
+            long offset = (long) stringDataOffset + buffer.getInt(stringTableOffset + 4 * i);
+            if (offset < stringDataOffset || !checkRange(offset, 4)) {
+                return false;
+            }
+            int length = buffer.getInt((int) offset);
+            if (length < 0 || !checkRange(offset + 4, length)) {
+                return false;
+            }
+        }
+        if (!isStringIndex(buffer.getInt(8), false) || !isStringIndex(buffer.getInt(12), false)) {
+            return false;
+        }
+        if (!checkStrings(updateSplitsOffset + 4, buffer.getInt(updateSplitsOffset))) {
+            return false;
+        }
+        int bucketCount = buffer.getInt(hashTableOffset);
+        if (bucketCount < 0 || !checkRange(hashTableOffset + 4, 4L * bucketCount)) {
+            return false;
+        }
+        for (int i = 0; i < bucketCount; i++) {
+            if (buffer.getInt(hashTableOffset + 4 + 4 * i) >= splitCount) {
+                return false;
+            }
+        }
+        for (int i = 0; i < splitCount; i++) {
+            if (!verifySplitRecord(buffer.getInt(splitTableOffset + 4 * i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Walk split record the same way as {@link #decodeSplitInfo(int)}.
+     */
+    private boolean verifySplitRecord(int offset) {
+        if (!checkRange(offset, 37)
+                || !isStringIndex(buffer.getInt(offset), true)
+                || !isStringIndex(buffer.getInt(offset + 4), false)
+                || !isStringIndex(buffer.getInt(offset + 8), true)
+                || !isStringIndex(buffer.getInt(offset + 12), true)) {
+            return false;
+        }
+        int position = offset + 33;
+        int workProcessCount = buffer.getInt(position);
+        if (!checkStrings(position + 4, workProcessCount)) {
+            return false;
+        }
+        position += 4 + 4 * workProcessCount;
+        if (!checkRange(position, 4)) {
+            return false;
+        }
+        int dependencyCount = buffer.getInt(position);
+        if (!checkStrings(position + 4, dependencyCount)) {
+            return false;
+        }
+        position += 4 + 4 * dependencyCount;
+        if (!checkRange(position, 4)) {
+            return false;
+        }
+        int abiIndex = buffer.getInt(position);
+        if (abiIndex >= 0) {
+            if (!isStringIndex(abiIndex, true) || !checkRange(position + 4, 4)) {
+                return false;
+            }
+            int libCount = buffer.getInt(position + 4);
+            position += 8;
+            if (libCount < 0 || !checkRange(position, 16L * libCount)) {
+                return false;
+            }
+            for (int i = 0; i < libCount; i++) {
+                if (!isStringIndex(buffer.getInt(position), true)
+                        || !isStringIndex(buffer.getInt(position + 4), true)) {
+                    return false;
+                }
+                position += 16;
+            }
+        } else {
+            position += 4;
+        }
+        return checkRange(position, 16)
+                && isStringIndex(buffer.getInt(position), false)
+                && isStringIndex(buffer.getInt(position + 4), false);
+    }
+
+    private boolean checkStrings(int offset, int count) {
+        if (count < 0 || !checkRange(offset, 4L * count)) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            if (!isStringIndex(buffer.getInt(offset + 4 * i), true)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isStringIndex(int index, boolean required) {
+        return index < stringCount && (index >= 0 || (!required && index == -1));
+    }
+
+    private boolean checkRange(long offset, long length) {
+        return offset >= HEADER_SIZE && length >= 0 && offset + length <= buffer.capacity();
+    }
+}
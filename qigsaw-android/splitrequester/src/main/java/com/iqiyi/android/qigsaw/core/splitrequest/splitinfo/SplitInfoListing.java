@@ -28,15 +28,63 @@ import java.util.LinkedHashMap;
 
 final class SplitInfoListing {
 
-    private final LinkedHashMap<String, SplitInfo> splitInfoMap;
+    private LinkedHashMap<String, SplitInfo> splitInfoMap;
 
+    private final SplitInfoBinaryIndex binaryIndex;
+
+    private SplitInfoSnapshot snapshot;
 
     SplitInfoListing(LinkedHashMap<String, SplitInfo> splitInfoMap) {
         this.splitInfoMap = splitInfoMap;
+        this.binaryIndex = null;
+    }
+
+    /**
+     * Split infos are decoded from binary table on demand.
+     */
+    SplitInfoListing(SplitInfoBinaryIndex binaryIndex) {
+        this.binaryIndex = binaryIndex;
+    }
+
+    SplitInfo getSplitInfo(String splitName) {
+        if (binaryIndex != null) {
+            return binaryIndex.getSplitInfo(splitName);
+        }
+        return splitInfoMap.get(splitName);
     }
 
-    LinkedHashMap<String, SplitInfo> getSplitInfoMap() {
+    synchronized LinkedHashMap<String, SplitInfo> getSplitInfoMap() {
+        if (splitInfoMap == null && binaryIndex != null) {
+            int splitCount = binaryIndex.getSplitCount();
+            LinkedHashMap<String, SplitInfo> result = new LinkedHashMap<>(splitCount);
+            for (int i = 0; i < splitCount; i++) {
+                SplitInfo info = binaryIndex.getSplitInfo(i);
+                result.put(info.getSplitName(), info);
+            }
+            splitInfoMap = result;
+        }
         return splitInfoMap;
     }
 
+    /**
+     * Indexed snapshot is created on first use, binary table is fully decoded at that time.
+     */
+    synchronized SplitInfoSnapshot getSnapshot() {
+        if (snapshot == null) {
+            LinkedHashMap<String, SplitInfo> map = getSplitInfoMap();
+            if (map != null) {
+                snapshot = new SplitInfoSnapshot(map);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Whether split infos are backed by binary table. Table is only written by qigsaw-gradle-plugin
+     * for valid split infos and its structure is checked when opened, so they are not verified again.
+     */
+    boolean isLazy() {
+        return binaryIndex != null;
+    }
+
 }
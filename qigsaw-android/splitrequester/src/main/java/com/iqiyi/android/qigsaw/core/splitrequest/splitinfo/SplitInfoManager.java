@@ -67,6 +67,12 @@ public interface SplitInfoManager {
      */
     Collection<SplitInfo> getAllSplitInfo(Context context);
 
+    /**
+     * @param context get indexed split infos
+     * @return immutable {@link SplitInfoSnapshot} of current split info version, or {@code null} if split info is unavailable.
+     */
+    SplitInfoSnapshot getSplitInfoSnapshot(Context context);
+
     /**
      * Create {@link SplitDetails} instance for new split info json file.
      *
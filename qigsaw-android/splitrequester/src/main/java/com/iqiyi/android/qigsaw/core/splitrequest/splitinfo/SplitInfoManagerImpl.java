@@ -25,6 +25,7 @@
 package com.iqiyi.android.qigsaw.core.splitrequest.splitinfo;
 
 import android.content.Context;
+import android.content.res.AssetFileDescriptor;
 import android.content.res.Resources;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
@@ -39,11 +40,14 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashMap;
@@ -103,21 +107,26 @@ final class SplitInfoManagerImpl implements SplitInfoManager {
     public SplitInfo getSplitInfo(Context context, String splitName) {
         SplitDetails details = getOrCreateSplitDetails(context);
         if (details != null) {
-            Collection<SplitInfo> splits = details.getSplitInfoListing().getSplitInfoMap().values();
-            for (SplitInfo split : splits) {
-                if (split.getSplitName().equals(splitName)) {
-                    return split;
-                }
-            }
+            return details.getSplitInfoListing().getSplitInfo(splitName);
         }
         return null;
     }
 
     @Override
     public Collection<SplitInfo> getAllSplitInfo(Context context) {
+        SplitInfoSnapshot snapshot = getSplitInfoSnapshot(context);
+        if (snapshot != null) {
+            return snapshot.getAllSplitInfo();
+        }
+        return null;
+    }
+
+    @Override
+    @Nullable
+    public SplitInfoSnapshot getSplitInfoSnapshot(Context context) {
         SplitDetails details = getOrCreateSplitDetails(context);
         if (details != null) {
-            return mSplitDetails.getSplitInfoListing().getSplitInfoMap().values();
+            return details.getSplitInfoListing().getSnapshot();
         }
         return null;
     }
@@ -145,6 +154,11 @@ final class SplitInfoManagerImpl implements SplitInfoManager {
     }
 
     private SplitDetails createSplitDetailsForDefaultVersion(Context context, String defaultVersion) {
+        SplitDetails binaryDetails = createSplitDetailsForBinaryAsset(context,
+                SplitConstants.QIGSAW_PREFIX + defaultVersion + SplitConstants.DOT_BIN);
+        if (binaryDetails != null) {
+            return binaryDetails;
+        }
         try {
             String defaultSplitInfoFileName = SplitConstants.QIGSAW_PREFIX + defaultVersion + SplitConstants.DOT_JSON;
             SplitLog.i(TAG, "Default split file name: " + defaultSplitInfoFileName);
@@ -158,6 +172,64 @@ final class SplitInfoManagerImpl implements SplitInfoManager {
         return null;
     }
 
+    /**
+     * Map binary split info table in assets, only works if it is stored uncompressed, otherwise read it into memory.
+     */
+    private static SplitDetails createSplitDetailsForBinaryAsset(Context context, String fileName) {
+        long currentTime = System.currentTimeMillis();
+        ByteBuffer buffer = null;
+        AssetFileDescriptor fd = null;
+        FileInputStream fis = null;
+        try {
+            fd = context.getAssets().openFd(fileName);
+            fis = new FileInputStream(fd.getFileDescriptor());
+            buffer = fis.getChannel().map(FileChannel.MapMode.READ_ONLY, fd.getStartOffset(), fd.getLength());
+        } catch (IOException e) {
+            //asset is compressed or not existing.
+        } finally {
+            FileUtil.closeQuietly(fis);
+            if (fd != null) {
+                try {
+                    fd.close();
+                } catch (IOException ignored) {
+
+                }
+            }
+        }
+        if (buffer == null) {
+            InputStream is = null;
+            try {
+                is = context.getAssets().open(fileName);
+                ByteArrayOutputStream bos = new ByteArrayOutputStream(is.available());
+                byte[] bytes = new byte[16 * 1024];
+                int count;
+                while ((count = is.read(bytes)) != -1) {
+                    bos.write(bytes, 0, count);
+                }
+                buffer = ByteBuffer.wrap(bos.toByteArray());
+            } catch (IOException e) {
+                SplitLog.i(TAG, "Binary split info %s is not found, fall back to json", fileName);
+                return null;
+            } finally {
+                FileUtil.closeQuietly(is);
+            }
+        }
+        SplitDetails details = createSplitDetailsForBinary(buffer);
+        SplitLog.i(TAG, "Cost %d mil-second to open binary split info", (System.currentTimeMillis() - currentTime));
+        return details;
+    }
+
+    private static SplitDetails createSplitDetailsForBinary(ByteBuffer buffer) {
+        try {
+            SplitInfoBinaryIndex index = SplitInfoBinaryIndex.create(buffer);
+            return new SplitDetails(index.getQigsawId(), index.getAppVersionName(),
+                    new SplitInfoListing(index), index.getUpdateSplits());
+        } catch (IOException e) {
+            SplitLog.w(TAG, "Failed to read binary split info, fall back to json", e);
+            return null;
+        }
+    }
+
     private SplitDetails createSplitDetailsForNewVersion(File newSplitInfoFile) {
         try {
             SplitLog.i(TAG, "Updated split file path: " + newSplitInfoFile.getAbsolutePath());
@@ -295,8 +367,12 @@ final class SplitInfoManagerImpl implements SplitInfoManager {
                     dependencies.add(dependenciesArray.optString(m));
                 }
             }
+            String patchUrl = itemObj.optString("patchUrl", null);
+            long patchSize = itemObj.optLong("patchSize");
+            String patchBaseMd5 = itemObj.optString("patchBaseMd5", null);
             SplitInfo splitInfo = new SplitInfo(splitName, appVersionName, version, url, apkMd5,
-                    size, builtIn, minSdkVersion, dexNumber, workProcesses, dependencies, libDetail);
+                    size, builtIn, minSdkVersion, dexNumber, workProcesses, dependencies, libDetail,
+                    patchUrl, patchSize, patchBaseMd5);
             splitInfoMap.put(splitName, splitInfo);
         }
         JSONArray updateSplitsArray = contentObj.optJSONArray("updateSplits");
@@ -0,0 +1,193 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.iqiyi.android.qigsaw.core.splitrequest.splitinfo;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.RestrictTo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static android.support.annotation.RestrictTo.Scope.LIBRARY_GROUP;
+
+/**
+ * Immutable view of all split infos of current split info version, indexed by split name and work process.
+ * Transitive dependencies of every split are computed once when the snapshot is created.
+ */
+@RestrictTo(LIBRARY_GROUP)
+public final class SplitInfoSnapshot {
+
+    private final Map<String, SplitInfo> splitInfoMap;
+
+    private final Map<String, Set<String>> dependencyClosures;
+
+    private final List<SplitInfo> anyProcessSplits;
+
+    private final Map<String, List<SplitInfo>> processSplits;
+
+    SplitInfoSnapshot(LinkedHashMap<String, SplitInfo> splitInfoMap) {
+        this.splitInfoMap = Collections.unmodifiableMap(new LinkedHashMap<>(splitInfoMap));
+        this.dependencyClosures = createDependencyClosures(this.splitInfoMap);
+        Set<String> workProcessNames = new LinkedHashSet<>();
+        for (SplitInfo info : this.splitInfoMap.values()) {
+            if (info.getWorkProcesses() != null) {
+                workProcessNames.addAll(info.getWorkProcesses());
+            }
+        }
+        List<SplitInfo> anyProcess = new ArrayList<>();
+        Map<String, List<SplitInfo>> byProcess = new HashMap<>(workProcessNames.size());
+        for (String workProcess : workProcessNames) {
+            byProcess.put(workProcess, new ArrayList<SplitInfo>());
+        }
+        for (SplitInfo info : this.splitInfoMap.values()) {
+            List<String> workProcesses = info.getWorkProcesses();
+            if (workProcesses == null || workProcesses.isEmpty()) {
+                anyProcess.add(info);
+                for (List<SplitInfo> splits : byProcess.values()) {
+                    splits.add(info);
+                }
+            } else {
+                for (String workProcess : new LinkedHashSet<>(workProcesses)) {
+                    byProcess.get(workProcess).add(info);
+                }
+            }
+        }
+        for (Map.Entry<String, List<SplitInfo>> entry : byProcess.entrySet()) {
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+        this.anyProcessSplits = Collections.unmodifiableList(anyProcess);
+        this.processSplits = byProcess;
+    }
+
+    private static Map<String, Set<String>> createDependencyClosures(Map<String, SplitInfo> splitInfoMap) {
+        Map<String, Set<String>> closures = new HashMap<>(splitInfoMap.size());
+        for (String splitName : splitInfoMap.keySet()) {
+            Set<String> closure = new LinkedHashSet<>();
+            collectDependencies(splitName, splitInfoMap, closures, closure);
+            closure.remove(splitName);
+            closures.put(splitName, Collections.unmodifiableSet(closure));
+        }
+        return closures;
+    }
+
+    private static void collectDependencies(String splitName,
+                                            Map<String, SplitInfo> splitInfoMap,
+                                            Map<String, Set<String>> closures,
+                                            Set<String> result) {
+        SplitInfo info = splitInfoMap.get(splitName);
+        if (info == null || info.getDependencies() == null) {
+            return;
+        }
+        for (String dependency : info.getDependencies()) {
+            if (!result.add(dependency)) {
+                //already visited, dependency cycle is tolerated.
+                continue;
+            }
+            Set<String> computed = closures.get(dependency);
+            if (computed != null) {
+                result.addAll(computed);
+            } else {
+                collectDependencies(dependency, splitInfoMap, closures, result);
+            }
+        }
+    }
+
+    @Nullable
+    public SplitInfo getSplitInfo(String splitName) {
+        return splitInfoMap.get(splitName);
+    }
+
+    public boolean contains(String splitName) {
+        return splitInfoMap.containsKey(splitName);
+    }
+
+    /**
+     * @return {@code true} if every split of names is declared.
+     */
+    public boolean containsAll(@NonNull Collection<String> splitNames) {
+        for (String splitName : splitNames) {
+            if (!splitInfoMap.containsKey(splitName)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return split infos of names in request order, undeclared or duplicated names are ignored.
+     */
+    @NonNull
+    public List<SplitInfo> getSplitInfos(@NonNull Collection<String> splitNames) {
+        List<SplitInfo> splitInfos = new ArrayList<>(splitNames.size());
+        Set<String> added = new LinkedHashSet<>(splitNames.size());
+        for (String splitName : splitNames) {
+            SplitInfo info = splitInfoMap.get(splitName);
+            if (info != null && added.add(splitName)) {
+                splitInfos.add(info);
+            }
+        }
+        return splitInfos;
+    }
+
+    @NonNull
+    public Collection<SplitInfo> getAllSplitInfo() {
+        return splitInfoMap.values();
+    }
+
+    /**
+     * @return names of all direct and indirect dependencies of split, excluding itself.
+     */
+    @NonNull
+    public Set<String> getDependencyClosure(String splitName) {
+        Set<String> closure = dependencyClosures.get(splitName);
+        return closure == null ? Collections.<String>emptySet() : closure;
+    }
+
+    /**
+     * @param simpleProcessName process name without package name prefix, empty for main process.
+     * @return splits which declare no work processes or declare this process, in declaration order.
+     */
+    @NonNull
+    public List<SplitInfo> getSplitsForProcess(String simpleProcessName) {
+        List<SplitInfo> splits = processSplits.get(simpleProcessName);
+        return splits == null ? anyProcessSplits : splits;
+    }
+
+    public int size() {
+        return splitInfoMap.size();
+    }
+
+    public boolean isEmpty() {
+        return splitInfoMap.isEmpty();
+    }
+}
@@ -33,6 +33,9 @@ import com.iqiyi.android.qigsaw.core.common.SplitConstants;
 import com.iqiyi.android.qigsaw.core.common.SplitLog;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static android.support.annotation.RestrictTo.Scope.LIBRARY_GROUP;
@@ -78,6 +81,27 @@ public final class SplitPathManager {
         return splitRootDir;
     }
 
+    /**
+     * Names of splits which have files on disk, they may be installed, partially installed or marked uninstalled.
+     * Caller should look them up in split infos, names which are not splits are ignored there.
+     *
+     * @return sorted names of split root dirs.
+     */
+    public List<String> getSplitNamesOnDisk() {
+        File[] files = rootDir.listFiles();
+        if (files == null || files.length == 0) {
+            return Collections.emptyList();
+        }
+        List<String> splitNames = new ArrayList<>(files.length);
+        for (File file : files) {
+            if (file.isDirectory()) {
+                splitNames.add(file.getName());
+            }
+        }
+        Collections.sort(splitNames);
+        return splitNames;
+    }
+
     /**
      * get storage path of bundle apk
      *
@@ -0,0 +1,172 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present, iQIYI, Inc. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.iqiyi.android.qigsaw.core.splitrequest.splitinfo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Read binary split info table written by qigsaw-gradle-plugin, see generateTestSplitDetails of build.gradle.
+ */
+public class SplitInfoBinaryIndexTest {
+
+    private static final String SPLIT_DETAILS_NAME = "qigsaw_1.0.0_test";
+
+    private SplitDetails jsonDetails;
+
+    private byte[] table;
+
+    @Before
+    public void setUp() throws IOException {
+        File splitDetailsDir = new File(System.getProperty("qigsaw.splitDetailsDir", "build/generated/test/splitDetails"));
+        File jsonFile = new File(splitDetailsDir, SPLIT_DETAILS_NAME + ".json");
+        File binaryFile = new File(splitDetailsDir, SPLIT_DETAILS_NAME + ".qgbin");
+        assertTrue(binaryFile.getAbsolutePath() + " is not generated", binaryFile.exists());
+        jsonDetails = new SplitInfoManagerImpl().createSplitDetailsForJsonFile(jsonFile.getAbsolutePath());
+        assertNotNull(jsonDetails);
+        RandomAccessFile raf = new RandomAccessFile(binaryFile, "r");
+        try {
+            table = new byte[(int) raf.length()];
+            raf.readFully(table);
+        } finally {
+            raf.close();
+        }
+    }
+
+    @Test
+    public void readSameSplitDetailsAsJson() throws IOException {
+        SplitInfoBinaryIndex index = SplitInfoBinaryIndex.create(ByteBuffer.wrap(table));
+        assertEquals(jsonDetails.getQigsawId(), index.getQigsawId());
+        assertEquals(jsonDetails.getAppVersionName(), index.getAppVersionName());
+        assertEquals(jsonDetails.getUpdateSplits(), index.getUpdateSplits());
+
+        LinkedHashMap<String, SplitInfo> jsonSplitInfos = jsonDetails.getSplitInfoListing().getSplitInfoMap();
+        assertEquals(jsonSplitInfos.size(), index.getSplitCount());
+        List<String> splitNames = new ArrayList<>(jsonSplitInfos.keySet());
+        for (int i = 0; i < splitNames.size(); i++) {
+            SplitInfo expected = jsonSplitInfos.get(splitNames.get(i));
+            assertSplitInfoEquals(expected, index.getSplitInfo(expected.getSplitName()));
+            assertSplitInfoEquals(expected, index.getSplitInfo(i));
+        }
+        assertNull(index.getSplitInfo("unknown"));
+    }
+
+    @Test
+    public void rejectTruncatedTable() {
+        for (int length = 0; length < table.length; length++) {
+            try {
+                SplitInfoBinaryIndex.create(ByteBuffer.wrap(table, 0, length).slice());
+                fail("Table truncated to " + length + " bytes is accepted");
+            } catch (IOException e) {
+                //expected
+            }
+        }
+    }
+
+    @Test
+    public void rejectOrDecodeCorruptedTable() {
+        int[] values = {-2, -1, 0, 1, 0x7fff, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        for (int offset = 0; offset + 4 <= table.length; offset++) {
+            for (int value : values) {
+                ByteBuffer buffer = ByteBuffer.wrap(table.clone());
+                buffer.putInt(offset, value);
+                SplitInfoBinaryIndex index;
+                try {
+                    index = SplitInfoBinaryIndex.create(buffer);
+                } catch (IOException e) {
+                    continue;
+                }
+                //accepted table must be decoded without reading out of it.
+                try {
+                    index.getUpdateSplits();
+                    for (int i = 0; i < index.getSplitCount(); i++) {
+                        index.getSplitInfo(index.getSplitInfo(i).getSplitName());
+                    }
+                } catch (RuntimeException e) {
+                    throw new AssertionError("Table with " + value + " at " + offset + " is not decodable", e);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void listingDecodesAllSplitInfos() throws IOException {
+        SplitInfoListing listing = new SplitInfoListing(SplitInfoBinaryIndex.create(ByteBuffer.wrap(table)));
+        assertTrue(listing.isLazy());
+        assertEquals(new ArrayList<>(jsonDetails.getSplitInfoListing().getSplitInfoMap().keySet()),
+                new ArrayList<>(listing.getSplitInfoMap().keySet()));
+        for (SplitInfo info : listing.getSplitInfoMap().values()) {
+            assertTrue(info.isValid());
+        }
+    }
+
+    private static void assertSplitInfoEquals(SplitInfo expected, SplitInfo actual) {
+        assertNotNull(actual);
+        String splitName = expected.getSplitName();
+        assertEquals(splitName, actual.getSplitName());
+        assertEquals(splitName, expected.getAppVersion(), actual.getAppVersion());
+        assertEquals(splitName, expected.getSplitVersion(), actual.getSplitVersion());
+        assertEquals(splitName, expected.getUrl(), actual.getUrl());
+        assertEquals(splitName, expected.getMd5(), actual.getMd5());
+        assertEquals(splitName, expected.getSize(), actual.getSize());
+        assertEquals(splitName, expected.isBuiltIn(), actual.isBuiltIn());
+        assertEquals(splitName, expected.getMinSdkVersion(), actual.getMinSdkVersion());
+        assertEquals(splitName, expected.hasDex(), actual.hasDex());
+        assertEquals(splitName, expected.isMultiDex(), actual.isMultiDex());
+        assertEquals(splitName, expected.getWorkProcesses(), actual.getWorkProcesses());
+        assertEquals(splitName, expected.getDependencies(), actual.getDependencies());
+        assertEquals(splitName, expected.hasPatch(), actual.hasPatch());
+        assertEquals(splitName, expected.getPatchUrl(), actual.getPatchUrl());
+        assertEquals(splitName, expected.getPatchSize(), actual.getPatchSize());
+        assertEquals(splitName, expected.getPatchBaseMd5(), actual.getPatchBaseMd5());
+        assertEquals(splitName, expected.hasLibs(), actual.hasLibs());
+        if (expected.hasLibs()) {
+            assertEquals(splitName, expected.getLibInfo().getAbi(), actual.getLibInfo().getAbi());
+            List<SplitInfo.LibInfo.Lib> expectedLibs = expected.getLibInfo().getLibs();
+            List<SplitInfo.LibInfo.Lib> actualLibs = actual.getLibInfo().getLibs();
+            assertEquals(splitName, expectedLibs.size(), actualLibs.size());
+            for (int i = 0; i < expectedLibs.size(); i++) {
+                assertEquals(splitName, expectedLibs.get(i).getName(), actualLibs.get(i).getName());
+                assertEquals(splitName, expectedLibs.get(i).getMd5(), actualLibs.get(i).getMd5());
+                assertEquals(splitName, expectedLibs.get(i).getSize(), actualLibs.get(i).getSize());
+            }
+        }
+    }
+}